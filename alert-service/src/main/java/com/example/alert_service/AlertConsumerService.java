@@ -2,6 +2,8 @@ package com.example.alert_service;
 
 
 import com.example.common.events.Alert;
+import com.example.common.tracing.PipelineStage;
+import com.example.common.tracing.StageRecorder;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
@@ -11,11 +13,13 @@ import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 @Slf4j
 public class AlertConsumerService {
-    private final EmailService emailService;
+    private final AlertDigestAggregator alertDigestAggregator;
+    private final StageRecorder stageRecorder;
     private final Counter  alertsProcessed;
     private final Counter alertErrors;
     private static final Map<String, String> GROUP_EMAIL_MAP = Map.of(
@@ -26,8 +30,10 @@ public class AlertConsumerService {
             "oncall-team",    "oncall-team@company.com"
     );
 
-    public AlertConsumerService(EmailService emailService, MeterRegistry meterRegistry) {
-        this.emailService = emailService;
+    public AlertConsumerService(AlertDigestAggregator alertDigestAggregator, MeterRegistry meterRegistry,
+                                StageRecorder stageRecorder) {
+        this.alertDigestAggregator = alertDigestAggregator;
+        this.stageRecorder = stageRecorder;
         this.alertsProcessed = Counter.builder("alert.service.processed.total")
                 .description("Количество обработанных алертов")
                 .tag("application", "alert-service")
@@ -38,9 +44,16 @@ public class AlertConsumerService {
                 .register(meterRegistry);
     }
 
+    /**
+     * Алерт передаётся в {@link AlertDigestAggregator} (отдельное письмо или сводка по сервису),
+     * поток Kafka сразу берёт следующую запись. Смещение подтверждается после доставки письма с алертом
+     * (асинхронные ack: контейнер коммитит только непрерывный префикс подтверждённых смещений).
+     * Если очередь заполнена, исключение возвращает запись на повторную обработку.
+     */
     @KafkaListener(topics = "alert-topic", groupId = "alert-service-group", containerFactory = "alertKafkaListenerContainerFactory")
-    public void processAlert(ConsumerRecord<String, Alert> record, Acknowledgment ac) {
+    public void processAlert(ConsumerRecord<String, Alert> record, Acknowledgment ac) throws InterruptedException {
         Alert alert = record.value();
+        stageRecorder.received(record, PipelineStage.ALERT_RECEIVED);
         log.info("Получен алерт. id: {}, service: {}, group: {}",
                 alert.getId(), alert.getService(), alert.getResponsibleGroup());
         try {
@@ -49,31 +62,24 @@ public class AlertConsumerService {
                     "oncall-team@company.com"
             );
 
-            String subject = String.format("[HIGH PRIORITY] Инцидент #%d в сервисе %s",
-                    alert.getId(), alert.getService());
+            alertDigestAggregator.add(alert, recipientEmail).whenComplete((result, ex) -> {
+                if (ex == null) {
+                    alertsProcessed.increment();
+                    stageRecorder.stamp(record.headers(), PipelineStage.ALERT_DELIVERED);
+                    stageRecorder.endToEnd(record.headers(), "alert");
+                    log.info("Email отправлен группе {} на {}", alert.getResponsibleGroup(), recipientEmail);
+                } else {
+                    alertErrors.increment();
+                    log.error("Ошибка при отправке алерта id: {}: {}", alert.getId(), ex.getMessage(), ex);
+                }
+                ac.acknowledge();
+            });
 
-            String message = String.format(
-                    "Инцидент требует немедленного внимания!\n\n" +
-                            "ID: %d\n" +
-                            "Сервис: %s\n" +
-                            "Описание: %s\n" +
-                            "Статус: %s\n" +
-                            "Ответственная группа: %s\n" +
-                            "Время: %d",
-                    alert.getId(),
-                    alert.getService(),
-                    alert.getInfo(),
-                    alert.getStatus(),
-                    alert.getResponsibleGroup(),
-                    alert.getTimestamp()
-            );
-
-            emailService.sendSimpleEmail(recipientEmail, subject, message);
-            alertsProcessed.increment();
-            log.info("Email отправлен группе {} на {}", alert.getResponsibleGroup(), recipientEmail);
-            ac.acknowledge();
-
-        }catch (Exception e){
+        } catch (RejectedExecutionException e) {
+            alertErrors.increment();
+            log.warn("Алерт id: {} не принят в очередь отправки: {}", alert.getId(), e.getMessage());
+            throw e;
+        } catch (Exception e){
             alertErrors.increment();
             log.error("Ошибка при обработке алерта id: {}: {}", alert.getId(), e.getMessage(), e);
             ac.acknowledge();
@@ -0,0 +1,269 @@
+package com.example.alert_service;
+
+import com.example.common.events.Alert;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сводки алертов при шторме инцидентов. Алерты собираются в окна по (ответственная группа, сервис);
+ * окно отправляется одним письмом, когда набрало maxSize алертов или прошло maxLatency с первого алерта.
+ * В окне из одного алерта уходит обычное письмо. Первый алерт после затишья отправляется сразу,
+ * поэтому одиночный инцидент не ждёт окна. Future алерта завершается вместе с письмом, в которое он попал.
+ */
+@Component
+@Slf4j
+public class AlertDigestAggregator implements AutoCloseable {
+    private final AlertDispatcher alertDispatcher;
+    private final AlertDigestProperties properties;
+    private final long maxLatencyNanos;
+    private final ScheduledExecutorService flusher;
+
+    // guarded by this
+    private final Map<Key, Window> windows = new HashMap<>();
+    private int pending;
+
+    private final Counter alertsSent;
+    private final Counter emailsSent;
+    private final DistributionSummary digestSize;
+
+    public AlertDigestAggregator(AlertDispatcher alertDispatcher, AlertDigestProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.alertDispatcher = alertDispatcher;
+        this.properties = properties;
+        this.maxLatencyNanos = properties.getMaxLatency().toNanos();
+
+        alertsSent = Counter.builder("alert.service.digest.alerts.total")
+                .description("Алертов отправлено (в отдельных письмах и в сводках)")
+                .tag("application", "alert-service")
+                .register(meterRegistry);
+
+        emailsSent = Counter.builder("alert.service.digest.emails.total")
+                .description("Писем с алертами поставлено в отправку")
+                .tag("application", "alert-service")
+                .register(meterRegistry);
+
+        digestSize = DistributionSummary.builder("alert.service.digest.size")
+                .description("Алертов в одном письме")
+                .tag("application", "alert-service")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        Gauge.builder("alert.service.digest.compression.ratio", this, AlertDigestAggregator::compressionRatio)
+                .description("Алертов на одно письмо с момента запуска")
+                .tag("application", "alert-service")
+                .register(meterRegistry);
+
+        Gauge.builder("alert.service.digest.pending", this, AlertDigestAggregator::pending)
+                .description("Алертов в открытых окнах")
+                .tag("application", "alert-service")
+                .register(meterRegistry);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("alert-digest-flush").daemon().factory());
+        long tickMillis = Math.max(10, properties.getMaxLatency().toMillis() / 10);
+        flusher.scheduleWithFixedDelay(this::flushExpired, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Добавляет алерт в окно получателя. RejectedExecutionException - если окна переполнены
+     * или письмо, отправляемое сразу, не принято в очередь: запись нужно вернуть Kafka на повтор.
+     */
+    public CompletableFuture<Void> add(Alert alert, String recipient) throws InterruptedException {
+        if (!properties.isEnabled()) {
+            return alertDispatcher.submit(recipient, AlertMessages.subject(alert), AlertMessages.text(alert));
+        }
+        Pending entry = new Pending(alert, new CompletableFuture<>());
+        List<Pending> full = null;
+        boolean immediate = false;
+        Window window;
+        synchronized (this) {
+            window = windows.computeIfAbsent(new Key(alert.getResponsibleGroup(), alert.getService()),
+                    key -> new Window(key, recipient));
+            long now = System.nanoTime();
+            if (properties.isSendFirstImmediately() && window.alerts.isEmpty()
+                    && now - window.lastSentNanos >= maxLatencyNanos) {
+                window.lastSentNanos = now;
+                immediate = true;
+            } else {
+                if (pending >= properties.getMaxPending()) {
+                    throw new RejectedExecutionException("Окна сводок заполнены: " + pending);
+                }
+                if (window.alerts.isEmpty()) {
+                    window.openedNanos = now;
+                }
+                window.alerts.add(entry);
+                pending++;
+                if (window.alerts.size() >= properties.getMaxSize()) {
+                    full = drain(window, now);
+                }
+            }
+        }
+        if (immediate) {
+            return send(window.recipient, List.of(entry), true);
+        }
+        if (full != null) {
+            flush(window, full);
+        }
+        return entry.future;
+    }
+
+    private void flushExpired() {
+        List<Window> due = new ArrayList<>();
+        List<List<Pending>> batches = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            Iterator<Window> it = windows.values().iterator();
+            while (it.hasNext()) {
+                Window window = it.next();
+                if (!window.alerts.isEmpty() && now - window.openedNanos >= maxLatencyNanos) {
+                    due.add(window);
+                    batches.add(drain(window, now));
+                } else if (window.alerts.isEmpty() && now - window.lastSentNanos >= 2 * maxLatencyNanos) {
+                    // затихшее окно: следующий алерт всё равно уйдёт сразу
+                    it.remove();
+                }
+            }
+        }
+        for (int i = 0; i < due.size(); i++) {
+            flush(due.get(i), batches.get(i));
+        }
+    }
+
+    private List<Pending> drain(Window window, long now) {
+        List<Pending> batch = window.alerts;
+        window.alerts = new ArrayList<>();
+        window.lastSentNanos = now;
+        pending -= batch.size();
+        return batch;
+    }
+
+    /**
+     * Отправляет окно, не дожидаясь места в очереди отправки: иначе заполненная очередь остановила бы
+     * поток сводок вместе со всеми остальными окнами. Не принятые алерты возвращаются в окно
+     * до следующей проверки.
+     */
+    private void flush(Window window, List<Pending> batch) {
+        try {
+            send(window.recipient, batch, false);
+        } catch (RejectedExecutionException e) {
+            log.warn("Сводка из {} алертов для {} не принята в очередь отправки, повтор позже: {}",
+                    batch.size(), window.recipient, e.getMessage());
+            requeue(window, batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            requeue(window, batch);
+        }
+    }
+
+    private synchronized void requeue(Window window, List<Pending> batch) {
+        // пока сводка отправлялась, пустое окно могло быть удалено
+        Window target = windows.computeIfAbsent(window.key, key -> window);
+        if (target.alerts.isEmpty()) {
+            target.openedNanos = System.nanoTime() - maxLatencyNanos;
+        }
+        target.alerts.addAll(0, batch);
+        pending += batch.size();
+    }
+
+    /** wait - ждать места в очереди отправки (поток Kafka) или отказать сразу (поток сводок). */
+    private CompletableFuture<Void> send(String recipient, List<Pending> batch, boolean wait) throws InterruptedException {
+        CompletableFuture<Void> delivery;
+        if (batch.size() == 1) {
+            Alert alert = batch.getFirst().alert;
+            delivery = submit(recipient, AlertMessages.subject(alert), AlertMessages.text(alert), wait);
+        } else {
+            List<Alert> alerts = batch.stream().map(Pending::alert).toList();
+            delivery = submit(recipient, AlertMessages.digestSubject(alerts), AlertMessages.digestText(alerts), wait);
+            log.info("Сводка из {} алертов сервиса {} поставлена в отправку на {}",
+                    alerts.size(), alerts.getFirst().getService(), recipient);
+        }
+        alertsSent.increment(batch.size());
+        emailsSent.increment();
+        digestSize.record(batch.size());
+        delivery.whenComplete((result, ex) -> {
+            for (Pending entry : batch) {
+                if (ex == null) {
+                    entry.future.complete(null);
+                } else {
+                    entry.future.completeExceptionally(ex);
+                }
+            }
+        });
+        return delivery;
+    }
+
+    private CompletableFuture<Void> submit(String recipient, String subject, String text, boolean wait)
+            throws InterruptedException {
+        return wait ? alertDispatcher.submit(recipient, subject, text) : alertDispatcher.trySubmit(recipient, subject, text);
+    }
+
+    private double compressionRatio() {
+        double emails = emailsSent.count();
+        return emails == 0 ? 1.0 : alertsSent.count() / emails;
+    }
+
+    private synchronized int pending() {
+        return pending;
+    }
+
+    /** Открытые окна отправляются при остановке, не дожидаясь maxLatency. */
+    @PreDestroy
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        List<Window> open = new ArrayList<>();
+        List<List<Pending>> batches = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            for (Window window : windows.values()) {
+                if (!window.alerts.isEmpty()) {
+                    open.add(window);
+                    batches.add(drain(window, now));
+                }
+            }
+        }
+        for (int i = 0; i < open.size(); i++) {
+            try {
+                send(open.get(i).recipient, batches.get(i), true);
+            } catch (RejectedExecutionException | InterruptedException e) {
+                log.warn("Сводка из {} алертов для {} не отправлена при остановке: {}",
+                        batches.get(i).size(), open.get(i).recipient, e.getMessage());
+            }
+        }
+    }
+
+    private record Key(String group, String service) {
+    }
+
+    private static final class Window {
+        private final Key key;
+        private final String recipient;
+        private List<Pending> alerts = new ArrayList<>();
+        private long openedNanos;
+        private long lastSentNanos = System.nanoTime() - Long.MAX_VALUE / 2;
+
+        private Window(Key key, String recipient) {
+            this.key = key;
+            this.recipient = recipient;
+        }
+    }
+
+    private record Pending(Alert alert, CompletableFuture<Void> future) {
+    }
+}
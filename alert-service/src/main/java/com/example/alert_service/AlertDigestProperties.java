@@ -0,0 +1,23 @@
+package com.example.alert_service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "alert-service.digest")
+public class AlertDigestProperties {
+    /** false - каждый алерт отправляется отдельным письмом, как раньше. */
+    private boolean enabled = true;
+    /** Сводка отправляется, как только в окне набралось столько алертов. */
+    private int maxSize = 50;
+    /** Сводка отправляется не позже, чем через столько после первого алерта окна. */
+    private Duration maxLatency = Duration.ofSeconds(30);
+    /** Первый алерт после затишья (дольше maxLatency) уходит сразу, без ожидания окна. */
+    private boolean sendFirstImmediately = true;
+    /** Максимум алертов во всех окнах; сверх него записи возвращаются Kafka на повтор. */
+    private int maxPending = 10000;
+}
@@ -0,0 +1,26 @@
+package com.example.alert_service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "alert-service.dispatch")
+public class AlertDispatchProperties {
+    /** Максимум писем, принятых из Kafka и ещё не доставленных. */
+    private int queueCapacity = 1000;
+    /** Сколько ждать места в очереди, прежде чем вернуть запись Kafka на повтор. */
+    private Duration enqueueTimeout = Duration.ofSeconds(30);
+    /** Число SMTP-соединений и потоков доставки. */
+    private int connections = 4;
+    /** Сколько писем одному получателю отправляется подряд по одному соединению. */
+    private int batchPerRecipient = 20;
+    /** Соединение, простоявшее дольше, проверяется NOOP перед использованием. */
+    private Duration idleCheckAfter = Duration.ofSeconds(30);
+    /** Попыток доставки письма, включая первую. */
+    private int maxAttempts = 3;
+    private Duration retryBackoff = Duration.ofSeconds(1);
+}
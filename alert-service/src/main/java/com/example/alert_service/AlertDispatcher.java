@@ -0,0 +1,273 @@
+package com.example.alert_service;
+
+import com.example.common.metrics.LatencyHistograms;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Асинхронная доставка писем: Kafka-поток только ставит письмо в ограниченную очередь и получает future,
+ * отправкой занимаются потоки доставки, каждый со своим соединением из {@link SmtpConnectionPool}.
+ * Письма группируются по получателю: поток забирает очередь получателя целиком (до batchPerRecipient писем)
+ * и отправляет их подряд по одному соединению, порядок писем одному получателю сохраняется.
+ * Медленный ответ сервера на письмо одному получателю занимает один поток, а не всю партицию alert-topic.
+ */
+@Component
+@Slf4j
+public class AlertDispatcher implements AutoCloseable {
+    private final AlertDispatchProperties properties;
+    private final SmtpConnectionPool pool;
+    private final String from;
+    private final Semaphore capacity;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final BlockingQueue<Lane> readyLanes = new LinkedBlockingQueue<>();
+    private final ExecutorService workers;
+    private volatile boolean running = true;
+
+    private final Timer deliveryTimer;
+    private final Counter retries;
+    private final Counter failures;
+
+    public AlertDispatcher(JavaMailSender mailSender, AlertDispatchProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        JavaMailSenderImpl sender = (JavaMailSenderImpl) mailSender;
+        // тот же выбор протокола, что в JavaMailSenderImpl.getTransport
+        String protocol = sender.getProtocol() != null ? sender.getProtocol()
+                : sender.getSession().getProperty("mail.transport.protocol");
+        this.pool = new SmtpConnectionPool(sender.getSession(), protocol != null ? protocol : JavaMailSenderImpl.DEFAULT_PROTOCOL,
+                sender.getHost(), sender.getPort(),
+                sender.getUsername(), sender.getPassword(), properties.getConnections(),
+                properties.getIdleCheckAfter().toNanos());
+        this.from = sender.getUsername();
+        this.capacity = new Semaphore(properties.getQueueCapacity());
+
+        Gauge.builder("alert.service.dispatch.queue.size", capacity,
+                        permits -> properties.getQueueCapacity() - permits.availablePermits())
+                .description("Писем принято из Kafka и ещё не доставлено")
+                .tag("application", "alert-service")
+                .register(meterRegistry);
+
+        Gauge.builder("alert.service.dispatch.connections", pool, SmtpConnectionPool::openConnections)
+                .description("Открытых SMTP-соединений")
+                .tag("application", "alert-service")
+                .register(meterRegistry);
+
+        deliveryTimer = LatencyHistograms.slo(Timer.builder("alert.service.dispatch.delivery.time")
+                .description("Время от постановки письма в очередь до доставки")
+                .tag("application", "alert-service"))
+                .register(meterRegistry);
+
+        retries = Counter.builder("alert.service.dispatch.retries.total")
+                .description("Повторные попытки доставки")
+                .tag("application", "alert-service")
+                .register(meterRegistry);
+
+        failures = Counter.builder("alert.service.dispatch.failures.total")
+                .description("Письма, не доставленные после всех попыток")
+                .tag("application", "alert-service")
+                .register(meterRegistry);
+
+        workers = Executors.newFixedThreadPool(properties.getConnections(),
+                Thread.ofPlatform().name("alert-dispatch-", 0).daemon().factory());
+        for (int i = 0; i < properties.getConnections(); i++) {
+            workers.execute(this::runWorker);
+        }
+    }
+
+    /**
+     * Ставит письмо в очередь. Future завершается после доставки или после исчерпания попыток.
+     * Если очередь заполнена дольше enqueueTimeout, бросается RejectedExecutionException.
+     */
+    public CompletableFuture<Void> submit(String to, String subject, String text) throws InterruptedException {
+        checkRunning();
+        if (!capacity.tryAcquire(properties.getEnqueueTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            throw rejected();
+        }
+        return enqueue(to, subject, text);
+    }
+
+    /**
+     * Как {@link #submit}, но без ожидания места: для потоков, которые не должны стоять на заполненной очереди.
+     * RejectedExecutionException - если места нет прямо сейчас.
+     */
+    public CompletableFuture<Void> trySubmit(String to, String subject, String text) {
+        checkRunning();
+        if (!capacity.tryAcquire()) {
+            throw rejected();
+        }
+        return enqueue(to, subject, text);
+    }
+
+    private void checkRunning() {
+        if (!running) {
+            throw new RejectedExecutionException("Отправка писем остановлена");
+        }
+    }
+
+    private RejectedExecutionException rejected() {
+        return new RejectedExecutionException("Очередь отправки писем заполнена: " + properties.getQueueCapacity());
+    }
+
+    private CompletableFuture<Void> enqueue(String to, String subject, String text) {
+        Delivery delivery = new Delivery(to, subject, text, System.nanoTime());
+        Lane lane = lanes.computeIfAbsent(to, recipient -> new Lane());
+        boolean schedule;
+        synchronized (lane) {
+            lane.deliveries.add(delivery);
+            schedule = !lane.scheduled;
+            lane.scheduled = true;
+        }
+        if (schedule) {
+            readyLanes.add(lane);
+        }
+        return delivery.future;
+    }
+
+    private void runWorker() {
+        while (running || capacity.availablePermits() < properties.getQueueCapacity()) {
+            try {
+                Lane lane = readyLanes.poll(100, TimeUnit.MILLISECONDS);
+                if (lane == null) {
+                    continue;
+                }
+                List<Delivery> batch = new ArrayList<>(properties.getBatchPerRecipient());
+                synchronized (lane) {
+                    while (batch.size() < properties.getBatchPerRecipient() && !lane.deliveries.isEmpty()) {
+                        batch.add(lane.deliveries.poll());
+                    }
+                }
+                deliver(batch);
+                boolean reschedule;
+                synchronized (lane) {
+                    reschedule = !lane.deliveries.isEmpty();
+                    lane.scheduled = reschedule;
+                }
+                if (reschedule) {
+                    readyLanes.add(lane);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ошибка потока доставки писем", e);
+            }
+        }
+    }
+
+    private void deliver(List<Delivery> batch) throws InterruptedException {
+        SmtpConnectionPool.Connection connection = null;
+        try {
+            for (Delivery delivery : batch) {
+                MimeMessage message;
+                try {
+                    message = toMessage(delivery);
+                } catch (MessagingException e) {
+                    // некорректный адрес или заголовок: повтор не поможет
+                    complete(delivery, e);
+                    continue;
+                }
+                for (int attempt = 1; ; attempt++) {
+                    Exception error = null;
+                    try {
+                        if (connection == null) {
+                            connection = pool.borrow();
+                        }
+                        connection.send(message);
+                    } catch (MessagingException | RuntimeException e) {
+                        error = e;
+                        if (connection != null) {
+                            pool.invalidate(connection);
+                            connection = null;
+                        }
+                    }
+                    if (error == null || attempt >= properties.getMaxAttempts()) {
+                        complete(delivery, error);
+                        break;
+                    }
+                    retries.increment();
+                    log.warn("Ошибка доставки письма на {}, попытка {}: {}", delivery.to, attempt, error.getMessage());
+                    Thread.sleep(properties.getRetryBackoff().toMillis() * attempt);
+                }
+            }
+        } finally {
+            if (connection != null) {
+                pool.release(connection);
+            }
+        }
+    }
+
+    private MimeMessage toMessage(Delivery delivery) throws MessagingException {
+        MimeMessage message = pool.newMessage();
+        if (from != null) {
+            message.setFrom(from);
+        }
+        message.setRecipients(MimeMessage.RecipientType.TO, delivery.to);
+        message.setSubject(delivery.subject, StandardCharsets.UTF_8.name());
+        message.setText(delivery.text, StandardCharsets.UTF_8.name());
+        return message;
+    }
+
+    private void complete(Delivery delivery, Exception error) {
+        capacity.release();
+        if (error == null) {
+            deliveryTimer.record(System.nanoTime() - delivery.enqueuedNanos, TimeUnit.NANOSECONDS);
+            delivery.future.complete(null);
+        } else {
+            failures.increment();
+            delivery.future.completeExceptionally(error);
+        }
+    }
+
+    /** Новые письма не принимаются, уже принятые дожидаются доставки (до 30 с). */
+    @PreDestroy
+    @Override
+    public void close() {
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Не доставлено писем при остановке: {}",
+                        properties.getQueueCapacity() - capacity.availablePermits());
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+        pool.close();
+    }
+
+    private static final class Lane {
+        private final ArrayDeque<Delivery> deliveries = new ArrayDeque<>();
+        private boolean scheduled;
+    }
+
+    private record Delivery(String to, String subject, String text, long enqueuedNanos, CompletableFuture<Void> future) {
+        private Delivery(String to, String subject, String text, long enqueuedNanos) {
+            this(to, subject, text, enqueuedNanos, new CompletableFuture<>());
+        }
+    }
+}
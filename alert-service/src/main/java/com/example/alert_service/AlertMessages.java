@@ -0,0 +1,62 @@
+package com.example.alert_service;
+
+import com.example.common.events.Alert;
+
+import java.util.List;
+
+/** Тексты писем: одиночный алерт и сводка по нескольким алертам одного сервиса. */
+final class AlertMessages {
+
+    private AlertMessages() {
+    }
+
+    static String subject(Alert alert) {
+        return String.format("[HIGH PRIORITY] Инцидент #%d в сервисе %s",
+                alert.getId(), alert.getService());
+    }
+
+    static String text(Alert alert) {
+        return String.format(
+                "Инцидент требует немедленного внимания!\n\n" +
+                        "ID: %d\n" +
+                        "Сервис: %s\n" +
+                        "Описание: %s\n" +
+                        "Статус: %s\n" +
+                        "Ответственная группа: %s\n" +
+                        "Время: %d",
+                alert.getId(),
+                alert.getService(),
+                alert.getInfo(),
+                alert.getStatus(),
+                alert.getResponsibleGroup(),
+                alert.getTimestamp()
+        );
+    }
+
+    static String digestSubject(List<Alert> alerts) {
+        Alert first = alerts.getFirst();
+        return String.format("[HIGH PRIORITY] %d инцидентов в сервисе %s",
+                alerts.size(), first.getService());
+    }
+
+    static String digestText(List<Alert> alerts) {
+        Alert first = alerts.getFirst();
+        StringBuilder text = new StringBuilder(128 + alerts.size() * 96);
+        text.append(String.format(
+                "Инциденты требуют немедленного внимания!\n\n" +
+                        "Сервис: %s\n" +
+                        "Ответственная группа: %s\n" +
+                        "Инцидентов: %d\n" +
+                        "Время: %d - %d\n\n",
+                first.getService(),
+                first.getResponsibleGroup(),
+                alerts.size(),
+                first.getTimestamp(),
+                alerts.getLast().getTimestamp()));
+        for (Alert alert : alerts) {
+            text.append(String.format("#%d [%s] %s (время: %d)\n",
+                    alert.getId(), alert.getStatus(), alert.getInfo(), alert.getTimestamp()));
+        }
+        return text.toString();
+    }
+}
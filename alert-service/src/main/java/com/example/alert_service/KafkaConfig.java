@@ -1,14 +1,24 @@
 package com.example.alert_service;
 
-import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import com.example.common.kafka.ConsumerLagMonitor;
+import com.example.common.kafka.KafkaClientProfile;
+import com.example.common.kafka.KafkaScalingProperties;
+import com.example.common.kafka.KafkaTopicProvisioning;
+import com.example.common.kafka.PartitionAwareConcurrency;
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.tracing.StageRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import com.example.common.avro.PinnedAvroDeserializer;
 import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.stereotype.Component;
 
@@ -23,27 +33,90 @@ public class KafkaConfig {
     @Value("${spring.kafka.schema-registry-url}")
     private String schemaRegistryUrl;
 
+    // Алерты копятся в дайджесты, задержка fetch не заметна: по умолчанию high-throughput (см. alert-service.kafka)
     @Bean
-    public ConsumerFactory<String, Object> alertConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
+    @ConfigurationProperties(prefix = "alert-service.kafka")
+    public KafkaClientProfile alertKafkaProfile() {
+        return new KafkaClientProfile();
+    }
+
+    // Своих топиков нет: alert-topic создаёт incedent-processor (см. alert-service.provisioning)
+    @Bean
+    @ConfigurationProperties(prefix = "alert-service.provisioning")
+    public KafkaTopicProvisioning alertTopicProvisioning() {
+        return new KafkaTopicProvisioning();
+    }
+
+    @Bean
+    public KafkaAdmin.NewTopics alertTopics(KafkaTopicProvisioning alertTopicProvisioning) {
+        return alertTopicProvisioning.adminTopics();
+    }
+
+    // Потоки listener'а по партициям alert-topic и сигнал масштабирования (см. alert-service.scaling)
+    @Bean
+    @ConfigurationProperties(prefix = "alert-service.scaling")
+    public KafkaScalingProperties alertScaling() {
+        return new KafkaScalingProperties();
+    }
+
+    @Bean
+    public PartitionAwareConcurrency partitionAwareConcurrency(KafkaAdmin kafkaAdmin,
+                                                               KafkaTopicProvisioning alertTopicProvisioning,
+                                                               KafkaScalingProperties alertScaling) {
+        return new PartitionAwareConcurrency(kafkaAdmin.getConfigurationProperties(),
+                alertTopicProvisioning, alertScaling);
+    }
+
+    /** Gauge incidents.kafka.consumer.lag / desired.instances для alert-service-group (см. ConsumerLagMonitor). */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ConsumerLagMonitor consumerLagMonitor(MeterRegistry meterRegistry, KafkaAdmin kafkaAdmin,
+                                                 KafkaScalingProperties alertScaling) {
+        return new ConsumerLagMonitor(meterRegistry, kafkaAdmin.getConfigurationProperties(),
+                "alert-service-group", alertScaling);
+    }
+
+    /** Отметки этапов в заголовках Kafka и гистограммы incidents.pipeline.* (см. StageRecorder). */
+    @Bean
+    public StageRecorder stageRecorder(MeterRegistry meterRegistry) {
+        return new StageRecorder(meterRegistry);
+    }
+
+    /** Таймеры listener'ов и отправок incidents.kafka.listener.time / send.time (см. KafkaMetrics). */
+    @Bean
+    public KafkaMetrics kafkaMetrics(MeterRegistry meterRegistry) {
+        return new KafkaMetrics(meterRegistry);
+    }
+
+    @Bean
+    public ConsumerFactory<String, Object> alertConsumerFactory(KafkaClientProfile alertKafkaProfile) {
+        Map<String, Object> props = new HashMap<>(alertKafkaProfile.consumerProperties());
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, "alert-service-group");
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, KafkaAvroDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, PinnedAvroDeserializer.class);
         props.put("schema.registry.url", schemaRegistryUrl);
         props.put(KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, true);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // alert-topic пишет и Kafka Streams incedent-processor с exactly-once: записи прерванных
+        // транзакций не должны доходить до писем. Записи нетранзакционного слушателя видны как раньше
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, Object>
-    alertKafkaListenerContainerFactory() {
+    alertKafkaListenerContainerFactory(ConsumerFactory<String, Object> alertConsumerFactory,
+                                      KafkaMetrics kafkaMetrics,
+                                      PartitionAwareConcurrency concurrency) {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(alertConsumerFactory());
-        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.setConsumerFactory(alertConsumerFactory);
+        // Подтверждения приходят из потоков доставки в произвольном порядке
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        factory.setContainerCustomizer(concurrency.customizer());
+        factory.setRecordInterceptor(kafkaMetrics.recordInterceptor());
         return factory;
     }
 }
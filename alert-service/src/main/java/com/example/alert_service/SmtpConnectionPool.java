@@ -0,0 +1,118 @@
+package com.example.alert_service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул открытых SMTP-соединений. JavaMailSender на каждое письмо заново устанавливает TCP/TLS-соединение
+ * и проходит EHLO/AUTH; здесь соединение после отправки возвращается в пул и используется повторно.
+ * Соединение, на котором произошла ошибка, закрывается, а не возвращается.
+ */
+@Slf4j
+public class SmtpConnectionPool implements AutoCloseable {
+    private final Session session;
+    private final String protocol;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final long idleCheckAfterNanos;
+
+    private final Semaphore permits;
+    private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger open = new AtomicInteger();
+
+    public SmtpConnectionPool(Session session, String protocol, String host, int port,
+                              String username, String password, int size, long idleCheckAfterNanos) {
+        this.session = session;
+        this.protocol = protocol;
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.idleCheckAfterNanos = idleCheckAfterNanos;
+        this.permits = new Semaphore(size);
+    }
+
+    public Connection borrow() throws MessagingException, InterruptedException {
+        permits.acquire();
+        try {
+            Connection connection;
+            while ((connection = idle.poll()) != null) {
+                // NOOP стоит целого обмена с сервером, поэтому проверяются только долго простаивавшие
+                if (System.nanoTime() - connection.lastUsedNanos < idleCheckAfterNanos
+                        || connection.transport.isConnected()) {
+                    return connection;
+                }
+                close(connection);
+            }
+            Transport transport = session.getTransport(protocol);
+            transport.connect(host, port, username, password);
+            open.incrementAndGet();
+            log.debug("Открыто SMTP-соединение с {}:{}", host, port);
+            return new Connection(transport);
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void release(Connection connection) {
+        connection.lastUsedNanos = System.nanoTime();
+        idle.offer(connection);
+        permits.release();
+    }
+
+    /** Соединение после ошибки: закрывается, место в пуле освобождается под новое. */
+    public void invalidate(Connection connection) {
+        close(connection);
+        permits.release();
+    }
+
+    public MimeMessage newMessage() {
+        return new MimeMessage(session);
+    }
+
+    public int openConnections() {
+        return open.get();
+    }
+
+    private void close(Connection connection) {
+        open.decrementAndGet();
+        try {
+            connection.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Ошибка закрытия SMTP-соединения: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            close(connection);
+        }
+    }
+
+    public static final class Connection {
+        private final Transport transport;
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        private Connection(Transport transport) {
+            this.transport = transport;
+        }
+
+        public void send(MimeMessage message) throws MessagingException {
+            message.saveChanges();
+            transport.sendMessage(message, message.getAllRecipients());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.alert_service;
+
+import com.example.common.events.Alert;
+import com.example.common.events.IncidentStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@Epic("Alert service tests")
+@ExtendWith(MockitoExtension.class)
+public class AlertDigestAggregatorTest {
+
+    private static final String RECIPIENT = "payment-team@company.com";
+
+    @Mock
+    private AlertDispatcher alertDispatcher;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AlertDigestProperties properties = new AlertDigestProperties();
+    private AlertDigestAggregator aggregator;
+
+    @BeforeEach
+    public void setup() {
+        properties.setMaxSize(3);
+        properties.setMaxLatency(Duration.ofMillis(200));
+        properties.setSendFirstImmediately(false);
+        lenient().when(alertDispatcher.trySubmit(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (aggregator != null) {
+            aggregator.close();
+        }
+    }
+
+    @Test
+    @Story("Алерты одного сервиса в окне уходят одной сводкой при достижении maxSize")
+    public void add_windowReachesMaxSize_sendsSingleDigest() throws Exception {
+        aggregator = new AlertDigestAggregator(alertDispatcher, properties, meterRegistry);
+
+        CompletableFuture<Void> first = aggregator.add(alert(1, "payment-service"), RECIPIENT);
+        CompletableFuture<Void> second = aggregator.add(alert(2, "payment-service"), RECIPIENT);
+        verifyNoInteractions(alertDispatcher);
+        CompletableFuture<Void> third = aggregator.add(alert(3, "payment-service"), RECIPIENT);
+
+        verify(alertDispatcher).trySubmit(eq(RECIPIENT), eq("[HIGH PRIORITY] 3 инцидентов в сервисе payment-service"),
+                anyString());
+        CompletableFuture.allOf(first, second, third).get(1, TimeUnit.SECONDS);
+        assertThat(meterRegistry.get("alert.service.digest.compression.ratio").gauge().value()).isEqualTo(3.0);
+    }
+
+    @Test
+    @Story("По истечении maxLatency окно из одного алерта уходит обычным письмом, из нескольких - сводкой")
+    public void flushExpired_singleVersusDigest() throws Exception {
+        aggregator = new AlertDigestAggregator(alertDispatcher, properties, meterRegistry);
+
+        CompletableFuture<Void> single = aggregator.add(alert(1, "auth-service"), RECIPIENT);
+        CompletableFuture<Void> digestFirst = aggregator.add(alert(2, "payment-service"), RECIPIENT);
+        CompletableFuture<Void> digestSecond = aggregator.add(alert(3, "payment-service"), RECIPIENT);
+        verifyNoInteractions(alertDispatcher);
+
+        CompletableFuture.allOf(single, digestFirst, digestSecond).get(2, TimeUnit.SECONDS);
+
+        verify(alertDispatcher).trySubmit(eq(RECIPIENT), eq("[HIGH PRIORITY] Инцидент #1 в сервисе auth-service"),
+                anyString());
+        verify(alertDispatcher).trySubmit(eq(RECIPIENT), eq("[HIGH PRIORITY] 2 инцидентов в сервисе payment-service"),
+                anyString());
+        verify(alertDispatcher, never()).submit(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    @Story("Первый алерт после затишья отправляется сразу, без ожидания окна")
+    public void add_firstAfterQuiet_sentImmediately() throws Exception {
+        properties.setSendFirstImmediately(true);
+        when(alertDispatcher.submit(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        aggregator = new AlertDigestAggregator(alertDispatcher, properties, meterRegistry);
+
+        aggregator.add(alert(1, "payment-service"), RECIPIENT).get(1, TimeUnit.SECONDS);
+        CompletableFuture<Void> second = aggregator.add(alert(2, "payment-service"), RECIPIENT);
+
+        verify(alertDispatcher).submit(eq(RECIPIENT), startsWith("[HIGH PRIORITY] Инцидент #1"), anyString());
+        assertThat(second).isNotDone();
+        second.get(2, TimeUnit.SECONDS);
+        verify(alertDispatcher).trySubmit(eq(RECIPIENT), startsWith("[HIGH PRIORITY] Инцидент #2"), anyString());
+    }
+
+    @Test
+    @Story("Заполненная очередь отправки не блокирует поток сводок: алерты возвращаются в окно")
+    public void flushExpired_dispatchQueueFull_requeuesWithoutBlocking() throws Exception {
+        when(alertDispatcher.trySubmit(anyString(), anyString(), anyString()))
+                .thenThrow(new RejectedExecutionException("Очередь отправки писем заполнена: 1"))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        aggregator = new AlertDigestAggregator(alertDispatcher, properties, meterRegistry);
+
+        CompletableFuture<Void> auth = aggregator.add(alert(1, "auth-service"), RECIPIENT);
+        CompletableFuture<Void> payment = aggregator.add(alert(2, "payment-service"), RECIPIENT);
+
+        CompletableFuture.allOf(auth, payment).get(2, TimeUnit.SECONDS);
+        // один отказ и по письму на каждое окно
+        verify(alertDispatcher, times(3)).trySubmit(anyString(), anyString(), anyString());
+        verify(alertDispatcher, never()).submit(any(), any(), any());
+        assertThat(meterRegistry.get("alert.service.digest.pending").gauge().value()).isZero();
+    }
+
+    private static Alert alert(long id, String service) {
+        return Alert.newBuilder()
+                .setId(id)
+                .setService(service)
+                .setStatus(IncidentStatus.CREATED)
+                .setInfo("Test info")
+                .setTimestamp(System.currentTimeMillis())
+                .setResponsibleGroup("payment-team")
+                .build();
+    }
+}
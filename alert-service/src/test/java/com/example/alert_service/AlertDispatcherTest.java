@@ -0,0 +1,176 @@
+package com.example.alert_service;
+
+import com.example.common.events.Alert;
+import com.example.common.events.IncidentStatus;
+import com.example.common.tracing.StageRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import jakarta.mail.Session;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@Epic("Alert service tests")
+public class AlertDispatcherTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<AutoCloseable> closeables = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        StubTransport.reset();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        StubTransport.gate.countDown();
+        for (AutoCloseable closeable : closeables) {
+            closeable.close();
+        }
+        StubTransport.reset();
+    }
+
+    @Test
+    @Story("Соединение пула переиспользуется, а при исчерпании пула borrow ждёт освобождения")
+    public void pool_exhausted_borrowWaitsForRelease() throws Exception {
+        Session session = StubTransport.mailSender().getSession();
+        SmtpConnectionPool pool = new SmtpConnectionPool(session, StubTransport.PROTOCOL, "localhost", 25,
+                null, null, 1, Duration.ofSeconds(30).toNanos());
+        closeables.add(pool);
+
+        SmtpConnectionPool.Connection first = pool.borrow();
+        CompletableFuture<SmtpConnectionPool.Connection> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        Thread.sleep(200);
+        assertThat(second).isNotDone();
+
+        pool.release(first);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first);
+        assertThat(StubTransport.connects.get()).isEqualTo(1);
+        assertThat(pool.openConnections()).isEqualTo(1);
+    }
+
+    @Test
+    @Story("Ошибка отправки повторяется с растущей паузой по новому соединению")
+    public void submit_transientFailure_retriedWithBackoff() throws Exception {
+        AlertDispatcher dispatcher = dispatcher(properties(1, 3, Duration.ofMillis(100)));
+        StubTransport.failuresLeft.set(2);
+
+        long start = System.nanoTime();
+        dispatcher.submit("payment-team@company.com", "subject", "text").get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // паузы 100 и 200 мс: backoff * номер попытки
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(300);
+        assertThat(StubTransport.sentCount()).isEqualTo(1);
+        // соединение после ошибки закрывается, каждая попытка открывает новое
+        assertThat(StubTransport.connects.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter("alert.service.dispatch.retries.total",
+                "application", "alert-service").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @Story("После исчерпания попыток future письма завершается ошибкой")
+    public void submit_persistentFailure_failsAfterMaxAttempts() throws Exception {
+        AlertDispatcher dispatcher = dispatcher(properties(1, 2, Duration.ofMillis(10)));
+        StubTransport.failuresLeft.set(5);
+
+        CompletableFuture<Void> delivery = dispatcher.submit("payment-team@company.com", "subject", "text");
+
+        assertThatThrownBy(() -> delivery.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("451");
+        assertThat(StubTransport.sentCount()).isZero();
+        assertThat(meterRegistry.counter("alert.service.dispatch.failures.total",
+                "application", "alert-service").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @Story("Заполненная очередь отправки отклоняет письмо после enqueueTimeout")
+    public void submit_queueFull_rejected() throws Exception {
+        AlertDispatchProperties properties = properties(1, 1, Duration.ofMillis(10));
+        properties.setQueueCapacity(1);
+        properties.setEnqueueTimeout(Duration.ofMillis(100));
+        AlertDispatcher dispatcher = dispatcher(properties);
+        StubTransport.gate = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = dispatcher.submit("payment-team@company.com", "subject", "text");
+
+        assertThatThrownBy(() -> dispatcher.submit("auth-team@company.com", "subject", "text"))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        StubTransport.gate.countDown();
+        first.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @Story("Смещение алерта подтверждается только после доставки письма")
+    public void processAlert_acknowledgesOnlyAfterDelivery() throws Exception {
+        AlertDispatcher dispatcher = dispatcher(properties(1, 1, Duration.ofMillis(10)));
+        AlertDigestProperties digest = new AlertDigestProperties();
+        digest.setEnabled(false);
+        AlertDigestAggregator aggregator = new AlertDigestAggregator(dispatcher, digest, meterRegistry);
+        closeables.addFirst(aggregator);
+        AlertConsumerService consumer = new AlertConsumerService(aggregator, meterRegistry, new StageRecorder(meterRegistry));
+        StubTransport.gate = new CountDownLatch(1);
+        Acknowledgment ack = mock(Acknowledgment.class);
+
+        consumer.processAlert(new ConsumerRecord<>("alert-topic", 0, 0L, "1", alert()), ack);
+
+        // поток Kafka уже свободен, письмо ещё у сервера
+        Thread.sleep(200);
+        verify(ack, never()).acknowledge();
+
+        StubTransport.gate.countDown();
+        verify(ack, timeout(5000)).acknowledge();
+        assertThat(StubTransport.sentCount()).isEqualTo(1);
+    }
+
+    private AlertDispatcher dispatcher(AlertDispatchProperties properties) {
+        AlertDispatcher dispatcher = new AlertDispatcher(StubTransport.mailSender(), properties, meterRegistry);
+        closeables.add(dispatcher);
+        return dispatcher;
+    }
+
+    private static AlertDispatchProperties properties(int connections, int maxAttempts, Duration retryBackoff) {
+        AlertDispatchProperties properties = new AlertDispatchProperties();
+        properties.setConnections(connections);
+        properties.setMaxAttempts(maxAttempts);
+        properties.setRetryBackoff(retryBackoff);
+        return properties;
+    }
+
+    private static Alert alert() {
+        return Alert.newBuilder()
+                .setId(1L)
+                .setService("payment-service")
+                .setStatus(IncidentStatus.CREATED)
+                .setInfo("Test info")
+                .setTimestamp(System.currentTimeMillis())
+                .setResponsibleGroup("payment-team")
+                .build();
+    }
+}
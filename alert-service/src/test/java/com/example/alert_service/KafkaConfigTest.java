@@ -0,0 +1,26 @@
+package com.example.alert_service;
+
+import com.example.common.kafka.KafkaClientProfile;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Epic("Alert service tests")
+public class KafkaConfigTest {
+
+    @Test
+    @Story("Слушатель alert-topic не видит записи прерванных транзакций Kafka Streams")
+    public void alertConsumerFactory_readsCommittedOnly() {
+        KafkaConfig config = new KafkaConfig();
+        ReflectionTestUtils.setField(config, "bootstrapServers", "localhost:9092");
+        ReflectionTestUtils.setField(config, "schemaRegistryUrl", "http://localhost:8081");
+
+        assertThat(config.alertConsumerFactory(new KafkaClientProfile()).getConfigurationProperties())
+                .containsEntry(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed")
+                .containsEntry(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    }
+}
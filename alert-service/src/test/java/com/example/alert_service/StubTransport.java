@@ -0,0 +1,84 @@
+package com.example.alert_service;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Provider;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.URLName;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SMTP-транспорт без сети для тестов доставки: считает соединения и письма, может отказать
+ * в отправке заданное число раз или задержать отправку до открытия {@link #gate}.
+ */
+public class StubTransport extends Transport {
+    static final String PROTOCOL = "stub";
+
+    static final AtomicInteger connects = new AtomicInteger();
+    static final AtomicInteger failuresLeft = new AtomicInteger();
+    static final List<Message> sent = new ArrayList<>();
+    static volatile CountDownLatch gate = new CountDownLatch(0);
+
+    public StubTransport(Session session, URLName urlname) {
+        super(session, urlname);
+    }
+
+    static void reset() {
+        connects.set(0);
+        failuresLeft.set(0);
+        synchronized (sent) {
+            sent.clear();
+        }
+        gate = new CountDownLatch(0);
+    }
+
+    static int sentCount() {
+        synchronized (sent) {
+            return sent.size();
+        }
+    }
+
+    static JavaMailSenderImpl mailSender() {
+        Session session = Session.getInstance(new Properties());
+        session.addProvider(new Provider(Provider.Type.TRANSPORT, PROTOCOL, StubTransport.class.getName(), "test", "1"));
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setSession(session);
+        sender.setProtocol(PROTOCOL);
+        sender.setHost("localhost");
+        sender.setPort(25);
+        return sender;
+    }
+
+    @Override
+    protected boolean protocolConnect(String host, int port, String user, String password) {
+        connects.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void sendMessage(Message message, Address[] addresses) throws MessagingException {
+        try {
+            if (!gate.await(10, TimeUnit.SECONDS)) {
+                throw new MessagingException("Сервер не ответил");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Отправка прервана", e);
+        }
+        if (failuresLeft.getAndUpdate(left -> Math.max(left - 1, 0)) > 0) {
+            throw new MessagingException("451 Requested action aborted");
+        }
+        synchronized (sent) {
+            sent.add(message);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.benchmarks;
+
+import com.example.alert_service.AlertDispatchProperties;
+import com.example.alert_service.AlertDispatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность отправки алертов через {@link FakeSmtpServer} с задержкой на команду:
+ * прежний путь (JavaMailSender.send на каждое письмо, новое соединение и EHLO каждый раз)
+ * против {@link AlertDispatcher} с пулом соединений и группировкой по получателю.
+ * Одна операция - пакет из ALERTS писем пяти группам; в отчёте операций в секунду.
+ *
+ * Запуск: ./gradlew :benchmarks:jmh -PjmhIncludes=AlertDispatch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class AlertDispatchBenchmark {
+
+    private static final int ALERTS = 100;
+    private static final List<String> RECIPIENTS = List.of(
+            "payment-team@company.com", "auth-team@company.com", "order-team@company.com",
+            "inventory-team@company.com", "oncall-team@company.com");
+
+    /** Задержка фейкового сервера на каждую SMTP-команду, мс. */
+    @Param({"1", "5"})
+    public long latencyMillis;
+
+    @Param({"4"})
+    public int connections;
+
+    private FakeSmtpServer server;
+    private JavaMailSenderImpl mailSender;
+    private AlertDispatcher dispatcher;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new FakeSmtpServer(0, latencyMillis);
+
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(server.port());
+        mailSender.setUsername("alert-service@company.com");
+
+        AlertDispatchProperties properties = new AlertDispatchProperties();
+        properties.setConnections(connections);
+        properties.setQueueCapacity(ALERTS * 10);
+        dispatcher = new AlertDispatcher(mailSender, properties, new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dispatcher.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void sendPerMessage() {
+        for (int i = 0; i < ALERTS; i++) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom("alert-service@company.com");
+            message.setTo(RECIPIENTS.get(i % RECIPIENTS.size()));
+            message.setSubject("[HIGH PRIORITY] Инцидент #" + i);
+            message.setText("Инцидент требует немедленного внимания!");
+            mailSender.send(message);
+        }
+    }
+
+    @Benchmark
+    public void pooledDispatch() throws InterruptedException {
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>(ALERTS);
+        for (int i = 0; i < ALERTS; i++) {
+            deliveries.add(dispatcher.submit(RECIPIENTS.get(i % RECIPIENTS.size()),
+                    "[HIGH PRIORITY] Инцидент #" + i, "Инцидент требует немедленного внимания!"));
+        }
+        CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new)).join();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.benchmarks;
+
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Avro без Schema Registry для сквозных бенчмарков на embedded-брокере: обе сравниваемые реализации
+ * получают одинаковую сериализацию, разница замеров - только в пути обработки.
+ */
+final class AvroBinarySerde {
+
+    private AvroBinarySerde() {
+    }
+
+    static <T extends SpecificRecord> Serde<T> of(Class<T> type) {
+        SpecificDatumWriter<T> writer = new SpecificDatumWriter<>(type);
+        SpecificDatumReader<T> reader = new SpecificDatumReader<>(type);
+        return Serdes.serdeFrom(
+                (topic, data) -> {
+                    try {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+                        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+                        writer.write(data, encoder);
+                        encoder.flush();
+                        return out.toByteArray();
+                    } catch (IOException e) {
+                        throw new SerializationException(e);
+                    }
+                },
+                (topic, bytes) -> {
+                    try {
+                        return reader.read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+                    } catch (IOException e) {
+                        throw new SerializationException(e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.benchmarks;
+
+import com.example.common.events.IncidentCreateResponse;
+import com.example.common.events.IncidentPriority;
+import com.example.common.events.IncidentStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сборка ответа incident-create, как в IncidentService: newBuilder() (флаги полей, validate на каждом
+ * сеттере, проверка заданности при build) против конструктора со всеми полями.
+ *
+ * Запуск: ./gradlew :benchmarks:jmh -PjmhIncludes=AvroRecordConstruction
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AvroRecordConstructionBenchmark {
+
+    private long id;
+    private final String service = "payment-service";
+    private final String info = "Payment gateway timeout on checkout";
+
+    @Benchmark
+    public IncidentCreateResponse builder() {
+        return IncidentCreateResponse.newBuilder()
+                .setId(++id)
+                .setService(service)
+                .setInfo(info)
+                .setStatus(IncidentStatus.CREATED)
+                .setPriority(IncidentPriority.HIGH)
+                .setTimestamp(id)
+                .build();
+    }
+
+    @Benchmark
+    public IncidentCreateResponse constructor() {
+        return new IncidentCreateResponse(++id, service, info, IncidentStatus.CREATED, IncidentPriority.HIGH, id);
+    }
+}
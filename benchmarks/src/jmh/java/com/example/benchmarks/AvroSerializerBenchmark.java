@@ -0,0 +1,121 @@
+package com.example.benchmarks;
+
+import com.example.common.avro.PinnedAvroSerializer;
+import com.example.common.events.Alert;
+import com.example.common.events.Incident;
+import com.example.common.events.IncidentFindResponse;
+import com.example.common.events.IncidentPriority;
+import com.example.common.events.IncidentStatus;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация событий в формат Confluent: KafkaAvroSerializer (mock-реестр, схема закеширована
+ * после первой регистрации) против {@link PinnedAvroSerializer} с буфером и энкодером потока и
+ * прежней его версии, создававшей ByteArrayOutputStream и энкодер на каждое сообщение.
+ * Байты на операцию - gc.alloc.rate.norm из gc-профайлера (включён в build.gradle).
+ *
+ * Для confluent нужен настоящий kafka-avro-serializer в classpath (mock:// реестр).
+ * Запуск: ./gradlew :benchmarks:jmh -PjmhIncludes=AvroSerializer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AvroSerializerBenchmark {
+
+    /** Строк в IncidentFindResponse: типичная страница ответа поиска. */
+    private static final int FIND_PAGE_ROWS = 100;
+
+    @Param({"confluent", "perMessage", "pinned"})
+    public String serializer;
+
+    @Param({"Incident", "Alert", "IncidentFindResponse"})
+    public String type;
+
+    private Serializer<Object> impl;
+    private SpecificRecord record;
+
+    /** Кодирование PinnedAvroSerializer до буфера потока: новый поток и энкодер на сообщение. */
+    static final class PerMessageSerializer implements Serializer<Object> {
+        private final Map<Class<?>, SpecificDatumWriter<Object>> writers = new ConcurrentHashMap<>();
+
+        @Override
+        public byte[] serialize(String topic, Object data) {
+            SpecificRecord record = (SpecificRecord) data;
+            SpecificDatumWriter<Object> writer = writers.computeIfAbsent(record.getClass(),
+                    t -> new SpecificDatumWriter<>(record.getSchema()));
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            // magic byte и id схемы; значение id на стоимость не влияет
+            out.write(0);
+            out.write(0);
+            out.write(0);
+            out.write(0x03);
+            out.write(0xe9);
+            BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+            try {
+                writer.write(record, encoder);
+                encoder.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        impl = switch (serializer) {
+            case "confluent" -> {
+                KafkaAvroSerializer confluent = new KafkaAvroSerializer();
+                confluent.configure(Map.of("schema.registry.url", "mock://avro-serializer-benchmark"), false);
+                yield confluent;
+            }
+            case "perMessage" -> new PerMessageSerializer();
+            default -> {
+                PinnedAvroSerializer pinned = new PinnedAvroSerializer();
+                pinned.configure(Map.of(), false);
+                yield pinned;
+            }
+        };
+        record = switch (type) {
+            case "Incident" -> incident(1);
+            case "Alert" -> new Alert(1L, "payment-service", IncidentStatus.CREATED,
+                    "Payment gateway timeout on checkout", System.currentTimeMillis(), "payment-team");
+            default -> {
+                List<Incident> rows = new ArrayList<>(FIND_PAGE_ROWS);
+                for (int i = 0; i < FIND_PAGE_ROWS; i++) {
+                    rows.add(incident(i));
+                }
+                yield new IncidentFindResponse(rows, (long) FIND_PAGE_ROWS, 0, false);
+            }
+        };
+        // регистрация схемы и прогрев кешей не входят в замер
+        impl.serialize("bench", record);
+    }
+
+    private static Incident incident(long id) {
+        return new Incident(id, "payment-service", IncidentStatus.CREATED, IncidentPriority.HIGH,
+                "Payment gateway timeout on checkout", System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return impl.serialize("bench", record);
+    }
+}
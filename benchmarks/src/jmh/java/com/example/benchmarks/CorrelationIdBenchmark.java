@@ -0,0 +1,66 @@
+package com.example.benchmarks;
+
+import com.example.common.correlation.CorrelationId;
+import com.example.common.correlation.CorrelationIdGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость выдачи correlation id на один запрос: прежний UUID.randomUUID().toString()
+ * против компактного {@link CorrelationId} (строковый ключ + бинарный заголовок).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CorrelationIdBenchmark {
+
+    private final CorrelationIdGenerator generator = CorrelationIdGenerator.withRandomNode();
+    private String compactKey;
+    private byte[] compactHeader;
+
+    @Setup
+    public void setup() {
+        CorrelationId id = generator.next();
+        compactKey = id.toString();
+        compactHeader = id.toBytes();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String uuidKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String compactKey() {
+        return generator.next().toString();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void compactKeyAndHeader(Blackhole blackhole) {
+        CorrelationId id = generator.next();
+        // ключ и заголовок нужны оба: без consume JIT выбросит toString() как мёртвый код
+        blackhole.consume(id.toString());
+        blackhole.consume(id.toBytes());
+    }
+
+    @Benchmark
+    public CorrelationId parseFromHeader() {
+        return CorrelationId.fromBytes(compactHeader);
+    }
+
+    @Benchmark
+    public CorrelationId parseFromKey() {
+        return CorrelationId.parse(compactKey);
+    }
+
+    @Benchmark
+    public UUID parseUuidKey() {
+        return UUID.fromString("3f1c2a4e-8b7d-4c1e-9f0a-123456789abc");
+    }
+}
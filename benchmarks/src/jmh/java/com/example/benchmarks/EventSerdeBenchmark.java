@@ -0,0 +1,104 @@
+package com.example.benchmarks;
+
+import com.example.common.avro.PinnedAvroDeserializer;
+import com.example.common.avro.PinnedAvroSerializer;
+import com.example.common.events.Alert;
+import com.example.common.events.Incident;
+import com.example.common.events.IncidentCreateRequest;
+import com.example.common.events.IncidentCreateResponse;
+import com.example.common.events.IncidentFindRequest;
+import com.example.common.events.IncidentFindResponse;
+import com.example.common.events.IncidentPriority;
+import com.example.common.events.IncidentStatus;
+import com.example.common.events.IncidentUpdateRequest;
+import com.example.common.events.IncidentUpdateResponse;
+import org.apache.avro.specific.SpecificRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация и десериализация каждого события com.example.common.events сериализаторами,
+ * с которыми работают сервисы ({@link PinnedAvroSerializer}, {@link PinnedAvroDeserializer}).
+ * Сравнение с KafkaAvroSerializer - в {@link AvroSerializerBenchmark}.
+ *
+ * Запуск: ./gradlew :benchmarks:jmh -PjmhIncludes=EventSerde
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EventSerdeBenchmark {
+
+    private static final int FIND_PAGE_ROWS = 100;
+
+    @Param({"Incident", "Alert", "IncidentCreateRequest", "IncidentCreateResponse", "IncidentUpdateRequest",
+            "IncidentUpdateResponse", "IncidentFindRequest", "IncidentFindResponse"})
+    public String type;
+
+    private final PinnedAvroSerializer serializer = new PinnedAvroSerializer();
+    private final PinnedAvroDeserializer deserializer = new PinnedAvroDeserializer();
+    private SpecificRecord record;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        serializer.configure(Map.of(), false);
+        deserializer.configure(Map.of(), false);
+        long now = System.currentTimeMillis();
+        record = switch (type) {
+            case "Incident" -> incident(1, now);
+            case "Alert" -> new Alert(1L, "payment-service", IncidentStatus.CREATED,
+                    "Payment gateway timeout on checkout", now, "payment-team");
+            case "IncidentCreateRequest" -> IncidentCreateRequest.newBuilder()
+                    .setService("payment-service")
+                    .setInfo("Payment gateway timeout on checkout")
+                    .setPriority(IncidentPriority.HIGH)
+                    .build();
+            case "IncidentCreateResponse" -> new IncidentCreateResponse(1L, "payment-service",
+                    "Payment gateway timeout on checkout", IncidentStatus.CREATED, IncidentPriority.HIGH, now);
+            case "IncidentUpdateRequest" -> IncidentUpdateRequest.newBuilder()
+                    .setId(1L)
+                    .setService(null)
+                    .setStatus(IncidentStatus.PROCESSING)
+                    .setPriority(null)
+                    .build();
+            case "IncidentUpdateResponse" -> new IncidentUpdateResponse(1L, "payment-service",
+                    "Payment gateway timeout on checkout", IncidentStatus.PROCESSING, IncidentPriority.HIGH, now, now);
+            case "IncidentFindRequest" -> IncidentFindRequest.newBuilder()
+                    .setId(null)
+                    .setService("payment-service")
+                    .setStatus(IncidentStatus.CREATED)
+                    .setPriority(null)
+                    .setPageSize(FIND_PAGE_ROWS)
+                    .build();
+            default -> {
+                List<Incident> rows = new ArrayList<>(FIND_PAGE_ROWS);
+                for (int i = 0; i < FIND_PAGE_ROWS; i++) {
+                    rows.add(incident(i, now));
+                }
+                yield new IncidentFindResponse(rows, (long) FIND_PAGE_ROWS, 0, false);
+            }
+        };
+        bytes = serializer.serialize("bench", record);
+    }
+
+    private static Incident incident(long id, long timestamp) {
+        return new Incident(id, "payment-service", IncidentStatus.CREATED, IncidentPriority.HIGH,
+                "Payment gateway timeout on checkout", timestamp);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize("bench", record);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return deserializer.deserialize("bench", bytes);
+    }
+}
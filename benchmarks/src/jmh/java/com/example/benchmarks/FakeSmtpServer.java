@@ -0,0 +1,122 @@
+package com.example.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Минимальный SMTP-сервер для бенчмарков и локального запуска alert-service: принимает любые письма
+ * и ничего не доставляет. Задержка на каждую команду имитирует удалённый почтовый сервер,
+ * поэтому видна разница между соединением на письмо и переиспользованием соединений.
+ *
+ * Отдельный запуск: java -cp benchmarks-jmh.jar com.example.benchmarks.FakeSmtpServer 2525 5
+ */
+public final class FakeSmtpServer implements AutoCloseable {
+    private final ServerSocket serverSocket;
+    private final long commandLatencyMillis;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong sessions = new AtomicLong();
+
+    public FakeSmtpServer(int port, long commandLatencyMillis) throws IOException {
+        this.serverSocket = new ServerSocket(port);
+        this.commandLatencyMillis = commandLatencyMillis;
+        Thread.ofPlatform().name("fake-smtp-accept").daemon().start(this::acceptLoop);
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /** Принятых писем (завершённых DATA). */
+    public long accepted() {
+        return accepted.get();
+    }
+
+    /** Открытых за всё время SMTP-сессий. */
+    public long sessions() {
+        return sessions.get();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sessions.incrementAndGet();
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             OutputStream out = socket.getOutputStream()) {
+            reply(out, "220 fake-smtp ready");
+            String line;
+            while ((line = in.readLine()) != null) {
+                pause();
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-fake-smtp\r\n250 8BITMIME");
+                    case "HELO", "MAIL", "RCPT", "RSET", "NOOP" -> reply(out, "250 OK");
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // тело письма отбрасывается
+                        }
+                        pause();
+                        accepted.incrementAndGet();
+                        reply(out, "250 OK queued");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // клиент закрыл соединение
+        }
+    }
+
+    private void pause() {
+        if (commandLatencyMillis > 0) {
+            try {
+                Thread.sleep(commandLatencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void reply(OutputStream out, String response) throws IOException {
+        out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 2525;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        try (FakeSmtpServer server = new FakeSmtpServer(port, latency)) {
+            System.out.println("Fake SMTP слушает порт " + server.port() + ", задержка на команду " + latency + " мс");
+            Thread.currentThread().join();
+        }
+    }
+}
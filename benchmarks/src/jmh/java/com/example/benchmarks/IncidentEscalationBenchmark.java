@@ -0,0 +1,252 @@
+package com.example.benchmarks;
+
+import com.example.common.events.Alert;
+import com.example.common.events.Incident;
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.tracing.StageRecorder;
+import com.example.common.events.IncidentPriority;
+import com.example.common.events.IncidentStatus;
+import com.example.incedent_processor.routing.RoutingProperties;
+import com.example.incedent_processor.routing.ServiceRoutingTable;
+import com.example.incedent_processor.services.IncidentProcessorService;
+import com.example.incedent_processor.streams.IncidentEscalationTopology;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Сквозное сравнение high-priority-alert -> alert-topic на embedded-брокере: @KafkaListener
+ * IncidentProcessorService (ручной ack, идемпотентный продюсер) против Kafka Streams
+ * (exactly_once_v2, отсев повторов). Алерты читаются с isolation.level=read_committed, как их увидит
+ * потребитель, которому нужна exactly-once семантика; поэтому задержка Streams включает commit.interval.
+ *
+ * batch - пропускная способность (пакет из BATCH инцидентов до получения всех алертов),
+ * roundTrip - задержка одного инцидента от отправки до алерта.
+ *
+ * Запуск: ./gradlew :benchmarks:jmh -PjmhIncludes=IncidentEscalation
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class IncidentEscalationBenchmark {
+
+    private static final int BATCH = 1000;
+    private static final int PARTITIONS = 4;
+
+    @Param({"listener", "streams"})
+    public String path;
+
+    /** Потоков слушателя (concurrency) и num.stream.threads. */
+    @Param({"1"})
+    public int threads;
+
+    @Param({"100"})
+    public long commitIntervalMillis;
+
+    private EmbeddedKafkaBroker broker;
+    private KafkaProducer<String, Incident> producer;
+    private KafkaConsumer<String, byte[]> alertConsumer;
+    private Thread alertReader;
+    private volatile boolean reading = true;
+    private final AtomicLong alertsReceived = new AtomicLong();
+    private final AtomicLong nextId = new AtomicLong();
+    private long alertsExpected;
+
+    private ConcurrentMessageListenerContainer<String, Incident> listenerContainer;
+    private DefaultKafkaProducerFactory<String, Object> listenerProducerFactory;
+    private KafkaStreams streams;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        broker = new EmbeddedKafkaKraftBroker(1, PARTITIONS,
+                IncidentEscalationTopology.INPUT_TOPIC, IncidentEscalationTopology.ALERT_TOPIC)
+                .brokerProperties(Map.of(
+                        "transaction.state.log.replication.factor", "1",
+                        "transaction.state.log.min.isr", "1"));
+        ((EmbeddedKafkaKraftBroker) broker).afterPropertiesSet();
+
+        Serde<Incident> incidentSerde = AvroBinarySerde.of(Incident.class);
+        Serde<Alert> alertSerde = AvroBinarySerde.of(Alert.class);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ServiceRoutingTable routingTable = new ServiceRoutingTable(new RoutingProperties(), meterRegistry);
+
+        producer = new KafkaProducer<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ProducerConfig.ACKS_CONFIG, "all",
+                ProducerConfig.LINGER_MS_CONFIG, 1),
+                new StringSerializer(), incidentSerde.serializer());
+
+        if (path.equals("listener")) {
+            startListener(incidentSerde, alertSerde, routingTable, meterRegistry);
+        } else {
+            startStreams(incidentSerde, alertSerde, routingTable, meterRegistry);
+        }
+        startAlertReader();
+
+        // прогрев соединений и назначение партиций до первого замера
+        sendAndAwait(PARTITIONS * 10);
+    }
+
+    private void startListener(Serde<Incident> incidentSerde, Serde<Alert> alertSerde,
+                               ServiceRoutingTable routingTable, MeterRegistry meterRegistry) {
+        Serializer<Object> alertSerializer = (topic, data) -> alertSerde.serializer().serialize(topic, (Alert) data);
+        listenerProducerFactory = new DefaultKafkaProducerFactory<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ProducerConfig.ACKS_CONFIG, "all",
+                ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true),
+                new StringSerializer(), alertSerializer);
+        IncidentProcessorService service = new IncidentProcessorService(
+                new KafkaTemplate<>(listenerProducerFactory), meterRegistry, routingTable,
+                new StageRecorder(meterRegistry), new KafkaMetrics(meterRegistry));
+
+        DefaultKafkaConsumerFactory<String, Incident> consumerFactory = new DefaultKafkaConsumerFactory<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ConsumerConfig.GROUP_ID_CONFIG, "bench-listener-" + UUID.randomUUID(),
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false),
+                new StringDeserializer(), incidentSerde.deserializer());
+        ContainerProperties containerProperties = new ContainerProperties(IncidentEscalationTopology.INPUT_TOPIC);
+        containerProperties.setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        containerProperties.setMessageListener(
+                (AcknowledgingMessageListener<String, Incident>) service::processIncident);
+        listenerContainer = new ConcurrentMessageListenerContainer<>(consumerFactory, containerProperties);
+        listenerContainer.setConcurrency(threads);
+        listenerContainer.start();
+    }
+
+    private void startStreams(Serde<Incident> incidentSerde, Serde<Alert> alertSerde,
+                              ServiceRoutingTable routingTable, MeterRegistry meterRegistry) throws Exception {
+        StreamsBuilder builder = new StreamsBuilder();
+        IncidentEscalationTopology.build(builder, incidentSerde, alertSerde, routingTable, Duration.ofHours(1),
+                meterRegistry.counter("processed"), meterRegistry.counter("duplicates"));
+        Map<String, Object> props = Map.of(
+                StreamsConfig.APPLICATION_ID_CONFIG, "bench-streams-" + UUID.randomUUID(),
+                StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                StreamsConfig.PROCESSING_GUARANTEE_CONFIG, StreamsConfig.EXACTLY_ONCE_V2,
+                StreamsConfig.NUM_STREAM_THREADS_CONFIG, threads,
+                StreamsConfig.COMMIT_INTERVAL_MS_CONFIG, commitIntervalMillis,
+                StreamsConfig.STATE_DIR_CONFIG, Files.createTempDirectory("bench-streams").toString(),
+                StreamsConfig.REPLICATION_FACTOR_CONFIG, 1,
+                StreamsConfig.consumerPrefix(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG), "earliest");
+        streams = new KafkaStreams(builder.build(), new StreamsConfig(props));
+        streams.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (streams.state() != KafkaStreams.State.RUNNING) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Kafka Streams не запустился: " + streams.state());
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private void startAlertReader() {
+        alertConsumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ConsumerConfig.GROUP_ID_CONFIG, "bench-alerts-" + UUID.randomUUID(),
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+                ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed"),
+                new StringDeserializer(), new ByteArrayDeserializer());
+        alertConsumer.subscribe(List.of(IncidentEscalationTopology.ALERT_TOPIC));
+        alertReader = Thread.ofPlatform().name("bench-alert-reader").daemon().start(() -> {
+            try {
+                while (reading) {
+                    alertsReceived.addAndGet(alertConsumer.poll(Duration.ofMillis(100)).count());
+                }
+            } catch (WakeupException e) {
+                // остановка
+            } finally {
+                alertConsumer.close();
+            }
+        });
+    }
+
+    private void sendAndAwait(int count) {
+        for (int i = 0; i < count; i++) {
+            long id = nextId.incrementAndGet();
+            producer.send(new ProducerRecord<>(IncidentEscalationTopology.INPUT_TOPIC,
+                    UUID.randomUUID().toString(), incident(id)));
+        }
+        producer.flush();
+        alertsExpected += count;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (alertsReceived.get() < alertsExpected) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Получено алертов " + alertsReceived.get() + " из " + alertsExpected);
+            }
+            LockSupport.parkNanos(20_000);
+        }
+    }
+
+    private static Incident incident(long id) {
+        return Incident.newBuilder()
+                .setId(id)
+                .setService("payment-service")
+                .setInfo("Benchmark incident")
+                .setStatus(IncidentStatus.CREATED)
+                .setPriority(IncidentPriority.HIGH)
+                .setTimestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void batch() {
+        sendAndAwait(BATCH);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void roundTrip() {
+        sendAndAwait(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        reading = false;
+        alertConsumer.wakeup();
+        alertReader.join(5000);
+        if (listenerContainer != null) {
+            listenerContainer.stop();
+            listenerProducerFactory.destroy();
+        }
+        if (streams != null) {
+            streams.close(Duration.ofSeconds(10));
+        }
+        producer.close();
+        broker.destroy();
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.benchmarks;
+
+import com.example.common.events.IncidentCreateResponse;
+import com.example.incedent_producer_service.controller.IncidentViews;
+import com.example.incedent_service.entities.Incident;
+import com.example.incedent_service.entities.IncidentPriority;
+import com.example.incedent_service.entities.IncidentStatus;
+import com.example.incedent_service.services.IncidentEventMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразования на пути каждого запроса: сущность -> события Avro в incedent-service
+ * ({@link IncidentEventMapper}) и событие -> HashMap ответа REST-шлюза ({@link IncidentViews}).
+ *
+ * Запуск: ./gradlew :benchmarks:jmh -PjmhIncludes=IncidentMapping
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IncidentMappingBenchmark {
+
+    private Incident entity;
+    private IncidentCreateResponse createResponse;
+    private com.example.common.events.Incident avroIncident;
+
+    @Setup
+    public void setup() {
+        entity = Incident.builder()
+                .id(42L)
+                .service("payment-service")
+                .info("Payment gateway timeout on checkout")
+                .status(IncidentStatus.CREATED)
+                .priority(IncidentPriority.HIGH)
+                .timestamp(System.currentTimeMillis())
+                .build();
+        createResponse = IncidentEventMapper.toCreateResponse(entity);
+        avroIncident = IncidentEventMapper.toAvroIncident(entity);
+    }
+
+    @Benchmark
+    public com.example.common.events.Incident toAvroIncident() {
+        return IncidentEventMapper.toAvroIncident(entity);
+    }
+
+    @Benchmark
+    public IncidentCreateResponse toCreateResponse() {
+        return IncidentEventMapper.toCreateResponse(entity);
+    }
+
+    @Benchmark
+    public Map<String, Object> createdView() {
+        return IncidentViews.created(createResponse);
+    }
+
+    @Benchmark
+    public Map<String, Object> incidentView() {
+        return IncidentViews.incident(avroIncident);
+    }
+}
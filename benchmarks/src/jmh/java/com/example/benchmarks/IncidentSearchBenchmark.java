@@ -0,0 +1,191 @@
+package com.example.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyset-страница поиска инцидентов на таблице из 10 млн строк: без индексов (как после ddl-auto)
+ * и с индексами из миграции V3. Запросы повторяют SQL, который Hibernate строит для derived query
+ * IncidentQueryPlanner. Нужен PostgreSQL; подключение задаётся переменными BENCH_JDBC_URL,
+ * BENCH_JDBC_USER, BENCH_JDBC_PASSWORD. Таблица incidents_bench заполняется один раз и переиспользуется.
+ *
+ * Запуск: ./gradlew :benchmarks:jmh -PjmhIncludes=IncidentSearch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class IncidentSearchBenchmark {
+
+    private static final String TABLE = "incidents_bench";
+    private static final int SERVICES = 200;
+    private static final int PAGE_SIZE = 500;
+
+    // Индексы V3, перенесённые на таблицу бенчмарка
+    private static final List<String> INDEXES = List.of(
+            "CREATE INDEX bench_status_id ON " + TABLE + " (status, id)",
+            "CREATE INDEX bench_priority_id ON " + TABLE + " (priority, id)",
+            "CREATE INDEX bench_service_id ON " + TABLE + " (service, id)",
+            "CREATE INDEX bench_service_status_id ON " + TABLE + " (service, status, id)",
+            "CREATE INDEX bench_service_priority_id ON " + TABLE + " (service, priority, id)",
+            "CREATE INDEX bench_open_status_priority_id ON " + TABLE + " (status, priority, id)"
+                    + " WHERE status IN ('CREATED', 'PROCESSING')");
+
+    private static final String COLUMNS = "id, service, status, priority, info, timestamp";
+
+    @Param({"10000000"})
+    public long rows;
+
+    @Param({"none", "v3"})
+    public String indexes;
+
+    private Connection connection;
+    private PreparedStatement byStatus;
+    private PreparedStatement byServiceAndStatus;
+    private PreparedStatement byServiceAndPriority;
+    private PreparedStatement byStatusAndPriority;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(
+                env("BENCH_JDBC_URL", "jdbc:postgresql://localhost:5432/postgres"),
+                env("BENCH_JDBC_USER", "postgres"),
+                env("BENCH_JDBC_PASSWORD", "8520"));
+
+        try (Statement statement = connection.createStatement()) {
+            if (existingRows(statement) != rows) {
+                populate(statement);
+            }
+            statement.execute("DROP INDEX IF EXISTS bench_status_id, bench_priority_id, bench_service_id, "
+                    + "bench_service_status_id, bench_service_priority_id, bench_open_status_priority_id");
+            if ("v3".equals(indexes)) {
+                for (String index : INDEXES) {
+                    statement.execute(index);
+                }
+            }
+            statement.execute("VACUUM ANALYZE " + TABLE);
+        }
+
+        byStatus = connection.prepareStatement("SELECT " + COLUMNS + " FROM " + TABLE
+                + " WHERE status = ? AND id > ? ORDER BY id LIMIT ?");
+        byServiceAndStatus = connection.prepareStatement("SELECT " + COLUMNS + " FROM " + TABLE
+                + " WHERE service = ? AND status = ? AND id > ? ORDER BY id LIMIT ?");
+        byServiceAndPriority = connection.prepareStatement("SELECT " + COLUMNS + " FROM " + TABLE
+                + " WHERE service = ? AND priority = ? AND id > ? ORDER BY id LIMIT ?");
+        byStatusAndPriority = connection.prepareStatement("SELECT " + COLUMNS + " FROM " + TABLE
+                + " WHERE status = ? AND priority = ? AND id > ? ORDER BY id LIMIT ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /** Открытые инциденты по статусу: ~5% таблицы, страница с произвольного курсора. */
+    @Benchmark
+    public int statusPage() throws SQLException {
+        byStatus.setString(1, "CREATED");
+        byStatus.setLong(2, randomCursor());
+        byStatus.setInt(3, PAGE_SIZE);
+        return drain(byStatus);
+    }
+
+    @Benchmark
+    public int serviceStatusPage() throws SQLException {
+        byServiceAndStatus.setString(1, randomService());
+        byServiceAndStatus.setString(2, "COMPLETED");
+        byServiceAndStatus.setLong(3, randomCursor());
+        byServiceAndStatus.setInt(4, PAGE_SIZE);
+        return drain(byServiceAndStatus);
+    }
+
+    @Benchmark
+    public int servicePriorityPage() throws SQLException {
+        byServiceAndPriority.setString(1, randomService());
+        byServiceAndPriority.setString(2, "HIGH");
+        byServiceAndPriority.setLong(3, randomCursor());
+        byServiceAndPriority.setInt(4, PAGE_SIZE);
+        return drain(byServiceAndPriority);
+    }
+
+    /** Статус + приоритет среди открытых: обслуживается частичным индексом. */
+    @Benchmark
+    public int openStatusPriorityPage() throws SQLException {
+        byStatusAndPriority.setString(1, "PROCESSING");
+        byStatusAndPriority.setString(2, "HIGH");
+        byStatusAndPriority.setLong(3, randomCursor());
+        byStatusAndPriority.setInt(4, PAGE_SIZE);
+        return drain(byStatusAndPriority);
+    }
+
+    private long existingRows(Statement statement) throws SQLException {
+        try (ResultSet tables = statement.executeQuery("SELECT to_regclass('" + TABLE + "') IS NOT NULL")) {
+            tables.next();
+            if (!tables.getBoolean(1)) {
+                return -1;
+            }
+        }
+        try (ResultSet count = statement.executeQuery("SELECT count(*) FROM " + TABLE)) {
+            count.next();
+            return count.getLong(1);
+        }
+    }
+
+    /**
+     * Распределение близко к рабочему: закрытых инцидентов большинство (COMPLETED 60%, CANCELLED 30%),
+     * открытых по 5%, HIGH-приоритет у 20%, сервисы распределены равномерно.
+     */
+    private void populate(Statement statement) throws SQLException {
+        statement.execute("DROP TABLE IF EXISTS " + TABLE);
+        statement.execute("CREATE TABLE " + TABLE + " ("
+                + "id BIGINT PRIMARY KEY, service VARCHAR(255) NOT NULL, status VARCHAR(255) NOT NULL, "
+                + "priority VARCHAR(255) NOT NULL, info TEXT NOT NULL, timestamp BIGINT NOT NULL)");
+        statement.execute("SELECT setseed(0.42)");
+        statement.execute("INSERT INTO " + TABLE
+                + " SELECT g, 'service-' || (g % " + SERVICES + "), "
+                + "CASE WHEN r < 0.05 THEN 'CREATED' WHEN r < 0.10 THEN 'PROCESSING' "
+                + "WHEN r < 0.70 THEN 'COMPLETED' ELSE 'CANCELLED' END, "
+                + "CASE WHEN p < 0.2 THEN 'HIGH' WHEN p < 0.6 THEN 'MEDIUM' ELSE 'LOW' END, "
+                + "'incident #' || g, 1700000000000 + g "
+                + "FROM (SELECT g, random() AS r, random() AS p FROM generate_series(1, " + rows + ") g) s");
+    }
+
+    private long randomCursor() {
+        return ThreadLocalRandom.current().nextLong(rows);
+    }
+
+    private static String randomService() {
+        return "service-" + ThreadLocalRandom.current().nextInt(SERVICES);
+    }
+
+    private static int drain(PreparedStatement statement) throws SQLException {
+        int count = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                resultSet.getLong(1);
+                resultSet.getString(2);
+                resultSet.getString(3);
+                resultSet.getString(4);
+                resultSet.getString(5);
+                resultSet.getLong(6);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String env(String name, String defaultValue) {
+        return Objects.requireNonNullElse(System.getenv(name), defaultValue);
+    }
+}
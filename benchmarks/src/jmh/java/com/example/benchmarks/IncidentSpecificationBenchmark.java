@@ -0,0 +1,74 @@
+package com.example.benchmarks;
+
+import com.example.common.events.IncidentFindRequest;
+import com.example.common.events.IncidentPriority;
+import com.example.common.events.IncidentStatus;
+import com.example.incedent_service.entities.Incident;
+import com.example.incedent_service.services.IncidentSpecifications;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение criteria-условия поиска ({@link IncidentSpecifications}), как его делает
+ * IncidentQueryPlanner для комбинаций без derived query: Specification + условие курсора
+ * -> Predicate на новом CriteriaQuery. Hibernate поднимается без подключения к базе,
+ * замеряется только сборка запроса, не SQL.
+ *
+ * Запуск: ./gradlew :benchmarks:jmh -PjmhIncludes=IncidentSpecification
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IncidentSpecificationBenchmark {
+
+    /** all - service, status и priority; service - один фильтр. */
+    @Param({"all", "service"})
+    public String filters;
+
+    private SessionFactory sessionFactory;
+    private CriteriaBuilder cb;
+    private IncidentFindRequest request;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(Incident.class)
+                .setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect")
+                .setProperty("hibernate.boot.allow_jdbc_metadata_access", "false")
+                .buildSessionFactory();
+        cb = sessionFactory.getCriteriaBuilder();
+        IncidentFindRequest.Builder builder = IncidentFindRequest.newBuilder()
+                .setId(null)
+                .setService("payment-service")
+                .setStatus(null)
+                .setPriority(null);
+        if (filters.equals("all")) {
+            builder.setStatus(IncidentStatus.CREATED).setPriority(IncidentPriority.HIGH);
+        }
+        request = builder.build();
+    }
+
+    @Benchmark
+    public Predicate buildSpecification() {
+        CriteriaQuery<Incident> query = cb.createQuery(Incident.class);
+        Root<Incident> root = query.from(Incident.class);
+        Specification<Incident> specification = IncidentSpecifications.fromRequest(request)
+                .and(IncidentSpecifications.idGreaterThan(1000L));
+        return specification.toPredicate(root, query, cb);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.benchmarks;
+
+import com.example.incedent_processor.routing.RoutingTable;
+import com.example.incedent_processor.services.Service;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Определение ответственной группы по имени сервиса: прежний линейный проход по values() enum
+ * со сравнением строк против {@link RoutingTable} (хеш-таблица, префиксное дерево, glob-правила)
+ * и нового {@link Service#fromServiceName} на HashMap. Имена создаются заново, как после десериализации
+ * Avro, поэтому String.equals и hashCode не срабатывают по ссылке и кешу; allocateNameOnly - цена самой копии.
+ *
+ * Запуск: ./gradlew :benchmarks:jmh -PjmhIncludes=ServiceRouting
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ServiceRoutingBenchmark {
+
+    /** Копия прежнего Service.fromServiceName: линейный проход с equals. */
+    enum LegacyService {
+        PAYMENT_SERVICE("payment-service", "payment-team"),
+        AUTH_SERVICE("auth-service", "auth-team"),
+        ORDER_SERVICE("order-service", "order-team"),
+        INVENTORY_SERVICE("inventory-service", "inventory-team"),
+        UNKNOWN(null, "oncall-team");
+
+        private final String serviceName;
+        private final String responsibleGroup;
+
+        LegacyService(String serviceName, String responsibleGroup) {
+            this.serviceName = serviceName;
+            this.responsibleGroup = responsibleGroup;
+        }
+
+        static LegacyService fromServiceName(String serviceName) {
+            for (LegacyService service : values()) {
+                if (service.serviceName != null && service.serviceName.equals(serviceName)) {
+                    return service;
+                }
+            }
+            return UNKNOWN;
+        }
+    }
+
+    private static final String[] NAMES = {
+            "payment-service", "auth-service", "order-service", "inventory-service",
+            "inventory-service", "payment-service", "unknown-service", "order-service"
+    };
+
+    private static final String[] PREFIXED_NAMES = {
+            "payment-refunds", "auth-sso", "order-history", "inventory-reservations",
+            "payment-gateway-eu", "reporting-service", "order-eu", "sso-auth"
+    };
+
+    private RoutingTable table;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        table = RoutingTable.parse(List.of(
+                "payment-service = payment-team",
+                "auth-service = auth-team",
+                "order-service = order-team",
+                "inventory-service = inventory-team",
+                "payment-* = payment-team",
+                "payment-gateway-* = gateway-team",
+                "auth-* = auth-team",
+                "order-* = order-team",
+                "inventory-* = inventory-team",
+                "*-auth = auth-team"
+        ), "oncall-team");
+    }
+
+    /** Новая строка на операцию: хеш не закеширован, как у имени из только что прочитанной записи. */
+    private String next(String[] source) {
+        return new String(source[i++ & 7].toCharArray());
+    }
+
+    @Benchmark
+    public String legacyEnumScan() {
+        return LegacyService.fromServiceName(next(NAMES)).responsibleGroup;
+    }
+
+    @Benchmark
+    public String enumHashLookup() {
+        return Service.fromServiceName(next(NAMES)).getResponsibleGroup();
+    }
+
+    @Benchmark
+    public String routingTableExact() {
+        return table.resolve(next(NAMES));
+    }
+
+    @Benchmark
+    public String routingTablePrefixAndGlob() {
+        return table.resolve(next(PREFIXED_NAMES));
+    }
+
+    @Benchmark
+    public String allocateNameOnly() {
+        return next(NAMES);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.common.avro;
+
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Буфер сериализации из небольшого общего пула: растущий массив и переиспользуемый BinaryEncoder.
+ * На сообщение остаётся одна аллокация - итоговый byte[], которого требует контракт Serializer.
+ * Пул, а не ThreadLocal: запросы шлюза идут на виртуальных потоках, по потоку на запрос, и буфер
+ * потока не переиспользовался бы. Сериализация не блокируется, поэтому одновременно заняты не больше
+ * буферов, чем ядер; при пустом пуле создаётся новый, лишний при возврате отбрасывается.
+ * Буфер, выросший на крупном сообщении (например, странице поиска), после него не удерживается.
+ */
+final class EncodeBuffer extends OutputStream {
+    private static final int INITIAL_SIZE = 1024;
+    private static final int MAX_RETAINED_SIZE = 1024 * 1024;
+    private static final ArrayBlockingQueue<EncodeBuffer> POOL =
+            new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+    private byte[] buf = new byte[INITIAL_SIZE];
+    private int count;
+    private BinaryEncoder encoder;
+
+    /** Свободный буфер из пула или новый; после toByteArray его нужно вернуть через {@link #release()}. */
+    static EncodeBuffer acquire() {
+        EncodeBuffer buffer = POOL.poll();
+        if (buffer == null) {
+            buffer = new EncodeBuffer();
+        }
+        buffer.count = 0;
+        return buffer;
+    }
+
+    /** Возврат в пул; буфер, выросший сверх MAX_RETAINED_SIZE, заменяется начальным. */
+    void release() {
+        if (buf.length > MAX_RETAINED_SIZE) {
+            buf = new byte[INITIAL_SIZE];
+        }
+        POOL.offer(this);
+    }
+
+    /** Заголовок формата Confluent: magic byte и id схемы. */
+    void writeHeader(int schemaId) {
+        ensureCapacity(PinnedAvroSerdeConfig.HEADER_SIZE);
+        buf[count] = PinnedAvroSerdeConfig.MAGIC_BYTE;
+        buf[count + 1] = (byte) (schemaId >>> 24);
+        buf[count + 2] = (byte) (schemaId >>> 16);
+        buf[count + 3] = (byte) (schemaId >>> 8);
+        buf[count + 4] = (byte) schemaId;
+        count += PinnedAvroSerdeConfig.HEADER_SIZE;
+    }
+
+    /**
+     * Небуферизованный энкодер: пишет прямо в этот массив без промежуточной копии, flush не нужен.
+     * Своих байтов он не держит, поэтому после ошибки переиспользуется без сброса.
+     */
+    BinaryEncoder encoder() {
+        encoder = EncoderFactory.get().directBinaryEncoder(this, encoder);
+        return encoder;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    int capacity() {
+        return buf.length;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (count + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + extra));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.common.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Замена Schema Registry на каталоге файлов {@code <id>.avsc}: для тестов, локального запуска
+ * и старых версий схем, которых нет среди сгенерированных классов. Новая схема получает
+ * следующий свободный id, не меньший {@link #FIRST_DYNAMIC_ID}; уже известная - свой прежний id.
+ */
+public class FileSchemaRegistry {
+    /** Динамические id не пересекаются с закреплёнными в schema-ids.properties. */
+    public static final int FIRST_DYNAMIC_ID = 100_000;
+
+    private final Path directory;
+
+    public FileSchemaRegistry(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /** Все схемы каталога по id. */
+    public Map<Integer, Schema> load() {
+        Map<Integer, Schema> schemas = new HashMap<>();
+        if (!Files.isDirectory(directory)) {
+            return schemas;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".avsc")) {
+                    int id = Integer.parseInt(name.substring(0, name.length() - ".avsc".length()));
+                    schemas.put(id, new Schema.Parser().parse(Files.readString(file, StandardCharsets.UTF_8)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать схемы из " + directory, e);
+        }
+        return schemas;
+    }
+
+    /** Записывает схему под заданным id, например закреплённую или выгруженную из реестра. */
+    public void write(int id, Schema schema) {
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(directory.resolve(id + ".avsc"), schema.toString(true), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать схему " + id + " в " + directory, e);
+        }
+    }
+
+    /** id схемы в каталоге; новой схеме выделяется следующий свободный id. */
+    public synchronized int register(Schema schema) {
+        Map<Integer, Schema> schemas = load();
+        long fingerprint = SchemaNormalization.parsingFingerprint64(schema);
+        int next = FIRST_DYNAMIC_ID;
+        for (Map.Entry<Integer, Schema> entry : schemas.entrySet()) {
+            if (SchemaNormalization.parsingFingerprint64(entry.getValue()) == fingerprint) {
+                return entry.getKey();
+            }
+            next = Math.max(next, entry.getKey() + 1);
+        }
+        write(next, schema);
+        return next;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.common.avro;
+
+import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Десериализатор формата Confluent со схемами писателя из {@link SchemaCache}: id из заголовка
+ * сообщения разрешается локально, результат - сгенерированный класс common (specific reader).
+ * Неизвестный id (сообщение, записанное KafkaAvroSerializer с id реестра) при заданном
+ * schema.registry.url читается через KafkaAvroDeserializer, который кеширует схему сам.
+ */
+public class PinnedAvroDeserializer implements Deserializer<Object> {
+    private SchemaCache cache = SchemaCache.pinned();
+    private FileSchemaRegistry fileRegistry;
+    private Map<String, ?> configs = Map.of();
+    private boolean isKey;
+    private boolean registryFallback;
+    private volatile Deserializer<Object> fallback;
+
+    // null datumReader - id разрешается только через реестр
+    private final Map<Integer, Reader> readers = new ConcurrentHashMap<>();
+
+    private record Reader(DatumReader<Object> datumReader) {
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        this.configs = configs;
+        this.isKey = isKey;
+        this.fileRegistry = PinnedAvroSerdeConfig.fileRegistry(configs);
+        this.cache = fileRegistry != null ? SchemaCache.withFileRegistry(fileRegistry) : SchemaCache.pinned();
+        this.registryFallback = PinnedAvroSerdeConfig.registryFallback(configs);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length < PinnedAvroSerdeConfig.HEADER_SIZE || data[0] != PinnedAvroSerdeConfig.MAGIC_BYTE) {
+            throw new SerializationException("Неизвестный формат сообщения в топике " + topic);
+        }
+        int id = ((data[1] & 0xff) << 24) | ((data[2] & 0xff) << 16) | ((data[3] & 0xff) << 8) | (data[4] & 0xff);
+        Reader reader = readers.computeIfAbsent(id, this::reader);
+        if (reader.datumReader() == null) {
+            return fallback(topic, data, id);
+        }
+        try {
+            return reader.datumReader().read(null, DecoderFactory.get().binaryDecoder(
+                    data, PinnedAvroSerdeConfig.HEADER_SIZE, data.length - PinnedAvroSerdeConfig.HEADER_SIZE, null));
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Ошибка десериализации схемы " + id + " в топике " + topic, e);
+        }
+    }
+
+    private Reader reader(int id) {
+        Schema writerSchema = cache.schema(id);
+        if (writerSchema == null && fileRegistry != null) {
+            // схема могла появиться в каталоге после старта
+            cache = SchemaCache.withFileRegistry(fileRegistry);
+            writerSchema = cache.schema(id);
+        }
+        if (writerSchema == null) {
+            return new Reader(null);
+        }
+        Class<?> type = SpecificData.get().getClass(writerSchema);
+        Schema readerSchema = type != null ? SpecificData.get().getSchema(type) : writerSchema;
+        return new Reader(new SpecificDatumReader<>(writerSchema, readerSchema));
+    }
+
+    private Object fallback(String topic, byte[] data, int id) {
+        if (!registryFallback) {
+            throw new SerializationException("Схема " + id + " не найдена в локальном кэше и не задан schema.registry.url");
+        }
+        Deserializer<Object> delegate = fallback;
+        if (delegate == null) {
+            synchronized (this) {
+                if (fallback == null) {
+                    KafkaAvroDeserializer deserializer = new KafkaAvroDeserializer();
+                    deserializer.configure(configs, isKey);
+                    fallback = deserializer;
+                }
+                delegate = fallback;
+            }
+        }
+        return delegate.deserialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        if (fallback != null) {
+            fallback.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.common.avro;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/** Настройки {@link PinnedAvroSerializer} и {@link PinnedAvroDeserializer} в конфиге клиента Kafka. */
+public final class PinnedAvroSerdeConfig {
+    /** Каталог {@link FileSchemaRegistry}; не задан - только закреплённые схемы common. */
+    public static final String FILE_REGISTRY_CONFIG = "pinned.schema.file.registry";
+    /**
+     * Схемы, которых нет в кэше (например, записанные KafkaAvroSerializer до перехода на закреплённые id),
+     * разрешаются через Schema Registry по schema.registry.url. По умолчанию true.
+     */
+    public static final String REGISTRY_FALLBACK_CONFIG = "pinned.schema.registry.fallback";
+    public static final String SCHEMA_REGISTRY_URL_CONFIG = "schema.registry.url";
+
+    /** Первый байт формата Confluent: magic byte, за ним 4 байта id схемы. */
+    static final byte MAGIC_BYTE = 0;
+    static final int HEADER_SIZE = 1 + Integer.BYTES;
+
+    private PinnedAvroSerdeConfig() {
+    }
+
+    static FileSchemaRegistry fileRegistry(Map<String, ?> configs) {
+        Object directory = configs.get(FILE_REGISTRY_CONFIG);
+        return directory == null || directory.toString().isBlank() ? null : new FileSchemaRegistry(Path.of(directory.toString()));
+    }
+
+    static boolean registryFallback(Map<String, ?> configs) {
+        Object fallback = configs.get(REGISTRY_FALLBACK_CONFIG);
+        return configs.get(SCHEMA_REGISTRY_URL_CONFIG) != null
+                && (fallback == null || Boolean.parseBoolean(fallback.toString()));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.common.avro;
+
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сериализатор Avro в формате Confluent (magic byte, id схемы, Avro binary) с закреплёнными id
+ * из {@link SchemaCache}: на горячем пути нет обращений к Schema Registry, старт не зависит
+ * от его доступности. Запись идёт в буфер из пула ({@link EncodeBuffer}) без промежуточных копий. Типы без закреплённого id регистрируются в {@link FileSchemaRegistry},
+ * если он задан, иначе уходят в KafkaAvroSerializer (см. {@link PinnedAvroSerdeConfig}).
+ */
+public class PinnedAvroSerializer implements Serializer<Object> {
+    private SchemaCache cache = SchemaCache.pinned();
+    private FileSchemaRegistry fileRegistry;
+    private Map<String, ?> configs = Map.of();
+    private boolean isKey;
+    private boolean registryFallback;
+    private volatile Serializer<Object> fallback;
+
+    private final Map<Class<?>, Writer> writers = new ConcurrentHashMap<>();
+
+    private record Writer(int id, SpecificDatumWriter<Object> datumWriter) {
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        this.configs = configs;
+        this.isKey = isKey;
+        this.fileRegistry = PinnedAvroSerdeConfig.fileRegistry(configs);
+        this.cache = fileRegistry != null ? SchemaCache.withFileRegistry(fileRegistry) : SchemaCache.pinned();
+        this.registryFallback = PinnedAvroSerdeConfig.registryFallback(configs);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (!(data instanceof SpecificRecord record)) {
+            return fallback(topic, data);
+        }
+        Writer writer = writers.computeIfAbsent(record.getClass(), type -> writer(record));
+        if (writer.id() < 0) {
+            return fallback(topic, data);
+        }
+        EncodeBuffer buffer = EncodeBuffer.acquire();
+        try {
+            buffer.writeHeader(writer.id());
+            writer.datumWriter().write(record, buffer.encoder());
+            return buffer.toByteArray();
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Ошибка сериализации " + record.getSchema().getFullName(), e);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /** id < 0 - тип не закреплён, сериализуется через реестр. */
+    private Writer writer(SpecificRecord record) {
+        Integer id = cache.idOf(record.getSchema().getFullName());
+        if (id == null && fileRegistry != null) {
+            id = fileRegistry.register(record.getSchema());
+        }
+        return new Writer(id != null ? id : -1, new SpecificDatumWriter<>(record.getSchema()));
+    }
+
+    private byte[] fallback(String topic, Object data) {
+        if (!registryFallback) {
+            throw new SerializationException("Нет закреплённой схемы для " + data.getClass().getName()
+                    + " и не задан schema.registry.url");
+        }
+        Serializer<Object> delegate = fallback;
+        if (delegate == null) {
+            synchronized (this) {
+                if (fallback == null) {
+                    KafkaAvroSerializer serializer = new KafkaAvroSerializer();
+                    serializer.configure(configs, isKey);
+                    fallback = serializer;
+                }
+                delegate = fallback;
+            }
+        }
+        return delegate.serialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        if (fallback != null) {
+            fallback.close();
+        }
+    }
+}
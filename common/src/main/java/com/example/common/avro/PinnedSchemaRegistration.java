@@ -0,0 +1,146 @@
+package com.example.common.avro;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Регистрирует закреплённые схемы в Schema Registry под их id из {@code avro/schema-ids.properties},
+ * чтобы внешние потребители с KafkaAvroDeserializer находили схему писателя по id из сообщения.
+ * Subject - полное имя записи; запись идёт в режиме IMPORT, после неё subject возвращается в READWRITE.
+ * <p>
+ * Повторный запуск безопасен: id, уже занятый той же схемой (по каноническому отпечатку Avro),
+ * пропускается, а занятый другой схемой останавливает регистрацию - такая схема требует нового id.
+ * Запуск: {@code ./gradlew :common:registerPinnedSchemas -PschemaRegistryUrl=http://localhost:8081}.
+ */
+public final class PinnedSchemaRegistration {
+    private static final Logger log = LoggerFactory.getLogger(PinnedSchemaRegistration.class);
+    private static final String CONTENT_TYPE = "application/vnd.schemaregistry.v1+json";
+
+    private final URI registryUrl;
+    private final HttpClient httpClient;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public PinnedSchemaRegistration(URI registryUrl, HttpClient httpClient) {
+        this.registryUrl = registryUrl;
+        this.httpClient = httpClient;
+    }
+
+    public static void main(String[] args) {
+        URI registryUrl = URI.create(args.length > 0 ? args[0] : "http://localhost:8081");
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        int registered = new PinnedSchemaRegistration(registryUrl, httpClient).registerAll(SchemaCache.pinned().schemas());
+        log.info("Закреплённые схемы в {}: зарегистрировано {}", registryUrl, registered);
+    }
+
+    /** Регистрирует отсутствующие в реестре схемы и возвращает их число. */
+    public int registerAll(Map<Integer, Schema> schemas) {
+        int registered = 0;
+        for (Map.Entry<Integer, Schema> entry : new TreeMap<>(schemas).entrySet()) {
+            if (register(entry.getKey(), entry.getValue())) {
+                registered++;
+            }
+        }
+        return registered;
+    }
+
+    private boolean register(int id, Schema schema) {
+        HttpResponse<String> existing = call("GET", "/schemas/ids/" + id, null);
+        if (existing.statusCode() == 200) {
+            Schema registered = new Schema.Parser().parse(json(existing).get("schema").asText());
+            if (fingerprint(registered) != fingerprint(schema)) {
+                throw new IllegalStateException("id " + id + " в реестре занят другой схемой: "
+                        + registered.getFullName() + ". Изменённой схеме " + schema.getFullName()
+                        + " нужен новый id в schema-ids.properties");
+            }
+            log.info("Схема {} уже зарегистрирована под id {}", schema.getFullName(), id);
+            return false;
+        }
+        expect(existing, 404);
+
+        String subject = URLEncoder.encode(schema.getFullName(), StandardCharsets.UTF_8);
+        int version = nextVersion(subject);
+        expect(call("PUT", "/mode/" + subject + "?force=true", "{\"mode\":\"IMPORT\"}"), 200);
+        try {
+            String body = mapper.createObjectNode()
+                    .put("schema", schema.toString())
+                    .put("schemaType", "AVRO")
+                    .put("id", id)
+                    .put("version", version)
+                    .toString();
+            expect(call("POST", "/subjects/" + subject + "/versions", body), 200);
+        } finally {
+            expect(call("PUT", "/mode/" + subject, "{\"mode\":\"READWRITE\"}"), 200);
+        }
+        log.info("Схема {} зарегистрирована под id {}, версия {}", schema.getFullName(), id, version);
+        return true;
+    }
+
+    private int nextVersion(String subject) {
+        HttpResponse<String> versions = call("GET", "/subjects/" + subject + "/versions", null);
+        if (versions.statusCode() == 404) {
+            return 1;
+        }
+        expect(versions, 200);
+        int last = 0;
+        for (JsonNode version : json(versions)) {
+            last = Math.max(last, version.asInt());
+        }
+        return last + 1;
+    }
+
+    private HttpResponse<String> call(String method, String path, String body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(registryUrl.resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", CONTENT_TYPE);
+        if (body != null) {
+            request.header("Content-Type", CONTENT_TYPE);
+        }
+        request.method(method, body != null
+                ? HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8)
+                : HttpRequest.BodyPublishers.noBody());
+        try {
+            return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Schema Registry недоступен: " + registryUrl, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Регистрация схем прервана", e);
+        }
+    }
+
+    private static void expect(HttpResponse<String> response, int status) {
+        if (response.statusCode() != status) {
+            throw new IllegalStateException("Schema Registry ответил " + response.statusCode()
+                    + " на " + response.request().method() + " " + response.uri() + ": " + response.body());
+        }
+    }
+
+    private JsonNode json(HttpResponse<String> response) {
+        try {
+            return mapper.readTree(response.body());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Некорректный ответ Schema Registry: " + response.body(), e);
+        }
+    }
+
+    /** Отпечаток канонической формы: её меняет всё, что влияет на бинарную раскладку записи. */
+    static long fingerprint(Schema schema) {
+        return SchemaNormalization.parsingFingerprint64(schema);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.common.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Схемы с известными id, загруженные один раз при старте: закреплённые id сгенерированных классов
+ * из {@code avro/schema-ids.properties} и, если задан, каталог {@link FileSchemaRegistry}.
+ * Неизменяемый после создания, общий для всех сериализаторов процесса.
+ */
+public final class SchemaCache {
+    static final String PINNED_IDS_RESOURCE = "/avro/schema-ids.properties";
+
+    private static final SchemaCache PINNED = new SchemaCache(loadPinned(), Map.of());
+
+    private final Map<String, Integer> idsByType;
+    private final Map<Integer, Schema> schemasById;
+
+    private SchemaCache(Map<String, Integer> idsByType, Map<Integer, Schema> extraSchemas) {
+        this.idsByType = Map.copyOf(idsByType);
+        Map<Integer, Schema> schemas = new HashMap<>(extraSchemas);
+        for (Map.Entry<String, Integer> entry : idsByType.entrySet()) {
+            schemas.put(entry.getValue(), schemaOf(entry.getKey()));
+        }
+        this.schemasById = Map.copyOf(schemas);
+    }
+
+    /** Только закреплённые схемы common. */
+    public static SchemaCache pinned() {
+        return PINNED;
+    }
+
+    /** Закреплённые схемы плюс схемы каталога; id из каталога не перекрывают закреплённые. */
+    public static SchemaCache withFileRegistry(FileSchemaRegistry registry) {
+        Map<Integer, Schema> extra = registry.load();
+        extra.keySet().removeAll(PINNED.schemasById.keySet());
+        return new SchemaCache(PINNED.idsByType, extra);
+    }
+
+    /** Закреплённый id схемы типа (полное имя записи) или null. */
+    public Integer idOf(String fullName) {
+        return idsByType.get(fullName);
+    }
+
+    /** Схема писателя по id из заголовка сообщения или null. */
+    public Schema schema(int id) {
+        return schemasById.get(id);
+    }
+
+    /** Все схемы кэша по id, неизменяемая карта. */
+    public Map<Integer, Schema> schemas() {
+        return schemasById;
+    }
+
+    /** Выгрузка закреплённых схем в каталог, например для регистрации в реестре или тестов. */
+    public void exportTo(FileSchemaRegistry registry) {
+        schemasById.forEach(registry::write);
+    }
+
+    private static Map<String, Integer> loadPinned() {
+        Properties properties = new Properties();
+        try (InputStream in = SchemaCache.class.getResourceAsStream(PINNED_IDS_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Не найден " + PINNED_IDS_RESOURCE);
+            }
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Map<String, Integer> ids = new HashMap<>();
+        for (String type : properties.stringPropertyNames()) {
+            ids.put(type, Integer.parseInt(properties.getProperty(type).trim()));
+        }
+        return ids;
+    }
+
+    private static Schema schemaOf(String type) {
+        try {
+            Class<?> recordClass = Class.forName(type);
+            if (!SpecificRecord.class.isAssignableFrom(recordClass)) {
+                throw new IllegalStateException("Закреплённый тип не является Avro-записью: " + type);
+            }
+            return SpecificData.get().getSchema(recordClass);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Для закреплённой схемы нет сгенерированного класса: " + type, e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.common.correlation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Компактный 128-битный идентификатор корреляции: префикс узла + монотонный номер запроса.
+ * В Kafka передаётся бинарным заголовком {@link #HEADER} (16 байт) и дублируется в ключе
+ * записи в hex-виде, чтобы сервисы со String-ключами работали без изменений.
+ */
+public final class CorrelationId {
+    public static final String HEADER = "incident-correlation-id";
+    public static final int BYTES = 16;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long node;
+    private final long sequence;
+
+    public CorrelationId(long node, long sequence) {
+        this.node = node;
+        this.sequence = sequence;
+    }
+
+    public long node() {
+        return node;
+    }
+
+    public long sequence() {
+        return sequence;
+    }
+
+    public byte[] toBytes() {
+        return ByteBuffer.allocate(BYTES).putLong(node).putLong(sequence).array();
+    }
+
+    public static CorrelationId fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new CorrelationId(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Разбирает hex-представление ключа. Для ключей в другом формате (например, UUID
+     * от предыдущей версии сервиса) возвращает null.
+     */
+    public static CorrelationId parse(CharSequence value) {
+        if (value == null || value.length() != BYTES * 2) {
+            return null;
+        }
+        long node = 0;
+        long sequence = 0;
+        for (int i = 0; i < BYTES * 2; i++) {
+            int digit = Character.digit(value.charAt(i), 16);
+            if (digit < 0) {
+                return null;
+            }
+            if (i < BYTES) {
+                node = (node << 4) | digit;
+            } else {
+                sequence = (sequence << 4) | digit;
+            }
+        }
+        return new CorrelationId(node, sequence);
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[BYTES * 2];
+        writeHex(node, chars, 0);
+        writeHex(sequence, chars, BYTES);
+        return new String(chars);
+    }
+
+    private static void writeHex(long value, char[] chars, int offset) {
+        for (int i = BYTES - 1; i >= 0; i--) {
+            chars[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CorrelationId other && node == other.node && sequence == other.sequence;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(node * 31 + sequence);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.common.correlation;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор {@link CorrelationId} без SecureRandom: номер — атомарный счётчик, стартующий
+ * от текущего времени, поэтому после перезапуска узла идентификаторы не повторяются.
+ */
+public final class CorrelationIdGenerator {
+    private final long node;
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() << 20);
+
+    public CorrelationIdGenerator(long node) {
+        this.node = node;
+    }
+
+    /** Узел со случайным префиксом: достаточно для одного экземпляра сервиса. */
+    public static CorrelationIdGenerator withRandomNode() {
+        return new CorrelationIdGenerator(ThreadLocalRandom.current().nextLong());
+    }
+
+    public long node() {
+        return node;
+    }
+
+    public CorrelationId next() {
+        return new CorrelationId(node, sequence.incrementAndGet());
+    }
+}
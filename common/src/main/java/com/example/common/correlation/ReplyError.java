@@ -0,0 +1,28 @@
+package com.example.common.correlation;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Отказ в обработке запроса: ответ без тела с текстом причины в заголовке {@link #HEADER}.
+ * Шлюз по нему сразу завершает ожидающий запрос ошибкой, а не ждёт таймаута корреляции.
+ */
+public final class ReplyError {
+    public static final String HEADER = "incident-error";
+
+    private ReplyError() {
+    }
+
+    /** null, если ответ не является отказом. */
+    public static String get(Headers headers) {
+        Header header = headers.lastHeader(HEADER);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    public static void set(Headers headers, String message) {
+        headers.remove(HEADER);
+        headers.add(HEADER, String.valueOf(message).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.common.kafka;
+
+import com.example.common.metrics.MetricNames;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Отставание группы потребителей по закоммиченным смещениям: раз в lag.interval запрашивает у брокера
+ * смещения группы и концы её партиций. Публикует {@link MetricNames#KAFKA_CONSUMER_LAG} по топикам и
+ * {@link MetricNames#KAFKA_CONSUMER_DESIRED_INSTANCES} = ceil(отставание / lag.target-per-instance)
+ * в пределах от lag.min-instances до числа партиций самого крупного топика группы - больше
+ * экземпляров группа не загрузит. По второму gauge HPA/KEDA масштабируют сервис.
+ * <p>
+ * Смещения берутся с брокера, поэтому значение одинаково на всех экземплярах и не зависит
+ * от того, какие партиции назначены этому.
+ * <p>
+ * Партиция, назначенная группе, но ещё без закоммиченного смещения (новая группа, новая партиция),
+ * читается с позиции auto.offset.reset: при earliest её отставание считается от начала лога,
+ * иначе от конца, то есть нулевым. Без этого новая группа с полным топиком выглядела бы догнавшей.
+ */
+public class ConsumerLagMonitor implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ConsumerLagMonitor.class);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Object> adminConfig;
+    private final String groupId;
+    private final KafkaScalingProperties scaling;
+    private final boolean resetToEarliest;
+    private final Map<String, AtomicLong> topicLag = new ConcurrentHashMap<>();
+    private final AtomicInteger desiredInstances;
+    private Admin admin;
+    private ScheduledExecutorService executor;
+
+    /** Группа с auto.offset.reset=earliest, как у всех слушателей сервисов. */
+    public ConsumerLagMonitor(MeterRegistry meterRegistry, Map<String, Object> adminConfig, String groupId,
+                              KafkaScalingProperties scaling) {
+        this(meterRegistry, adminConfig, groupId, scaling, "earliest");
+    }
+
+    public ConsumerLagMonitor(MeterRegistry meterRegistry, Map<String, Object> adminConfig, String groupId,
+                              KafkaScalingProperties scaling, String autoOffsetReset) {
+        this.meterRegistry = meterRegistry;
+        this.adminConfig = adminConfig;
+        this.groupId = groupId;
+        this.scaling = scaling;
+        this.resetToEarliest = "earliest".equalsIgnoreCase(autoOffsetReset);
+        this.desiredInstances = new AtomicInteger(Math.max(scaling.getLag().getMinInstances(), 1));
+
+        Gauge.builder(MetricNames.KAFKA_CONSUMER_DESIRED_INSTANCES, desiredInstances, AtomicInteger::get)
+                .description("Экземпляров, нужных группе при текущем отставании")
+                .tag(MetricNames.TAG_GROUP, groupId)
+                .register(meterRegistry);
+    }
+
+    public synchronized void start() {
+        if (!scaling.getLag().isEnabled() || executor != null) {
+            return;
+        }
+        admin = Admin.create(adminConfig);
+        executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "consumer-lag-" + groupId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = scaling.getLag().getInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("Отставание группы {} опрашивается каждые {}", groupId, scaling.getLag().getInterval());
+    }
+
+    void poll() {
+        long timeout = scaling.getMetadataTimeout().toMillis();
+        try {
+            Map<TopicPartition, OffsetAndMetadata> offsets = admin.listConsumerGroupOffsets(groupId)
+                    .partitionsToOffsetAndMetadata()
+                    .get(timeout, TimeUnit.MILLISECONDS);
+            Map<TopicPartition, Long> committed = new HashMap<>();
+            offsets.forEach((partition, offset) -> {
+                if (offset != null) {
+                    committed.put(partition, offset.offset());
+                }
+            });
+            // назначенные участникам партиции: без коммита их нет в смещениях группы
+            Set<TopicPartition> partitions = new HashSet<>(committed.keySet());
+            admin.describeConsumerGroups(List.of(groupId))
+                    .describedGroups()
+                    .get(groupId)
+                    .get(timeout, TimeUnit.MILLISECONDS)
+                    .members()
+                    .forEach(member -> partitions.addAll(member.assignment().topicPartitions()));
+            Set<TopicPartition> uncommitted = new HashSet<>(partitions);
+            uncommitted.removeAll(committed.keySet());
+
+            Map<TopicPartition, Long> end = listOffsets(partitions, OffsetSpec.latest(), timeout);
+            Map<TopicPartition, Long> start = resetToEarliest
+                    ? listOffsets(uncommitted, OffsetSpec.earliest(), timeout)
+                    : end;
+            update(committed, start, end);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // последнее значение остаётся: кратковременная недоступность брокера не должна менять масштаб
+            log.warn("Не удалось получить смещения группы {}: {}", groupId, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Ошибка опроса отставания группы {}", groupId, e);
+        }
+    }
+
+    private Map<TopicPartition, Long> listOffsets(Set<TopicPartition> partitions, OffsetSpec spec, long timeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        if (partitions.isEmpty()) {
+            return offsets;
+        }
+        Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+        partitions.forEach(partition -> request.put(partition, spec));
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> result = admin.listOffsets(request)
+                .all()
+                .get(timeout, TimeUnit.MILLISECONDS);
+        result.forEach((partition, info) -> offsets.put(partition, info.offset()));
+        return offsets;
+    }
+
+    /** Пересчёт по закоммиченным смещениям и концам партиций; партиции без конца не учитываются. */
+    public void update(Map<TopicPartition, Long> committed, Map<TopicPartition, Long> end) {
+        update(committed, Map.of(), end);
+    }
+
+    /**
+     * Пересчёт, где у партиций без закоммиченного смещения позиция берётся из start - позиции
+     * auto.offset.reset; партиция без коммита и без start не учитывается.
+     */
+    public void update(Map<TopicPartition, Long> committed, Map<TopicPartition, Long> start,
+                       Map<TopicPartition, Long> end) {
+        Map<String, Long> lagByTopic = new HashMap<>();
+        Map<String, Integer> partitionsByTopic = new HashMap<>();
+        end.forEach((partition, endOffset) -> {
+            Long position = committed.containsKey(partition) ? committed.get(partition) : start.get(partition);
+            long lag = position == null ? 0 : Math.max(endOffset - position, 0);
+            lagByTopic.merge(partition.topic(), lag, Long::sum);
+            partitionsByTopic.merge(partition.topic(), 1, Integer::sum);
+        });
+
+        // топик, из которого группа больше не читает, обнуляется, а не пропадает из метрик
+        topicLag.forEach((topic, lag) -> lag.set(lagByTopic.getOrDefault(topic, 0L)));
+        lagByTopic.forEach((topic, lag) -> topicLag.computeIfAbsent(topic, this::register).set(lag));
+
+        long total = lagByTopic.values().stream().mapToLong(Long::longValue).sum();
+        int minInstances = Math.max(scaling.getLag().getMinInstances(), 1);
+        int maxInstances = Math.max(partitionsByTopic.values().stream().mapToInt(Integer::intValue).max().orElse(1),
+                minInstances);
+        long target = Math.max(scaling.getLag().getTargetPerInstance(), 1);
+        long desired = (total + target - 1) / target;
+        desiredInstances.set(Math.clamp(desired, minInstances, maxInstances));
+    }
+
+    public long lag(String topic) {
+        AtomicLong lag = topicLag.get(topic);
+        return lag != null ? lag.get() : 0;
+    }
+
+    public int desiredInstances() {
+        return desiredInstances.get();
+    }
+
+    private AtomicLong register(String topic) {
+        AtomicLong lag = new AtomicLong();
+        Gauge.builder(MetricNames.KAFKA_CONSUMER_LAG, lag, AtomicLong::get)
+                .description("Отставание группы потребителей в записях")
+                .tag(MetricNames.TAG_GROUP, groupId)
+                .tag(MetricNames.TAG_TOPIC, topic)
+                .register(meterRegistry);
+        return lag;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (admin != null) {
+            admin.close();
+            admin = null;
+        }
+    }
+}
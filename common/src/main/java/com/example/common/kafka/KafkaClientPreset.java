@@ -0,0 +1,42 @@
+package com.example.common.kafka;
+
+/**
+ * Готовые наборы настроек батчинга для продюсеров и консьюмеров. null - значение клиента Kafka
+ * по умолчанию. Гарантии доставки (acks, идемпотентность) пресеты не меняют: это решение сервиса.
+ */
+public enum KafkaClientPreset {
+    /** Настройки клиента Kafka как есть. */
+    DEFAULT(null, null, null, null, null, null, null),
+
+    /**
+     * Запрос-ответ, где ждёт пользователь: запись уходит без накопления, fetch возвращается
+     * по первой записи, poll небольшой, чтобы обработка пачки не задерживала следующие запросы.
+     */
+    LOW_LATENCY(0, 16 * 1024, "none", 1, 10, null, 100),
+
+    /**
+     * Фоновые потоки событий: продюсер копит пакеты до 512 КБ и сжимает их, консьюмер ждёт
+     * хотя бы 64 КБ на fetch и забирает большие poll'ы. Задержка растёт на десятки миллисекунд.
+     */
+    HIGH_THROUGHPUT(50, 512 * 1024, "lz4", 64 * 1024, 200, 4 * 1024 * 1024, 2000);
+
+    final Integer lingerMs;
+    final Integer batchSize;
+    final String compressionType;
+    final Integer fetchMinBytes;
+    final Integer fetchMaxWaitMs;
+    final Integer maxPartitionFetchBytes;
+    final Integer maxPollRecords;
+
+    KafkaClientPreset(Integer lingerMs, Integer batchSize, String compressionType,
+                      Integer fetchMinBytes, Integer fetchMaxWaitMs, Integer maxPartitionFetchBytes,
+                      Integer maxPollRecords) {
+        this.lingerMs = lingerMs;
+        this.batchSize = batchSize;
+        this.compressionType = compressionType;
+        this.fetchMinBytes = fetchMinBytes;
+        this.fetchMaxWaitMs = fetchMaxWaitMs;
+        this.maxPartitionFetchBytes = maxPartitionFetchBytes;
+        this.maxPollRecords = maxPollRecords;
+    }
+}
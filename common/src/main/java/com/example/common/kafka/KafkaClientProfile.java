@@ -0,0 +1,127 @@
+package com.example.common.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Профиль клиента Kafka: пресет плюс точечные переопределения. Класс без зависимостей от Spring,
+ * сервисы привязывают его к своим свойствам через @ConfigurationProperties, например:
+ * <pre>
+ * incident-service:
+ *   kafka:
+ *     preset: low-latency
+ *     linger-ms: 2
+ * </pre>
+ * и добавляют {@link #producerProperties()} / {@link #consumerProperties()} в конфиг фабрик.
+ * Заданное переопределение важнее пресета; не заданное и не указанное пресетом не попадает в конфиг.
+ */
+public class KafkaClientProfile {
+    private KafkaClientPreset preset;
+    private Integer lingerMs;
+    private Integer batchSize;
+    private String compressionType;
+    private Integer fetchMinBytes;
+    private Integer fetchMaxWaitMs;
+    private Integer maxPartitionFetchBytes;
+    private Integer maxPollRecords;
+
+    public KafkaClientProfile() {
+        this(KafkaClientPreset.DEFAULT);
+    }
+
+    public KafkaClientProfile(KafkaClientPreset preset) {
+        this.preset = preset;
+    }
+
+    public Map<String, Object> producerProperties() {
+        Map<String, Object> properties = new HashMap<>();
+        put(properties, ProducerConfig.LINGER_MS_CONFIG, lingerMs, preset.lingerMs);
+        put(properties, ProducerConfig.BATCH_SIZE_CONFIG, batchSize, preset.batchSize);
+        put(properties, ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType, preset.compressionType);
+        return properties;
+    }
+
+    public Map<String, Object> consumerProperties() {
+        Map<String, Object> properties = new HashMap<>();
+        put(properties, ConsumerConfig.FETCH_MIN_BYTES_CONFIG, fetchMinBytes, preset.fetchMinBytes);
+        put(properties, ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, fetchMaxWaitMs, preset.fetchMaxWaitMs);
+        put(properties, ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG,
+                maxPartitionFetchBytes, preset.maxPartitionFetchBytes);
+        put(properties, ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords, preset.maxPollRecords);
+        return properties;
+    }
+
+    private static void put(Map<String, Object> properties, String key, Object override, Object presetValue) {
+        Object value = override != null ? override : presetValue;
+        if (value != null) {
+            properties.put(key, value);
+        }
+    }
+
+    public KafkaClientPreset getPreset() {
+        return preset;
+    }
+
+    public void setPreset(KafkaClientPreset preset) {
+        this.preset = preset;
+    }
+
+    public Integer getLingerMs() {
+        return lingerMs;
+    }
+
+    public void setLingerMs(Integer lingerMs) {
+        this.lingerMs = lingerMs;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public String getCompressionType() {
+        return compressionType;
+    }
+
+    public void setCompressionType(String compressionType) {
+        this.compressionType = compressionType;
+    }
+
+    public Integer getFetchMinBytes() {
+        return fetchMinBytes;
+    }
+
+    public void setFetchMinBytes(Integer fetchMinBytes) {
+        this.fetchMinBytes = fetchMinBytes;
+    }
+
+    public Integer getFetchMaxWaitMs() {
+        return fetchMaxWaitMs;
+    }
+
+    public void setFetchMaxWaitMs(Integer fetchMaxWaitMs) {
+        this.fetchMaxWaitMs = fetchMaxWaitMs;
+    }
+
+    public Integer getMaxPartitionFetchBytes() {
+        return maxPartitionFetchBytes;
+    }
+
+    public void setMaxPartitionFetchBytes(Integer maxPartitionFetchBytes) {
+        this.maxPartitionFetchBytes = maxPartitionFetchBytes;
+    }
+
+    public Integer getMaxPollRecords() {
+        return maxPollRecords;
+    }
+
+    public void setMaxPollRecords(Integer maxPollRecords) {
+        this.maxPollRecords = maxPollRecords;
+    }
+}
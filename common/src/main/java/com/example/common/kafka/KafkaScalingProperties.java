@@ -0,0 +1,97 @@
+package com.example.common.kafka;
+
+import java.time.Duration;
+
+/**
+ * Размер listener'ов и сигнал масштабирования, например:
+ * <pre>
+ * alert-service:
+ *   scaling:
+ *     instances: 2
+ *     max-concurrency: 8
+ *     lag:
+ *       target-per-instance: 1000
+ * </pre>
+ * instances - ожидаемое число экземпляров сервиса в одной группе: партиции делятся между ними,
+ * поэтому потоков на экземпляр нужно ceil(партиций / instances), см. {@link PartitionAwareConcurrency}.
+ */
+public class KafkaScalingProperties {
+    private int instances = 1;
+    private int maxConcurrency = 8;
+    /** Ожидание ответа брокера на запросы метаданных и смещений; без ответа при старте - число партиций из настроек. */
+    private Duration metadataTimeout = Duration.ofSeconds(3);
+    private Lag lag = new Lag();
+
+    public int getInstances() {
+        return instances;
+    }
+
+    public void setInstances(int instances) {
+        this.instances = instances;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public Duration getMetadataTimeout() {
+        return metadataTimeout;
+    }
+
+    public void setMetadataTimeout(Duration metadataTimeout) {
+        this.metadataTimeout = metadataTimeout;
+    }
+
+    public Lag getLag() {
+        return lag;
+    }
+
+    public void setLag(Lag lag) {
+        this.lag = lag;
+    }
+
+    /** Опрос отставания группы для {@link ConsumerLagMonitor}. */
+    public static class Lag {
+        private boolean enabled = true;
+        private Duration interval = Duration.ofSeconds(15);
+        /** Отставание в записях, которое один экземпляр разбирает без роста задержки. */
+        private long targetPerInstance = 1000;
+        private int minInstances = 1;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public long getTargetPerInstance() {
+            return targetPerInstance;
+        }
+
+        public void setTargetPerInstance(long targetPerInstance) {
+            this.targetPerInstance = targetPerInstance;
+        }
+
+        public int getMinInstances() {
+            return minInstances;
+        }
+
+        public void setMinInstances(int minInstances) {
+            this.minInstances = minInstances;
+        }
+    }
+}
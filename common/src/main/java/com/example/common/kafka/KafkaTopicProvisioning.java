@@ -0,0 +1,112 @@
+package com.example.common.kafka;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Топики, которые сервис создаёт при старте через KafkaAdmin. Имена топиков-владельцев регистрирует
+ * код ({@link #topic(String)}, {@link #compactedTopic(String)}), число партиций задаётся свойствами:
+ * <pre>
+ * incident-service:
+ *   provisioning:
+ *     partitions: 3
+ *     topic-partitions:
+ *       incident-create-response: 6
+ * </pre>
+ * Топик из topic-partitions, не зарегистрированный кодом, тоже создаётся. KafkaAdmin не уменьшает
+ * число партиций существующего топика, а большее значение добавляет партиции - у ключевых топиков
+ * это меняет распределение ключей по партициям.
+ */
+public class KafkaTopicProvisioning {
+    private boolean enabled = true;
+    private int partitions = 3;
+    private int replicas = 1;
+    private Map<String, Integer> topicPartitions = new LinkedHashMap<>();
+
+    private final Set<String> topics = new LinkedHashSet<>();
+    private final Set<String> compacted = new LinkedHashSet<>();
+
+    public KafkaTopicProvisioning topic(String name) {
+        topics.add(name);
+        return this;
+    }
+
+    /** Компактируемый топик: последнее значение по ключу, без удаления по времени. */
+    public KafkaTopicProvisioning compactedTopic(String name) {
+        compacted.add(name);
+        return topic(name);
+    }
+
+    /** Число партиций топика по настройкам; null, если топик не объявлен. */
+    public Integer partitions(String topic) {
+        Integer configured = topicPartitions.get(topic);
+        if (configured != null) {
+            return configured;
+        }
+        return topics.contains(topic) ? partitions : null;
+    }
+
+    public List<NewTopic> newTopics() {
+        if (!enabled) {
+            return List.of();
+        }
+        Set<String> names = new LinkedHashSet<>(topics);
+        names.addAll(topicPartitions.keySet());
+        List<NewTopic> result = new ArrayList<>(names.size());
+        for (String name : names) {
+            TopicBuilder builder = TopicBuilder.name(name)
+                    .partitions(partitions(name))
+                    .replicas(replicas);
+            if (compacted.contains(name)) {
+                builder.compact();
+            }
+            result.add(builder.build());
+        }
+        return result;
+    }
+
+    /** Бин для KafkaAdmin: все топики сервиса одним набором. */
+    public KafkaAdmin.NewTopics adminTopics() {
+        return new KafkaAdmin.NewTopics(newTopics().toArray(NewTopic[]::new));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+
+    public int getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(int replicas) {
+        this.replicas = replicas;
+    }
+
+    public Map<String, Integer> getTopicPartitions() {
+        return topicPartitions;
+    }
+
+    public void setTopicPartitions(Map<String, Integer> topicPartitions) {
+        this.topicPartitions = topicPartitions;
+    }
+}
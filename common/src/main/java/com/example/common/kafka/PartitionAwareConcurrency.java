@@ -0,0 +1,126 @@
+package com.example.common.kafka;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.TopicPartitionOffset;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Число потоков контейнера по числу партиций: больше потоков, чем партиций на экземпляр, группа
+ * не загрузит, меньше - партиции одного потока обрабатываются последовательно.
+ * <p>
+ * Контейнер с явными партициями (topicPartitions) получает не больше потоков, чем партиций в нём.
+ * Для топиков число партиций берётся у брокера (один раз на топик), без ответа за metadataTimeout -
+ * из {@link KafkaTopicProvisioning}, для неизвестного топика - partitions по умолчанию.
+ * Итог: ceil(партиций / instances), но от 1 до maxConcurrency.
+ */
+public class PartitionAwareConcurrency implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(PartitionAwareConcurrency.class);
+
+    private final Map<String, Object> adminConfig;
+    private final KafkaTopicProvisioning provisioning;
+    private final KafkaScalingProperties scaling;
+    private final Map<String, Integer> partitionCounts = new ConcurrentHashMap<>();
+    private Admin admin;
+
+    public PartitionAwareConcurrency(Map<String, Object> adminConfig, KafkaTopicProvisioning provisioning,
+                                     KafkaScalingProperties scaling) {
+        this.adminConfig = adminConfig;
+        this.provisioning = provisioning;
+        this.scaling = scaling;
+    }
+
+    /** Для listener'ов общей группы: партиции делятся между scaling.instances экземплярами. */
+    public <K, V> ContainerCustomizer<K, V, ConcurrentMessageListenerContainer<K, V>> customizer() {
+        return container -> size(container, scaling.getInstances());
+    }
+
+    /** Для listener'ов с группой на экземпляр: каждый экземпляр читает все партиции сам. */
+    public <K, V> ContainerCustomizer<K, V, ConcurrentMessageListenerContainer<K, V>> broadcastCustomizer() {
+        return container -> size(container, 1);
+    }
+
+    public int concurrency(int partitions, int instances) {
+        int perInstance = (partitions + Math.max(instances, 1) - 1) / Math.max(instances, 1);
+        return Math.clamp(perInstance, 1, Math.max(scaling.getMaxConcurrency(), 1));
+    }
+
+    /** Число партиций топика: брокер, затем настройки, затем значение по умолчанию. */
+    public int partitions(String topic) {
+        Integer known = partitionCounts.get(topic);
+        if (known != null) {
+            return known;
+        }
+        Integer described = describe(List.of(topic)).get(topic);
+        if (described != null) {
+            partitionCounts.put(topic, described);
+            return described;
+        }
+        Integer configured = provisioning.partitions(topic);
+        return configured != null ? configured : provisioning.getPartitions();
+    }
+
+    private <K, V> void size(ConcurrentMessageListenerContainer<K, V> container, int instances) {
+        ContainerProperties properties = container.getContainerProperties();
+        TopicPartitionOffset[] assigned = properties.getTopicPartitions();
+        int partitions;
+        if (assigned != null && assigned.length > 0) {
+            // партиции назначены явно и не делятся между экземплярами
+            partitions = assigned.length;
+            instances = 1;
+        } else if (properties.getTopics() != null) {
+            partitions = Arrays.stream(properties.getTopics()).mapToInt(this::partitions).max().orElse(1);
+        } else {
+            // подписка по шаблону: топики неизвестны до назначения
+            partitions = provisioning.getPartitions();
+        }
+        int concurrency = concurrency(partitions, instances);
+        container.setConcurrency(concurrency);
+        log.info("Контейнер {}: партиций {}, экземпляров {}, потоков {}",
+                container.getListenerId(), partitions, instances, concurrency);
+    }
+
+    /** Партиции топиков по метаданным брокера; топики без ответа в результат не попадают. */
+    protected Map<String, Integer> describe(Collection<String> topics) {
+        Map<String, Integer> result = new HashMap<>();
+        try {
+            Map<String, TopicDescription> descriptions = admin().describeTopics(topics).allTopicNames()
+                    .get(scaling.getMetadataTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            descriptions.forEach((name, description) -> result.put(name, description.partitions().size()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Нет метаданных топиков {}, число партиций берётся из настроек: {}", topics, e.getMessage());
+        }
+        return result;
+    }
+
+    private synchronized Admin admin() {
+        if (admin == null) {
+            admin = Admin.create(adminConfig);
+        }
+        return admin;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (admin != null) {
+            admin.close();
+            admin = null;
+        }
+    }
+}
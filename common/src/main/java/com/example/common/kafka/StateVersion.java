@@ -0,0 +1,28 @@
+package com.example.common.kafka;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Версия снимка состояния в заголовке {@link #HEADER}: растёт с каждым обновлением сущности.
+ * Читатели компактируемых топиков по ней отбрасывают снимок, пришедший позже более нового.
+ */
+public final class StateVersion {
+    public static final String HEADER = "incident-version";
+
+    private StateVersion() {
+    }
+
+    /** null, если версии в заголовках нет. */
+    public static Long get(Headers headers) {
+        Header header = headers.lastHeader(HEADER);
+        return header != null && header.value().length == Long.BYTES ? ByteBuffer.wrap(header.value()).getLong() : null;
+    }
+
+    public static void set(Headers headers, long version) {
+        headers.remove(HEADER);
+        headers.add(HEADER, ByteBuffer.allocate(Long.BYTES).putLong(version).array());
+    }
+}
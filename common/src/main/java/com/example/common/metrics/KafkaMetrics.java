@@ -0,0 +1,169 @@
+package com.example.common.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймеры {@link MetricNames#KAFKA_LISTENER_TIME} и {@link MetricNames#KAFKA_SEND_TIME} с тегами
+ * topic, partition, outcome и SLO-гистограммами {@link LatencyHistograms}.
+ * <p>
+ * Число рядов ограничено: после maxTopics разных топиков новые попадают в topic=other, партиции
+ * с номером от maxPartitions - в partition=other, неизвестная партиция (ошибка до назначения) -
+ * partition=none. Listener'ы подключаются перехватчиками фабрики контейнеров
+ * ({@link #recordInterceptor()}, {@link #batchInterceptor()}), отправки - вызовом
+ * {@link #sent(String, SendResult, Throwable, long)} из callback'а send.
+ */
+public class KafkaMetrics {
+    public static final String OTHER = "other";
+    public static final String NONE = "none";
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final MeterRegistry meterRegistry;
+    private final int maxTopics;
+    private final String[] partitionTags;
+    private final Map<String, Timer[][]> listenerTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer[][]> sendTimers = new ConcurrentHashMap<>();
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+    // время начала обработки записи потоком контейнера: intercept и success/failure идут в одном потоке
+    private final ThreadLocal<long[]> listenerStart = ThreadLocal.withInitial(() -> new long[1]);
+
+    public KafkaMetrics(MeterRegistry meterRegistry) {
+        this(meterRegistry, 32, 64);
+    }
+
+    public KafkaMetrics(MeterRegistry meterRegistry, int maxTopics, int maxPartitions) {
+        this.meterRegistry = meterRegistry;
+        this.maxTopics = maxTopics;
+        this.partitionTags = new String[maxPartitions + 2];
+        for (int partition = 0; partition < maxPartitions; partition++) {
+            partitionTags[partition] = Integer.toString(partition);
+        }
+        partitionTags[maxPartitions] = OTHER;
+        partitionTags[maxPartitions + 1] = NONE;
+    }
+
+    /** Обработка записи listener'ом; startNanos - System.nanoTime() перед вызовом. */
+    public void listened(String topic, int partition, long startNanos, Throwable error) {
+        timer(listenerTimers, MetricNames.KAFKA_LISTENER_TIME, "Обработка записей Kafka listener'ом",
+                topic, partition, Outcome.of(error))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Отправка; partition -1, если брокер её не назначил. */
+    public void sent(String topic, int partition, long startNanos, Throwable error) {
+        timer(sendTimers, MetricNames.KAFKA_SEND_TIME, "Отправка записи в Kafka до подтверждения брокером",
+                topic, partition, Outcome.of(error))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Для whenComplete((result, ex) -> ...) у KafkaTemplate.send; startNanos - System.nanoTime() перед send. */
+    public void sent(String topic, SendResult<?, ?> result, Throwable error, long startNanos) {
+        int partition = result != null && result.getRecordMetadata() != null
+                ? result.getRecordMetadata().partition()
+                : -1;
+        sent(topic, partition, startNanos, error);
+    }
+
+    public <K, V> RecordInterceptor<K, V> recordInterceptor() {
+        return new RecordInterceptor<>() {
+            @Override
+            public ConsumerRecord<K, V> intercept(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+                listenerStart.get()[0] = System.nanoTime();
+                return record;
+            }
+
+            @Override
+            public void success(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+                listened(record.topic(), record.partition(), listenerStart.get()[0], null);
+            }
+
+            @Override
+            public void failure(ConsumerRecord<K, V> record, Exception exception, Consumer<K, V> consumer) {
+                listened(record.topic(), record.partition(), listenerStart.get()[0], exception);
+            }
+        };
+    }
+
+    /** Время пачки записывается в ряд каждой партиции из неё: записи партиции ждали всю пачку. */
+    public <K, V> BatchInterceptor<K, V> batchInterceptor() {
+        return new BatchInterceptor<>() {
+            @Override
+            public ConsumerRecords<K, V> intercept(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+                listenerStart.get()[0] = System.nanoTime();
+                return records;
+            }
+
+            @Override
+            public void success(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+                record(records, null);
+            }
+
+            @Override
+            public void failure(ConsumerRecords<K, V> records, Exception exception, Consumer<K, V> consumer) {
+                record(records, exception);
+            }
+
+            private void record(ConsumerRecords<K, V> records, Exception exception) {
+                long start = listenerStart.get()[0];
+                for (TopicPartition partition : records.partitions()) {
+                    listened(partition.topic(), partition.partition(), start, exception);
+                }
+            }
+        };
+    }
+
+    private Timer timer(Map<String, Timer[][]> timers, String name, String description,
+                        String topic, int partition, Outcome outcome) {
+        String topicTag = topicTag(topic);
+        Timer[][] byOutcome = timers.computeIfAbsent(topicTag, t -> new Timer[OUTCOMES.length][partitionTags.length]);
+        int column = partitionColumn(partition);
+        Timer timer = byOutcome[outcome.ordinal()][column];
+        if (timer == null) {
+            // гонка безопасна: реестр вернёт уже зарегистрированный таймер
+            timer = LatencyHistograms.slo(Timer.builder(name)
+                    .description(description)
+                    .tag(MetricNames.TAG_TOPIC, topicTag)
+                    .tag(MetricNames.TAG_PARTITION, partitionTags[column])
+                    .tag(MetricNames.TAG_OUTCOME, outcome.tag()))
+                    .register(meterRegistry);
+            byOutcome[outcome.ordinal()][column] = timer;
+        }
+        return timer;
+    }
+
+    private String topicTag(String topic) {
+        if (topic == null) {
+            return NONE;
+        }
+        if (topics.contains(topic)) {
+            return topic;
+        }
+        // при одновременной регистрации предел может быть превышен на число потоков
+        if (topics.size() >= maxTopics) {
+            return OTHER;
+        }
+        topics.add(topic);
+        return topic;
+    }
+
+    private int partitionColumn(int partition) {
+        int maxPartitions = partitionTags.length - 2;
+        if (partition < 0) {
+            return maxPartitions + 1;
+        }
+        return Math.min(partition, maxPartitions);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.common.metrics;
+
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Единая настройка таймеров задержки: гистограмма для перцентилей в Prometheus (histogram_quantile)
+ * и фиксированные SLO-границы, одинаковые во всех сервисах, чтобы доли запросов в пределах порога
+ * сравнивались между сервисами и этапами без интерполяции.
+ */
+public final class LatencyHistograms {
+    private static final Duration[] SLO = {
+            Duration.ofMillis(1), Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(25),
+            Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500),
+            Duration.ofSeconds(1), Duration.ofMillis(2500), Duration.ofSeconds(5), Duration.ofSeconds(10)
+    };
+
+    private LatencyHistograms() {
+    }
+
+    public static Timer.Builder slo(Timer.Builder builder) {
+        return builder
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(SLO)
+                .minimumExpectedValue(Duration.of(100, ChronoUnit.MICROS))
+                .maximumExpectedValue(Duration.ofSeconds(60));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.common.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.List;
+
+/**
+ * Схема имён метрик: {@code <домен>.<компонент>.<что>}, счётчики оканчиваются на {@code .total},
+ * таймеры - на {@code .time}, распределения - на {@code .size}.
+ * <ul>
+ *     <li>{@code incidents.*} - события инцидентов: Kafka, outbox, поиск, этапы конвейера. Одно имя -
+ *     одно значение во всех сервисах, сервис различает общий тег application;</li>
+ *     <li>{@code <сервис>.*} - метрики конкретного сервиса: REST, кэш, корреляция, SMTP.</li>
+ * </ul>
+ * Значения тегов берутся из ограниченного набора: topic, partition и outcome ограничивает
+ * {@link KafkaMetrics}, остальные теги - перечисления сервиса.
+ */
+public final class MetricNames {
+    public static final String INCIDENTS_PREFIX = "incidents.";
+
+    /** Обработка записи (или пачки) listener'ом, теги topic, partition, outcome. */
+    public static final String KAFKA_LISTENER_TIME = "incidents.kafka.listener.time";
+    /** Отправка записи до подтверждения брокером, теги topic, partition, outcome. */
+    public static final String KAFKA_SEND_TIME = "incidents.kafka.send.time";
+    /** Отставание группы потребителей в записях, теги group, topic. */
+    public static final String KAFKA_CONSUMER_LAG = "incidents.kafka.consumer.lag";
+    /** Экземпляров, нужных группе при текущем отставании, тег group - сигнал автомасштабирования. */
+    public static final String KAFKA_CONSUMER_DESIRED_INSTANCES = "incidents.kafka.consumer.desired.instances";
+
+    public static final String TAG_TOPIC = "topic";
+    public static final String TAG_PARTITION = "partition";
+    public static final String TAG_OUTCOME = "outcome";
+    public static final String TAG_GROUP = "group";
+
+    private MetricNames() {
+    }
+
+    /** Имена зарегистрированных метрик с префиксом, по алфавиту - для служебных /metrics эндпоинтов. */
+    public static List<String> registered(MeterRegistry meterRegistry, String prefix) {
+        return meterRegistry.getMeters().stream()
+                .map(Meter::getId)
+                .map(Meter.Id::getName)
+                .filter(name -> name.startsWith(prefix))
+                .distinct()
+                .sorted()
+                .toList();
+    }
+}
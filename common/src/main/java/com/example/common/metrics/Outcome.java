@@ -0,0 +1,33 @@
+package com.example.common.metrics;
+
+/** Значение тега outcome. */
+public enum Outcome {
+    SUCCESS("success"),
+    ERROR("error"),
+    /** Истёк таймаут клиента Kafka или ожидания результата. */
+    TIMEOUT("timeout");
+
+    private final String tag;
+
+    Outcome(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+
+    /** SUCCESS для null, TIMEOUT, если в цепочке причин есть таймаут, иначе ERROR. */
+    public static Outcome of(Throwable error) {
+        if (error == null) {
+            return SUCCESS;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof java.util.concurrent.TimeoutException
+                    || cause instanceof org.apache.kafka.common.errors.TimeoutException) {
+                return TIMEOUT;
+            }
+        }
+        return ERROR;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.common.tracing;
+
+/**
+ * Этапы прохождения события через сервисы. Код этапа - один байт в заголовке {@link StageTrace#HEADER};
+ * коды не переиспользуются, новые этапы добавляются с новым кодом.
+ */
+public enum PipelineStage {
+    /** Шлюз принял REST-запрос и отправляет его в Kafka. */
+    GATEWAY_RECEIVED(1, "gateway.received"),
+    /** incedent-service получил запрос из топика. */
+    SERVICE_RECEIVED(2, "service.received"),
+    /** Инцидент записан в базу (до коммита транзакции). */
+    SERVICE_PERSISTED(3, "service.persisted"),
+    /** Событие ушло в Kafka: из outbox ретранслятором или напрямую. */
+    SERVICE_RELAYED(4, "service.relayed"),
+    /** Шлюз получил ответ из reply-топика. */
+    GATEWAY_REPLY_RECEIVED(5, "gateway.reply.received"),
+    /** Ответ сопоставлен с ожидающим запросом. */
+    GATEWAY_REPLY_MATCHED(6, "gateway.reply.matched"),
+    PROCESSOR_RECEIVED(7, "processor.received"),
+    /** Алерт построен и отправляется в alert-topic. */
+    PROCESSOR_SENT(8, "processor.sent"),
+    ALERT_RECEIVED(9, "alert.received"),
+    /** Письмо с алертом доставлено (отдельно или в сводке). */
+    ALERT_DELIVERED(10, "alert.delivered");
+
+    private static final PipelineStage[] BY_CODE = new PipelineStage[128];
+
+    static {
+        for (PipelineStage stage : values()) {
+            BY_CODE[stage.code] = stage;
+        }
+    }
+
+    private final byte code;
+    private final String tag;
+
+    PipelineStage(int code, String tag) {
+        this.code = (byte) code;
+        this.tag = tag;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    /** Значение тега метрик. */
+    public String tag() {
+        return tag;
+    }
+
+    /** null для кода, неизвестного этой версии (этап добавлен в более новой версии сервиса). */
+    public static PipelineStage fromCode(byte code) {
+        return code > 0 ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.common.tracing;
+
+import com.example.common.metrics.LatencyHistograms;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.record.TimestampType;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Отметки этапов в {@link StageTrace} и гистограммы по ним:
+ * <ul>
+ *     <li>incidents.pipeline.stage.time{stage, from} - от предыдущей отметки до этой; from различает,
+ *     например, ожидание в outbox (service.persisted -> service.relayed) и поиск (service.received -> service.relayed);</li>
+ *     <li>incidents.pipeline.end_to_end.time{flow} - от gateway.received;</li>
+ *     <li>incidents.pipeline.consumer.lag{topic} - возраст последней полученной записи, мс.</li>
+ * </ul>
+ * Теги ограничены этапами, потоками и топиками сервиса. Время отправки в Kafka пишет
+ * {@link com.example.common.metrics.KafkaMetrics}.
+ */
+public class StageRecorder {
+    public static final String STAGE_TIMER = "incidents.pipeline.stage.time";
+    public static final String END_TO_END_TIMER = "incidents.pipeline.end_to_end.time";
+    public static final String CONSUMER_LAG_GAUGE = "incidents.pipeline.consumer.lag";
+
+    private static final String UNKNOWN_STAGE = "unknown";
+    private static final int STAGES = PipelineStage.values().length;
+
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    // [from][stage], последняя строка - предыдущий этап неизвестен этой версии
+    private final Timer[][] stageTimers = new Timer[STAGES + 1][STAGES];
+    private final Map<String, Timer> endToEndTimers = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> consumerLag = new ConcurrentHashMap<>();
+
+    public StageRecorder(MeterRegistry meterRegistry) {
+        this(meterRegistry, Clock.systemUTC());
+    }
+
+    public StageRecorder(MeterRegistry meterRegistry, Clock clock) {
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    /** Получение записи: отметка этапа и возраст записи для gauge задержки потребителя её топика. */
+    public void received(ConsumerRecord<?, ?> record, PipelineStage stage) {
+        long now = nowMicros();
+        if (record.timestampType() != TimestampType.NO_TIMESTAMP_TYPE && record.timestamp() >= 0) {
+            lag(record.topic()).set(Math.max(0, now / 1000 - record.timestamp()));
+        }
+        stamp(record.headers(), stage, now);
+    }
+
+    public void stamp(Headers headers, PipelineStage stage) {
+        stamp(headers, stage, nowMicros());
+    }
+
+    /** Полное время потока от приёма запроса шлюзом; без отметки gateway.received не записывается. */
+    public void endToEnd(Headers headers, String flow) {
+        long start = StageTrace.timestamp(StageTrace.get(headers), PipelineStage.GATEWAY_RECEIVED);
+        if (start >= 0) {
+            endToEndTimers.computeIfAbsent(flow, f -> histogram(Timer.builder(END_TO_END_TIMER)
+                    .description("Время от приёма запроса шлюзом до завершения потока")
+                    .tag("flow", f)))
+                    .record(Math.max(0, nowMicros() - start), TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private void stamp(Headers headers, PipelineStage stage, long now) {
+        byte[] trace = StageTrace.get(headers);
+        long previous = StageTrace.lastTimestamp(trace);
+        if (previous >= 0) {
+            stageTimer(StageTrace.lastStage(trace), stage).record(Math.max(0, now - previous), TimeUnit.MICROSECONDS);
+        }
+        StageTrace.set(headers, StageTrace.append(trace, stage, now));
+    }
+
+    private Timer stageTimer(PipelineStage from, PipelineStage stage) {
+        int row = from != null ? from.ordinal() : STAGES;
+        Timer timer = stageTimers[row][stage.ordinal()];
+        if (timer == null) {
+            // гонка безопасна: реестр вернёт уже зарегистрированный таймер
+            timer = histogram(Timer.builder(STAGE_TIMER)
+                    .description("Время между соседними отметками этапов события")
+                    .tag("stage", stage.tag())
+                    .tag("from", from != null ? from.tag() : UNKNOWN_STAGE));
+            stageTimers[row][stage.ordinal()] = timer;
+        }
+        return timer;
+    }
+
+    private AtomicLong lag(String topic) {
+        return consumerLag.computeIfAbsent(topic, t -> {
+            AtomicLong value = new AtomicLong();
+            Gauge.builder(CONSUMER_LAG_GAUGE, value, AtomicLong::get)
+                    .description("Возраст последней полученной записи топика")
+                    .tag("topic", t)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            return value;
+        });
+    }
+
+    private Timer histogram(Timer.Builder builder) {
+        return LatencyHistograms.slo(builder).register(meterRegistry);
+    }
+
+    private long nowMicros() {
+        Instant now = clock.instant();
+        return TimeUnit.SECONDS.toMicros(now.getEpochSecond()) + now.getNano() / 1000;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.common.tracing;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Отметки этапов в заголовке Kafka {@link #HEADER}: последовательность записей по 9 байт -
+ * код {@link PipelineStage} и время в микросекундах от эпохи. Каждый сервис дописывает свои этапы
+ * и переносит заголовок в исходящие записи, как заголовок корреляции. Разница отметок разных
+ * сервисов включает расхождение их часов.
+ */
+public final class StageTrace {
+    public static final String HEADER = "incident-stages";
+    static final int ENTRY_BYTES = 1 + Long.BYTES;
+    // защита от бесконечного роста при циклах повторной доставки
+    static final int MAX_ENTRIES = 32;
+
+    private StageTrace() {
+    }
+
+    /** null, если заголовка нет (например, событие от сервиса предыдущей версии). */
+    public static byte[] get(Headers headers) {
+        Header header = headers.lastHeader(HEADER);
+        return header != null ? header.value() : null;
+    }
+
+    public static void set(Headers headers, byte[] trace) {
+        headers.remove(HEADER);
+        if (trace != null) {
+            headers.add(HEADER, trace);
+        }
+    }
+
+    public static void copy(Headers from, Headers to) {
+        set(to, get(from));
+    }
+
+    public static byte[] append(byte[] trace, PipelineStage stage, long epochMicros) {
+        int length = trace != null ? trace.length - trace.length % ENTRY_BYTES : 0;
+        if (length / ENTRY_BYTES >= MAX_ENTRIES) {
+            return trace;
+        }
+        byte[] appended = trace != null ? Arrays.copyOf(trace, length + ENTRY_BYTES) : new byte[ENTRY_BYTES];
+        ByteBuffer.wrap(appended, length, ENTRY_BYTES).put(stage.code()).putLong(epochMicros);
+        return appended;
+    }
+
+    /** Время последней отметки этапа или -1. */
+    public static long timestamp(byte[] trace, PipelineStage stage) {
+        if (trace == null) {
+            return -1;
+        }
+        for (int offset = trace.length - trace.length % ENTRY_BYTES - ENTRY_BYTES; offset >= 0; offset -= ENTRY_BYTES) {
+            if (trace[offset] == stage.code()) {
+                return ByteBuffer.wrap(trace, offset + 1, Long.BYTES).getLong();
+            }
+        }
+        return -1;
+    }
+
+    /** Этап последней отметки; null, если отметок нет или этап неизвестен этой версии. */
+    public static PipelineStage lastStage(byte[] trace) {
+        int offset = lastOffset(trace);
+        return offset >= 0 ? PipelineStage.fromCode(trace[offset]) : null;
+    }
+
+    /** Время последней отметки или -1. */
+    public static long lastTimestamp(byte[] trace) {
+        int offset = lastOffset(trace);
+        return offset >= 0 ? ByteBuffer.wrap(trace, offset + 1, Long.BYTES).getLong() : -1;
+    }
+
+    /** Для логов и тестов: отметки по этапам, повторная отметка этапа перекрывает предыдущую. */
+    public static Map<PipelineStage, Long> decode(byte[] trace) {
+        Map<PipelineStage, Long> stages = new EnumMap<>(PipelineStage.class);
+        if (trace == null) {
+            return stages;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(trace);
+        while (buffer.remaining() >= ENTRY_BYTES) {
+            PipelineStage stage = PipelineStage.fromCode(buffer.get());
+            long epochMicros = buffer.getLong();
+            if (stage != null) {
+                stages.put(stage, epochMicros);
+            }
+        }
+        return stages;
+    }
+
+    private static int lastOffset(byte[] trace) {
+        return trace != null ? trace.length - trace.length % ENTRY_BYTES - ENTRY_BYTES : -1;
+    }
+}
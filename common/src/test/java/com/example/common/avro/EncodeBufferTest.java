@@ -0,0 +1,83 @@
+package com.example.common.avro;
+
+import com.example.common.events.Incident;
+import com.example.common.events.IncidentPriority;
+import com.example.common.events.IncidentStatus;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Epic("Common tests")
+public class EncodeBufferTest {
+
+    @Test
+    @Story("Возвращённый буфер берётся из пула повторно и начинается с пустого содержимого")
+    public void release_returnsBufferToPool() {
+        EncodeBuffer released = EncodeBuffer.acquire();
+        released.writeHeader(1001);
+        released.release();
+
+        // пул общий и очередь FIFO: перед возвращённым могут лежать буферы других тестов
+        List<EncodeBuffer> acquired = new ArrayList<>();
+        for (int i = 0; i <= 2 * Runtime.getRuntime().availableProcessors(); i++) {
+            acquired.add(EncodeBuffer.acquire());
+        }
+        try {
+            assertThat(acquired).contains(released);
+            assertThat(released.toByteArray()).isEmpty();
+        } finally {
+            acquired.forEach(EncodeBuffer::release);
+        }
+    }
+
+    @Test
+    @Story("Выросший на крупном сообщении буфер не удерживается пулом")
+    public void release_oversizedBuffer_shrinks() {
+        EncodeBuffer buffer = EncodeBuffer.acquire();
+        buffer.write(new byte[2 * 1024 * 1024], 0, 2 * 1024 * 1024);
+        buffer.release();
+
+        assertThat(buffer.capacity()).isLessThanOrEqualTo(1024);
+    }
+
+    @Test
+    @Story("Сериализация на виртуальных потоках через общий пул даёт корректные сообщения")
+    public void serialize_onVirtualThreads_roundTrips() throws Exception {
+        PinnedAvroSerializer serializer = new PinnedAvroSerializer();
+        serializer.configure(Map.of(), false);
+        PinnedAvroDeserializer deserializer = new PinnedAvroDeserializer();
+        deserializer.configure(Map.of(), false);
+
+        List<Future<byte[]>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long id = 0; id < 1000; id++) {
+                Incident incident = incident(id);
+                results.add(executor.submit(() -> serializer.serialize("incident-state", incident)));
+            }
+        }
+
+        for (int id = 0; id < results.size(); id++) {
+            assertThat(deserializer.deserialize("incident-state", results.get(id).get())).isEqualTo(incident(id));
+        }
+    }
+
+    private static Incident incident(long id) {
+        return Incident.newBuilder()
+                .setId(id)
+                .setService("payment-service")
+                .setInfo("info-" + "x".repeat((int) (id % 50)))
+                .setStatus(IncidentStatus.CREATED)
+                .setPriority(IncidentPriority.HIGH)
+                .setTimestamp(1_700_000_000_000L + id)
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.common.avro;
+
+import com.example.common.events.Alert;
+import com.example.common.events.Incident;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.apache.avro.Schema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Epic("Common tests")
+public class PinnedSchemaRegistrationTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    // заглушка реестра: схемы по id, версии по subject и журнал запросов
+    private final Map<Integer, String> schemasById = new HashMap<>();
+    private final Map<String, List<Integer>> versionsBySubject = new HashMap<>();
+    private final List<String> requests = new ArrayList<>();
+    private HttpServer server;
+    private PinnedSchemaRegistration registration;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        registration = new PinnedSchemaRegistration(
+                URI.create("http://127.0.0.1:" + server.getAddress().getPort()), HttpClient.newHttpClient());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @Story("Схемы регистрируются под закреплёнными id в режиме IMPORT, затем subject возвращается в READWRITE")
+    public void registerAll_emptyRegistry_importsUnderPinnedIds() {
+        versionsBySubject.put(Alert.getClassSchema().getFullName(), List.of(1, 2));
+
+        int registered = registration.registerAll(Map.of(1001, Incident.getClassSchema(), 1002, Alert.getClassSchema()));
+
+        assertThat(registered).isEqualTo(2);
+        assertThat(new Schema.Parser().parse(schemasById.get(1001))).isEqualTo(Incident.getClassSchema());
+        assertThat(new Schema.Parser().parse(schemasById.get(1002))).isEqualTo(Alert.getClassSchema());
+        assertThat(versionsBySubject.get(Alert.getClassSchema().getFullName())).containsExactly(1, 2, 3);
+        assertThat(requests).containsSubsequence(
+                "PUT /mode/com.example.common.events.Incident IMPORT",
+                "POST /subjects/com.example.common.events.Incident/versions 1001",
+                "PUT /mode/com.example.common.events.Incident READWRITE");
+    }
+
+    @Test
+    @Story("Повторная регистрация той же схемы ничего не пишет")
+    public void registerAll_sameSchemaRegistered_skips() {
+        schemasById.put(1001, Incident.getClassSchema().toString());
+
+        assertThat(registration.registerAll(Map.of(1001, Incident.getClassSchema()))).isZero();
+        assertThat(requests).containsExactly("GET /schemas/ids/1001");
+    }
+
+    @Test
+    @Story("id, занятый другой схемой, останавливает регистрацию")
+    public void registerAll_idTakenByOtherSchema_fails() {
+        schemasById.put(1001, Alert.getClassSchema().toString());
+
+        assertThatThrownBy(() -> registration.registerAll(Map.of(1001, Incident.getClassSchema())))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("id 1001");
+        assertThat(requests).noneMatch(request -> request.startsWith("POST"));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String[] parts = path.split("/");
+        int status = 200;
+        String response = "{}";
+        if (method.equals("GET") && path.startsWith("/schemas/ids/")) {
+            requests.add("GET " + path);
+            String schema = schemasById.get(Integer.parseInt(parts[3]));
+            if (schema == null) {
+                status = 404;
+                response = "{\"error_code\":40403}";
+            } else {
+                response = mapper.createObjectNode().put("schema", schema).toString();
+            }
+        } else if (method.equals("GET") && path.endsWith("/versions")) {
+            requests.add("GET " + path);
+            List<Integer> versions = versionsBySubject.get(parts[2]);
+            if (versions == null) {
+                status = 404;
+                response = "{\"error_code\":40401}";
+            } else {
+                response = mapper.writeValueAsString(versions);
+            }
+        } else if (method.equals("PUT") && path.startsWith("/mode/")) {
+            requests.add("PUT " + path + " " + mapper.readTree(body).get("mode").asText());
+            response = body;
+        } else if (method.equals("POST") && path.endsWith("/versions")) {
+            JsonNode request = mapper.readTree(body);
+            int id = request.get("id").asInt();
+            requests.add("POST " + path + " " + id);
+            schemasById.put(id, request.get("schema").asText());
+            List<Integer> versions = new ArrayList<>(versionsBySubject.getOrDefault(parts[2], List.of()));
+            versions.add(request.get("version").asInt());
+            versionsBySubject.put(parts[2], versions);
+            response = "{\"id\":" + id + "}";
+        } else {
+            status = 404;
+        }
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
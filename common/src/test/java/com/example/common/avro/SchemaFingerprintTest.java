@@ -0,0 +1,54 @@
+package com.example.common.avro;
+
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.apache.avro.Schema;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Отпечатки канонической формы закреплённых схем. Падение значит, что .avsc изменился под старым id:
+ * схеме нужен новый id в schema-ids.properties, а строка здесь - новый id и новый отпечаток.
+ */
+@Epic("Common tests")
+public class SchemaFingerprintTest {
+
+    private static final Map<Integer, Long> FINGERPRINTS = Map.of(
+            1001, 0xB437E5404B2781BCL,
+            1002, 0x764853AA57ECD36L,
+            1003, 0xC14056C7B60DC7ABL,
+            1004, 0xC3FA4716D3126461L,
+            1005, 0x451A1A3C6BF25472L,
+            1006, 0x75E4574271554C68L,
+            1007, 0x9A8BAFD97F74399BL,
+            1008, 0x4C47415E0DEA9043L,
+            1009, 0x22FD0F422FA3DFEBL);
+
+    static Set<Integer> pinnedIds() {
+        return SchemaCache.pinned().schemas().keySet();
+    }
+
+    @ParameterizedTest(name = "id {0}")
+    @MethodSource("pinnedIds")
+    @Story("Схема под закреплённым id не меняется: изменённая схема получает новый id")
+    public void pinnedSchema_matchesFingerprint(int id) {
+        Schema schema = SchemaCache.pinned().schema(id);
+
+        assertThat(FINGERPRINTS).as("для id %d (%s) нет отпечатка", id, schema.getFullName()).containsKey(id);
+        assertThat(PinnedSchemaRegistration.fingerprint(schema))
+                .as("схема %s изменилась под id %d", schema.getFullName(), id)
+                .isEqualTo(FINGERPRINTS.get(id));
+    }
+
+    @Test
+    @Story("Каждому отпечатку соответствует закреплённый id")
+    public void fingerprints_coverPinnedIds() {
+        assertThat(pinnedIds()).containsExactlyInAnyOrderElementsOf(FINGERPRINTS.keySet());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.common.kafka;
+
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Epic("Common tests")
+public class KafkaClientProfileTest {
+
+    @Test
+    @Story("Пресет DEFAULT не добавляет настроек: остаются значения клиента Kafka")
+    public void defaultPreset_addsNothing() {
+        KafkaClientProfile profile = new KafkaClientProfile();
+
+        assertThat(profile.producerProperties()).isEmpty();
+        assertThat(profile.consumerProperties()).isEmpty();
+    }
+
+    @Test
+    @Story("LOW_LATENCY отправляет без накопления и возвращает fetch по первой записи")
+    public void lowLatencyPreset_properties() {
+        KafkaClientProfile profile = new KafkaClientProfile(KafkaClientPreset.LOW_LATENCY);
+
+        assertThat(profile.producerProperties()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                ProducerConfig.LINGER_MS_CONFIG, 0,
+                ProducerConfig.BATCH_SIZE_CONFIG, 16 * 1024,
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, "none"));
+        assertThat(profile.consumerProperties()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 1,
+                ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 10,
+                ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 100));
+    }
+
+    @Test
+    @Story("HIGH_THROUGHPUT копит и сжимает пакеты, консьюмер забирает большие fetch и poll")
+    public void highThroughputPreset_properties() {
+        KafkaClientProfile profile = new KafkaClientProfile(KafkaClientPreset.HIGH_THROUGHPUT);
+
+        assertThat(profile.producerProperties()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                ProducerConfig.LINGER_MS_CONFIG, 50,
+                ProducerConfig.BATCH_SIZE_CONFIG, 512 * 1024,
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4"));
+        assertThat(profile.consumerProperties()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 64 * 1024,
+                ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 200,
+                ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, 4 * 1024 * 1024,
+                ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 2000));
+    }
+
+    @Test
+    @Story("Заданные переопределения важнее пресета, остальные значения берутся из пресета")
+    public void overrides_winOverPreset() {
+        KafkaClientProfile profile = new KafkaClientProfile(KafkaClientPreset.HIGH_THROUGHPUT);
+        profile.setLingerMs(5);
+        profile.setCompressionType("zstd");
+        profile.setMaxPollRecords(500);
+
+        assertThat(profile.producerProperties())
+                .containsEntry(ProducerConfig.LINGER_MS_CONFIG, 5)
+                .containsEntry(ProducerConfig.COMPRESSION_TYPE_CONFIG, "zstd")
+                .containsEntry(ProducerConfig.BATCH_SIZE_CONFIG, 512 * 1024);
+        assertThat(profile.consumerProperties())
+                .containsEntry(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 500)
+                .containsEntry(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 64 * 1024);
+    }
+
+    @Test
+    @Story("Переопределение поверх DEFAULT попадает в конфиг только само")
+    public void overrideOnDefault_addsOnlyOverride() {
+        KafkaClientProfile profile = new KafkaClientProfile();
+        profile.setFetchMaxWaitMs(25);
+
+        assertThat(profile.producerProperties()).isEmpty();
+        assertThat(profile.consumerProperties())
+                .containsExactlyInAnyOrderEntriesOf(Map.of(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 25));
+    }
+}
@@ -1,13 +1,22 @@
 package com.example.incedent_processor.config;
 
-import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import com.example.common.avro.PinnedAvroDeserializer;
+import com.example.common.avro.PinnedAvroSerializer;
 import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
-import io.confluent.kafka.serializers.KafkaAvroSerializer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import com.example.common.kafka.ConsumerLagMonitor;
+import com.example.common.kafka.KafkaClientProfile;
+import com.example.common.kafka.KafkaScalingProperties;
+import com.example.common.kafka.KafkaTopicProvisioning;
+import com.example.common.kafka.PartitionAwareConcurrency;
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.tracing.StageRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
@@ -25,12 +34,68 @@ public class KafkaConfig {
     @Value("${spring.kafka.schema-registry-url}")
     private String schemaRegistryUrl;
 
+    // Пресет батчинга клиентов Kafka, см. incident-processor.kafka
+    @Bean
+    @ConfigurationProperties(prefix = "incident-processor.kafka")
+    public KafkaClientProfile incidentProcessorKafkaProfile() {
+        return new KafkaClientProfile();
+    }
+
+    // alert-topic и его партиции (см. incident-processor.provisioning)
+    @Bean
+    @ConfigurationProperties(prefix = "incident-processor.provisioning")
+    public KafkaTopicProvisioning incidentProcessorTopicProvisioning() {
+        return new KafkaTopicProvisioning().topic("alert-topic");
+    }
+
+    @Bean
+    public KafkaAdmin.NewTopics incidentProcessorTopics(KafkaTopicProvisioning incidentProcessorTopicProvisioning) {
+        return incidentProcessorTopicProvisioning.adminTopics();
+    }
+
+    // Потоки listener'а по партициям high-priority-alert и сигнал масштабирования (см. incident-processor.scaling)
+    @Bean
+    @ConfigurationProperties(prefix = "incident-processor.scaling")
+    public KafkaScalingProperties incidentProcessorScaling() {
+        return new KafkaScalingProperties();
+    }
+
+    @Bean
+    public PartitionAwareConcurrency partitionAwareConcurrency(KafkaAdmin kafkaAdmin,
+                                                               KafkaTopicProvisioning incidentProcessorTopicProvisioning,
+                                                               KafkaScalingProperties incidentProcessorScaling) {
+        return new PartitionAwareConcurrency(kafkaAdmin.getConfigurationProperties(),
+                incidentProcessorTopicProvisioning, incidentProcessorScaling);
+    }
+
+    /** Отставание группы, которая сейчас читает high-priority-alert: listener'а или Kafka Streams. */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ConsumerLagMonitor consumerLagMonitor(MeterRegistry meterRegistry, KafkaAdmin kafkaAdmin,
+                                                 KafkaScalingProperties incidentProcessorScaling,
+                                                 @Value("#{${incident-processor.streams.enabled:false} ? '${incident-processor.streams.application-id:incident-processor-streams}' : 'incident-processor-group'}")
+                                                 String groupId) {
+        return new ConsumerLagMonitor(meterRegistry, kafkaAdmin.getConfigurationProperties(), groupId,
+                incidentProcessorScaling);
+    }
+
+    /** Отметки этапов в заголовках Kafka и гистограммы incidents.pipeline.* (см. StageRecorder). */
+    @Bean
+    public StageRecorder stageRecorder(MeterRegistry meterRegistry) {
+        return new StageRecorder(meterRegistry);
+    }
+
+    /** Таймеры listener'ов и отправок incidents.kafka.listener.time / send.time (см. KafkaMetrics). */
+    @Bean
+    public KafkaMetrics kafkaMetrics(MeterRegistry meterRegistry) {
+        return new KafkaMetrics(meterRegistry);
+    }
+
     @Bean
     public ProducerFactory<String, Object> incidentProducerServiceProducerFactory(){
-        Map<String, Object> configProps = new HashMap<>();
+        Map<String, Object> configProps = new HashMap<>(incidentProcessorKafkaProfile().producerProperties());
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, PinnedAvroSerializer.class);
         configProps.put("schema.registry.url", schemaRegistryUrl);
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
@@ -45,11 +110,11 @@ public class KafkaConfig {
 
     @Bean
     public ConsumerFactory<String, Object> incidentProducerServiceConsumerFactory(){
-        Map<String, Object> configProps = new HashMap<>();
+        Map<String, Object> configProps = new HashMap<>(incidentProcessorKafkaProfile().consumerProperties());
         configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "incident-producer-service-group");
         configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, KafkaAvroDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, PinnedAvroDeserializer.class);
         configProps.put("schema.registry.url", schemaRegistryUrl);
         configProps.put(KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, true);
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
@@ -58,11 +123,14 @@ public class KafkaConfig {
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Object> incidentProducerServiceKafkaListener(){
+    public ConcurrentKafkaListenerContainerFactory<String, Object> incidentProducerServiceKafkaListener(KafkaMetrics kafkaMetrics,
+                                                                                                PartitionAwareConcurrency concurrency){
         ConcurrentKafkaListenerContainerFactory<String, Object> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(incidentProducerServiceConsumerFactory());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.setContainerCustomizer(concurrency.customizer());
+        factory.setRecordInterceptor(kafkaMetrics.recordInterceptor());
         return factory;
     }
 }
@@ -1,5 +1,6 @@
 package com.example.incedent_processor.controller;
 
+import com.example.common.metrics.MetricNames;
 import com.example.incedent_processor.services.IncidentProcessorService;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -9,7 +10,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -53,19 +53,9 @@ public class IncidentProcessorController {
                 "metrics", "/actuator/metrics"
         ));
 
-        metrics.put("kafka_metrics", List.of(
-                "incidents.kafka.processing.time",
-                "incidents.kafka.errors.total",
-                "incidents.kafka.updated.priority.total",
-                "incidents.kafka.updated.status.total",
-                "incidents.kafka.created.total"
-        ));
-
-        metrics.put("api_metrics", List.of(
-                "incident-processor.requests.total",
-                "incident-processor.processing.timer",
-                "incident-processor.errors.total"
-        ));
+        // имена из реестра: список не расходится с тем, что сервис действительно регистрирует
+        metrics.put("kafka_metrics", MetricNames.registered(meterRegistry, MetricNames.INCIDENTS_PREFIX));
+        metrics.put("api_metrics", MetricNames.registered(meterRegistry, "incident-processor."));
 
         return ResponseEntity.ok(metrics);
     }
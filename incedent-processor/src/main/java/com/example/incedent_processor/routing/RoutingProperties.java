@@ -0,0 +1,19 @@
+package com.example.incedent_processor.routing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "incident-processor.routing")
+public class RoutingProperties {
+    /** Файл правил маршрутизации; не задан - маршруты из enum Service. */
+    private String file;
+    /** Как часто проверять, изменился ли файл. */
+    private Duration reloadInterval = Duration.ofSeconds(10);
+    /** Группа для сервисов, не попавших ни под одно правило. */
+    private String defaultGroup = "oncall-team";
+}
@@ -0,0 +1,209 @@
+package com.example.incedent_processor.routing;
+
+import com.example.incedent_processor.services.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Неизменяемая таблица маршрутизации сервис -> ответственная группа. Порядок поиска:
+ * точное имя (хеш-таблица), затем самое длинное совпадение префиксного правила вида {@code payment-*}
+ * (префиксное дерево, проход по символам имени без аллокаций), затем прочие glob-правила
+ * ({@code *-gateway}, {@code pay?-*}) в порядке объявления, иначе группа по умолчанию.
+ */
+public final class RoutingTable {
+    private final Map<String, String> exact;
+    private final TrieNode prefixes;
+    private final List<GlobRule> globs;
+    private final String defaultGroup;
+    private final int size;
+
+    private RoutingTable(Map<String, String> exact, TrieNode prefixes, List<GlobRule> globs,
+                         String defaultGroup, int size) {
+        this.exact = exact;
+        this.prefixes = prefixes;
+        this.globs = globs;
+        this.defaultGroup = defaultGroup;
+        this.size = size;
+    }
+
+    public String resolve(String serviceName) {
+        String group = match(serviceName);
+        return group != null ? group : defaultGroup;
+    }
+
+    /** Группа по правилу или null, если ни одно правило не подошло. */
+    public String match(String serviceName) {
+        if (serviceName == null) {
+            return null;
+        }
+        String group = exact.get(serviceName);
+        if (group != null) {
+            return group;
+        }
+        group = prefixes.longestPrefix(serviceName);
+        if (group != null) {
+            return group;
+        }
+        for (GlobRule glob : globs) {
+            if (glob.pattern.matcher(serviceName).matches()) {
+                return glob.group;
+            }
+        }
+        return null;
+    }
+
+    public String getDefaultGroup() {
+        return defaultGroup;
+    }
+
+    /** Число правил. */
+    public int size() {
+        return size;
+    }
+
+    /** Таблица из {@link Service}: прежняя зашитая в код маршрутизация. */
+    public static RoutingTable fromServices(String defaultGroup) {
+        Builder builder = new Builder(defaultGroup);
+        for (Service service : Service.values()) {
+            if (service.getServiceName() != null) {
+                builder.rule(service.getServiceName(), service.getResponsibleGroup());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Разбор файла правил: строка {@code шаблон = группа}, пустые строки и строки с # пропускаются.
+     * Строка {@code * = группа} задаёт группу по умолчанию.
+     */
+    public static RoutingTable parse(List<String> lines, String defaultGroup) {
+        Builder builder = new Builder(defaultGroup);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int eq = line.indexOf('=');
+            if (eq <= 0 || eq == line.length() - 1) {
+                throw new IllegalArgumentException("Строка " + (i + 1) + ": ожидается 'шаблон = группа': " + line);
+            }
+            String pattern = line.substring(0, eq).strip();
+            String group = line.substring(eq + 1).strip();
+            if (pattern.isEmpty() || group.isEmpty()) {
+                throw new IllegalArgumentException("Строка " + (i + 1) + ": пустой шаблон или группа: " + line);
+            }
+            builder.rule(pattern, group);
+        }
+        return builder.build();
+    }
+
+    public static final class Builder {
+        private final Map<String, String> exact = new HashMap<>();
+        private final TreeMap<String, String> prefixes = new TreeMap<>();
+        private final List<GlobRule> globs = new ArrayList<>();
+        private String defaultGroup;
+        private int size;
+
+        public Builder(String defaultGroup) {
+            this.defaultGroup = defaultGroup;
+        }
+
+        public Builder rule(String pattern, String group) {
+            size++;
+            if (pattern.equals("*")) {
+                defaultGroup = group;
+            } else if (pattern.indexOf('*') < 0 && pattern.indexOf('?') < 0) {
+                exact.put(pattern, group);
+            } else if (pattern.indexOf('*') == pattern.length() - 1 && pattern.indexOf('?') < 0) {
+                prefixes.put(pattern.substring(0, pattern.length() - 1), group);
+            } else {
+                globs.add(new GlobRule(toRegex(pattern), group));
+            }
+            return this;
+        }
+
+        public RoutingTable build() {
+            TrieNode root = new TrieNode();
+            prefixes.forEach(root::insert);
+            root.freeze();
+            return new RoutingTable(Map.copyOf(exact), root, List.copyOf(globs), defaultGroup, size);
+        }
+
+        private static Pattern toRegex(String glob) {
+            StringBuilder regex = new StringBuilder(glob.length() + 8);
+            StringBuilder literal = new StringBuilder();
+            for (char c : glob.toCharArray()) {
+                if (c == '*' || c == '?') {
+                    if (!literal.isEmpty()) {
+                        regex.append(Pattern.quote(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                } else {
+                    literal.append(c);
+                }
+            }
+            if (!literal.isEmpty()) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            return Pattern.compile(regex.toString());
+        }
+    }
+
+    private record GlobRule(Pattern pattern, String group) {
+    }
+
+    /** Узел префиксного дерева; после freeze дочерние узлы лежат в отсортированных массивах. */
+    private static final class TrieNode {
+        private static final char[] NO_KEYS = new char[0];
+        private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+
+        private TreeMap<Character, TrieNode> building = new TreeMap<>();
+        private char[] keys = NO_KEYS;
+        private TrieNode[] children = NO_CHILDREN;
+        private String group;
+
+        private void insert(String prefix, String group) {
+            TrieNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.building.computeIfAbsent(prefix.charAt(i), c -> new TrieNode());
+            }
+            node.group = group;
+        }
+
+        private void freeze() {
+            keys = new char[building.size()];
+            children = new TrieNode[building.size()];
+            int i = 0;
+            for (Map.Entry<Character, TrieNode> entry : building.entrySet()) {
+                keys[i] = entry.getKey();
+                children[i] = entry.getValue();
+                children[i].freeze();
+                i++;
+            }
+            building = null;
+        }
+
+        private String longestPrefix(String name) {
+            TrieNode node = this;
+            String found = node.group;
+            for (int i = 0; i < name.length(); i++) {
+                int idx = Arrays.binarySearch(node.keys, name.charAt(i));
+                if (idx < 0) {
+                    break;
+                }
+                node = node.children[idx];
+                if (node.group != null) {
+                    found = node.group;
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.incedent_processor.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маршрутизация инцидентов по ответственным группам. Правила читаются из файла
+ * (incident-processor.routing.file) и перечитываются при его изменении без перезапуска:
+ * новая {@link RoutingTable} строится целиком и подменяет старую одной записью volatile-поля,
+ * поток Kafka всегда видит согласованную таблицу. Файл с ошибкой не применяется, остаются прежние правила.
+ */
+@Component
+@Slf4j
+public class ServiceRoutingTable {
+    private final RoutingProperties properties;
+    private final Path file;
+    private final ScheduledExecutorService reloader;
+    private volatile RoutingTable table;
+    private volatile Object loadedVersion;
+
+    private final Counter reloads;
+    private final Counter reloadErrors;
+    private final Counter unmatched;
+
+    public ServiceRoutingTable(RoutingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.file = properties.getFile() == null || properties.getFile().isBlank()
+                ? null : Path.of(properties.getFile());
+
+        reloads = Counter.builder("incidents.routing.reloads.total")
+                .description("Применённые версии файла маршрутизации")
+                .tag("result", "success")
+                .register(meterRegistry);
+        reloadErrors = Counter.builder("incidents.routing.reloads.total")
+                .description("Применённые версии файла маршрутизации")
+                .tag("result", "error")
+                .register(meterRegistry);
+        unmatched = Counter.builder("incidents.routing.unmatched.total")
+                .description("Инциденты сервисов без правила, отправленные группе по умолчанию")
+                .register(meterRegistry);
+        Gauge.builder("incidents.routing.rules", this, routing -> routing.table.size())
+                .description("Правил в текущей таблице маршрутизации")
+                .register(meterRegistry);
+
+        if (file == null) {
+            table = RoutingTable.fromServices(properties.getDefaultGroup());
+            reloader = null;
+            log.info("Маршрутизация из enum Service, правил: {}", table.size());
+        } else {
+            // без корректного файла при старте сервис не должен молча слать всё группе по умолчанию
+            table = load();
+            reloader = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("routing-reload").daemon().factory());
+            long interval = properties.getReloadInterval().toMillis();
+            reloader.scheduleWithFixedDelay(this::reloadIfChanged, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Ответственная группа сервиса; null и неизвестные сервисы - группа по умолчанию. */
+    public String resolve(String serviceName) {
+        RoutingTable current = table;
+        String group = current.match(serviceName);
+        if (group == null) {
+            unmatched.increment();
+            return current.getDefaultGroup();
+        }
+        return group;
+    }
+
+    public RoutingTable current() {
+        return table;
+    }
+
+    void reloadIfChanged() {
+        try {
+            Object version = version();
+            if (version.equals(loadedVersion)) {
+                return;
+            }
+            table = load();
+        } catch (IOException | RuntimeException e) {
+            reloadErrors.increment();
+            log.error("Файл маршрутизации {} не применён, остаются прежние правила: {}", file, e.getMessage());
+        }
+    }
+
+    private RoutingTable load() {
+        try {
+            Object version = version();
+            RoutingTable loaded = RoutingTable.parse(
+                    Files.readAllLines(file, StandardCharsets.UTF_8), properties.getDefaultGroup());
+            loadedVersion = version;
+            reloads.increment();
+            log.info("Загружены правила маршрутизации из {}: {}", file, loaded.size());
+            return loaded;
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать файл маршрутизации " + file, e);
+        }
+    }
+
+    /** Время изменения и размер файла: дешевле, чем перечитывать файл целиком на каждой проверке. */
+    private Object version() throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return attributes.lastModifiedTime().toMillis() + ":" + attributes.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+}
@@ -2,11 +2,18 @@ package com.example.incedent_processor.services;
 
 import com.example.common.events.Alert;
 import com.example.common.events.Incident;
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.metrics.LatencyHistograms;
+import com.example.common.tracing.PipelineStage;
+import com.example.common.tracing.StageRecorder;
+import com.example.common.tracing.StageTrace;
+import com.example.incedent_processor.routing.ServiceRoutingTable;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
@@ -17,6 +24,9 @@ import org.springframework.stereotype.Service;
 public class IncidentProcessorService {
     private final KafkaTemplate<String, Object> kafkaTemplate;
     private final MeterRegistry meterRegistry;
+    private final ServiceRoutingTable routingTable;
+    private final StageRecorder stageRecorder;
+    private final KafkaMetrics kafkaMetrics;
 
     private final Counter kafkaIncidentsProcessed;
     private final Counter kafkaProcessingErrors;
@@ -27,11 +37,17 @@ public class IncidentProcessorService {
 
     public IncidentProcessorService(
             KafkaTemplate<String, Object> kafkaTemplate,
-            MeterRegistry meterRegistry) {
+            MeterRegistry meterRegistry,
+            ServiceRoutingTable routingTable,
+            StageRecorder stageRecorder,
+            KafkaMetrics kafkaMetrics) {
         this.kafkaTemplate = kafkaTemplate;
         this.meterRegistry = meterRegistry;
+        this.routingTable = routingTable;
+        this.stageRecorder = stageRecorder;
+        this.kafkaMetrics = kafkaMetrics;
 
-        kafkaIncidentsProcessed = Counter.builder("incidents.kafka.created.total")
+        kafkaIncidentsProcessed = Counter.builder("incidents.kafka.processed.total")
                 .description("Обработано HIGH PRIORITY инцидентов")
                 .tag("source", "kafka")
                 .register(meterRegistry);
@@ -39,15 +55,17 @@ public class IncidentProcessorService {
                 .description("Ошибки обработки")
                 .tag("source", "kafka")
                 .register(meterRegistry);
-        kafkaProcessingTimer = Timer.builder("incidents.kafka.processing.time")
+        kafkaProcessingTimer = LatencyHistograms.slo(Timer.builder("incidents.kafka.processing.time")
                 .description("Время обработки инцидентов")
-                .tag("source", "kafka")
+                .tag("source", "kafka"))
                 .register(meterRegistry);
     }
 
+    /** При incident-processor.streams.enabled=true тот же поток обрабатывает Kafka Streams, слушатель не запускается. */
     @KafkaListener(topics = INCIDENT_HIGH_PRIORITY_ALERT,
             groupId = "incident-processor-group",
-            containerFactory = "incidentProducerServiceKafkaListener")
+            containerFactory = "incidentProducerServiceKafkaListener",
+            autoStartup = "#{!${incident-processor.streams.enabled:false}}")
     public void processIncident(ConsumerRecord<String, Incident> record,
                                 Acknowledgment ack) {
 
@@ -55,28 +73,27 @@ public class IncidentProcessorService {
         String uuid = record.key();
         Incident incident = record.value();
         String responsibleGroup;
+        stageRecorder.received(record, PipelineStage.PROCESSOR_RECEIVED);
 
         log.debug("Получен HIGH PRIORITY инцидент. uuid: {}, offset: {}", uuid, record.offset());
         log.info("Обработка HIGH PRIORITY инцидента. id: {}, uuid: {}, service: {}",
                 incident.getId(), uuid, incident.getService());
 
-        responsibleGroup = com.example.incedent_processor.services.Service
-                .fromServiceName(incident.getService()).getResponsibleGroup();
+        responsibleGroup = routingTable.resolve(incident.getService());
 
-            Alert alert = Alert.newBuilder()
-                    .setId(incident.getId())
-                    .setService(incident.getService())
-                    .setInfo(incident.getInfo())
-                    .setStatus(incident.getStatus())
-                    .setTimestamp(incident.getTimestamp())
-                    .setResponsibleGroup(responsibleGroup)
-                    .build();
+        Alert alert = toAlert(incident, responsibleGroup);
+        ProducerRecord<String, Object> alertRecord = new ProducerRecord<>(ALERT_TOPIC, uuid, alert);
+        StageTrace.copy(record.headers(), alertRecord.headers());
+        stageRecorder.stamp(alertRecord.headers(), PipelineStage.PROCESSOR_SENT);
 
         try{
-            kafkaTemplate.send(ALERT_TOPIC, uuid, alert)
+            long sendStart = System.nanoTime();
+            kafkaTemplate.send(alertRecord)
                     .whenComplete((res, e) -> {
-                        if(e == null)
+                        kafkaMetrics.sent(ALERT_TOPIC, res, e, sendStart);
+                        if(e == null) {
                             log.info("Alert отправлен{}, group: {}, uuid {}",incident.getId(), responsibleGroup, uuid);
+                        }
                         else
                             log.info("Ошибка при отправлке Alert id{}, uuid {}", incident.getId(), uuid, e);
                     });
@@ -91,5 +108,15 @@ public class IncidentProcessorService {
             timer.stop(kafkaProcessingTimer);
         }
     }
-}
 
+    public static Alert toAlert(Incident incident, String responsibleGroup) {
+        // Конструктор без копирования и валидации builder'а; порядок - поля схемы Alert
+        return new Alert(
+                incident.getId(),
+                incident.getService(),
+                incident.getStatus(),
+                incident.getInfo(),
+                incident.getTimestamp(),
+                responsibleGroup);
+    }
+}
@@ -2,6 +2,9 @@ package com.example.incedent_processor.services;
 
 import lombok.Getter;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public enum Service {
     PAYMENT_SERVICE("payment-service", "payment-team"),
     AUTH_SERVICE("auth-service", "auth-team"),
@@ -9,6 +12,17 @@ public enum Service {
     INVENTORY_SERVICE("inventory-service", "inventory-team"),
     UNKNOWN(null, "oncall-team");
 
+    private static final Map<String, Service> BY_NAME = new HashMap<>();
+
+    static {
+        for (Service service : values()) {
+            if (service.serviceName != null) {
+                BY_NAME.put(service.serviceName, service);
+            }
+        }
+    }
+
+    @Getter
     private final String serviceName;
     @Getter
     private final String responsibleGroup;
@@ -19,11 +33,9 @@ public enum Service {
     }
 
     public static Service fromServiceName(String serviceName) {
-        for (Service service : values()) {
-            if (service.serviceName != null && service.serviceName.equals(serviceName)) {
-                return service;
-            }
+        if (serviceName == null) {
+            return UNKNOWN;
         }
-        return UNKNOWN;
+        return BY_NAME.getOrDefault(serviceName, UNKNOWN);
     }
 }
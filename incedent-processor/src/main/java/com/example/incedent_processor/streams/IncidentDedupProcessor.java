@@ -0,0 +1,55 @@
+package com.example.incedent_processor.streams;
+
+import com.example.common.events.Incident;
+import io.micrometer.core.instrument.Counter;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.apache.kafka.streams.state.WindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+
+import java.time.Duration;
+
+/**
+ * Отсев повторов инцидента по id. Оконное хранилище держит id, встреченные за dedupRetention,
+ * старые сегменты удаляются самим хранилищем. Повтор одной и той же записи (переотправка, повтор продюсера)
+ * имеет тот же ключ и попадает в ту же партицию, поэтому локального хранилища задачи достаточно.
+ */
+class IncidentDedupProcessor implements FixedKeyProcessor<String, Incident, Incident> {
+    private final String storeName;
+    private final long retentionMillis;
+    private final Counter duplicates;
+
+    private FixedKeyProcessorContext<String, Incident> context;
+    private WindowStore<Long, Long> seen;
+
+    IncidentDedupProcessor(String storeName, Duration retention, Counter duplicates) {
+        this.storeName = storeName;
+        this.retentionMillis = retention.toMillis();
+        this.duplicates = duplicates;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, Incident> context) {
+        this.context = context;
+        this.seen = context.getStateStore(storeName);
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, Incident> record) {
+        Incident incident = record.value();
+        if (incident == null) {
+            return;
+        }
+        long id = incident.getId();
+        long timestamp = record.timestamp();
+        try (WindowStoreIterator<Long> previous = seen.fetch(id, timestamp - retentionMillis, timestamp)) {
+            if (previous.hasNext()) {
+                duplicates.increment();
+                return;
+            }
+        }
+        seen.put(id, timestamp, timestamp);
+        context.forward(record);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.incedent_processor.streams;
+
+import com.example.common.events.Alert;
+import com.example.common.events.Incident;
+import com.example.incedent_processor.routing.ServiceRoutingTable;
+import com.example.incedent_processor.services.IncidentProcessorService;
+import io.micrometer.core.instrument.Counter;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.state.Stores;
+
+import java.time.Duration;
+
+/**
+ * high-priority-alert -> отсев повторов по id инцидента -> определение группы -> alert-topic.
+ * Ключ записи (uuid запроса) сохраняется, как в слушателе IncidentProcessorService.
+ * processed и duplicates увеличиваются при обработке, а не при коммите транзакции, поэтому
+ * считают попытки: после отката транзакции записи обрабатываются и учитываются ещё раз.
+ */
+public final class IncidentEscalationTopology {
+    public static final String INPUT_TOPIC = "high-priority-alert";
+    public static final String ALERT_TOPIC = "alert-topic";
+    public static final String DEDUP_STORE = "incident-dedup-store";
+
+    private IncidentEscalationTopology() {
+    }
+
+    public static KStream<String, Alert> build(StreamsBuilder builder,
+                                               Serde<Incident> incidentSerde,
+                                               Serde<Alert> alertSerde,
+                                               ServiceRoutingTable routingTable,
+                                               Duration dedupRetention,
+                                               Counter processed,
+                                               Counter duplicates) {
+        builder.addStateStore(Stores.windowStoreBuilder(
+                Stores.persistentWindowStore(DEDUP_STORE, dedupRetention, dedupRetention, false),
+                Serdes.Long(), Serdes.Long()));
+
+        KStream<String, Alert> alerts = builder
+                .stream(INPUT_TOPIC, Consumed.with(Serdes.String(), incidentSerde).withName("high-priority-incidents"))
+                .processValues(() -> new IncidentDedupProcessor(DEDUP_STORE, dedupRetention, duplicates),
+                        Named.as("dedup-by-incident-id"), DEDUP_STORE)
+                .mapValues(incident -> {
+                    processed.increment();
+                    return IncidentProcessorService.toAlert(incident, routingTable.resolve(incident.getService()));
+                }, Named.as("route-to-group"));
+        alerts.to(ALERT_TOPIC, Produced.with(Serdes.String(), alertSerde).withName("alerts"));
+        return alerts;
+    }
+}
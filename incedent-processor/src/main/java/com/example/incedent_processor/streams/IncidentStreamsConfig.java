@@ -0,0 +1,87 @@
+package com.example.incedent_processor.streams;
+
+import com.example.common.events.Alert;
+import com.example.common.events.Incident;
+import com.example.incedent_processor.routing.ServiceRoutingTable;
+import com.example.common.avro.PinnedAvroDeserializer;
+import com.example.common.avro.PinnedAvroSerializer;
+import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.kstream.KStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+import org.springframework.kafka.annotation.KafkaStreamsDefaultConfiguration;
+import org.springframework.kafka.config.KafkaStreamsConfiguration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kafka Streams вместо @KafkaListener для high-priority-alert -> alert-topic: чтение, запись алерта
+ * и коммит смещения в одной транзакции (exactly_once_v2), повтор id инцидента отсеивается хранилищем.
+ * Брокеру нужен transaction.state.log с фактором репликации, который он может обеспечить (см. infra/docker-compose.yml).
+ */
+@Configuration
+@EnableKafkaStreams
+@ConditionalOnProperty(name = "incident-processor.streams.enabled", havingValue = "true")
+public class IncidentStreamsConfig {
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${spring.kafka.schema-registry-url}")
+    private String schemaRegistryUrl;
+
+    @Bean(name = KafkaStreamsDefaultConfiguration.DEFAULT_STREAMS_CONFIG_BEAN_NAME)
+    public KafkaStreamsConfiguration incidentStreamsConfiguration(StreamsProperties properties) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, properties.getApplicationId());
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, StreamsConfig.EXACTLY_ONCE_V2);
+        props.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, properties.getThreads());
+        props.put(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG, properties.getCommitInterval().toMillis());
+        props.put(StreamsConfig.consumerPrefix("auto.offset.reset"), "earliest");
+        return new KafkaStreamsConfiguration(props);
+    }
+
+    @Bean
+    public KStream<String, Alert> incidentEscalationStream(StreamsBuilder builder,
+                                                           ServiceRoutingTable routingTable,
+                                                           StreamsProperties properties,
+                                                           MeterRegistry meterRegistry) {
+        // Счётчики топологии считают попытки: запись из прерванной и повторённой транзакции
+        // exactly-once учитывается повторно, хотя в alert-topic попадает один раз
+        Counter processed = Counter.builder("incidents.kafka.processed.total")
+                .description("Обработано HIGH PRIORITY инцидентов")
+                .tag("source", "streams")
+                .register(meterRegistry);
+        Counter duplicates = Counter.builder("incidents.kafka.duplicates.total")
+                .description("Отброшено повторов инцидентов по id")
+                .tag("source", "streams")
+                .register(meterRegistry);
+        return IncidentEscalationTopology.build(builder, avroSerde(), avroSerde(), routingTable,
+                properties.getDedupRetention(), processed, duplicates);
+    }
+
+    /** Закреплённые id схем из common, как у KafkaTemplate и слушателей сервиса; реестр - для неизвестных id. */
+    @SuppressWarnings("unchecked")
+    private <T> Serde<T> avroSerde() {
+        Map<String, Object> config = Map.of(
+                "schema.registry.url", schemaRegistryUrl,
+                KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, true);
+        PinnedAvroSerializer serializer = new PinnedAvroSerializer();
+        serializer.configure(config, false);
+        PinnedAvroDeserializer deserializer = new PinnedAvroDeserializer();
+        deserializer.configure(config, false);
+        return Serdes.serdeFrom(
+                (topic, data) -> serializer.serialize(topic, data),
+                (topic, bytes) -> (T) deserializer.deserialize(topic, bytes));
+    }
+}
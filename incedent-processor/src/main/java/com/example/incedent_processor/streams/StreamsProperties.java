@@ -0,0 +1,22 @@
+package com.example.incedent_processor.streams;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "incident-processor.streams")
+public class StreamsProperties {
+    /** true - high-priority-alert -> alert-topic обрабатывает Kafka Streams вместо @KafkaListener. */
+    private boolean enabled = false;
+    private String applicationId = "incident-processor-streams";
+    /** Потоков обработки; больше числа партиций high-priority-alert смысла не имеет. */
+    private int threads = 1;
+    /** Интервал коммита транзакции: при exactly-once алерт виден read_committed-потребителям после коммита. */
+    private Duration commitInterval = Duration.ofMillis(100);
+    /** Сколько помнить id обработанных инцидентов для отсева повторов. */
+    private Duration dedupRetention = Duration.ofHours(1);
+}
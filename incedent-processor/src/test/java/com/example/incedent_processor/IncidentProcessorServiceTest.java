@@ -2,12 +2,22 @@ package com.example.incedent_processor;
 
 import com.example.common.events.Alert;
 import com.example.common.events.Incident;
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.metrics.MetricNames;
+import com.example.common.tracing.PipelineStage;
+import com.example.common.tracing.StageRecorder;
+import com.example.common.tracing.StageTrace;
+import com.example.incedent_processor.routing.RoutingProperties;
+import com.example.incedent_processor.routing.ServiceRoutingTable;
 import com.example.incedent_processor.services.IncidentProcessorService;
 import com.example.incedent_processor.services.Service;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.qameta.allure.Epic;
 import io.qameta.allure.Story;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -45,7 +55,9 @@ public class IncidentProcessorServiceTest {
 
     @BeforeEach
     public void setup() {
-        service = new IncidentProcessorService(kafkaTemplate, meterRegistry);
+        service = new IncidentProcessorService(kafkaTemplate, meterRegistry,
+                new ServiceRoutingTable(new RoutingProperties(), meterRegistry), new StageRecorder(meterRegistry),
+                new KafkaMetrics(meterRegistry));
         incident = DataGenerationHelper.createIncidentWithHighPriority();
     }
 
@@ -91,11 +103,70 @@ public class IncidentProcessorServiceTest {
         Acknowledgment ack = Mockito.mock(Acknowledgment.class);
 
         CompletableFuture<SendResult<String, Object>> future = CompletableFuture.completedFuture(null);
-        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(future);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(future);
 
         service.processIncident(record, ack);
 
-        verify(kafkaTemplate).send(eq("alert-topic"), anyString(), any(Alert.class));
+        ArgumentCaptor<ProducerRecord<String, Object>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(sent.capture());
+        assertThat(sent.getValue().topic()).isEqualTo("alert-topic");
+        assertThat(sent.getValue().value()).isInstanceOf(Alert.class);
+    }
+
+    @Test
+    @Story("Alert наследует отметки этапов инцидента и дописывает этапы процессора")
+    public void highPriorityIncident_withStageTrace_shouldPropagateStagesToAlert() {
+        ConsumerRecord<String, Incident> record = new ConsumerRecord<>(
+                "high-priority-alert",
+                0,
+                0L,
+                "testUUID",
+                incident
+        );
+        long relayed = System.currentTimeMillis() * 1000 - 5_000;
+        StageTrace.set(record.headers(), StageTrace.append(null, PipelineStage.SERVICE_RELAYED, relayed));
+        Acknowledgment ack = Mockito.mock(Acknowledgment.class);
+
+        CompletableFuture<SendResult<String, Object>> future = CompletableFuture.completedFuture(null);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(future);
+
+        service.processIncident(record, ack);
+
+        ArgumentCaptor<ProducerRecord<String, Object>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(sent.capture());
+        var stages = StageTrace.decode(StageTrace.get(sent.getValue().headers()));
+        assertThat(stages.get(PipelineStage.SERVICE_RELAYED)).isEqualTo(relayed);
+        assertThat(stages.containsKey(PipelineStage.PROCESSOR_RECEIVED)).isTrue();
+        assertThat(stages.containsKey(PipelineStage.PROCESSOR_SENT)).isTrue();
+        assertThat(meterRegistry.find(StageRecorder.STAGE_TIMER)
+                .tags("stage", "processor.received", "from", "service.relayed").timer().count()).isEqualTo(1L);
+    }
+
+    @Test
+    @Story("Отправка alert учитывается в счётчике обработанных и в таймере отправки с партицией и результатом")
+    public void highPriorityIncident_sent_shouldRecordProcessedAndSendMetrics() {
+        ConsumerRecord<String, Incident> record = new ConsumerRecord<>(
+                "high-priority-alert",
+                0,
+                0L,
+                "testUUID",
+                incident
+        );
+        Acknowledgment ack = Mockito.mock(Acknowledgment.class);
+
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("alert-topic", 2), 0L, 0, 0L, 0, 0);
+        CompletableFuture<SendResult<String, Object>> future =
+                CompletableFuture.completedFuture(new SendResult<>(null, metadata));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(future);
+
+        service.processIncident(record, ack);
+
+        assertThat(meterRegistry.counter("incidents.kafka.processed.total", "source", "kafka").count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.find("incidents.kafka.created.total").counter()).isNull();
+        assertThat(meterRegistry.find(MetricNames.KAFKA_SEND_TIME)
+                .tags("topic", "alert-topic", "partition", "2", "outcome", "success").timer().count())
+                .isEqualTo(1L);
     }
 
     @Test
@@ -111,7 +182,7 @@ public class IncidentProcessorServiceTest {
         );
         Acknowledgment ack = Mockito.mock(Acknowledgment.class);
 
-        when(kafkaTemplate.send(anyString(), anyString(), any())).thenThrow(new RuntimeException("Kafka error"));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenThrow(new RuntimeException("Kafka error"));
         assertThatThrownBy(() -> service.processIncident(record, ack))
                 .isInstanceOf(RuntimeException.class);
 
@@ -0,0 +1,91 @@
+package com.example.incedent_processor.config;
+
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.metrics.MetricNames;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.RecordInterceptor;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Epic("Incident processor tests")
+public class KafkaMetricsTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @Story("Перехватчик listener'а пишет время обработки с топиком, партицией и результатом")
+    public void recordInterceptor_successAndFailure_recordOutcomeTags() {
+        KafkaMetrics metrics = new KafkaMetrics(meterRegistry);
+        RecordInterceptor<String, String> interceptor = metrics.recordInterceptor();
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("high-priority-alert", 1, 0L, "key", "value");
+
+        interceptor.intercept(record, null);
+        interceptor.success(record, null);
+        interceptor.intercept(record, null);
+        interceptor.failure(record, new IllegalStateException("listener"), null);
+
+        assertThat(listenerTimer("high-priority-alert", "1", "success").count()).isEqualTo(1L);
+        assertThat(listenerTimer("high-priority-alert", "1", "error").count()).isEqualTo(1L);
+    }
+
+    @Test
+    @Story("Топики сверх лимита и большие номера партиций сводятся в other")
+    public void listened_overLimits_collapseToOther() {
+        KafkaMetrics metrics = new KafkaMetrics(meterRegistry, 2, 4);
+
+        metrics.listened("topic-a", 0, System.nanoTime(), null);
+        metrics.listened("topic-b", 0, System.nanoTime(), null);
+        metrics.listened("topic-c", 0, System.nanoTime(), null);
+        metrics.listened("topic-a", 17, System.nanoTime(), null);
+
+        assertThat(listenerTimer("other", "0", "success").count()).isEqualTo(1L);
+        assertThat(listenerTimer("topic-a", "other", "success").count()).isEqualTo(1L);
+        assertThat(meterRegistry.find(MetricNames.KAFKA_LISTENER_TIME).timers()).hasSize(4);
+    }
+
+    @Test
+    @Story("Неудачная отправка без назначенной партиции различает таймаут и ошибку")
+    public void sent_withoutResult_recordsNonePartitionAndOutcome() {
+        KafkaMetrics metrics = new KafkaMetrics(meterRegistry);
+
+        metrics.sent("alert-topic", null, new CompletionException(new TimeoutException("metadata")), System.nanoTime());
+        metrics.sent("alert-topic", null, new IllegalStateException("send"), System.nanoTime());
+
+        assertThat(sendTimer("none", "timeout").count()).isEqualTo(1L);
+        assertThat(sendTimer("none", "error").count()).isEqualTo(1L);
+    }
+
+    @Test
+    @Story("Таймеры Kafka публикуют SLO-границы гистограммы")
+    public void sent_timer_publishesSloBuckets() {
+        KafkaMetrics metrics = new KafkaMetrics(meterRegistry);
+
+        metrics.sent("alert-topic", 0, System.nanoTime(), null);
+
+        assertThat(sendTimer("0", "success").takeSnapshot().histogramCounts())
+                .anySatisfy(bucket -> assertThat(bucket.bucket(TimeUnit.MILLISECONDS))
+                        .isEqualTo(25.0));
+    }
+
+    private Timer listenerTimer(String topic, String partition, String outcome) {
+        return meterRegistry.get(MetricNames.KAFKA_LISTENER_TIME)
+                .tags("topic", topic, "partition", partition, "outcome", outcome)
+                .timer();
+    }
+
+    private Timer sendTimer(String partition, String outcome) {
+        return meterRegistry.get(MetricNames.KAFKA_SEND_TIME)
+                .tags("topic", "alert-topic", "partition", partition, "outcome", outcome)
+                .timer();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.incedent_processor.config;
+
+import com.example.common.kafka.ConsumerLagMonitor;
+import com.example.common.kafka.KafkaScalingProperties;
+import com.example.common.kafka.KafkaTopicProvisioning;
+import com.example.common.kafka.PartitionAwareConcurrency;
+import com.example.common.metrics.MetricNames;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.TopicConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.TopicPartitionOffset;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@Epic("Incident processor tests")
+public class KafkaScalingTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final KafkaScalingProperties scaling = new KafkaScalingProperties();
+
+    @Test
+    @Story("Топики сервиса создаются с партициями из настроек, компактируемый - с cleanup.policy=compact")
+    public void newTopics_overridesAndCompaction_applied() {
+        KafkaTopicProvisioning provisioning = new KafkaTopicProvisioning()
+                .topic("alert-topic")
+                .compactedTopic("incident-state");
+        provisioning.setTopicPartitions(Map.of("alert-topic", 6, "extra-topic", 2));
+
+        List<NewTopic> topics = provisioning.newTopics();
+
+        assertThat(topics).extracting(NewTopic::name)
+                .containsExactlyInAnyOrder("alert-topic", "incident-state", "extra-topic");
+        assertThat(topic(topics, "alert-topic").numPartitions()).isEqualTo(6);
+        assertThat(topic(topics, "incident-state").numPartitions()).isEqualTo(3);
+        assertThat(topic(topics, "incident-state").configs())
+                .containsEntry(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT);
+        assertThat(topic(topics, "extra-topic").numPartitions()).isEqualTo(2);
+    }
+
+    @Test
+    @Story("Потоков контейнера - партиции топика на экземпляр, в пределах max-concurrency")
+    public void customizer_topicPartitions_sizeConcurrency() {
+        scaling.setInstances(2);
+        scaling.setMaxConcurrency(4);
+        PartitionAwareConcurrency concurrency = concurrency(Map.of("high-priority-alert", 6, "wide-topic", 32));
+
+        ConcurrentMessageListenerContainer<String, Object> alerts = container(new ContainerProperties("high-priority-alert"));
+        ConcurrentMessageListenerContainer<String, Object> wide = container(new ContainerProperties("wide-topic"));
+        concurrency.<String, Object>customizer().configure(alerts);
+        concurrency.<String, Object>customizer().configure(wide);
+
+        assertThat(alerts.getConcurrency()).isEqualTo(3);
+        assertThat(wide.getConcurrency()).isEqualTo(4);
+    }
+
+    @Test
+    @Story("Без метаданных брокера берётся число партиций из настроек, явная партиция - один поток")
+    public void customizer_noMetadataOrAssignedPartition_fallsBack() {
+        PartitionAwareConcurrency concurrency = concurrency(Map.of());
+
+        ConcurrentMessageListenerContainer<String, Object> unknown = container(new ContainerProperties("incident-create"));
+        ConcurrentMessageListenerContainer<String, Object> reply = container(
+                new ContainerProperties(new TopicPartitionOffset("incident-create-response", 0)));
+        concurrency.<String, Object>customizer().configure(unknown);
+        concurrency.<String, Object>customizer().configure(reply);
+
+        assertThat(unknown.getConcurrency()).isEqualTo(3);
+        assertThat(reply.getConcurrency()).isEqualTo(1);
+    }
+
+    @Test
+    @Story("Отставание группы публикуется по топикам, нужное число экземпляров ограничено партициями")
+    public void lagMonitor_update_publishesLagAndDesiredInstances() {
+        scaling.getLag().setTargetPerInstance(1000);
+        ConsumerLagMonitor monitor = new ConsumerLagMonitor(meterRegistry, Map.of(), "incident-processor-group", scaling);
+        TopicPartition first = new TopicPartition("high-priority-alert", 0);
+        TopicPartition second = new TopicPartition("high-priority-alert", 1);
+
+        monitor.update(Map.of(first, 100L, second, 500L), Map.of(first, 1600L, second, 1500L));
+        assertThat(lagGauge()).isEqualTo(2500.0);
+        assertThat(desiredInstances()).isEqualTo(2.0);
+
+        monitor.update(Map.of(first, 0L, second, 0L), Map.of(first, 50_000L, second, 50_000L));
+        assertThat(desiredInstances()).isEqualTo(2.0);
+
+        monitor.update(Map.of(first, 1600L, second, 1500L), Map.of(first, 1600L, second, 1500L));
+        assertThat(lagGauge()).isZero();
+        assertThat(desiredInstances()).isEqualTo(1.0);
+    }
+
+    @Test
+    @Story("Партиция без закоммиченного смещения отстаёт от позиции auto.offset.reset, а не считается догнавшей")
+    public void lagMonitor_uncommittedPartition_countsFromResetPosition() {
+        scaling.getLag().setTargetPerInstance(1000);
+        ConsumerLagMonitor monitor = new ConsumerLagMonitor(meterRegistry, Map.of(), "incident-processor-group", scaling);
+        TopicPartition committed = new TopicPartition("high-priority-alert", 0);
+        TopicPartition fresh = new TopicPartition("high-priority-alert", 1);
+
+        // начало лога второй партиции 200 после удаления старых сегментов
+        monitor.update(Map.of(committed, 900L), Map.of(fresh, 200L), Map.of(committed, 1000L, fresh, 2200L));
+
+        assertThat(lagGauge()).isEqualTo(2100.0);
+        assertThat(desiredInstances()).isEqualTo(2.0);
+    }
+
+    private PartitionAwareConcurrency concurrency(Map<String, Integer> brokerPartitions) {
+        return new PartitionAwareConcurrency(Map.of(), new KafkaTopicProvisioning(), scaling) {
+            @Override
+            protected Map<String, Integer> describe(Collection<String> topics) {
+                return brokerPartitions;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConcurrentMessageListenerContainer<String, Object> container(ContainerProperties properties) {
+        return new ConcurrentMessageListenerContainer<>(mock(ConsumerFactory.class), properties);
+    }
+
+    private static NewTopic topic(List<NewTopic> topics, String name) {
+        return topics.stream().filter(topic -> topic.name().equals(name)).findFirst().orElseThrow();
+    }
+
+    private double lagGauge() {
+        return meterRegistry.get(MetricNames.KAFKA_CONSUMER_LAG)
+                .tags("group", "incident-processor-group", "topic", "high-priority-alert")
+                .gauge()
+                .value();
+    }
+
+    private double desiredInstances() {
+        return meterRegistry.get(MetricNames.KAFKA_CONSUMER_DESIRED_INSTANCES)
+                .tags("group", "incident-processor-group")
+                .gauge()
+                .value();
+    }
+}
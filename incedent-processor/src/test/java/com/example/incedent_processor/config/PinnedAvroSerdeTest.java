@@ -0,0 +1,108 @@
+package com.example.incedent_processor.config;
+
+import com.example.common.avro.FileSchemaRegistry;
+import com.example.common.avro.PinnedAvroDeserializer;
+import com.example.common.avro.PinnedAvroSerdeConfig;
+import com.example.common.avro.PinnedAvroSerializer;
+import com.example.common.events.Incident;
+import com.example.common.events.IncidentPriority;
+import com.example.common.events.IncidentStatus;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Epic("Incident processor tests")
+public class PinnedAvroSerdeTest {
+
+    private static final Incident INCIDENT = Incident.newBuilder()
+            .setId(42L)
+            .setService("payment-service")
+            .setInfo("Payment gateway timeout")
+            .setStatus(IncidentStatus.CREATED)
+            .setPriority(IncidentPriority.HIGH)
+            .setTimestamp(1_700_000_000_000L)
+            .build();
+
+    @Test
+    @Story("Запись сериализуется с закреплённым id схемы и читается без реестра")
+    public void pinnedSerde_roundTrip_usesPinnedSchemaId() {
+        PinnedAvroSerializer serializer = new PinnedAvroSerializer();
+        serializer.configure(Map.of(), false);
+        PinnedAvroDeserializer deserializer = new PinnedAvroDeserializer();
+        deserializer.configure(Map.of(), false);
+
+        byte[] bytes = serializer.serialize("high-priority-alert", INCIDENT);
+
+        assertThat(bytes[0]).isEqualTo((byte) 0);
+        assertThat(ByteBuffer.wrap(bytes, 1, 4).getInt()).isEqualTo(1001);
+        assertThat(deserializer.deserialize("high-priority-alert", bytes)).isEqualTo(INCIDENT);
+    }
+
+    @Test
+    @Story("Другая версия схемы писателя берётся из файлового реестра")
+    public void pinnedSerde_writerSchemaFromFileRegistry_resolvesToLocalClass(@TempDir Path dir) throws IOException {
+        // Более новая версия Incident с полем, которого локальный класс не знает
+        Schema newer = SchemaBuilder.record("Incident").namespace("com.example.common.events").fields()
+                .requiredLong("id")
+                .requiredString("service")
+                .name("status").type(Incident.getClassSchema().getField("status").schema()).noDefault()
+                .name("priority").type(Incident.getClassSchema().getField("priority").schema()).noDefault()
+                .requiredString("info")
+                .requiredLong("timestamp")
+                .requiredString("owner")
+                .endRecord();
+        int id = new FileSchemaRegistry(dir).register(newer);
+
+        GenericRecord record = new GenericData.Record(newer);
+        record.put("id", 42L);
+        record.put("service", "payment-service");
+        record.put("status", new GenericData.EnumSymbol(newer.getField("status").schema(), "CREATED"));
+        record.put("priority", new GenericData.EnumSymbol(newer.getField("priority").schema(), "HIGH"));
+        record.put("info", "Payment gateway timeout");
+        record.put("timestamp", 1_700_000_000_000L);
+        record.put("owner", "payment-team");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0);
+        out.write(ByteBuffer.allocate(4).putInt(id).array());
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(newer).write(record, encoder);
+        encoder.flush();
+
+        PinnedAvroDeserializer deserializer = new PinnedAvroDeserializer();
+        deserializer.configure(Map.of(PinnedAvroSerdeConfig.FILE_REGISTRY_CONFIG, dir.toString()), false);
+
+        assertThat(id).isGreaterThanOrEqualTo(FileSchemaRegistry.FIRST_DYNAMIC_ID);
+        assertThat(deserializer.deserialize("high-priority-alert", out.toByteArray())).isEqualTo(INCIDENT);
+    }
+
+    @Test
+    @Story("Неизвестный id схемы без реестра отклоняется")
+    public void pinnedDeserializer_unknownIdWithoutRegistry_throws() {
+        PinnedAvroDeserializer deserializer = new PinnedAvroDeserializer();
+        deserializer.configure(Map.of(), false);
+        byte[] bytes = {0, 0, 0, 0, 7, 2};
+
+        assertThatThrownBy(() -> deserializer.deserialize("high-priority-alert", bytes))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("7");
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.incedent_processor.routing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Epic("Incident processor tests")
+public class ServiceRoutingTableTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private static final RoutingTable TABLE = RoutingTable.parse(List.of(
+            "# правила",
+            "payment-service = payment-team",
+            "payment-* = payment-team",
+            "payment-gateway-* = gateway-team",
+            "*-auth = auth-team",
+            "order-?? = order-team",
+            ""
+    ), "oncall-team");
+
+    @ParameterizedTest
+    @Story("Сервис маршрутизируется по точному имени, префиксу и шаблону")
+    @CsvSource({
+            "payment-service, payment-team",
+            "payment-refunds, payment-team",
+            "payment-gateway-eu, gateway-team",
+            "sso-auth, auth-team",
+            "order-eu, order-team",
+            "order-eu1, oncall-team",
+            "unknown-service, oncall-team"
+    })
+    public void routingTable_givenService_returnsGroup(String serviceName, String group) {
+        assertThat(TABLE.resolve(serviceName)).isEqualTo(group);
+    }
+
+    @Test
+    @Story("Сервис без имени уходит группе по умолчанию")
+    public void routingTable_nullService_returnsDefaultGroup() {
+        assertThat(TABLE.resolve(null)).isEqualTo("oncall-team");
+        assertThat(TABLE.match(null)).isNull();
+    }
+
+    @Test
+    @Story("Без файла правил маршруты берутся из enum Service")
+    public void routingTable_noFile_usesServiceEnum() {
+        ServiceRoutingTable routing = new ServiceRoutingTable(new RoutingProperties(), meterRegistry);
+
+        assertThat(routing.resolve("auth-service")).isEqualTo("auth-team");
+        assertThat(routing.resolve("unknown-service")).isEqualTo("oncall-team");
+        assertThat(meterRegistry.counter("incidents.routing.unmatched.total").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @Story("Некорректная строка в файле правил отклоняется")
+    public void routingTable_malformedLine_throws() {
+        assertThatThrownBy(() -> RoutingTable.parse(List.of("payment-service payment-team"), "oncall-team"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Строка 1");
+    }
+
+    @Test
+    @Story("Изменённый файл правил применяется без перезапуска, файл с ошибкой - нет")
+    public void routingTable_fileChanged_reloads(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("service-routing.conf");
+        Files.writeString(file, "payment-* = payment-team\n");
+        RoutingProperties properties = new RoutingProperties();
+        properties.setFile(file.toString());
+        ServiceRoutingTable routing = new ServiceRoutingTable(properties, meterRegistry);
+        try {
+            assertThat(routing.resolve("payment-refunds")).isEqualTo("payment-team");
+
+            Files.writeString(file, "payment-* = billing-team\n* = sre-team\n");
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 1000));
+            routing.reloadIfChanged();
+
+            assertThat(routing.resolve("payment-refunds")).isEqualTo("billing-team");
+            assertThat(routing.resolve("unknown-service")).isEqualTo("sre-team");
+
+            Files.writeString(file, "broken line\n");
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+            routing.reloadIfChanged();
+
+            assertThat(routing.resolve("payment-refunds")).isEqualTo("billing-team");
+            assertThat(meterRegistry.counter("incidents.routing.reloads.total", "result", "error").count())
+                    .isEqualTo(1.0);
+        } finally {
+            routing.close();
+        }
+    }
+}
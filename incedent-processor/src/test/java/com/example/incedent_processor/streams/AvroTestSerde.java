@@ -0,0 +1,47 @@
+package com.example.incedent_processor.streams;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/** Avro без Schema Registry: для TopologyTestDriver достаточно бинарного формата записи. */
+final class AvroTestSerde {
+
+    private AvroTestSerde() {
+    }
+
+    static <T extends SpecificRecord> Serde<T> of(Class<T> type) {
+        SpecificDatumWriter<T> writer = new SpecificDatumWriter<>(type);
+        SpecificDatumReader<T> reader = new SpecificDatumReader<>(type);
+        return Serdes.serdeFrom(
+                (topic, data) -> {
+                    try {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+                        writer.write(data, encoder);
+                        encoder.flush();
+                        return out.toByteArray();
+                    } catch (IOException e) {
+                        throw new SerializationException(e);
+                    }
+                },
+                (topic, bytes) -> {
+                    try {
+                        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+                        return reader.read(null, decoder);
+                    } catch (IOException e) {
+                        throw new SerializationException(e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.incedent_processor.streams;
+
+import com.example.common.events.Alert;
+import com.example.common.events.Incident;
+import com.example.incedent_processor.DataGenerationHelper;
+import com.example.incedent_processor.routing.RoutingProperties;
+import com.example.incedent_processor.routing.ServiceRoutingTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.test.TestRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Epic("Incident processor tests")
+public class IncidentEscalationTopologyTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Serde<Incident> incidentSerde = AvroTestSerde.of(Incident.class);
+    private final Serde<Alert> alertSerde = AvroTestSerde.of(Alert.class);
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, Incident> input;
+    private TestOutputTopic<String, Alert> output;
+
+    @BeforeEach
+    public void setup() {
+        StreamsBuilder builder = new StreamsBuilder();
+        IncidentEscalationTopology.build(builder, incidentSerde, alertSerde,
+                new ServiceRoutingTable(new RoutingProperties(), meterRegistry), Duration.ofHours(1),
+                Counter.builder("processed").register(meterRegistry),
+                Counter.builder("duplicates").register(meterRegistry));
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "incident-processor-streams-test");
+        props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, StreamsConfig.EXACTLY_ONCE_V2);
+        driver = new TopologyTestDriver(builder.build(), props);
+        input = driver.createInputTopic(IncidentEscalationTopology.INPUT_TOPIC,
+                new StringSerializer(), incidentSerde.serializer());
+        output = driver.createOutputTopic(IncidentEscalationTopology.ALERT_TOPIC,
+                new StringDeserializer(), alertSerde.deserializer());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    @Story("HIGH PRIORITY инцидент превращается в алерт для группы сервиса")
+    public void highPriorityIncident_streams_producesAlertForGroup() {
+        Incident incident = DataGenerationHelper.createIncidentWithHighPriority();
+        incident.setService("payment-service");
+
+        input.pipeInput("uuid-1", incident);
+
+        List<TestRecord<String, Alert>> alerts = output.readRecordsToList();
+        assertThat(alerts).hasSize(1);
+        assertThat(alerts.getFirst().key()).isEqualTo("uuid-1");
+        assertThat(alerts.getFirst().value().getId()).isEqualTo(incident.getId());
+        assertThat(alerts.getFirst().value().getResponsibleGroup()).isEqualTo("payment-team");
+    }
+
+    @Test
+    @Story("Повтор инцидента с тем же id отсеивается, пока id хранится")
+    public void repeatedIncidentId_streams_isDeduplicatedWithinRetention() {
+        Incident incident = DataGenerationHelper.createIncidentWithHighPriority();
+        Instant start = Instant.parse("2026-01-20T12:00:00Z");
+
+        input.pipeInput("uuid-1", incident, start);
+        input.pipeInput("uuid-1", incident, start.plusSeconds(60));
+        input.pipeInput("uuid-1", incident, start.plus(Duration.ofHours(2)));
+
+        assertThat(output.readRecordsToList()).hasSize(2);
+        assertThat(meterRegistry.counter("duplicates").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("processed").count()).isEqualTo(2.0);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.incedent_producer_service.cache;
+
+import com.example.common.events.Incident;
+import com.example.common.events.IncidentUpdateResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongFunction;
+
+/**
+ * Read-through кэш инцидентов по id для GET /{ID}. Одновременные промахи по одному id
+ * объединяются в один запрос к incident-service. Пустой результат и ошибки не кэшируются.
+ * Запись удаляется по событию incident-update-response от любого экземпляра шлюза и по TTL.
+ */
+@Component
+@Slf4j
+public class IncidentCache {
+    private static final String INCIDENT_UPDATE_RESPONSE_TOPIC = "incident-update-response";
+
+    private final boolean enabled;
+    private final AsyncCache<Long, Incident> cache;
+    private final Counter invalidations;
+
+    public IncidentCache(IncidentCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .buildAsync();
+
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size и т.д. с тегом cache=incidents
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "incidents", "application", "incident-producer-service");
+
+        invalidations = Counter.builder("incident-producer-service.cache.invalidations.total")
+                .description("Записи кэша инцидентов, удалённые по событию обновления")
+                .tag("application", "incident-producer-service")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Incident> get(long id, LongFunction<CompletableFuture<Incident>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        return cache.get(id, (key, executor) -> loader.apply(key));
+    }
+
+    public void invalidate(long id) {
+        // asMap().remove не учитывается в статистике попаданий, в отличие от getIfPresent
+        if (cache.asMap().remove(id) != null) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Каждый экземпляр шлюза читает все партиции incident-update-response своей группой:
+     * обновление могло пройти через другую реплику, а кэш у каждой свой. Группа привязана к
+     * reply-partition - она у каждого экземпляра своя и не меняется между перезапусками,
+     * поэтому новые группы на брокере не копятся.
+     */
+    @KafkaListener(
+            topics = INCIDENT_UPDATE_RESPONSE_TOPIC,
+            groupId = "incident-producer-cache-${incident-producer.correlation.reply-partition:0}",
+            containerFactory = "incidentCacheInvalidationListener"
+    )
+    public void onIncidentUpdated(ConsumerRecord<String, IncidentUpdateResponse> record) {
+        IncidentUpdateResponse response = record.value();
+        if (response != null) {
+            log.debug("Инцидент удалён из кэша по событию обновления. id: {}", response.getId());
+            invalidate(response.getId());
+        }
+    }
+}
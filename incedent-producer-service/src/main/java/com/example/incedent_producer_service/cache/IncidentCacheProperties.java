@@ -0,0 +1,19 @@
+package com.example.incedent_producer_service.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "incident-producer.cache")
+public class IncidentCacheProperties {
+    /** Если выключен, поиск по id всегда идёт в incident-service. */
+    private boolean enabled = true;
+    /** Максимум инцидентов в кэше; сверх него вытесняются редко запрашиваемые. */
+    private long maximumSize = 10_000;
+    /** Срок жизни записи: верхняя граница устаревания, если событие об изменении потерялось. */
+    private Duration ttl = Duration.ofSeconds(30);
+}
@@ -1,15 +1,25 @@
 package com.example.incedent_producer_service.config;
 
-import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import com.example.incedent_producer_service.state.IncidentStateStore;
+import com.example.common.avro.PinnedAvroDeserializer;
+import com.example.common.avro.PinnedAvroSerializer;
 import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
-import io.confluent.kafka.serializers.KafkaAvroSerializer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import com.example.common.kafka.KafkaClientProfile;
+import com.example.common.kafka.KafkaScalingProperties;
+import com.example.common.kafka.KafkaTopicProvisioning;
+import com.example.common.kafka.PartitionAwareConcurrency;
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.tracing.StageRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
@@ -25,12 +35,61 @@ public class KafkaConfig {
     @Value("${spring.kafka.schema-registry-url}")
     private String schemaRegistryUrl;
 
+    // Шлюз отвечает на HTTP-запросы: по умолчанию low-latency (см. incident-producer.kafka)
+    @Bean
+    @ConfigurationProperties(prefix = "incident-producer.kafka")
+    public KafkaClientProfile incidentProducerKafkaProfile() {
+        return new KafkaClientProfile();
+    }
+
+    // Топики запросов к incedent-service и их партиции (см. incident-producer.provisioning)
+    @Bean
+    @ConfigurationProperties(prefix = "incident-producer.provisioning")
+    public KafkaTopicProvisioning incidentProducerTopicProvisioning() {
+        return new KafkaTopicProvisioning()
+                .topic("incident-create")
+                .topic("incident-update")
+                .topic("incident-find-request");
+    }
+
+    @Bean
+    public KafkaAdmin.NewTopics incidentProducerTopics(KafkaTopicProvisioning incidentProducerTopicProvisioning) {
+        return incidentProducerTopicProvisioning.adminTopics();
+    }
+
+    // Потоки listener'ов по партициям (см. incident-producer.scaling); масштаб шлюза задаёт HTTP-нагрузка
+    @Bean
+    @ConfigurationProperties(prefix = "incident-producer.scaling")
+    public KafkaScalingProperties incidentProducerScaling() {
+        return new KafkaScalingProperties();
+    }
+
+    @Bean
+    public PartitionAwareConcurrency partitionAwareConcurrency(KafkaAdmin kafkaAdmin,
+                                                               KafkaTopicProvisioning incidentProducerTopicProvisioning,
+                                                               KafkaScalingProperties incidentProducerScaling) {
+        return new PartitionAwareConcurrency(kafkaAdmin.getConfigurationProperties(),
+                incidentProducerTopicProvisioning, incidentProducerScaling);
+    }
+
+    /** Отметки этапов в заголовках Kafka и гистограммы incidents.pipeline.* (см. StageRecorder). */
+    @Bean
+    public StageRecorder stageRecorder(MeterRegistry meterRegistry) {
+        return new StageRecorder(meterRegistry);
+    }
+
+    /** Таймеры listener'ов и отправок incidents.kafka.listener.time / send.time (см. KafkaMetrics). */
+    @Bean
+    public KafkaMetrics kafkaMetrics(MeterRegistry meterRegistry) {
+        return new KafkaMetrics(meterRegistry);
+    }
+
     @Bean
     public ProducerFactory<String, Object> incidentProducerServiceProducerFactory(){
-        Map<String, Object> configProps = new HashMap<>();
+        Map<String, Object> configProps = new HashMap<>(incidentProducerKafkaProfile().producerProperties());
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, PinnedAvroSerializer.class);
         configProps.put("schema.registry.url", schemaRegistryUrl);
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
@@ -45,11 +104,11 @@ public class KafkaConfig {
 
     @Bean
     public ConsumerFactory<String, Object> incidentProducerServiceConsumerFactory(){
-        Map<String, Object> configProps = new HashMap<>();
+        Map<String, Object> configProps = new HashMap<>(incidentProducerKafkaProfile().consumerProperties());
         configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "incident-producer-service-group");
         configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, KafkaAvroDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, PinnedAvroDeserializer.class);
         configProps.put("schema.registry.url", schemaRegistryUrl);
         configProps.put(KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, true);
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
@@ -58,11 +117,72 @@ public class KafkaConfig {
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Object> incidentProducerServiceKafkaListener(){
+    public ConcurrentKafkaListenerContainerFactory<String, Object> incidentProducerServiceKafkaListener(KafkaMetrics kafkaMetrics,
+                                                                                                PartitionAwareConcurrency concurrency){
         ConcurrentKafkaListenerContainerFactory<String, Object> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(incidentProducerServiceConsumerFactory());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        // reply-listener'ы назначают себе одну партицию: поток один при любом числе партиций топика
+        factory.setContainerCustomizer(concurrency.customizer());
+        factory.setRecordInterceptor(kafkaMetrics.recordInterceptor());
+        return factory;
+    }
+
+    /**
+     * Слушатель инвалидации кэша: группа у каждого экземпляра своя (по reply-partition), история
+     * не нужна, поэтому новая группа читает с конца топика, а смещения коммитятся автоматически.
+     * После перезапуска пропущенные инвалидации дочитываются впустую - кэш пуст.
+     */
+    @Bean
+    public ConsumerFactory<String, Object> incidentCacheInvalidationConsumerFactory(){
+        Map<String, Object> configProps = new HashMap<>(incidentProducerServiceConsumerFactory().getConfigurationProperties());
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, true);
+        return new DefaultKafkaConsumerFactory<>(configProps);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> incidentCacheInvalidationListener(KafkaMetrics kafkaMetrics,
+                                                                                             PartitionAwareConcurrency concurrency){
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(incidentCacheInvalidationConsumerFactory());
+        // группа своя у каждого экземпляра: потоки по всем партициям топика
+        factory.setContainerCustomizer(concurrency.broadcastCustomizer());
+        factory.setRecordInterceptor(kafkaMetrics.recordInterceptor());
+        return factory;
+    }
+
+    /**
+     * Чтение incident-state в локальное представление: каждый экземпляр читает топик целиком
+     * с начала, смещения не коммитятся. Топик не создаётся авто-созданием брокера, иначе он
+     * окажется некомпактируемым; его создаёт incedent-service.
+     */
+    @Bean
+    public ConsumerFactory<String, Object> incidentStateConsumerFactory(){
+        Map<String, Object> configProps = new HashMap<>(incidentProducerServiceConsumerFactory().getConfigurationProperties());
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        configProps.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, false);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 2000);
+        return new DefaultKafkaConsumerFactory<>(configProps);
+    }
+
+    /**
+     * Хранилище само объявляет @KafkaListener на этой фабрике, поэтому сюда оно приходит
+     * ленивым прокси: иначе фабрика и хранилище создаются друг через друга и контекст не стартует.
+     * Поток один: готовность считается по назначению одного консьюмера, а запись идёт под write-lock.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> incidentStateListener(@Lazy IncidentStateStore incidentStateStore,
+                                                                                  KafkaMetrics kafkaMetrics){
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(incidentStateConsumerFactory());
+        factory.setBatchListener(true);
+        factory.setBatchInterceptor(kafkaMetrics.batchInterceptor());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(incidentStateStore);
         return factory;
     }
 }
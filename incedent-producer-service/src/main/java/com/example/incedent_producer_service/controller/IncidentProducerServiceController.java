@@ -1,20 +1,31 @@
 package com.example.incedent_producer_service.controller;
 
 
+import com.example.common.metrics.MetricNames;
 import com.example.common.events.*;
+import com.example.incedent_producer_service.correlation.CorrelationCapacityExceededException;
+import com.example.incedent_producer_service.correlation.ReplyRejectedException;
 import com.example.incedent_producer_service.services.IncidentProducerService;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/incident-producer-service")
@@ -25,10 +36,18 @@ public class IncidentProducerServiceController {
     private final Counter totalRequestCounter;
     private final Counter totalErrorCounter;
     private final Timer proccessingTimer;
-
-    public IncidentProducerServiceController(IncidentProducerService service, MeterRegistry meterRegistry) {
+    private final ObjectMapper objectMapper;
+    private final int streamPageSize;
+
+    public IncidentProducerServiceController(
+            IncidentProducerService service,
+            MeterRegistry meterRegistry,
+            ObjectMapper objectMapper,
+            @Value("${incident-producer.find.stream-page-size:500}") int streamPageSize) {
         this.service = service;
         this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+        this.streamPageSize = streamPageSize;
 
         totalRequestCounter = Counter.builder("incident-producer-service.requests.total")
                 .description("Общее количество запросов REST в incident producer service ")
@@ -58,17 +77,16 @@ public class IncidentProducerServiceController {
                 log.info("Инцидент создан через REST. id: {}, service: {}, priority: {}",
                         createdEvent.getId(), createdEvent.getService(), createdEvent.getPriority());
 
-                Map<String, Object> response = new HashMap<>();
-                response.put("message", "Инцидент успешно создан");
-                response.put("incidentId", createdEvent.getId());
-                response.put("service", createdEvent.getService());
-                response.put("info", createdEvent.getInfo());
-                response.put("priority", createdEvent.getPriority());
-                response.put("status", createdEvent.getStatus());
-                response.put("time", createdEvent.getTimestamp());
-                return ResponseEntity.status(HttpStatus.CREATED).body(response);
-
-            }  catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.CREATED).body(IncidentViews.created(createdEvent));
+
+            } catch (CorrelationCapacityExceededException e) {
+                totalErrorCounter.increment();
+                return overloaded(e);
+            } catch (ReplyRejectedException e) {
+                totalErrorCounter.increment();
+                log.warn("Запрос на создание отклонён. service: {}: {}", request.getService(), e.getMessage());
+                return ResponseEntity.badRequest().body(e.getMessage());
+            } catch (Exception e) {
                 totalErrorCounter.increment();
                 log.error("Ошибка создания инцидента. service: {}", request.getService(), e);
                 return ResponseEntity.internalServerError().body(e.getMessage());
@@ -90,16 +108,11 @@ public class IncidentProducerServiceController {
                 log.info("Инцидент обновлён через REST. id: {}, status: {}, priority: {}",
                         updateResponse.getId(), updateResponse.getStatus(), updateResponse.getPriority());
 
-                Map<String, Object> response = new HashMap<>();
-                response.put("message", "Инцидент успешно обновлен");
-                response.put("incidentId", updateResponse.getId());
-                response.put("service", updateResponse.getService());
-                response.put("info", updateResponse.getInfo());
-                response.put("status", updateResponse.getStatus());
-                response.put("priority", updateResponse.getPriority());
-                response.put("updatedAt", updateResponse.getUpdatedAt());
-                return ResponseEntity.ok(response);
+                return ResponseEntity.ok(IncidentViews.updated(updateResponse));
 
+            } catch (CorrelationCapacityExceededException e) {
+                totalErrorCounter.increment();
+                return overloaded(e);
             } catch (Exception e) {
                 totalErrorCounter.increment();
                 log.error("Ошибка обновлении инцидента. service: {}", request.getService(), e);
@@ -127,23 +140,16 @@ public class IncidentProducerServiceController {
                     request.getId(), request.getStatus(), request.getPriority());
 
             if (!response.getIncidents().isEmpty()) {
-                var incident = response.getIncidents().get(0);
-
-                Map<String, Object> result = new HashMap<>();
-                result.put("id", incident.getId());
-                result.put("service", incident.getService().toString());
-                result.put("info", incident.getInfo().toString());
-                result.put("status", incident.getStatus().toString());
-                result.put("priority", incident.getPriority().toString());
-                result.put("timestamp", incident.getTimestamp());
-
-                return ResponseEntity.ok(result);
+                return ResponseEntity.ok(IncidentViews.incident(response.getIncidents().get(0)));
             } else {
                 Map<String, String> errorResponse = new HashMap<>();
                 errorResponse.put("error", "Инцидент не найден");
                 errorResponse.put("message", "Инцидент не найден " + ID );
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
             }
+        } catch (CorrelationCapacityExceededException e) {
+            totalErrorCounter.increment();
+            return overloaded(e);
         } catch (Exception e) {
             log.error("Ошибка при поиске инцидента. ID: {}", ID, e);
             totalErrorCounter.increment();
@@ -151,46 +157,45 @@ public class IncidentProducerServiceController {
         }
     }
 
+    /**
+     * Поиск по фильтрам. С параметром limit возвращается одна страница и nextCursor,
+     * который передаётся в after для следующей. Без limit ответ собирается целиком, как раньше;
+     * для больших выборок предназначен {@link #streamIncidents}.
+     */
     @GetMapping
     public ResponseEntity<Object> getAllIncidents(
             @RequestParam(required = false) Long id,
             @RequestParam(required = false) String service,
             @RequestParam(required = false) String priority,
-            @RequestParam(required = false) String status) {
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long after) {
         totalRequestCounter.increment();
 
-        log.info("GET поиск всех инцидентов по id: {}, service: {}, priority: {}, status: {}", id, service, priority, status );
-
-        IncidentFindRequest.Builder builder = IncidentFindRequest.newBuilder()
-                .setId(id)
-                .setService(service)
-                .setPriority(null)
-                .setStatus(null);
+        log.info("GET поиск всех инцидентов по id: {}, service: {}, priority: {}, status: {}, limit: {}, after: {}",
+                id, service, priority, status, limit, after);
 
-        if (priority != null) {
-            builder.setPriority(IncidentPriority.valueOf(priority));
-        }
-        if (status != null) {
-            builder.setStatus(IncidentStatus.valueOf(status));
-        }
+        IncidentFindRequest.Builder builder = findRequest(id, service, priority, status)
+                .setPageSize(limit)
+                .setAfterId(after);
 
         try {
             IncidentFindResponse response = this.service.findIncidents(builder.build());
 
             List<Map<String, Object>> incidents = response.getIncidents().stream()
-                    .map(incident -> {
-                        Map<String, Object> map = new HashMap<>();
-                        map.put("id", incident.getId());
-                        map.put("service", incident.getService().toString());
-                        map.put("info", incident.getInfo().toString());
-                        map.put("status", incident.getStatus().toString());
-                        map.put("priority", incident.getPriority().toString());
-                        map.put("timestamp", incident.getTimestamp());
-                        return map;
-                    })
+                    .map(IncidentViews::incident)
                     .toList();
 
-            return ResponseEntity.ok(Map.of("incidents", incidents));
+            if (limit == null) {
+                return ResponseEntity.ok(Map.of("incidents", incidents));
+            }
+            Map<String, Object> page = new HashMap<>();
+            page.put("incidents", incidents);
+            page.put("nextCursor", response.getNextCursor());
+            return ResponseEntity.ok(page);
+        } catch (CorrelationCapacityExceededException e) {
+            totalErrorCounter.increment();
+            return overloaded(e);
         } catch (Exception e) {
             log.error("Ошибка при поиске инцидентов", e);
             totalErrorCounter.increment();
@@ -199,6 +204,68 @@ public class IncidentProducerServiceController {
 
     }
 
+    /**
+     * Выгрузка всех найденных инцидентов JSON-массивом. Страницы запрашиваются по очереди
+     * и пишутся в ответ сразу, так что в памяти шлюза находится не больше одной страницы.
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamIncidents(
+            @RequestParam(required = false) String service,
+            @RequestParam(required = false) String priority,
+            @RequestParam(required = false) String status) {
+        totalRequestCounter.increment();
+
+        log.info("GET выгрузка инцидентов по service: {}, priority: {}, status: {}", service, priority, status);
+
+        IncidentFindRequest.Builder builder = findRequest(null, service, priority, status)
+                .setPageSize(streamPageSize);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.writeStartArray();
+                Long cursor = null;
+                do {
+                    IncidentFindResponse page = this.service.findIncidents(builder.setAfterId(cursor).build());
+                    for (Incident incident : page.getIncidents()) {
+                        generator.writePOJO(IncidentViews.incident(incident));
+                    }
+                    generator.flush();
+                    cursor = page.getNextCursor();
+                } while (cursor != null);
+                generator.writeEndArray();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                totalErrorCounter.increment();
+                throw new IOException("Выгрузка инцидентов прервана", e);
+            } catch (ExecutionException | TimeoutException e) {
+                totalErrorCounter.increment();
+                log.error("Ошибка при выгрузке инцидентов", e);
+                throw new IOException("Ошибка при выгрузке инцидентов", e);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private IncidentFindRequest.Builder findRequest(Long id, String service, String priority, String status) {
+        IncidentFindRequest.Builder builder = IncidentFindRequest.newBuilder()
+                .setId(id)
+                .setService(service)
+                .setPriority(null)
+                .setStatus(null);
+
+        if (priority != null) {
+            builder.setPriority(IncidentPriority.valueOf(priority));
+        }
+        if (status != null) {
+            builder.setStatus(IncidentStatus.valueOf(status));
+        }
+        return builder;
+    }
+
+    private ResponseEntity<Object> overloaded(CorrelationCapacityExceededException e) {
+        log.warn("Запрос отклонён: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
 
     ///  api для сбора метрик с сервиса
 
@@ -222,16 +289,9 @@ public class IncidentProducerServiceController {
                 "health", "/actuator/health",
                 "metrics", "/actuator/metrics"
         ));
-        metrics.put("kafka_metrics", List.of(
-                "incidents.kafka.processing.time",
-                "incidents.kafka.errors.total",
-                "incidents.kafka.created.total"
-        ));
-        metrics.put("api_metrics", List.of(
-                "incident-producer-service.requests.total",
-                "incident-producer-service.processing.timer",
-                "incident-producer-service.errors.total"
-        ));
+        // имена из реестра: список не расходится с тем, что сервис действительно регистрирует
+        metrics.put("kafka_metrics", MetricNames.registered(meterRegistry, MetricNames.INCIDENTS_PREFIX));
+        metrics.put("api_metrics", MetricNames.registered(meterRegistry, "incident-producer-service."));
         return ResponseEntity.ok(metrics);
     }
 
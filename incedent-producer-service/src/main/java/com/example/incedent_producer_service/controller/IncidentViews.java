@@ -0,0 +1,50 @@
+package com.example.incedent_producer_service.controller;
+
+import com.example.common.events.Incident;
+import com.example.common.events.IncidentCreateResponse;
+import com.example.common.events.IncidentUpdateResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** JSON-представления ответов REST-шлюза. Вынесено из контроллера, чтобы замерять отдельно (benchmarks). */
+public final class IncidentViews {
+
+    private IncidentViews() {
+    }
+
+    public static Map<String, Object> created(IncidentCreateResponse createdEvent) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Инцидент успешно создан");
+        response.put("incidentId", createdEvent.getId());
+        response.put("service", createdEvent.getService());
+        response.put("info", createdEvent.getInfo());
+        response.put("priority", createdEvent.getPriority());
+        response.put("status", createdEvent.getStatus());
+        response.put("time", createdEvent.getTimestamp());
+        return response;
+    }
+
+    public static Map<String, Object> updated(IncidentUpdateResponse updateResponse) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Инцидент успешно обновлен");
+        response.put("incidentId", updateResponse.getId());
+        response.put("service", updateResponse.getService());
+        response.put("info", updateResponse.getInfo());
+        response.put("status", updateResponse.getStatus());
+        response.put("priority", updateResponse.getPriority());
+        response.put("updatedAt", updateResponse.getUpdatedAt());
+        return response;
+    }
+
+    public static Map<String, Object> incident(Incident incident) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", incident.getId());
+        map.put("service", incident.getService().toString());
+        map.put("info", incident.getInfo().toString());
+        map.put("status", incident.getStatus().toString());
+        map.put("priority", incident.getPriority().toString());
+        map.put("timestamp", incident.getTimestamp());
+        return map;
+    }
+}
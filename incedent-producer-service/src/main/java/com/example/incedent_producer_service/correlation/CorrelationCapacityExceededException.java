@@ -0,0 +1,10 @@
+package com.example.incedent_producer_service.correlation;
+
+/**
+ * Реестр ожидающих ответов заполнен. Запрос отклоняется до отправки в Kafka.
+ */
+public class CorrelationCapacityExceededException extends RuntimeException {
+    public CorrelationCapacityExceededException(int capacity) {
+        super("Превышено число одновременно ожидающих запросов: " + capacity);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.incedent_producer_service.correlation;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "incident-producer.correlation")
+public class CorrelationProperties {
+    /** Сколько ждать ответа от incident-service. */
+    private Duration timeout = Duration.ofSeconds(30);
+    /** Максимум одновременно ожидающих запросов; сверх него запросы отклоняются. */
+    private int capacity = 50_000;
+    /** Шаг колеса таймеров: точность срабатывания таймаута. */
+    private Duration tick = Duration.ofMillis(100);
+    /** Число ячеек колеса (степень двойки). */
+    private int wheelSize = 512;
+    /** Префикс узла в correlation id; если не задан, выбирается случайно при старте. */
+    private Long nodeId;
+    /**
+     * Партиция reply-топиков, закреплённая за этим экземпляром. Номер передаётся в заголовке
+     * запроса, incident-service отвечает именно в неё, поэтому у каждой реплики должен быть свой номер.
+     */
+    private int replyPartition = 0;
+}
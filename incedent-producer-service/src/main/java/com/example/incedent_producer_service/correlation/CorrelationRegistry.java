@@ -0,0 +1,197 @@
+package com.example.incedent_producer_service.correlation;
+
+import com.example.common.correlation.CorrelationId;
+import com.example.common.correlation.CorrelationIdGenerator;
+import com.example.common.metrics.LatencyHistograms;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BinaryOperator;
+
+/**
+ * Единый реестр запросов, ожидающих ответа из reply-топиков.
+ * Дедлайны обслуживает {@link HashedTimerWheel}, запись удаляется при любом завершении future:
+ * ответ, ошибка отправки или таймаут. Ёмкость ограничена: при заполнении новые запросы отклоняются.
+ */
+@Component
+@Slf4j
+public class CorrelationRegistry implements AutoCloseable {
+    private final Map<CorrelationId, Pending<?>> pending = new ConcurrentHashMap<>();
+    private final CorrelationIdGenerator idGenerator;
+    private final Semaphore permits;
+    private final int capacity;
+    private final long timeoutMillis;
+    private final byte[] replyPartitionHeader;
+    private final HashedTimerWheel timerWheel;
+    private final MeterRegistry meterRegistry;
+
+    private final Counter rejectedCounter;
+    private final Map<ReplyType<?>, Counter> orphanCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> ageTimers = new ConcurrentHashMap<>();
+
+    public CorrelationRegistry(MeterRegistry meterRegistry, CorrelationProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.idGenerator = properties.getNodeId() != null
+                ? new CorrelationIdGenerator(properties.getNodeId())
+                : CorrelationIdGenerator.withRandomNode();
+        this.capacity = properties.getCapacity();
+        this.permits = new Semaphore(capacity);
+        this.timeoutMillis = properties.getTimeout().toMillis();
+        this.replyPartitionHeader = ByteBuffer.allocate(Integer.BYTES).putInt(properties.getReplyPartition()).array();
+        this.timerWheel = new HashedTimerWheel(properties.getTick().toMillis(), TimeUnit.MILLISECONDS,
+                properties.getWheelSize(), "correlation-timer");
+
+        Gauge.builder("incident-producer-service.correlation.in-flight", pending, Map::size)
+                .description("Количество запросов, ожидающих ответа")
+                .tag("application", "incident-producer-service")
+                .register(meterRegistry);
+
+        rejectedCounter = Counter.builder("incident-producer-service.correlation.rejected.total")
+                .description("Запросы, отклонённые из-за заполненного реестра")
+                .tag("application", "incident-producer-service")
+                .register(meterRegistry);
+    }
+
+    public CorrelationId nextId() {
+        return idGenerator.next();
+    }
+
+    /**
+     * Проставляет в запрос correlation id и партицию, в которую этот экземпляр ждёт ответ.
+     * Ключ записи остаётся строкой для совместимости, бинарный id едет в заголовке.
+     */
+    public void stamp(ProducerRecord<String, ?> record, CorrelationId correlationId) {
+        record.headers().add(CorrelationId.HEADER, correlationId.toBytes());
+        record.headers().add(KafkaHeaders.REPLY_PARTITION, replyPartitionHeader);
+    }
+
+    public <T> CompletableFuture<T> register(ReplyType<T> type, CorrelationId correlationId) {
+        if (!permits.tryAcquire()) {
+            rejectedCounter.increment();
+            throw new CorrelationCapacityExceededException(capacity);
+        }
+        Pending<T> entry = new Pending<>(type, System.nanoTime());
+        if (pending.putIfAbsent(correlationId, entry) != null) {
+            permits.release();
+            throw new IllegalStateException("Повторный correlation id: " + correlationId);
+        }
+        entry.timeout = timerWheel.schedule(timeoutMillis, TimeUnit.MILLISECONDS, () ->
+                entry.future.completeExceptionally(new TimeoutException(
+                        "Нет ответа " + type + " за " + timeoutMillis + " мс. uuid: " + correlationId)));
+        entry.future.whenComplete((response, ex) -> release(correlationId, entry, ex));
+        return entry.future;
+    }
+
+    /**
+     * Завершает ожидающий запрос ответом. Ответ без ожидающего запроса нужного типа считается
+     * сиротой (опоздал после таймаута, дубликат, чужой или с нераспознанным id) и учитывается в метриках.
+     */
+    public <T> boolean complete(ReplyType<T> type, CorrelationId correlationId, T response) {
+        Pending<?> entry = correlationId != null ? pending.get(correlationId) : null;
+        if (entry == null || entry.type != type) {
+            orphanCounter(type).increment();
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        Pending<T> typed = (Pending<T>) entry;
+        return typed.future.complete(response);
+    }
+
+    /**
+     * Принимает одну часть ответа, пришедшего несколькими сообщениями. Части одного запроса идут
+     * с одним ключом в одну партицию и приходят по порядку; они склеиваются через merge,
+     * future завершается на последней части. Ошибка merge (например, пропущенная часть) завершает запрос ошибкой.
+     */
+    public <T> boolean accept(ReplyType<T> type, CorrelationId correlationId, T chunk, boolean last,
+                              BinaryOperator<T> merge) {
+        Pending<?> entry = correlationId != null ? pending.get(correlationId) : null;
+        if (entry == null || entry.type != type) {
+            orphanCounter(type).increment();
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        Pending<T> typed = (Pending<T>) entry;
+        synchronized (typed) {
+            try {
+                typed.partial = typed.partial == null ? chunk : merge.apply(typed.partial, chunk);
+            } catch (RuntimeException e) {
+                return typed.future.completeExceptionally(e);
+            }
+            return !last || typed.future.complete(typed.partial);
+        }
+    }
+
+    public void fail(CorrelationId correlationId, Throwable cause) {
+        Pending<?> entry = pending.get(correlationId);
+        if (entry != null) {
+            entry.future.completeExceptionally(cause);
+        }
+    }
+
+    public int inFlight() {
+        return pending.size();
+    }
+
+    private void release(CorrelationId correlationId, Pending<?> entry, Throwable ex) {
+        if (!pending.remove(correlationId, entry)) {
+            return;
+        }
+        if (entry.timeout != null) {
+            entry.timeout.cancel();
+        }
+        permits.release();
+        String outcome = ex == null ? "completed" : ex instanceof TimeoutException ? "timeout" : "failed";
+        ageTimer(entry.type, outcome).record(System.nanoTime() - entry.startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer ageTimer(ReplyType<?> type, String outcome) {
+        return ageTimers.computeIfAbsent(type.getName() + ':' + outcome, key -> LatencyHistograms.slo(Timer.builder("incident-producer-service.correlation.age")
+                .description("Время от регистрации запроса до его завершения")
+                .tag("application", "incident-producer-service")
+                .tag("type", type.getName())
+                .tag("outcome", outcome))
+                .register(meterRegistry));
+    }
+
+    private Counter orphanCounter(ReplyType<?> type) {
+        return orphanCounters.computeIfAbsent(type, t -> Counter.builder("incident-producer-service.correlation.orphans.total")
+                .description("Ответы без ожидающего запроса")
+                .tag("application", "incident-producer-service")
+                .tag("type", t.getName())
+                .register(meterRegistry));
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        timerWheel.close();
+        pending.values().forEach(entry -> entry.future.cancel(false));
+    }
+
+    private static final class Pending<T> {
+        private final ReplyType<T> type;
+        private final long startNanos;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile HashedTimerWheel.Timeout timeout;
+        private T partial;
+
+        private Pending(ReplyType<T> type, long startNanos) {
+            this.type = type;
+            this.startNanos = startNanos;
+        }
+    }
+}
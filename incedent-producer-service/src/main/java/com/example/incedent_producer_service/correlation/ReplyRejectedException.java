@@ -0,0 +1,10 @@
+package com.example.incedent_producer_service.correlation;
+
+/**
+ * Сервис инцидентов отклонил запрос (ответ с заголовком отказа): повтор с теми же данными не поможет.
+ */
+public class ReplyRejectedException extends RuntimeException {
+    public ReplyRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.incedent_producer_service.correlation;
+
+import com.example.common.events.IncidentCreateResponse;
+import com.example.common.events.IncidentFindResponse;
+import com.example.common.events.IncidentUpdateResponse;
+import lombok.Getter;
+
+/**
+ * Тип ожидаемого ответа. Типизирует регистрацию и завершение запросов в {@link CorrelationRegistry},
+ * чтобы ответ одного типа не мог завершить future другого.
+ */
+@Getter
+public final class ReplyType<T> {
+    public static final ReplyType<IncidentCreateResponse> CREATE = new ReplyType<>("create", IncidentCreateResponse.class);
+    public static final ReplyType<IncidentUpdateResponse> UPDATE = new ReplyType<>("update", IncidentUpdateResponse.class);
+    public static final ReplyType<IncidentFindResponse> FIND = new ReplyType<>("find", IncidentFindResponse.class);
+
+    private final String name;
+    private final Class<T> responseClass;
+
+    private ReplyType(String name, Class<T> responseClass) {
+        this.name = name;
+        this.responseClass = responseClass;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,14 +1,30 @@
 package com.example.incedent_producer_service.services;
 
+import com.example.common.correlation.CorrelationId;
+import com.example.common.correlation.ReplyError;
 import com.example.common.events.*;
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.tracing.PipelineStage;
+import com.example.common.tracing.StageRecorder;
+import com.example.incedent_producer_service.cache.IncidentCache;
+import com.example.incedent_producer_service.correlation.CorrelationRegistry;
+import com.example.incedent_producer_service.correlation.ReplyRejectedException;
+import com.example.incedent_producer_service.correlation.ReplyType;
+import com.example.incedent_producer_service.state.IncidentStateStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.TopicPartition;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 
 @Service
@@ -16,15 +32,26 @@ import java.util.concurrent.*;
 public class IncidentProducerService {
 
     private  final KafkaTemplate<String, Object> kafkaTemplate;
+    private final CorrelationRegistry correlationRegistry;
+    private final IncidentCache incidentCache;
+    private final IncidentStateStore stateStore;
+    private final StageRecorder stageRecorder;
+    private final KafkaMetrics kafkaMetrics;
 
-    public IncidentProducerService(KafkaTemplate<String, Object> kafkaTemplate) {
+    public IncidentProducerService(KafkaTemplate<String, Object> kafkaTemplate,
+                                   CorrelationRegistry correlationRegistry,
+                                   IncidentCache incidentCache,
+                                   IncidentStateStore stateStore,
+                                   StageRecorder stageRecorder,
+                                   KafkaMetrics kafkaMetrics) {
         this.kafkaTemplate = kafkaTemplate;
+        this.correlationRegistry = correlationRegistry;
+        this.incidentCache = incidentCache;
+        this.stateStore = stateStore;
+        this.stageRecorder = stageRecorder;
+        this.kafkaMetrics = kafkaMetrics;
     }
 
-    private final ConcurrentHashMap<String, CompletableFuture<IncidentCreateResponse>> pendingCreateRequests = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, CompletableFuture<IncidentFindResponse>> pendingFindRequests = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, CompletableFuture<IncidentUpdateResponse>> pendingUpdateRequests = new ConcurrentHashMap<>();
-
     private static final String INCIDENT_CREATE_TOPIC        = "incident-create";
     private static final String INCIDENT_UPDATE_TOPIC        = "incident-update";
     private static final String INCIDENT_FIND_REQUEST_TOPIC  = "incident-find-request";
@@ -32,111 +59,199 @@ public class IncidentProducerService {
     private static final String INCIDENT_CREATE_RESPONSE_TOPIC = "incident-create-response";
     private static final String INCIDENT_UPDATE_RESPONSE_TOPIC = "incident-update-response";
 
+    // Экземпляр читает только свою партицию reply-топиков: ответы на его запросы приходят туда
+    private static final String REPLY_PARTITION = "${incident-producer.correlation.reply-partition:0}";
 
-    private static final int REQUEST_TIMEOUT_SECONDS = 30;
 
     public IncidentCreateResponse createIncident(IncidentCreateRequest request)
             throws ExecutionException, InterruptedException, TimeoutException {
-        String uuid = java.util.UUID.randomUUID().toString();
+        return await(createIncidentAsync(request));
+    }
+
+    public IncidentUpdateResponse updateIncident(IncidentUpdateRequest request)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        return await(updateIncidentAsync(request));
+    }
+
+    public IncidentFindResponse findIncidents(IncidentFindRequest request)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        return await(findIncidentsAsync(request));
+    }
 
-        CompletableFuture<IncidentCreateResponse> future = new CompletableFuture<>();
-        pendingCreateRequests.put(uuid, future);
+    /// Неблокирующие варианты: future завершается из reply listener'а, поток вызывающего не удерживается
 
+    public CompletableFuture<IncidentCreateResponse> createIncidentAsync(IncidentCreateRequest request) {
+        // Запрос собирается до регистрации: ошибка сборки не должна занимать место в реестре
         com.example.common.events.IncidentCreateRequest createRequest = com.example.common.events.IncidentCreateRequest.newBuilder()
                 .setService(request.getService())
                 .setInfo(request.getInfo())
                 .setPriority(com.example.common.events.IncidentPriority.valueOf(request.getPriority().name()))
                 .build();
 
-        kafkaTemplate.send(INCIDENT_CREATE_TOPIC, uuid, createRequest)
-                .whenComplete((result, ex) -> {
-                    if (ex == null) {
-                        log.info("CREATE событие отправлено. uuid: {}", uuid);
-                    } else {
-                        log.error("Ошибка при отправке CREATE. uuid: {}", uuid, ex);
-                        future.completeExceptionally(ex);
-                        pendingCreateRequests.remove(uuid);
-                    }
-                });
+        CorrelationId correlationId = correlationRegistry.nextId();
+        CompletableFuture<IncidentCreateResponse> future = correlationRegistry.register(ReplyType.CREATE, correlationId);
+        send(INCIDENT_CREATE_TOPIC, correlationId, createRequest, "CREATE");
 
-        try {
-            return future.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-        } finally {
-            pendingCreateRequests.remove(uuid);
-        }
+        return future;
     }
 
-    public IncidentUpdateResponse updateIncident(IncidentUpdateRequest request)
-            throws ExecutionException, InterruptedException, TimeoutException {
-        String uuid = java.util.UUID.randomUUID().toString();
-
-        CompletableFuture<IncidentUpdateResponse> future = new CompletableFuture<>();
-        pendingUpdateRequests.put(uuid, future);
-        log.info("Producer Service обработка запроса на обновление инцидента uuid {}", uuid);
+    public CompletableFuture<IncidentUpdateResponse> updateIncidentAsync(IncidentUpdateRequest request) {
         com.example.common.events.IncidentUpdateRequest updateRequest =  com.example.common.events.IncidentUpdateRequest.newBuilder()
                 .setId(request.getId())
                 .setService(request.getService())
                 .setPriority(request.getPriority() != null ? request.getPriority() : null)
                 .setStatus(request.getStatus() != null ? request.getStatus() : null)
                 .build();
-        kafkaTemplate.send(INCIDENT_UPDATE_TOPIC , uuid, updateRequest)
-                .whenComplete((result, ex) -> {
-                    if(ex == null)
-                    {
-                        log.info(" UPDATE Событие отправлено. uuid: {}", uuid);
-                    }
-                    else {
-                        log.error("Ошибка при отправке UPDATE. uuid: {}", uuid, ex);
-                        future.completeExceptionally(ex);
-                        pendingCreateRequests.remove(uuid);
-                    }
-                });
-        try {
-            return future.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-        } finally {
-            pendingUpdateRequests.remove(uuid);
-        }
-    }
 
-    public IncidentFindResponse findIncidents(IncidentFindRequest request)
-            throws ExecutionException, InterruptedException, TimeoutException {
+        CorrelationId correlationId = correlationRegistry.nextId();
+        CompletableFuture<IncidentUpdateResponse> future = correlationRegistry.register(ReplyType.UPDATE, correlationId);
+        log.info("Producer Service обработка запроса на обновление инцидента uuid {}", correlationId);
+        send(INCIDENT_UPDATE_TOPIC, correlationId, updateRequest, "UPDATE");
 
-        String uuid = java.util.UUID.randomUUID().toString();
-        CompletableFuture<IncidentFindResponse> future = new CompletableFuture<>();
-        log.info("Producer Service обработка запроса на поиск инцидента uuid {}", uuid);
+        // Своё обновление видно сразу, не дожидаясь события в кэш-listener'е
+        future.whenComplete((response, ex) -> incidentCache.invalidate(request.getId()));
+        return future;
+    }
 
-        pendingFindRequests.put(uuid, future);
+    /**
+     * Когда локальное представление incident-state готово, поиск выполняется по нему без обращения
+     * к Kafka. Инцидент, которого там нет, ищется в incident-service: он мог ещё не доехать из топика.
+     * Иначе поиск только по id обслуживается через кэш, остальные запросы идут в incident-service.
+     */
+    public CompletableFuture<IncidentFindResponse> findIncidentsAsync(IncidentFindRequest request) {
+        if (stateStore.isReady()) {
+            if (!isIdLookup(request)) {
+                return CompletableFuture.completedFuture(stateStore.find(request));
+            }
+            Incident local = stateStore.get(request.getId());
+            if (local != null) {
+                return CompletableFuture.completedFuture(
+                        IncidentFindResponse.newBuilder().setIncidents(List.of(local)).build());
+            }
+        }
+        if (!isIdLookup(request)) {
+            return sendFindRequest(request);
+        }
+        return incidentCache.get(request.getId(), id -> sendFindRequest(request)
+                        .thenApply(response -> response != null && !response.getIncidents().isEmpty()
+                                ? response.getIncidents().get(0) : null))
+                .thenApply(incident -> IncidentFindResponse.newBuilder()
+                        .setIncidents(incident != null ? List.of(incident) : List.of())
+                        .build());
+    }
+
+    private static boolean isIdLookup(IncidentFindRequest request) {
+        return request.getId() != null
+                && (request.getService() == null || request.getService().isEmpty())
+                && request.getPriority() == null
+                && request.getStatus() == null
+                && request.getAfterId() == null
+                && request.getPageSize() == null;
+    }
 
+    private CompletableFuture<IncidentFindResponse> sendFindRequest(IncidentFindRequest request) {
         com.example.common.events.IncidentFindRequest findRequest = com.example.common.events.IncidentFindRequest.newBuilder()
                 .setId(request.getId())
                 .setService(request.getService())
                 .setPriority((request.getPriority() != null) ? request.getPriority() : null)
                 .setStatus(request.getStatus() != null ? request.getStatus() : null)
+                .setAfterId(request.getAfterId())
+                .setPageSize(request.getPageSize())
                 .build();
 
-        kafkaTemplate.send(INCIDENT_FIND_REQUEST_TOPIC, uuid, findRequest)
-                .whenComplete((result, ex) -> {
-                    if(ex == null){
-                        log.info("Событие отправлено FIND uuid: {}", uuid);
-                    }
-                    else {
-                        log.error("Ошибка при отправке FIND uuid: {}", uuid, ex);
-                        future.completeExceptionally(ex);
-                        pendingFindRequests.remove(uuid);
-                    }
-                });
+        CorrelationId correlationId = correlationRegistry.nextId();
+        String uuid = correlationId.toString();
+        log.info("Producer Service обработка запроса на поиск инцидента uuid {}", uuid);
+        CompletableFuture<IncidentFindResponse> future = correlationRegistry.register(ReplyType.FIND, correlationId);
+        send(INCIDENT_FIND_REQUEST_TOPIC, correlationId, findRequest, "FIND");
+
+        return future.whenComplete((response, ex) -> {
+            if (ex == null) {
+                log.info("FIND событие получено. uuid: {}", uuid);
+            }
+        });
+    }
+
+    /**
+     * Отправка запроса с уже зарегистрированным future. Синхронная ошибка send (сериализация, таймаут
+     * метаданных, закрытый продюсер) сразу завершает future и освобождает место в реестре,
+     * а не держит их до таймаута ответа, и пробрасывается вызывающему.
+     */
+    private void send(String topic, CorrelationId correlationId, Object payload, String operation) {
+        String uuid = correlationId.toString();
+        long sendStart = System.nanoTime();
+        CompletableFuture<SendResult<String, Object>> sent;
+        try {
+            sent = kafkaTemplate.send(request(topic, correlationId, payload));
+        } catch (RuntimeException e) {
+            kafkaMetrics.sent(topic, null, e, sendStart);
+            log.error("Ошибка при отправке {}. uuid: {}", operation, uuid, e);
+            correlationRegistry.fail(correlationId, e);
+            throw e;
+        }
+        sent.whenComplete((result, ex) -> {
+            kafkaMetrics.sent(topic, result, ex, sendStart);
+            if (ex == null) {
+                log.info("{} событие отправлено. uuid: {}", operation, uuid);
+            } else {
+                log.error("Ошибка при отправке {}. uuid: {}", operation, uuid, ex);
+                correlationRegistry.fail(correlationId, ex);
+            }
+        });
+    }
+
+    private ProducerRecord<String, Object> request(String topic, CorrelationId correlationId, Object payload) {
+        ProducerRecord<String, Object> record = new ProducerRecord<>(topic, correlationId.toString(), payload);
+        correlationRegistry.stamp(record, correlationId);
+        stageRecorder.stamp(record.headers(), PipelineStage.GATEWAY_RECEIVED);
+        return record;
+    }
+
+    private static CorrelationId correlationId(ConsumerRecord<String, ?> record) {
+        Header header = record.headers().lastHeader(CorrelationId.HEADER);
+        return header != null ? CorrelationId.fromBytes(header.value()) : CorrelationId.parse(record.key());
+    }
+
+    private static IncidentFindResponse appendFindChunk(IncidentFindResponse accumulated, IncidentFindResponse chunk) {
+        if (chunk.getChunk() != accumulated.getChunk() + 1) {
+            throw new IllegalStateException("Нарушен порядок частей ответа FIND: ожидалась "
+                    + (accumulated.getChunk() + 1) + ", получена " + chunk.getChunk());
+        }
+        List<Incident> incidents = accumulated.getIncidents() instanceof ArrayList<Incident> list
+                ? list : new ArrayList<>(accumulated.getIncidents());
+        incidents.addAll(chunk.getIncidents());
+        accumulated.setIncidents(incidents);
+        accumulated.setNextCursor(chunk.getNextCursor());
+        accumulated.setChunk(chunk.getChunk());
+        accumulated.setLast(chunk.getLast());
+        return accumulated;
+    }
+
+    // Синхронная обёртка сохраняет прежний контракт: TimeoutException пробрасывается как есть,
+    // отказ сервиса - тоже, чтобы контроллер ответил 400, а не 500
+    private static <T> T await(CompletableFuture<T> future)
+            throws ExecutionException, InterruptedException, TimeoutException {
         try {
-            IncidentFindResponse response = future.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-            log.info("FIND событие получено. uuid: {}", uuid);
-            return response;
-        } finally {
-            pendingFindRequests.remove(uuid);
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException timeout) {
+                throw timeout;
+            }
+            if (e.getCause() instanceof ReplyRejectedException rejected) {
+                throw rejected;
+            }
+            throw e;
         }
+    }
 
+    /** Конец круга запрос-ответ: сопоставление и полное время потока от приёма запроса шлюзом. */
+    private void replyMatched(ConsumerRecord<String, ?> record, ReplyType<?> type) {
+        stageRecorder.stamp(record.headers(), PipelineStage.GATEWAY_REPLY_MATCHED);
+        stageRecorder.endToEnd(record.headers(), type.getName());
     }
 
     @KafkaListener(
-            topics = INCIDENT_CREATE_RESPONSE_TOPIC,
+            topicPartitions = @TopicPartition(topic = INCIDENT_CREATE_RESPONSE_TOPIC, partitions = REPLY_PARTITION),
             groupId = "incident-producer-service-group",
             containerFactory = "incidentProducerServiceKafkaListener"
     )
@@ -144,9 +259,16 @@ public class IncidentProducerService {
             ConsumerRecord<String, IncidentCreateResponse> record,
             Acknowledgment ack) {
         String uuid = record.key();
-        CompletableFuture<IncidentCreateResponse> future = pendingCreateRequests.get(uuid);
-        if (future != null) {
-            future.complete(record.value());
+        stageRecorder.received(record, PipelineStage.GATEWAY_REPLY_RECEIVED);
+        String rejection = ReplyError.get(record.headers());
+        if (rejection != null) {
+            log.warn("CREATE запрос отклонён сервисом. uuid: {}, причина: {}", uuid, rejection);
+            correlationRegistry.fail(correlationId(record), new ReplyRejectedException(rejection));
+            ack.acknowledge();
+            return;
+        }
+        if (correlationRegistry.complete(ReplyType.CREATE, correlationId(record), record.value())) {
+            replyMatched(record, ReplyType.CREATE);
             log.info("CREATE ответ получен. uuid: {}", uuid);
         } else {
             log.warn("Нет ожидающего CREATE future для uuid: {}", uuid);
@@ -155,7 +277,7 @@ public class IncidentProducerService {
     }
 
     @KafkaListener(
-            topics = INCIDENT_UPDATE_RESPONSE_TOPIC,
+            topicPartitions = @TopicPartition(topic = INCIDENT_UPDATE_RESPONSE_TOPIC, partitions = REPLY_PARTITION),
             groupId = "incident-producer-service-group",
             containerFactory = "incidentProducerServiceKafkaListener"
     )
@@ -163,9 +285,9 @@ public class IncidentProducerService {
             ConsumerRecord<String, IncidentUpdateResponse> record,
             Acknowledgment ack) {
         String uuid = record.key();
-        CompletableFuture<IncidentUpdateResponse> future = pendingUpdateRequests.get(uuid);
-        if (future != null) {
-            future.complete(record.value());
+        stageRecorder.received(record, PipelineStage.GATEWAY_REPLY_RECEIVED);
+        if (correlationRegistry.complete(ReplyType.UPDATE, correlationId(record), record.value())) {
+            replyMatched(record, ReplyType.UPDATE);
             log.info("UPDATE ответ получен. uuid: {}", uuid);
         } else {
             log.warn("Нет ожидающего UPDATE future для uuid: {}", uuid);
@@ -174,7 +296,7 @@ public class IncidentProducerService {
     }
 
     @KafkaListener(
-            topics = INCIDENT_FIND_RESPONSE_TOPIC,
+            topicPartitions = @TopicPartition(topic = INCIDENT_FIND_RESPONSE_TOPIC, partitions = REPLY_PARTITION),
             groupId = "incident-producer-service-group",
             containerFactory = "incidentProducerServiceKafkaListener"
     )
@@ -182,10 +304,13 @@ public class IncidentProducerService {
             ConsumerRecord<String, IncidentFindResponse> record,
             Acknowledgment ack) {
         String uuid = record.key();
-        CompletableFuture<IncidentFindResponse> future = pendingFindRequests.get(uuid);
-        if (future != null) {
-            future.complete(record.value());
-            log.info("FIND ответ получен. uuid: {}", uuid);
+        IncidentFindResponse response = record.value();
+        stageRecorder.received(record, PipelineStage.GATEWAY_REPLY_RECEIVED);
+        // Запрос без pageSize сервис отвечает несколькими сообщениями, они склеиваются в один ответ
+        if (correlationRegistry.accept(ReplyType.FIND, correlationId(record), response,
+                response == null || response.getLast(), IncidentProducerService::appendFindChunk)) {
+            replyMatched(record, ReplyType.FIND);
+            log.info("FIND ответ получен. uuid: {}, chunk: {}", uuid, response != null ? response.getChunk() : null);
         } else {
             log.warn("Нет ожидающего FIND future для uuid: {}", uuid);
         }
@@ -0,0 +1,17 @@
+package com.example.incedent_producer_service.state;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "incident-producer.state")
+public class IncidentStateProperties {
+    /** Строить локальное представление из incident-state и отвечать из него на поиск. */
+    private boolean enabled = false;
+    /** Ожидаемое число инцидентов: начальный размер таблицы, чтобы не перестраивать её при загрузке. */
+    private int expectedSize = 1 << 16;
+    /** Наибольшая страница поиска; запрос без pageSize получает страницу этого размера, как в incident-service. */
+    private int maxPageSize = 1000;
+}
@@ -0,0 +1,227 @@
+package com.example.incedent_producer_service.state;
+
+import com.example.common.events.Incident;
+import com.example.common.events.IncidentFindRequest;
+import com.example.common.events.IncidentFindResponse;
+import com.example.common.kafka.StateVersion;
+import com.example.common.metrics.LatencyHistograms;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+
+/**
+ * Локальное представление всех инцидентов, построенное из компактируемого топика incident-state.
+ * Каждый экземпляр шлюза читает топик целиком своей группой с самого начала; пока он не дочитал
+ * до концов партиций, зафиксированных при назначении, представление не готово и поиск идёт в incident-service.
+ * Пишет один поток listener'а пакетами под write-lock, читатели берут read-lock.
+ * <p>
+ * Снимок с версией ({@link StateVersion}) меньше уже применённой отбрасывается: ретранслятор outbox
+ * может доставить устаревший снимок после нового. Наружу отдаются копии - сохранённые записи Avro изменяемы.
+ */
+@Component
+@Slf4j
+public class IncidentStateStore implements ConsumerAwareRebalanceListener {
+    private static final String INCIDENT_STATE_TOPIC = "incident-state";
+    private static final Comparator<Incident> BY_ID = Comparator.comparingLong(Incident::getId);
+
+    private final boolean enabled;
+    private final int maxPageSize;
+    private final LongObjectMap<Entry> incidents;
+    private final StampedLock lock = new StampedLock();
+    // Имён сервисов мало, а инцидентов много: одна копия строки на сервис вместо копии на инцидент
+    private final Map<String, String> serviceNames = new HashMap<>();
+    private final Map<TopicPartition, Long> catchUpOffsets = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    private final Timer queryTimer;
+    private final Counter stale;
+
+    public IncidentStateStore(IncidentStateProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.maxPageSize = properties.getMaxPageSize();
+        this.incidents = new LongObjectMap<>(properties.getExpectedSize());
+
+        Gauge.builder("incident-producer-service.state.size", this, IncidentStateStore::size)
+                .description("Инцидентов в локальном представлении")
+                .tag("application", "incident-producer-service")
+                .register(meterRegistry);
+
+        Gauge.builder("incident-producer-service.state.ready", this, store -> store.isReady() ? 1 : 0)
+                .description("Локальное представление дочитано и обслуживает поиск")
+                .tag("application", "incident-producer-service")
+                .register(meterRegistry);
+
+        queryTimer = LatencyHistograms.slo(Timer.builder("incident-producer-service.state.query.time")
+                .description("Время поиска по локальному представлению")
+                .tag("application", "incident-producer-service"))
+                .register(meterRegistry);
+
+        stale = Counter.builder("incident-producer-service.state.stale.total")
+                .description("Снимки incident-state, отброшенные как более старые, чем применённые")
+                .tag("application", "incident-producer-service")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return incidents.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public Incident get(long id) {
+        Entry entry;
+        long stamp = lock.readLock();
+        try {
+            entry = incidents.get(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return entry != null ? copy(entry.incident()) : null;
+    }
+
+    /**
+     * Поиск по фильтрам с той же семантикой, что у incident-service: id по возрастанию,
+     * keyset-курсор afterId и страница pageSize, ограниченная max-page-size.
+     * Без pageSize возвращается первая страница наибольшего размера с курсором на продолжение.
+     */
+    public IncidentFindResponse find(IncidentFindRequest request) {
+        return queryTimer.record(() -> {
+            Predicate<Incident> filter = filter(request);
+            int pageSize = Math.clamp(request.getPageSize() != null ? request.getPageSize() : maxPageSize, 1, maxPageSize);
+            // pageSize + 1 наименьших id: лишний элемент показывает, что есть следующая страница
+            int limit = pageSize + 1;
+            PriorityQueue<Incident> smallest = new PriorityQueue<>(limit + 1, BY_ID.reversed());
+
+            long stamp = lock.readLock();
+            try {
+                incidents.forEachValue(entry -> {
+                    if (filter.test(entry.incident())) {
+                        smallest.add(entry.incident());
+                        if (smallest.size() > limit) {
+                            smallest.poll();
+                        }
+                    }
+                });
+            } finally {
+                lock.unlockRead(stamp);
+            }
+
+            List<Incident> matches = new ArrayList<>(smallest);
+            matches.sort(BY_ID);
+            Long nextCursor = null;
+            if (matches.size() > pageSize) {
+                matches = matches.subList(0, pageSize);
+                nextCursor = matches.get(pageSize - 1).getId();
+            }
+            return IncidentFindResponse.newBuilder()
+                    .setIncidents(matches.stream().map(IncidentStateStore::copy).toList())
+                    .setNextCursor(nextCursor)
+                    .build();
+        });
+    }
+
+    private static Incident copy(Incident incident) {
+        return Incident.newBuilder(incident).build();
+    }
+
+    private static Predicate<Incident> filter(IncidentFindRequest request) {
+        Long id = request.getId();
+        String service = request.getService() != null && !request.getService().isEmpty() ? request.getService() : null;
+        long afterId = request.getAfterId() != null ? request.getAfterId() : Long.MIN_VALUE;
+        return incident -> incident.getId() > afterId
+                && (id == null || incident.getId() == id)
+                && (service == null || service.equals(incident.getService()))
+                && (request.getPriority() == null || request.getPriority() == incident.getPriority())
+                && (request.getStatus() == null || request.getStatus() == incident.getStatus());
+    }
+
+    @KafkaListener(
+            topics = INCIDENT_STATE_TOPIC,
+            // своя группа на экземпляр, постоянная между перезапусками; смещения не коммитятся
+            // (AckMode.MANUAL без подтверждений), поэтому каждый старт читает топик с начала
+            groupId = "incident-producer-state-${incident-producer.correlation.reply-partition:0}",
+            containerFactory = "incidentStateListener",
+            autoStartup = "${incident-producer.state.enabled:false}"
+    )
+    public void apply(List<ConsumerRecord<String, Incident>> records, Consumer<?, ?> consumer) {
+        long stamp = lock.writeLock();
+        try {
+            for (ConsumerRecord<String, Incident> record : records) {
+                Incident incident = record.value();
+                if (incident == null) {
+                    // tombstone: инцидент удалён из топика
+                    incidents.remove(Long.parseLong(record.key()));
+                    continue;
+                }
+                Long version = StateVersion.get(record.headers());
+                Entry current = incidents.get(incident.getId());
+                if (version != null && current != null && version < current.version()) {
+                    stale.increment();
+                    log.debug("Устаревший снимок инцидента отброшен. id: {}, версия: {}, применена: {}",
+                            incident.getId(), version, current.version());
+                    continue;
+                }
+                incident.setService(serviceNames.computeIfAbsent(incident.getService(), name -> name));
+                // снимок без версии (записан до её появления) применяется как есть
+                incidents.put(incident.getId(), new Entry(incident, version != null ? version : Long.MIN_VALUE));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (!ready) {
+            catchUpOffsets.entrySet().removeIf(target -> consumer.position(target.getKey()) >= target.getValue());
+            markReadyIfCaughtUp();
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (ready || partitions.isEmpty()) {
+            return;
+        }
+        consumer.endOffsets(partitions).forEach((partition, end) -> {
+            if (consumer.position(partition) < end) {
+                catchUpOffsets.put(partition, end);
+            }
+        });
+        log.info("Загрузка локального представления из {}. Партиции к дочитыванию: {}",
+                INCIDENT_STATE_TOPIC, catchUpOffsets);
+        markReadyIfCaughtUp();
+    }
+
+    private record Entry(Incident incident, long version) {
+    }
+
+    private void markReadyIfCaughtUp() {
+        if (catchUpOffsets.isEmpty()) {
+            ready = true;
+            log.info("Локальное представление готово. Инцидентов: {}", size());
+        }
+    }
+}
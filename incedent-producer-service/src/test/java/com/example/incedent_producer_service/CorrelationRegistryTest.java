@@ -0,0 +1,151 @@
+package com.example.incedent_producer_service;
+
+import com.example.common.correlation.CorrelationId;
+import com.example.common.events.IncidentCreateResponse;
+import com.example.common.events.IncidentFindResponse;
+import com.example.common.events.Incident;
+import com.example.common.events.IncidentPriority;
+import com.example.common.events.IncidentStatus;
+import com.example.incedent_producer_service.correlation.CorrelationCapacityExceededException;
+import com.example.incedent_producer_service.correlation.CorrelationProperties;
+import com.example.incedent_producer_service.correlation.CorrelationRegistry;
+import com.example.incedent_producer_service.correlation.ReplyType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BinaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Epic("Correlation registry tests")
+public class CorrelationRegistryTest {
+
+    private CorrelationRegistry registry;
+
+    @BeforeEach
+    public void setup() {
+        registry = newRegistry(Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        registry.close();
+    }
+
+    private static CorrelationId id(long sequence) {
+        return new CorrelationId(42L, sequence);
+    }
+
+    private static CorrelationRegistry newRegistry(Duration timeout) {
+        CorrelationProperties properties = new CorrelationProperties();
+        properties.setTimeout(timeout);
+        properties.setTick(Duration.ofMillis(10));
+        properties.setWheelSize(16);
+        properties.setCapacity(2);
+        return new CorrelationRegistry(new SimpleMeterRegistry(), properties);
+    }
+
+    @Test
+    @Story("Запрос без ответа завершается TimeoutException и удаляется из реестра")
+    public void register_noResponse_expiresByTimerWheel() {
+        registry.close();
+        registry = newRegistry(Duration.ofMillis(200));
+        CompletableFuture<IncidentCreateResponse> future = registry.register(ReplyType.CREATE, id(1));
+
+        assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(registry.inFlight()).isZero();
+    }
+
+    @Test
+    @Story("При заполненном реестре новые запросы отклоняются")
+    public void register_capacityExceeded_throws() {
+        registry.register(ReplyType.CREATE, id(1));
+        registry.register(ReplyType.CREATE, id(2));
+
+        assertThatThrownBy(() -> registry.register(ReplyType.CREATE, id(3)))
+                .isInstanceOf(CorrelationCapacityExceededException.class);
+    }
+
+    @Test
+    @Story("Ответ другого типа не завершает ожидающий запрос")
+    public void complete_wrongType_isOrphan() {
+        CompletableFuture<IncidentCreateResponse> future = registry.register(ReplyType.CREATE, id(1));
+
+        boolean completed = registry.complete(ReplyType.FIND, id(1),
+                IncidentFindResponse.newBuilder().setIncidents(List.of()).build());
+
+        assertThat(completed).isFalse();
+        assertThat(future.isDone()).isFalse();
+        assertThat(registry.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    @Story("Завершённый запрос освобождает место в реестре")
+    public void complete_releasesCapacity() {
+        registry.register(ReplyType.CREATE, id(1));
+        registry.register(ReplyType.CREATE, id(2));
+
+        registry.complete(ReplyType.CREATE, id(1), null);
+
+        assertThat(registry.inFlight()).isEqualTo(1);
+        assertThat(registry.register(ReplyType.CREATE, id(3))).isNotDone();
+    }
+
+    @Test
+    @Story("Ответ из нескольких сообщений завершает запрос только на последней части")
+    public void accept_chunks_completesOnLast() throws Exception {
+        CompletableFuture<IncidentFindResponse> future = registry.register(ReplyType.FIND, id(1));
+        BinaryOperator<IncidentFindResponse> merge = (acc, chunk) -> {
+            List<Incident> incidents = new ArrayList<>(acc.getIncidents());
+            incidents.addAll(chunk.getIncidents());
+            acc.setIncidents(incidents);
+            return acc;
+        };
+
+        assertThat(registry.accept(ReplyType.FIND, id(1), chunk(1L), false, merge)).isTrue();
+        assertThat(future.isDone()).isFalse();
+        assertThat(registry.accept(ReplyType.FIND, id(1), chunk(2L), true, merge)).isTrue();
+
+        assertThat(future.get(1, TimeUnit.SECONDS).getIncidents())
+                .extracting(Incident::getId)
+                .containsExactly(1L, 2L);
+        assertThat(registry.inFlight()).isZero();
+    }
+
+    private static IncidentFindResponse chunk(long incidentId) {
+        Incident incident = Incident.newBuilder()
+                .setId(incidentId)
+                .setService("payment-service")
+                .setInfo("Test info")
+                .setStatus(IncidentStatus.CREATED)
+                .setPriority(IncidentPriority.HIGH)
+                .setTimestamp(0L)
+                .build();
+        return IncidentFindResponse.newBuilder().setIncidents(List.of(incident)).build();
+    }
+
+    @Test
+    @Story("Correlation id восстанавливается из ключа и из бинарного заголовка")
+    public void correlationId_roundTrip() {
+        CorrelationId correlationId = registry.nextId();
+
+        assertThat(CorrelationId.parse(correlationId.toString())).isEqualTo(correlationId);
+        assertThat(CorrelationId.fromBytes(correlationId.toBytes())).isEqualTo(correlationId);
+        assertThat(CorrelationId.parse("3f1c2a4e-8b7d-4c1e-9f0a-123456789abc")).isNull();
+        assertThat(registry.nextId().sequence()).isGreaterThan(correlationId.sequence());
+    }
+}
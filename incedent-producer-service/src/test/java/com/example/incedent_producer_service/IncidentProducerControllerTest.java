@@ -5,6 +5,7 @@ import com.example.common.events.IncidentFindResponse;
 import com.example.common.events.IncidentStatus;
 import com.example.common.events.IncidentUpdateResponse;
 import com.example.incedent_producer_service.controller.IncidentProducerServiceController;
+import com.example.incedent_producer_service.correlation.ReplyRejectedException;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
@@ -18,6 +19,7 @@ import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import tools.jackson.databind.ObjectMapper;
 
@@ -29,10 +31,12 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -104,6 +108,26 @@ public class IncidentProducerControllerTest {
                 .andExpect(status().is(500));
     }
 
+    @Test
+    @Story("Отказ сервиса инцидентов возвращает 400")
+    public void postCreate_rejected_shouldReturn400() throws Exception {
+        when(service.createIncident(any()))
+                .thenThrow(new ReplyRejectedException("Запрос на создание должен содержать service, info и priority"));
+
+        String requestBody = """
+                {
+                    "service": "payment-service",
+                    "info": "Test info",
+                    "priority": "HIGH"
+                }
+                """;
+
+        mockMvc.perform(post("/api/incident-producer-service/create")
+                .contentType(APPLICATION_JSON)
+                .content(requestBody))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Story("Успешное обновление возвращает 200")
     public void putUpdate_success_shouldReturn200() throws Exception {
@@ -159,4 +183,48 @@ public class IncidentProducerControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(incident.getId()));
     }
+
+    @Test
+    @Story("Поиск с limit возвращает страницу и курсор следующей")
+    public void getAll_withLimit_returnsNextCursor() throws Exception {
+        IncidentFindResponse response = IncidentFindResponse.newBuilder()
+                .setIncidents(List.of(incident(5L)))
+                .setNextCursor(5L)
+                .build();
+
+        when(service.findIncidents(any())).thenReturn(response);
+
+        mockMvc.perform(get("/api/incident-producer-service").param("limit", "1").param("after", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.incidents[0].id").value(5))
+                .andExpect(jsonPath("$.nextCursor").value(5));
+    }
+
+    @Test
+    @Story("Выгрузка склеивает страницы в один JSON-массив")
+    public void stream_pages_writesJsonArray() throws Exception {
+        when(service.findIncidents(any()))
+                .thenReturn(IncidentFindResponse.newBuilder().setIncidents(List.of(incident(1L))).setNextCursor(1L).build())
+                .thenReturn(IncidentFindResponse.newBuilder().setIncidents(List.of(incident(2L))).build());
+
+        MvcResult result = mockMvc.perform(get("/api/incident-producer-service/stream").param("status", "CREATED"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value(2));
+    }
+
+    private static com.example.common.events.Incident incident(long id) {
+        return com.example.common.events.Incident.newBuilder()
+                .setId(id)
+                .setService("payment-service")
+                .setInfo("Test info")
+                .setStatus(com.example.common.events.IncidentStatus.CREATED)
+                .setPriority(com.example.common.events.IncidentPriority.HIGH)
+                .setTimestamp(System.currentTimeMillis())
+                .build();
+    }
 }
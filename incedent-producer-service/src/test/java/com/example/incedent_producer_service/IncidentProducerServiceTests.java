@@ -1,12 +1,32 @@
 package com.example.incedent_producer_service;
 
+import com.example.common.correlation.CorrelationId;
+import com.example.common.correlation.ReplyError;
 import com.example.common.events.IncidentCreateRequest;
 import com.example.common.events.IncidentCreateResponse;
+import com.example.common.events.Incident;
+import com.example.common.events.IncidentFindRequest;
+import com.example.common.events.IncidentFindResponse;
 import com.example.common.events.IncidentPriority;
+import com.example.common.events.IncidentUpdateResponse;
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.tracing.StageRecorder;
+import com.example.incedent_producer_service.cache.IncidentCache;
+import com.example.incedent_producer_service.cache.IncidentCacheProperties;
+import com.example.incedent_producer_service.correlation.CorrelationProperties;
+import com.example.incedent_producer_service.correlation.CorrelationRegistry;
+import com.example.incedent_producer_service.correlation.ReplyRejectedException;
+import com.example.incedent_producer_service.correlation.ReplyType;
 import com.example.incedent_producer_service.services.IncidentProducerService;
+import com.example.incedent_producer_service.state.IncidentStateProperties;
+import com.example.incedent_producer_service.state.IncidentStateStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.qameta.allure.Epic;
 import io.qameta.allure.Story;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,18 +34,21 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.KafkaException;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.kafka.support.SendResult;
 
-import java.lang.reflect.Field;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import nl.altindag.log.LogCaptor;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 @Epic("Incident producer service test")
@@ -37,17 +60,31 @@ public class IncidentProducerServiceTests {
     @Mock
     private KafkaTemplate<String, Object> kafkaTemplate;
 
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CorrelationRegistry correlationRegistry;
+
+    private IncidentCache incidentCache;
 
     @BeforeEach
     public void setup() {
-        service = new IncidentProducerService(kafkaTemplate);
+        correlationRegistry = new CorrelationRegistry(meterRegistry, new CorrelationProperties());
+        incidentCache = new IncidentCache(new IncidentCacheProperties(), meterRegistry);
+        service = new IncidentProducerService(kafkaTemplate, correlationRegistry, incidentCache,
+                new IncidentStateStore(new IncidentStateProperties(), meterRegistry), new StageRecorder(meterRegistry),
+                new KafkaMetrics(meterRegistry));
 
         CompletableFuture<SendResult<String, Object>> future = new CompletableFuture<>();
         future.complete(null);
 
         Mockito.lenient().doReturn(future)
                 .when(kafkaTemplate)
-                .send(Mockito.any(String.class), Mockito.any(String.class), Mockito.any());
+                .send(Mockito.<ProducerRecord<String, Object>>any());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        correlationRegistry.close();
     }
 
     @Test
@@ -77,16 +114,12 @@ public class IncidentProducerServiceTests {
 
         Thread.sleep(100);
 
-        ArgumentCaptor<String> topicCaptor = ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<String> uuidCaptor = ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<Object> valueCaptor = ArgumentCaptor.forClass(Object.class);
-        verify(kafkaTemplate).send(
-                topicCaptor.capture(),
-                uuidCaptor.capture(),
-                valueCaptor.capture()
-        );
-        assertThat(topicCaptor.getValue()).isEqualTo("incident-create");
-        String uuid = uuidCaptor.getValue();
+        ArgumentCaptor<ProducerRecord<String, Object>> recordCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(recordCaptor.capture());
+        assertThat(recordCaptor.getValue().topic()).isEqualTo("incident-create");
+        assertThat(recordCaptor.getValue().headers().lastHeader(KafkaHeaders.REPLY_PARTITION).value())
+                .isEqualTo(new byte[]{0, 0, 0, 0});
+        String uuid = recordCaptor.getValue().key();
 
         ConsumerRecord<String, IncidentCreateResponse> record =
                 new ConsumerRecord<>("incident-create-response", 0, 0L, uuid, response);
@@ -100,39 +133,141 @@ public class IncidentProducerServiceTests {
     @Test
     @Story("Успешная обработка инцидента завершает future")
     public void handleCreateResponse_completeFuture() throws Exception {
-        Field field = IncidentProducerService.class.getDeclaredField("pendingCreateRequests");
-        field.setAccessible(true);
+        CorrelationId correlationId = correlationRegistry.nextId();
+        CompletableFuture<IncidentCreateResponse> future = correlationRegistry.register(ReplyType.CREATE, correlationId);
 
-        ConcurrentHashMap<String, CompletableFuture<IncidentCreateResponse>> map =
-                (ConcurrentHashMap<String, CompletableFuture<IncidentCreateResponse>>) field.get(service);
+        ConsumerRecord<String, IncidentCreateResponse> record =
+                new ConsumerRecord<>("incident-create-response", 0, 0L, correlationId.toString(), null);
+        Acknowledgment ack = Mockito.mock(Acknowledgment.class);
+        service.handleCreateResponse(record, ack);
 
-        CompletableFuture<IncidentCreateResponse> future = new CompletableFuture<>();
-        map.put("test-uuid", future);
+        assertThat(future.isDone()).isTrue();
+    }
+
+    @Test
+    @Story("Отказ сервиса сразу завершает запрос ошибкой, не дожидаясь таймаута")
+    public void handleCreateResponse_rejection_failsFutureWithReason() {
+        CorrelationId correlationId = correlationRegistry.nextId();
+        CompletableFuture<IncidentCreateResponse> future = correlationRegistry.register(ReplyType.CREATE, correlationId);
 
         ConsumerRecord<String, IncidentCreateResponse> record =
-                new ConsumerRecord<>("incident-create-response", 0, 0L, "test-uuid", null);
+                new ConsumerRecord<>("incident-create-response", 0, 0L, correlationId.toString(), null);
+        ReplyError.set(record.headers(), "Запрос на создание должен содержать service, info и priority");
         Acknowledgment ack = Mockito.mock(Acknowledgment.class);
         service.handleCreateResponse(record, ack);
 
-        assertThat(future.isDone()).isTrue();
+        assertThatThrownBy(() -> future.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(ReplyRejectedException.class)
+                .hasMessageContaining("service, info и priority");
+        verify(ack).acknowledge();
     }
 
     @Test
     @Story("Обработка по несуществующему UUID вызывает предупржедение в логах")
     public void handleCreateResponse_nonexistingUUID_logWarn() throws Exception{
-        Field field = IncidentProducerService.class.getDeclaredField("pendingCreateRequests");
-        field.setAccessible(true);
-
         LogCaptor captor = LogCaptor.forClass(IncidentProducerService.class);
 
-        ConcurrentHashMap<String, CompletableFuture<IncidentCreateResponse>> map =
-                (ConcurrentHashMap<String, CompletableFuture<IncidentCreateResponse>>) field.get(service);
-
         ConsumerRecord<String, IncidentCreateResponse> record =
                 new ConsumerRecord<>("incident-create-response", 0, 0L, "test-uuid", null);
         Acknowledgment ack = Mockito.mock(Acknowledgment.class);
         service.handleCreateResponse(record, ack);
 
         assertThat(captor.getWarnLogs()).toString().contains("Нет ожидающего CREATE future для uuid");
+        assertThat(meterRegistry.counter("incident-producer-service.correlation.orphans.total",
+                "application", "incident-producer-service", "type", "create").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @Story("Асинхронное создание инцидента не блокирует поток и завершается ответом из топика")
+    public void createIncidentAsync_responseReceived_completesFuture() throws Exception {
+        IncidentCreateRequest request = new IncidentCreateRequest();
+        request.setService("payment-service");
+        request.setInfo("Test info");
+        request.setPriority(IncidentPriority.HIGH);
+
+        CompletableFuture<IncidentCreateResponse> result = service.createIncidentAsync(request);
+        assertThat(result.isDone()).isFalse();
+
+        ArgumentCaptor<ProducerRecord<String, Object>> recordCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(recordCaptor.capture());
+        assertThat(recordCaptor.getValue().topic()).isEqualTo("incident-create");
+
+        IncidentCreateResponse response = IncidentCreateResponse.newBuilder()
+                .setId(2L)
+                .setService("payment-service")
+                .setInfo("Test info")
+                .setStatus(com.example.common.events.IncidentStatus.CREATED)
+                .setPriority(com.example.common.events.IncidentPriority.HIGH)
+                .setTimestamp(System.currentTimeMillis())
+                .build();
+        // ответ сопоставляется по бинарному заголовку, даже если ключ записи чужого формата
+        ConsumerRecord<String, IncidentCreateResponse> record =
+                new ConsumerRecord<>("incident-create-response", 0, 0L, "legacy-key", response);
+        record.headers().add(recordCaptor.getValue().headers().lastHeader(CorrelationId.HEADER));
+        service.handleCreateResponse(record, Mockito.mock(Acknowledgment.class));
+
+        assertThat(result.get(5, TimeUnit.SECONDS).getId()).isEqualTo(2L);
+    }
+
+    @Test
+    @Story("Повторный поиск по id обслуживается из кэша до события обновления")
+    public void findById_cachedUntilUpdateEvent() throws Exception {
+        IncidentFindRequest request = IncidentFindRequest.newBuilder().setId(7L).build();
+
+        CompletableFuture<IncidentFindResponse> first = service.findIncidentsAsync(request);
+
+        ArgumentCaptor<ProducerRecord<String, Object>> recordCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(recordCaptor.capture());
+        Incident incident = Incident.newBuilder()
+                .setId(7L)
+                .setService("payment-service")
+                .setInfo("Test info")
+                .setStatus(com.example.common.events.IncidentStatus.CREATED)
+                .setPriority(IncidentPriority.HIGH)
+                .setTimestamp(System.currentTimeMillis())
+                .build();
+        ConsumerRecord<String, IncidentFindResponse> reply = new ConsumerRecord<>("incident-find-response", 0, 0L,
+                recordCaptor.getValue().key(), IncidentFindResponse.newBuilder().setIncidents(List.of(incident)).build());
+        service.findIncidentResponse(reply, Mockito.mock(Acknowledgment.class));
+        assertThat(first.get(5, TimeUnit.SECONDS).getIncidents().size()).isEqualTo(1);
+
+        IncidentFindResponse cached = service.findIncidentsAsync(request).get(5, TimeUnit.SECONDS);
+        assertThat(cached.getIncidents().get(0).getId()).isEqualTo(7L);
+        verify(kafkaTemplate, times(1)).send(Mockito.<ProducerRecord<String, Object>>any());
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "incidents").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+
+        IncidentUpdateResponse update = IncidentUpdateResponse.newBuilder()
+                .setId(7L)
+                .setService("payment-service")
+                .setInfo("Test info")
+                .setStatus(com.example.common.events.IncidentStatus.PROCESSING)
+                .setPriority(IncidentPriority.HIGH)
+                .setUpdatedAt(System.currentTimeMillis())
+                .setTimestamp(System.currentTimeMillis())
+                .build();
+        incidentCache.onIncidentUpdated(new ConsumerRecord<>("incident-update-response", 1, 0L, "other-gateway", update));
+
+        service.findIncidentsAsync(request);
+        verify(kafkaTemplate, times(2)).send(Mockito.<ProducerRecord<String, Object>>any());
+    }
+
+    @Test
+    @Story("Синхронная ошибка send сразу освобождает место в реестре и пробрасывается вызывающему")
+    public void createIncidentAsync_sendThrows_releasesRegistryEntry() {
+        doThrow(new KafkaException("Producer closed while send in progress"))
+                .when(kafkaTemplate).send(Mockito.<ProducerRecord<String, Object>>any());
+        IncidentCreateRequest request = new IncidentCreateRequest();
+        request.setService("payment-service");
+        request.setInfo("Test info");
+        request.setPriority(IncidentPriority.HIGH);
+
+        assertThatThrownBy(() -> service.createIncidentAsync(request))
+                .isInstanceOf(KafkaException.class);
+        assertThatThrownBy(() -> service.findIncidentsAsync(IncidentFindRequest.newBuilder().setService("payment-service").build()))
+                .isInstanceOf(KafkaException.class);
+
+        assertThat(correlationRegistry.inFlight()).isZero();
     }
 }
@@ -0,0 +1,174 @@
+package com.example.incedent_producer_service;
+
+import com.example.common.events.Incident;
+import com.example.common.events.IncidentFindRequest;
+import com.example.common.events.IncidentFindResponse;
+import com.example.common.events.IncidentPriority;
+import com.example.common.events.IncidentStatus;
+import com.example.common.kafka.StateVersion;
+import com.example.incedent_producer_service.state.IncidentStateProperties;
+import com.example.incedent_producer_service.state.IncidentStateStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@Epic("Incident state store tests")
+public class IncidentStateStoreTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("incident-state", 0);
+
+    private IncidentStateStore store;
+
+    private Consumer<?, ?> consumer;
+
+    @BeforeEach
+    public void setup() {
+        IncidentStateProperties properties = new IncidentStateProperties();
+        properties.setEnabled(true);
+        properties.setExpectedSize(16);
+        properties.setMaxPageSize(5);
+        store = new IncidentStateStore(properties, new SimpleMeterRegistry());
+        consumer = Mockito.mock(Consumer.class);
+    }
+
+    private static Incident incident(long id, String service, IncidentStatus status, IncidentPriority priority) {
+        return Incident.newBuilder()
+                .setId(id)
+                .setService(service)
+                .setInfo("Test info")
+                .setStatus(status)
+                .setPriority(priority)
+                .setTimestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private static ConsumerRecord<String, Incident> record(long offset, long id, Incident incident) {
+        return new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, String.valueOf(id), incident);
+    }
+
+    private static ConsumerRecord<String, Incident> record(long offset, long id, Incident incident, long version) {
+        ConsumerRecord<String, Incident> record = record(offset, id, incident);
+        StateVersion.set(record.headers(), version);
+        return record;
+    }
+
+    @Test
+    @Story("Представление готово только после дочитывания до конца партиций")
+    public void apply_untilEndOffsets_becomesReady() {
+        when(consumer.endOffsets(List.of(PARTITION))).thenReturn(Map.of(PARTITION, 2L));
+        when(consumer.position(PARTITION)).thenReturn(0L);
+        store.onPartitionsAssigned(consumer, List.of(PARTITION));
+        assertThat(store.isReady()).isFalse();
+
+        when(consumer.position(PARTITION)).thenReturn(2L);
+        store.apply(List.of(
+                record(0, 1, incident(1, "payment-service", IncidentStatus.CREATED, IncidentPriority.HIGH)),
+                record(1, 2, incident(2, "auth-service", IncidentStatus.CREATED, IncidentPriority.LOW))), consumer);
+
+        assertThat(store.isReady()).isTrue();
+        assertThat(store.get(2L).getService()).isEqualTo("auth-service");
+    }
+
+    @Test
+    @Story("Поиск по фильтрам возвращает страницы по возрастанию id с курсором")
+    public void find_filtersAndPages() {
+        List<ConsumerRecord<String, Incident>> records = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            records.add(record(id, id, incident(id, id % 2 == 0 ? "payment-service" : "auth-service",
+                    IncidentStatus.CREATED, IncidentPriority.HIGH)));
+        }
+        store.apply(records, consumer);
+
+        IncidentFindResponse first = store.find(IncidentFindRequest.newBuilder()
+                .setService("payment-service").setPageSize(3).build());
+        assertThat(first.getIncidents()).extracting(Incident::getId).containsExactly(2L, 4L, 6L);
+        assertThat(first.getNextCursor()).isEqualTo(6L);
+
+        IncidentFindResponse second = store.find(IncidentFindRequest.newBuilder()
+                .setService("payment-service").setPageSize(3).setAfterId(first.getNextCursor()).build());
+        assertThat(second.getIncidents()).extracting(Incident::getId).containsExactly(8L, 10L);
+        assertThat(second.getNextCursor()).isNull();
+
+        assertThat(store.find(IncidentFindRequest.newBuilder().setStatus(IncidentStatus.COMPLETED).build())
+                .getIncidents()).isEmpty();
+    }
+
+    @Test
+    @Story("Новая версия заменяет инцидент, tombstone удаляет его")
+    public void apply_updatesAndTombstones() {
+        List<ConsumerRecord<String, Incident>> records = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            records.add(record(id, id, incident(id, "payment-service", IncidentStatus.CREATED, IncidentPriority.LOW)));
+        }
+        store.apply(records, consumer);
+
+        List<ConsumerRecord<String, Incident>> changes = new ArrayList<>();
+        for (long id = 2; id <= 1000; id += 2) {
+            changes.add(record(1000 + id, id, null));
+        }
+        changes.add(record(3000, 1, incident(1, "payment-service", IncidentStatus.COMPLETED, IncidentPriority.LOW)));
+        store.apply(changes, consumer);
+
+        assertThat(store.size()).isEqualTo(500);
+        assertThat(store.get(2L)).isNull();
+        assertThat(store.get(999L)).isNotNull();
+        assertThat(store.get(1L).getStatus()).isEqualTo(IncidentStatus.COMPLETED);
+    }
+
+    @Test
+    @Story("Снимок с версией меньше применённой отбрасывается")
+    public void apply_olderVersion_isIgnored() {
+        store.apply(List.of(
+                record(0, 1, incident(1, "payment-service", IncidentStatus.COMPLETED, IncidentPriority.LOW), 3),
+                record(1, 1, incident(1, "payment-service", IncidentStatus.CREATED, IncidentPriority.LOW), 2)), consumer);
+        assertThat(store.get(1L).getStatus()).isEqualTo(IncidentStatus.COMPLETED);
+
+        store.apply(List.of(
+                record(2, 1, incident(1, "payment-service", IncidentStatus.PROCESSING, IncidentPriority.LOW), 4)), consumer);
+        assertThat(store.get(1L).getStatus()).isEqualTo(IncidentStatus.PROCESSING);
+    }
+
+    @Test
+    @Story("Без pageSize и со слишком большим pageSize возвращается страница max-page-size с курсором")
+    public void find_pageSizeDefaultsAndClampsToMax() {
+        List<ConsumerRecord<String, Incident>> records = new ArrayList<>();
+        for (long id = 1; id <= 8; id++) {
+            records.add(record(id, id, incident(id, "payment-service", IncidentStatus.CREATED, IncidentPriority.LOW)));
+        }
+        store.apply(records, consumer);
+
+        IncidentFindResponse unbounded = store.find(IncidentFindRequest.newBuilder().build());
+        assertThat(unbounded.getIncidents()).extracting(Incident::getId).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(unbounded.getNextCursor()).isEqualTo(5L);
+
+        IncidentFindResponse tooLarge = store.find(IncidentFindRequest.newBuilder().setPageSize(100).build());
+        assertThat(tooLarge.getIncidents()).hasSize(5);
+        assertThat(store.find(IncidentFindRequest.newBuilder().setPageSize(0).build()).getIncidents()).hasSize(1);
+    }
+
+    @Test
+    @Story("Изменение выданного инцидента не меняет представление")
+    public void getAndFind_returnCopies() {
+        store.apply(List.of(
+                record(0, 1, incident(1, "payment-service", IncidentStatus.CREATED, IncidentPriority.LOW))), consumer);
+
+        store.get(1L).setStatus(IncidentStatus.COMPLETED);
+        store.find(IncidentFindRequest.newBuilder().build()).getIncidents().get(0).setInfo("changed");
+
+        assertThat(store.get(1L).getStatus()).isEqualTo(IncidentStatus.CREATED);
+        assertThat(store.get(1L).getInfo()).isEqualTo("Test info");
+    }
+}
@@ -1,12 +1,21 @@
 package com.example.incedent_service.config;
 
+import com.example.common.kafka.ConsumerLagMonitor;
+import com.example.common.kafka.KafkaClientProfile;
+import com.example.common.kafka.KafkaScalingProperties;
+import com.example.common.kafka.KafkaTopicProvisioning;
+import com.example.common.kafka.PartitionAwareConcurrency;
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.tracing.StageRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import com.example.common.avro.PinnedAvroDeserializer;
+import com.example.common.avro.PinnedAvroSerializer;
 import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
-import io.confluent.kafka.serializers.KafkaAvroSerializer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
@@ -16,6 +25,8 @@ import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
 
+import com.example.incedent_service.services.IncidentService;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -31,12 +42,76 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id:incident-service-group}")
     private String groupId;
 
+    @Value("${incident-service.create.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+
+    // Ответы шлюзу ждёт пользователь: по умолчанию low-latency (см. incident-service.kafka)
+    @Bean
+    @ConfigurationProperties(prefix = "incident-service.kafka")
+    public KafkaClientProfile incidentServiceKafkaProfile() {
+        return new KafkaClientProfile();
+    }
+
+    // Топики, которые создаёт сервис, и их партиции (см. incident-service.provisioning)
+    @Bean
+    @ConfigurationProperties(prefix = "incident-service.provisioning")
+    public KafkaTopicProvisioning incidentServiceTopicProvisioning() {
+        return new KafkaTopicProvisioning()
+                .topic("incident-create-response")
+                .topic("incident-update-response")
+                .topic("incident-find-response")
+                .topic("high-priority-alert")
+                // Компакция оставляет последнее состояние каждого инцидента; топик создаётся явно,
+                // чтобы авто-создание брокером не сделало его обычным топиком с удалением по времени
+                .compactedTopic(IncidentService.INCIDENT_STATE_TOPIC);
+    }
+
+    @Bean
+    public KafkaAdmin.NewTopics incidentServiceTopics(KafkaTopicProvisioning incidentServiceTopicProvisioning) {
+        return incidentServiceTopicProvisioning.adminTopics();
+    }
+
+    // Потоки listener'ов по партициям и сигнал масштабирования по отставанию (см. incident-service.scaling)
+    @Bean
+    @ConfigurationProperties(prefix = "incident-service.scaling")
+    public KafkaScalingProperties incidentServiceScaling() {
+        return new KafkaScalingProperties();
+    }
+
+    @Bean
+    public PartitionAwareConcurrency partitionAwareConcurrency(KafkaAdmin kafkaAdmin,
+                                                               KafkaTopicProvisioning incidentServiceTopicProvisioning,
+                                                               KafkaScalingProperties incidentServiceScaling) {
+        return new PartitionAwareConcurrency(kafkaAdmin.getConfigurationProperties(),
+                incidentServiceTopicProvisioning, incidentServiceScaling);
+    }
+
+    /** Gauge incidents.kafka.consumer.lag / desired.instances для группы сервиса (см. ConsumerLagMonitor). */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ConsumerLagMonitor consumerLagMonitor(MeterRegistry meterRegistry, KafkaAdmin kafkaAdmin,
+                                                 KafkaScalingProperties incidentServiceScaling) {
+        return new ConsumerLagMonitor(meterRegistry, kafkaAdmin.getConfigurationProperties(), groupId,
+                incidentServiceScaling);
+    }
+
+    /** Отметки этапов в заголовках Kafka и гистограммы incidents.pipeline.* (см. StageRecorder). */
+    @Bean
+    public StageRecorder stageRecorder(MeterRegistry meterRegistry) {
+        return new StageRecorder(meterRegistry);
+    }
+
+    /** Таймеры listener'ов и отправок incidents.kafka.listener.time / send.time (см. KafkaMetrics). */
+    @Bean
+    public KafkaMetrics kafkaMetrics(MeterRegistry meterRegistry) {
+        return new KafkaMetrics(meterRegistry);
+    }
+
     @Bean
     public ProducerFactory<String, Object> incidentServiceProducerFactory(){
-        Map<String, Object> configProps = new HashMap<>();
+        Map<String, Object> configProps = new HashMap<>(incidentServiceKafkaProfile().producerProperties());
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, PinnedAvroSerializer.class);
         configProps.put("schema.registry.url", schemaRegistryUrl);
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
@@ -51,26 +126,48 @@ public class KafkaConfig {
 
     @Bean
     public ConsumerFactory<String, Object> incidentServiceConsumerFactory(){
-        Map<String, Object> configProps = new HashMap<>();
+        Map<String, Object> configProps = new HashMap<>(incidentServiceKafkaProfile().consumerProperties());
         configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, KafkaAvroDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, PinnedAvroDeserializer.class);
         configProps.put("schema.registry.url", schemaRegistryUrl);
         configProps.put(KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, true);
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         return new DefaultKafkaConsumerFactory<>(configProps);
     }
 
+    @Bean
+    public ConsumerFactory<String, Object> incidentServiceBatchConsumerFactory(){
+        Map<String, Object> configProps = new HashMap<>(incidentServiceConsumerFactory().getConfigurationProperties());
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        return new DefaultKafkaConsumerFactory<>(configProps);
+    }
+
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Object> incidentServiceConsumerKafkaTemplate() {
+    public ConcurrentKafkaListenerContainerFactory<String, Object> incidentServiceConsumerKafkaTemplate(KafkaMetrics kafkaMetrics,
+                                                                                                PartitionAwareConcurrency concurrency) {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(incidentServiceConsumerFactory());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
-        factory.setConcurrency(3);
+        factory.setContainerCustomizer(concurrency.customizer());
+        factory.setRecordInterceptor(kafkaMetrics.recordInterceptor());
         return factory;
     }
 
+    // Пакетный режим: listener получает весь poll целиком
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> incidentServiceBatchConsumerKafkaTemplate(KafkaMetrics kafkaMetrics,
+                                                                                                     PartitionAwareConcurrency concurrency) {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(incidentServiceBatchConsumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.setContainerCustomizer(concurrency.customizer());
+        factory.setBatchListener(true);
+        factory.setBatchInterceptor(kafkaMetrics.batchInterceptor());
+        return factory;
+    }
 }
@@ -1,6 +1,7 @@
 package com.example.incedent_service.controller;
 
 
+import com.example.common.metrics.MetricNames;
 import com.example.incedent_service.services.IncidentService;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Counter;
@@ -10,7 +11,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 
@@ -75,19 +75,9 @@ public class IncidentServiceController {
                 "metrics", "/actuator/metrics"
         ));
 
-        metrics.put("kafka_metrics", List.of(
-                "incidents.kafka.processing.time",
-                "incidents.kafka.errors.total",
-                "incidents.kafka.updated.total",
-                "incidents.kafka.created.total",
-                "incidents.kafka.found.total"
-        ));
-
-        metrics.put("api_metrics", List.of(
-                "incident-service.rest.requests.total",
-                "incident-service.rest.processing.timer",
-                "incident-service.rest.incidents.error.total"
-        ));
+        // имена из реестра: список не расходится с тем, что сервис действительно регистрирует
+        metrics.put("kafka_metrics", MetricNames.registered(meterRegistry, MetricNames.INCIDENTS_PREFIX));
+        metrics.put("api_metrics", MetricNames.registered(meterRegistry, "incident-service."));
         return ResponseEntity.ok(metrics);
     }
 }
@@ -0,0 +1,214 @@
+package com.example.incedent_service.dedup;
+
+import com.example.incedent_service.entities.ProcessedRequest;
+import com.example.incedent_service.repositories.ProcessedRequestRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отсев повторных доставок incident-create по ключу корреляции (ключ записи Kafka).
+ * Источник истины - таблица processed_requests: ключ пишется в той же транзакции, что и инцидент,
+ * первичный ключ не даёт закоммитить второй инцидент на тот же запрос.
+ * Перед таблицей стоят фильтр Блума и LRU: новый ключ (почти всегда) отсекается фильтром без
+ * обращения к базе, свежий повтор отвечает из LRU, и только срабатывание фильтра без попадания
+ * в LRU стоит одного SELECT по первичному ключу.
+ * <p>
+ * Фильтр помнит ключи одно-два поколения, таблица - retention. Поэтому отрицательному ответу фильтра
+ * верят только для запроса, созданного после начала старшего поколения (по времени записи Kafka,
+ * с запасом clockSkew на расхождение часов). Более старый запрос - повторная доставка после
+ * перемотки смещений или переигровки - проверяется по таблице: иначе он создал бы второй инцидент
+ * и упёрся бы в первичный ключ processed_requests.
+ */
+@Component
+@Slf4j
+public class CreateRequestDeduplicator {
+    private final DedupProperties properties;
+    private final ProcessedRequestRepository repository;
+    private final Map<String, Long> recent;
+    private final ScheduledExecutorService cleaner;
+
+    // Два поколения: запись идёт в current, проверка - по обоим; при ротации previous выбрасывается,
+    // так фильтр не переполняется, а ключ помнится не меньше одного поколения
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private volatile long generationStartedNanos;
+    // Ключи запросов, обработанных с этого момента, есть в одном из поколений; guarded by this при ротации
+    private volatile long currentSinceMillis;
+    private volatile long coveredSinceMillis;
+
+    private final Counter bloomNegative;
+    private final Counter lruHit;
+    private final Counter dbHit;
+    private final Counter dbMiss;
+
+    public CreateRequestDeduplicator(DedupProperties properties,
+                                     ProcessedRequestRepository repository,
+                                     MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.repository = repository;
+        int lruSize = properties.getLruSize();
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > lruSize;
+            }
+        };
+        this.current = newFilter();
+        this.previous = newFilter();
+        this.generationStartedNanos = System.nanoTime();
+        this.currentSinceMillis = System.currentTimeMillis();
+        this.coveredSinceMillis = currentSinceMillis;
+
+        bloomNegative = lookups(meterRegistry, "bloom_negative");
+        lruHit = lookups(meterRegistry, "lru_hit");
+        dbHit = lookups(meterRegistry, "db_hit");
+        dbMiss = lookups(meterRegistry, "db_miss");
+
+        cleaner = properties.isEnabled()
+                ? Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("dedup-cleanup").daemon().factory())
+                : null;
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("incidents.kafka.dedup.total")
+                .description("Проверки incident-create на повтор по способу ответа")
+                .tag("source", "kafka")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private BloomFilter newFilter() {
+        return new BloomFilter(properties.getBloomExpectedInsertions(), properties.getBloomFalsePositiveRate());
+    }
+
+    /**
+     * Фильтр наполняется ключами из таблицы за последнее поколение, иначе после перезапуска
+     * повтор уже обработанного запроса прошёл бы как новый.
+     */
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Instant since = Instant.now().minus(properties.getBloomGeneration());
+        List<String> keys = repository.findKeysProcessedSince(since, Limit.of(properties.getBloomExpectedInsertions()));
+        keys.forEach(current::add);
+        if (keys.size() < properties.getBloomExpectedInsertions()) {
+            // выгружены все ключи поколения: фильтр покрывает и запросы до перезапуска
+            currentSinceMillis = since.toEpochMilli();
+            coveredSinceMillis = currentSinceMillis;
+        }
+        log.info("Фильтр повторов incident-create прогрет, ключей: {}", keys.size());
+
+        long interval = properties.getCleanupInterval().toMillis();
+        cleaner.scheduleWithFixedDelay(this::cleanup, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Id инцидента, уже созданного по этому ключу, или null, если запрос новый.
+     * requestTimestamp - время записи запроса в Kafka (мс от эпохи, отрицательное - неизвестно).
+     * Без ключа или при выключенном отсеве запрос всегда считается новым.
+     */
+    public Long findProcessed(String key, long requestTimestamp) {
+        if (!properties.isEnabled() || key == null) {
+            return null;
+        }
+        rotateIfDue();
+        boolean covered = requestTimestamp >= 0
+                && requestTimestamp - properties.getClockSkew().toMillis() >= coveredSinceMillis;
+        if (covered && !current.mightContain(key) && !previous.mightContain(key)) {
+            bloomNegative.increment();
+            return null;
+        }
+        Long incidentId;
+        synchronized (recent) {
+            incidentId = recent.get(key);
+        }
+        if (incidentId != null) {
+            lruHit.increment();
+            return incidentId;
+        }
+        incidentId = repository.findById(key).map(ProcessedRequest::getIncidentId).orElse(null);
+        (incidentId != null ? dbHit : dbMiss).increment();
+        return incidentId;
+    }
+
+    /**
+     * Запоминает ключ в текущей транзакции. Фильтр обновляется сразу: при откате он лишь даст
+     * ложное срабатывание и один SELECT на повторе. LRU - только после коммита, чтобы не ответить
+     * id инцидента, которого в базе нет.
+     */
+    public void record(String key, Long incidentId) {
+        if (!properties.isEnabled() || key == null) {
+            return;
+        }
+        repository.save(new ProcessedRequest(key, incidentId, Instant.now()));
+        current.add(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(key, incidentId);
+                }
+            });
+        } else {
+            remember(key, incidentId);
+        }
+    }
+
+    private void remember(String key, Long incidentId) {
+        synchronized (recent) {
+            recent.put(key, incidentId);
+        }
+    }
+
+    private void rotateIfDue() {
+        if (System.nanoTime() - generationStartedNanos < properties.getBloomGeneration().toNanos()) {
+            return;
+        }
+        synchronized (this) {
+            if (System.nanoTime() - generationStartedNanos < properties.getBloomGeneration().toNanos()) {
+                return;
+            }
+            previous = current;
+            current = newFilter();
+            generationStartedNanos = System.nanoTime();
+            coveredSinceMillis = currentSinceMillis;
+            currentSinceMillis = System.currentTimeMillis();
+        }
+        log.info("Поколение фильтра повторов incident-create сменено");
+    }
+
+    void cleanup() {
+        try {
+            int deleted = repository.deleteProcessedBefore(Instant.now().minus(properties.getRetention()));
+            if (deleted > 0) {
+                log.info("Удалено устаревших ключей incident-create: {}", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.error("Ошибка удаления устаревших ключей incident-create", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (cleaner != null) {
+            cleaner.shutdownNow();
+        }
+    }
+}
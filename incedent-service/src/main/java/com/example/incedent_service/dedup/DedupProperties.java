@@ -0,0 +1,29 @@
+package com.example.incedent_service.dedup;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "incident-service.dedup")
+public class DedupProperties {
+    private boolean enabled = true;
+    /** Последние ключи с id инцидента: повтор отвечает без обращения к базе. */
+    private int lruSize = 10000;
+    /** Ожидаемое число ключей за одно поколение фильтра Блума. */
+    private int bloomExpectedInsertions = 1_000_000;
+    private double bloomFalsePositiveRate = 0.01;
+    /** Фильтр из двух поколений: ключ помнится от одного до двух таких периодов. */
+    private Duration bloomGeneration = Duration.ofHours(12);
+    /**
+     * Допустимое расхождение часов шлюза и сервиса: запрос старше начала поколений фильтра
+     * на меньшее время всё равно проверяется по таблице.
+     */
+    private Duration clockSkew = Duration.ofMinutes(5);
+    /** Сколько хранить ключи в processed_requests. */
+    private Duration retention = Duration.ofDays(7);
+    private Duration cleanupInterval = Duration.ofHours(1);
+}
@@ -15,8 +15,10 @@ import java.time.Instant;
     @AllArgsConstructor
 public class Incident {
 
+    // allocationSize совпадает с INCREMENT BY последовательности (см. V2 миграцию)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "incidents_seq")
+    @SequenceGenerator(name = "incidents_seq", sequenceName = "incidents_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -36,6 +38,10 @@ public class Incident {
     @Column(nullable = false)
     private Long timestamp;
 
+    // растёт с каждым обновлением; уходит в incident-state заголовком StateVersion
+    @Version
+    private Long version;
+
     @PrePersist
     public void prePersist() {
         if (this.timestamp == null) {
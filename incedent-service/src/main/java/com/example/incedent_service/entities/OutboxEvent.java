@@ -0,0 +1,56 @@
+package com.example.incedent_service.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "outbox_events")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    // pooled-последовательность, как у incidents: вставки событий идут JDBC batch'ами вместе с инцидентами
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(name = "partition_id")
+    private Integer partition;
+
+    @Column(name = "record_key")
+    private String recordKey;
+
+    @Column(name = "correlation_id")
+    private byte[] correlationId;
+
+    @Column(name = "stage_trace")
+    private byte[] stageTrace;
+
+    @Column(name = "payload_type", nullable = false)
+    private String payloadType;
+
+    @Column(nullable = false)
+    private byte[] payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    /** Версия снимка состояния из заголовка StateVersion; null - событие без версии. */
+    @Column(name = "state_version")
+    private Long stateVersion;
+
+    /** Строка забрана проходом ретранслятора до этого момента; null - свободна. */
+    @Column(name = "claimed_until")
+    private Instant claimedUntil;
+}
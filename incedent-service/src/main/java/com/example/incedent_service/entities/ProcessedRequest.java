@@ -0,0 +1,41 @@
+package com.example.incedent_service.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * Обработанный запрос incident-create. Ключ назначается приложением, поэтому isNew всегда true:
+ * save() делает persist без предварительного SELECT, повтор ключа ловит первичный ключ таблицы.
+ */
+@Entity
+@Table(name = "processed_requests")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessedRequest implements Persistable<String> {
+
+    @Id
+    @Column(name = "correlation_key", length = 64)
+    private String correlationKey;
+
+    @Column(name = "incident_id", nullable = false)
+    private Long incidentId;
+
+    @Column(name = "processed_at", nullable = false)
+    private Instant processedAt;
+
+    @Override
+    public String getId() {
+        return correlationKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.incedent_service.outbox;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Avro binary для payload в outbox. Реестр схем здесь не участвует: тип хранится рядом с данными,
+ * а id схемы добавляет сериализатор продюсера при отправке.
+ */
+final class AvroPayloads {
+    private static final Map<String, SpecificDatumReader<SpecificRecord>> READERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, SpecificDatumWriter<SpecificRecord>> WRITERS = new ConcurrentHashMap<>();
+
+    private AvroPayloads() {
+    }
+
+    static byte[] encode(Object payload) {
+        if (!(payload instanceof SpecificRecord record)) {
+            throw new IllegalArgumentException("В outbox пишутся только Avro-записи: " + payload);
+        }
+        SpecificDatumWriter<SpecificRecord> writer = WRITERS.computeIfAbsent(record.getClass(),
+                type -> new SpecificDatumWriter<>(record.getSchema()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        try {
+            writer.write(record, encoder);
+            encoder.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static SpecificRecord decode(String type, byte[] payload) {
+        SpecificDatumReader<SpecificRecord> reader = READERS.computeIfAbsent(type, AvroPayloads::reader);
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(payload, null);
+        try {
+            return reader.read(null, decoder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SpecificDatumReader<SpecificRecord> reader(String type) {
+        try {
+            return new SpecificDatumReader<>((Class<SpecificRecord>) Class.forName(type));
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Неизвестный тип события в outbox: " + type, e);
+        }
+    }
+}
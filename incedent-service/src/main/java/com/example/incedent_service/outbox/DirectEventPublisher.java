@@ -0,0 +1,44 @@
+package com.example.incedent_service.outbox;
+
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.tracing.PipelineStage;
+import com.example.common.tracing.StageRecorder;
+import com.example.common.tracing.StageTrace;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+/** Отправка без outbox: коммит в базу и публикация не атомарны. */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "incident-service.outbox", name = "enabled", havingValue = "false")
+public class DirectEventPublisher implements IncidentEventPublisher {
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final StageRecorder stageRecorder;
+    private final KafkaMetrics kafkaMetrics;
+
+    public DirectEventPublisher(KafkaTemplate<String, Object> kafkaTemplate, StageRecorder stageRecorder,
+                                KafkaMetrics kafkaMetrics) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.stageRecorder = stageRecorder;
+        this.kafkaMetrics = kafkaMetrics;
+    }
+
+    @Override
+    public void publish(ProducerRecord<String, Object> record) {
+        if (StageTrace.get(record.headers()) != null) {
+            stageRecorder.stamp(record.headers(), PipelineStage.SERVICE_RELAYED);
+        }
+        long sendStart = System.nanoTime();
+        kafkaTemplate.send(record).whenComplete((result, ex) -> {
+            kafkaMetrics.sent(record.topic(), result, ex, sendStart);
+            if (ex == null) {
+                log.debug("Событие отправлено в топик {}. key: {}", record.topic(), record.key());
+            } else {
+                log.error("Ошибка отправки события в топик {}. key: {}", record.topic(), record.key(), ex);
+            }
+        });
+    }
+}
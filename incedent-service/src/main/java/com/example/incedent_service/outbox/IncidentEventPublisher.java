@@ -0,0 +1,17 @@
+package com.example.incedent_service.outbox;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+/**
+ * Публикация событий IncidentService в Kafka. Реализация выбирается incident-service.outbox.enabled:
+ * {@link OutboxEventPublisher} пишет событие в outbox в текущей транзакции,
+ * {@link DirectEventPublisher} отправляет его сразу.
+ */
+public interface IncidentEventPublisher {
+
+    void publish(ProducerRecord<String, Object> record);
+
+    default void publish(String topic, String key, Object payload) {
+        publish(new ProducerRecord<>(topic, key, payload));
+    }
+}
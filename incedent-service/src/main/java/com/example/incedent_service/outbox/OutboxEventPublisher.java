@@ -0,0 +1,67 @@
+package com.example.incedent_service.outbox;
+
+import com.example.common.correlation.CorrelationId;
+import com.example.common.kafka.StateVersion;
+import com.example.common.tracing.StageTrace;
+import com.example.incedent_service.entities.OutboxEvent;
+import com.example.incedent_service.repositories.OutboxEventRepository;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+
+/**
+ * Событие сохраняется в outbox_events в транзакции вызывающего кода: оно уходит в Kafka тогда
+ * и только тогда, когда закоммичен инцидент. После коммита ретранслятор будится сразу, не дожидаясь
+ * очередной проверки. Из заголовков переносятся корреляция, отметки этапов и версия снимка - других сервис не ставит.
+ */
+@Component
+@ConditionalOnProperty(prefix = "incident-service.outbox", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxEventPublisher implements IncidentEventPublisher {
+    private final OutboxEventRepository repository;
+    private final OutboxRelay relay;
+
+    public OutboxEventPublisher(OutboxEventRepository repository, OutboxRelay relay) {
+        this.repository = repository;
+        this.relay = relay;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(ProducerRecord<String, Object> record) {
+        Header correlationId = record.headers().lastHeader(CorrelationId.HEADER);
+        repository.save(OutboxEvent.builder()
+                .topic(record.topic())
+                .partition(record.partition())
+                .recordKey(record.key())
+                .correlationId(correlationId != null ? correlationId.value() : null)
+                .stageTrace(StageTrace.get(record.headers()))
+                .stateVersion(StateVersion.get(record.headers()))
+                .payloadType(record.value().getClass().getName())
+                .payload(AvroPayloads.encode(record.value()))
+                .createdAt(Instant.now())
+                .build());
+
+        // один сигнал на транзакцию, сколько бы событий она ни записала
+        if (!TransactionSynchronizationManager.hasResource(relay)) {
+            TransactionSynchronizationManager.bindResource(relay, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    relay.wakeUp();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(relay);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.incedent_service.outbox;
+
+import com.example.common.kafka.KafkaClientPreset;
+import com.example.common.kafka.KafkaClientProfile;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "incident-service.outbox")
+public class OutboxProperties {
+    /** false - события отправляются в Kafka сразу из транзакции, как раньше. */
+    private boolean enabled = true;
+    /** Событий за один проход ретранслятора. */
+    private int batchSize = 500;
+    /** Проверка outbox без сигнала о коммите (например, события другого экземпляра). */
+    private Duration pollInterval = Duration.ofMillis(500);
+    /** Ожидание подтверждений брокера для пакета; не дождались - пакет отправится повторно. */
+    private Duration sendTimeout = Duration.ofSeconds(30);
+    /**
+     * Сколько забранные строки скрыты от других проходов; больше send-timeout. Строки экземпляра,
+     * упавшего между отправкой и удалением, уходят повторно по истечении этого срока.
+     */
+    private Duration claimTimeout = Duration.ofSeconds(60);
+    /** Пауза после ошибки, чтобы не крутить цикл при недоступной Kafka или базе. */
+    private Duration errorBackoff = Duration.ofSeconds(1);
+    /** Продюсер ретранслятора: пакеты outbox отправляются крупными сжатыми батчами. */
+    private KafkaClientProfile producer = new KafkaClientProfile(KafkaClientPreset.HIGH_THROUGHPUT);
+}
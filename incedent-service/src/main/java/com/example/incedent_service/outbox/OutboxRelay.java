@@ -0,0 +1,342 @@
+package com.example.incedent_service.outbox;
+
+import com.example.common.correlation.CorrelationId;
+import com.example.common.kafka.StateVersion;
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.metrics.LatencyHistograms;
+import com.example.common.tracing.PipelineStage;
+import com.example.common.tracing.StageRecorder;
+import com.example.common.tracing.StageTrace;
+import com.example.incedent_service.entities.OutboxEvent;
+import com.example.incedent_service.repositories.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ретранслятор outbox. Проход идёт в три шага: короткая транзакция под advisory-блокировкой забирает
+ * до batch-size старейших свободных событий (claimed_until) и коммитится; пакет отправляется
+ * через продюсер с пресетом high-throughput (linger, batch.size, сжатие) уже без блокировки и
+ * соединения с базой; вторая короткая транзакция удаляет подтверждённые брокером строки и освобождает
+ * остальные для повтора. Строки упавшего между шагами экземпляра уходят повторно по истечении
+ * claim-timeout (at-least-once; потребители ответов и incident-state к повторам устойчивы).
+ * <p>
+ * Порядок по ключу держится захватом, а не id: id выдаются пулом последовательности (allocationSize 50)
+ * и не совпадают с порядком коммитов. Ключ не забирается, пока его предыдущий пакет в полёте, поэтому
+ * повтор не обгоняет более новое событие. Снимки состояния несут версию ({@link StateVersion}):
+ * вместе с ключом забираются все его свободные снимки, и уходит только последний, а старые удаляются
+ * вместе с ним. Версии одного инцидента растут в порядке коммитов, так что в компактируемый
+ * incident-state последним попадает самый новый снимок.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "incident-service.outbox", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+    // ключ pg_advisory_xact_lock, общий для всех экземпляров incident-service
+    private static final long RELAY_LOCK_KEY = 0x6f7574626f78L;
+
+    private final OutboxProperties properties;
+    private final OutboxEventRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ProducerFactory<String, Object> producerFactory;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final StageRecorder stageRecorder;
+    private final KafkaMetrics kafkaMetrics;
+    private final ExecutorService worker;
+    private final Semaphore wakeUps = new Semaphore(0);
+    private volatile boolean running = true;
+    private volatile long oldestPendingMillis;
+
+    private final DistributionSummary batchSize;
+    private final Timer lag;
+    private final Counter sent;
+    private final Counter errors;
+    private final Counter superseded;
+
+    public OutboxRelay(OutboxProperties properties,
+                       OutboxEventRepository repository,
+                       PlatformTransactionManager transactionManager,
+                       ProducerFactory<String, Object> incidentServiceProducerFactory,
+                       StageRecorder stageRecorder,
+                       KafkaMetrics kafkaMetrics,
+                       MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.producerFactory = incidentServiceProducerFactory.copyWithConfigurationOverride(
+                properties.getProducer().producerProperties());
+        this.kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        this.stageRecorder = stageRecorder;
+        this.kafkaMetrics = kafkaMetrics;
+        this.worker = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("outbox-relay").daemon().factory());
+
+        batchSize = DistributionSummary.builder("incidents.outbox.relay.batch.size")
+                .description("Событий, отправленных за один проход ретранслятора")
+                .register(meterRegistry);
+        lag = LatencyHistograms.slo(Timer.builder("incidents.outbox.relay.lag")
+                .description("Время от записи события в outbox до подтверждения брокером"))
+                .register(meterRegistry);
+        sent = Counter.builder("incidents.outbox.relay.events.total")
+                .description("События outbox по результату отправки")
+                .tag("result", "sent")
+                .register(meterRegistry);
+        errors = Counter.builder("incidents.outbox.relay.events.total")
+                .description("События outbox по результату отправки")
+                .tag("result", "error")
+                .register(meterRegistry);
+        superseded = Counter.builder("incidents.outbox.relay.events.total")
+                .description("События outbox по результату отправки")
+                .tag("result", "superseded")
+                .register(meterRegistry);
+        Gauge.builder("incidents.outbox.oldest.age", this,
+                        relay -> relay.oldestPendingMillis == 0 ? 0
+                                : (System.currentTimeMillis() - relay.oldestPendingMillis) / 1000.0)
+                .description("Возраст старейшего неотправленного события outbox, секунды")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        worker.execute(this::run);
+    }
+
+    /** Сигнал о закоммиченных событиях: проход начнётся сразу, а не по poll-interval. */
+    public void wakeUp() {
+        wakeUps.release();
+    }
+
+    private void run() {
+        long pollMillis = properties.getPollInterval().toMillis();
+        while (running) {
+            try {
+                int relayed = relayOnce();
+                if (relayed < properties.getBatchSize()) {
+                    // outbox разобран: ждём коммита или очередной проверки, накопленные сигналы схлопываются
+                    wakeUps.tryAcquire(pollMillis, TimeUnit.MILLISECONDS);
+                    wakeUps.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ошибка ретрансляции outbox, повтор через {}", properties.getErrorBackoff(), e);
+                try {
+                    Thread.sleep(properties.getErrorBackoff());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Один проход: сколько событий забрано из outbox; неподтверждённые освобождаются и дают исключение. */
+    int relayOnce() {
+        List<OutboxEvent> events = claim();
+        if (events.isEmpty()) {
+            return 0;
+        }
+        Map<Long, List<Long>> followers = new HashMap<>();
+        List<Long> acked = new ArrayList<>();
+        for (Long id : send(latestPerKey(events, followers))) {
+            acked.add(id);
+            acked.addAll(followers.getOrDefault(id, List.of()));
+        }
+        Set<Long> ackedIds = new HashSet<>(acked);
+        List<Long> failed = events.stream().map(OutboxEvent::getId).filter(id -> !ackedIds.contains(id)).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!acked.isEmpty()) {
+                repository.deleteAllByIdInBatch(acked);
+            }
+            if (!failed.isEmpty()) {
+                repository.release(failed);
+            }
+        });
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("Пакет outbox не подтверждён брокером, событий: "
+                    + failed.size() + " из " + events.size());
+        }
+        return events.size();
+    }
+
+    // Транзакция захвата держит блокировку только на время выборки и update claimed_until
+    private List<OutboxEvent> claim() {
+        List<OutboxEvent> claimed = transactionTemplate.execute(status -> {
+            if (!repository.tryLock(RELAY_LOCK_KEY)) {
+                return List.of();
+            }
+            Instant now = Instant.now();
+            List<OutboxEvent> events = withStateSiblings(
+                    repository.findClaimable(now, Limit.of(properties.getBatchSize())), now);
+            oldestPendingMillis = events.isEmpty() ? 0 : events.get(0).getCreatedAt().toEpochMilli();
+            if (!events.isEmpty()) {
+                repository.claim(events.stream().map(OutboxEvent::getId).toList(),
+                        now.plus(properties.getClaimTimeout()));
+            }
+            return events;
+        });
+        return claimed == null ? List.of() : claimed;
+    }
+
+    /**
+     * Добавляет к пакету остальные свободные снимки тех же ключей: более новый снимок мог получить
+     * id меньше старого и попасть в пакет без него, и старый ушёл бы следующим проходом поверх нового.
+     */
+    private List<OutboxEvent> withStateSiblings(List<OutboxEvent> events, Instant now) {
+        Set<String> stateKeys = new HashSet<>();
+        for (OutboxEvent event : events) {
+            if (isState(event)) {
+                stateKeys.add(stateKey(event));
+            }
+        }
+        if (stateKeys.isEmpty()) {
+            return events;
+        }
+        Set<Long> ids = new HashSet<>();
+        List<OutboxEvent> merged = new ArrayList<>(events);
+        events.forEach(event -> ids.add(event.getId()));
+        List<String> recordKeys = events.stream().filter(OutboxRelay::isState).map(OutboxEvent::getRecordKey).distinct().toList();
+        for (OutboxEvent sibling : repository.findClaimableStates(recordKeys, now)) {
+            if (stateKeys.contains(stateKey(sibling)) && ids.add(sibling.getId())) {
+                merged.add(sibling);
+            }
+        }
+        merged.sort(Comparator.comparing(OutboxEvent::getId));
+        return merged;
+    }
+
+    /**
+     * События к отправке: без версии - все, из снимков одного ключа - только с наибольшей версией.
+     * В followers - id отправляемого снимка и id вытесненных им: их судьба та же, что у него.
+     */
+    private List<OutboxEvent> latestPerKey(List<OutboxEvent> events, Map<Long, List<Long>> followers) {
+        Map<String, OutboxEvent> latest = new HashMap<>();
+        for (OutboxEvent event : events) {
+            if (isState(event)) {
+                latest.merge(stateKey(event), event,
+                        (current, candidate) -> candidate.getStateVersion() > current.getStateVersion() ? candidate : current);
+            }
+        }
+        if (latest.isEmpty()) {
+            return events;
+        }
+        List<OutboxEvent> outgoing = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            OutboxEvent winner = isState(event) ? latest.get(stateKey(event)) : event;
+            if (winner == event) {
+                outgoing.add(event);
+            } else {
+                followers.computeIfAbsent(winner.getId(), id -> new ArrayList<>()).add(event.getId());
+            }
+        }
+        int count = events.size() - outgoing.size();
+        if (count > 0) {
+            superseded.increment(count);
+            log.debug("Устаревших снимков outbox пропущено: {}", count);
+        }
+        return outgoing;
+    }
+
+    private static boolean isState(OutboxEvent event) {
+        return event.getStateVersion() != null && event.getRecordKey() != null;
+    }
+
+    private static String stateKey(OutboxEvent event) {
+        return event.getTopic() + '\0' + event.getRecordKey();
+    }
+
+    /** Отправляет пакет и возвращает id событий, подтверждённых брокером за send-timeout. */
+    private List<Long> send(List<OutboxEvent> events) {
+        List<CompletableFuture<?>> futures = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            try {
+                ProducerRecord<String, Object> record = toRecord(event);
+                long sendStart = System.nanoTime();
+                futures.add(kafkaTemplate.send(record)
+                        .whenComplete((result, ex) -> kafkaMetrics.sent(record.topic(), result, ex, sendStart)));
+            } catch (RuntimeException e) {
+                futures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(properties.getSendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Пакет outbox подтверждён не полностью, событий: {}", events.size(), e);
+        }
+
+        long now = System.currentTimeMillis();
+        List<Long> acked = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            CompletableFuture<?> future = futures.get(i);
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                OutboxEvent event = events.get(i);
+                acked.add(event.getId());
+                lag.record(Duration.ofMillis(now - event.getCreatedAt().toEpochMilli()));
+            }
+        }
+        sent.increment(acked.size());
+        errors.increment(events.size() - acked.size());
+        batchSize.record(events.size());
+        log.debug("Отправлено событий outbox: {} из {}", acked.size(), events.size());
+        return acked;
+    }
+
+    private ProducerRecord<String, Object> toRecord(OutboxEvent event) {
+        ProducerRecord<String, Object> record = new ProducerRecord<>(event.getTopic(), event.getPartition(),
+                event.getRecordKey(), AvroPayloads.decode(event.getPayloadType(), event.getPayload()));
+        if (event.getCorrelationId() != null) {
+            record.headers().add(CorrelationId.HEADER, event.getCorrelationId());
+        }
+        if (event.getStateVersion() != null) {
+            StateVersion.set(record.headers(), event.getStateVersion());
+        }
+        if (event.getStageTrace() != null) {
+            StageTrace.set(record.headers(), event.getStageTrace());
+            stageRecorder.stamp(record.headers(), PipelineStage.SERVICE_RELAYED);
+        }
+        return record;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        wakeUps.release();
+        worker.shutdown();
+        if (!worker.awaitTermination(properties.getSendTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            worker.shutdownNow();
+        }
+        producerFactory.reset();
+    }
+}
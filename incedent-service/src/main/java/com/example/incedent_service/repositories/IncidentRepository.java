@@ -3,6 +3,7 @@ package com.example.incedent_service.repositories;
 import com.example.incedent_service.entities.Incident;
 import com.example.incedent_service.entities.IncidentStatus;
 import com.example.incedent_service.entities.IncidentPriority;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
@@ -19,4 +20,16 @@ public interface IncidentRepository extends JpaRepository<Incident, Long>, JpaSp
     List<Incident> findByStatusAndPriority(IncidentStatus status, IncidentPriority priority);
     List<Incident> findByServiceAndStatus(String service, IncidentStatus status);
     List<Incident> findByServiceAndPriority(String service, IncidentPriority priority);
+
+    // Keyset-страницы для IncidentQueryPlanner: каждая комбинация фильтров ложится на свой индекс из V3
+    List<Incident> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+    List<Incident> findByStatusAndIdGreaterThanOrderByIdAsc(IncidentStatus status, Long afterId, Limit limit);
+    List<Incident> findByPriorityAndIdGreaterThanOrderByIdAsc(IncidentPriority priority, Long afterId, Limit limit);
+    List<Incident> findByServiceAndIdGreaterThanOrderByIdAsc(String service, Long afterId, Limit limit);
+    List<Incident> findByServiceAndStatusAndIdGreaterThanOrderByIdAsc(
+            String service, IncidentStatus status, Long afterId, Limit limit);
+    List<Incident> findByServiceAndPriorityAndIdGreaterThanOrderByIdAsc(
+            String service, IncidentPriority priority, Long afterId, Limit limit);
+    List<Incident> findByStatusAndPriorityAndIdGreaterThanOrderByIdAsc(
+            IncidentStatus status, IncidentPriority priority, Long afterId, Limit limit);
 }
\ No newline at end of file
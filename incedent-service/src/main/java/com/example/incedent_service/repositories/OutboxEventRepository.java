@@ -0,0 +1,41 @@
+package com.example.incedent_service.repositories;
+
+import com.example.incedent_service.entities.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Свободные строки и строки с истёкшим сроком захвата, старейшие первыми; ключ, пакет которого
+    // ещё в полёте, пропускается, чтобы повтор не обогнал его
+    @Query("select e from OutboxEvent e where (e.claimedUntil is null or e.claimedUntil < :now)"
+            + " and not exists (select c.id from OutboxEvent c where c.topic = e.topic"
+            + " and c.recordKey = e.recordKey and c.claimedUntil >= :now)"
+            + " order by e.id asc")
+    List<OutboxEvent> findClaimable(Instant now, Limit limit);
+
+    // Свободные снимки состояния с этими ключами; топик сверяет вызывающий
+    @Query("select e from OutboxEvent e where e.stateVersion is not null and e.recordKey in :recordKeys"
+            + " and (e.claimedUntil is null or e.claimedUntil < :now)")
+    List<OutboxEvent> findClaimableStates(Collection<String> recordKeys, Instant now);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.claimedUntil = :until where e.id in :ids")
+    int claim(List<Long> ids, Instant until);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.claimedUntil = null where e.id in :ids")
+    int release(List<Long> ids);
+
+    // Блокировка до конца транзакции захвата: строки забирает один проход за раз
+    @Query(value = "select pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLock(long key);
+}
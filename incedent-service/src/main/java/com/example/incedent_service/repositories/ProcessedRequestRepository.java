@@ -0,0 +1,24 @@
+package com.example.incedent_service.repositories;
+
+import com.example.incedent_service.entities.ProcessedRequest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ProcessedRequestRepository extends JpaRepository<ProcessedRequest, String> {
+
+    @Query("select p.correlationKey from ProcessedRequest p where p.processedAt >= :since")
+    List<String> findKeysProcessedSince(Instant since, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("delete from ProcessedRequest p where p.processedAt < :before")
+    int deleteProcessedBefore(Instant before);
+}
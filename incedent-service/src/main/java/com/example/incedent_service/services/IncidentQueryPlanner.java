@@ -0,0 +1,139 @@
+package com.example.incedent_service.services;
+
+import com.example.common.events.IncidentFindRequest;
+import com.example.common.metrics.LatencyHistograms;
+import com.example.incedent_service.entities.Incident;
+import com.example.incedent_service.entities.IncidentPriority;
+import com.example.incedent_service.entities.IncidentStatus;
+import com.example.incedent_service.repositories.IncidentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Выбирает способ выполнения keyset-страницы поиска. Для комбинаций из одного-двух фильтров
+ * используется derived query репозитория: запрос разобран один раз при старте и ложится на
+ * соответствующий индекс из V3. Остальные комбинации (и режим с выключенным планировщиком)
+ * идут через Specification, которая строит criteria-запрос на каждый вызов.
+ */
+@Component
+@Slf4j
+public class IncidentQueryPlanner {
+
+    enum Plan {
+        BY_ID,
+        ALL,
+        STATUS,
+        PRIORITY,
+        SERVICE,
+        SERVICE_STATUS,
+        SERVICE_PRIORITY,
+        STATUS_PRIORITY,
+        SPECIFICATION
+    }
+
+    private final IncidentRepository incidentRepository;
+    private final boolean enabled;
+    private final Map<Plan, Timer> planTimers = new EnumMap<>(Plan.class);
+
+    public IncidentQueryPlanner(
+            IncidentRepository incidentRepository,
+            MeterRegistry meterRegistry,
+            @Value("${incident-service.find.planner.enabled:true}") boolean enabled) {
+        this.incidentRepository = incidentRepository;
+        this.enabled = enabled;
+
+        for (Plan plan : Plan.values()) {
+            planTimers.put(plan, LatencyHistograms.slo(Timer.builder("incidents.find.query.time")
+                    .description("Время выборки страницы поиска по плану")
+                    .tag("plan", plan.name().toLowerCase()))
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Не больше limit инцидентов, подходящих под фильтры запроса, с id больше afterId, по возрастанию id.
+     */
+    public List<Incident> findPage(IncidentFindRequest request, Long afterId, int limit) {
+        Plan plan = plan(request);
+        log.debug("План поиска: {}, afterId: {}, limit: {}", plan, afterId, limit);
+        return planTimers.get(plan).record(() -> execute(plan, request, afterId, limit));
+    }
+
+    Plan plan(IncidentFindRequest request) {
+        if (!enabled) {
+            return Plan.SPECIFICATION;
+        }
+        boolean hasService = request.getService() != null && !request.getService().isEmpty();
+        boolean hasStatus = request.getStatus() != null;
+        boolean hasPriority = request.getPriority() != null;
+
+        if (request.getId() != null) {
+            return hasService || hasStatus || hasPriority ? Plan.SPECIFICATION : Plan.BY_ID;
+        }
+        if (hasService) {
+            if (hasStatus && hasPriority) {
+                return Plan.SPECIFICATION;
+            }
+            return hasStatus ? Plan.SERVICE_STATUS : hasPriority ? Plan.SERVICE_PRIORITY : Plan.SERVICE;
+        }
+        if (hasStatus) {
+            return hasPriority ? Plan.STATUS_PRIORITY : Plan.STATUS;
+        }
+        return hasPriority ? Plan.PRIORITY : Plan.ALL;
+    }
+
+    private List<Incident> execute(Plan plan, IncidentFindRequest request, Long afterId, int limit) {
+        // id выдаются последовательностью начиная с 1, поэтому 0 означает "с начала"
+        long cursor = afterId != null ? afterId : 0L;
+        Limit page = Limit.of(limit);
+        return switch (plan) {
+            case BY_ID -> incidentRepository.findById(request.getId())
+                    .filter(incident -> incident.getId() > cursor)
+                    .map(List::of)
+                    .orElse(List.of());
+            case ALL -> incidentRepository.findByIdGreaterThanOrderByIdAsc(cursor, page);
+            case STATUS -> incidentRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                    status(request), cursor, page);
+            case PRIORITY -> incidentRepository.findByPriorityAndIdGreaterThanOrderByIdAsc(
+                    priority(request), cursor, page);
+            case SERVICE -> incidentRepository.findByServiceAndIdGreaterThanOrderByIdAsc(
+                    request.getService(), cursor, page);
+            case SERVICE_STATUS -> incidentRepository.findByServiceAndStatusAndIdGreaterThanOrderByIdAsc(
+                    request.getService(), status(request), cursor, page);
+            case SERVICE_PRIORITY -> incidentRepository.findByServiceAndPriorityAndIdGreaterThanOrderByIdAsc(
+                    request.getService(), priority(request), cursor, page);
+            case STATUS_PRIORITY -> incidentRepository.findByStatusAndPriorityAndIdGreaterThanOrderByIdAsc(
+                    status(request), priority(request), cursor, page);
+            case SPECIFICATION -> findBySpecification(request, afterId, limit);
+        };
+    }
+
+    private List<Incident> findBySpecification(IncidentFindRequest request, Long afterId, int limit) {
+        Specification<Incident> specification = IncidentSpecifications.fromRequest(request);
+        if (afterId != null) {
+            specification = specification.and(IncidentSpecifications.idGreaterThan(afterId));
+        }
+        return incidentRepository.findBy(specification, q -> q
+                .sortBy(Sort.by(Sort.Direction.ASC, "id"))
+                .limit(limit)
+                .all());
+    }
+
+    private static IncidentStatus status(IncidentFindRequest request) {
+        return IncidentStatus.valueOf(request.getStatus().name());
+    }
+
+    private static IncidentPriority priority(IncidentFindRequest request) {
+        return IncidentPriority.valueOf(request.getPriority().name());
+    }
+}
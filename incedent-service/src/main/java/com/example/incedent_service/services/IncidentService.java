@@ -1,45 +1,80 @@
 package com.example.incedent_service.services;
 
 
+import com.example.common.correlation.CorrelationId;
+import com.example.common.correlation.ReplyError;
 import com.example.common.events.IncidentCreateRequest;
 import com.example.common.events.IncidentCreateResponse;
 import com.example.common.events.IncidentUpdateRequest;
 import com.example.common.events.IncidentUpdateResponse;
 import com.example.common.events.IncidentFindRequest;
 import com.example.common.events.IncidentFindResponse;
-
+import com.example.common.kafka.StateVersion;
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.metrics.LatencyHistograms;
+import com.example.common.tracing.PipelineStage;
+import com.example.common.tracing.StageRecorder;
+import com.example.common.tracing.StageTrace;
+
+import com.example.incedent_service.dedup.CreateRequestDeduplicator;
 import com.example.incedent_service.entities.Incident;
 import com.example.incedent_service.entities.IncidentStatus;
 import com.example.incedent_service.entities.IncidentPriority;
+import com.example.incedent_service.outbox.IncidentEventPublisher;
 import com.example.incedent_service.repositories.IncidentRepository;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.springframework.data.jpa.domain.Specification;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Slf4j
 public class IncidentService {
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final IncidentEventPublisher eventPublisher;
     private final IncidentRepository incidentRepository;
+    private final IncidentQueryPlanner queryPlanner;
+    private final CreateRequestDeduplicator deduplicator;
     private final MeterRegistry meterRegistry;
+    private final StageRecorder stageRecorder;
+    private final KafkaMetrics kafkaMetrics;
+    private final EntityManager entityManager;
+    private final int findChunkSize;
+    private final int findMaxPageSize;
+    private final boolean stateBackfillOnStartup;
 
     private final Counter kafkaIncidentsCreated;
+    private final Counter kafkaCreateDuplicates;
     private final Counter kafkaIncidentsUpdated;
     private final Counter kafkaIncidentsFound;
     private final Counter kafkaProcessingErrors;
     private final Timer kafkaProcessingTimer;
+    private final DistributionSummary createBatchSize;
 
     private static final String INCIDENT_CREATE_TOPIC = "incident-create";
     private static final String INCIDENT_CREATE_RESPONSE_TOPIC = "incident-create-response"; // FIX
@@ -48,21 +83,47 @@ public class IncidentService {
     private static final String INCIDENT_FIND_REQUEST_TOPIC = "incident-find-request";
     private static final String INCIDENT_FIND_RESPONSE_TOPIC = "incident-find-response";
     private static final String INCIDENT_HIGH_PRIORITY_ALERT_TOPIC = "high-priority-alert";
+    // Компактируемый топик с последним состоянием каждого инцидента, ключ - id
+    public static final String INCIDENT_STATE_TOPIC = "incident-state";
+    private static final int STATE_BACKFILL_PAGE_SIZE = 1000;
 
     public IncidentService(
             KafkaTemplate<String, Object> kafkaTemplate,
+            IncidentEventPublisher eventPublisher,
             IncidentRepository incidentRepository,
-            MeterRegistry meterRegistry) {
+            IncidentQueryPlanner queryPlanner,
+            CreateRequestDeduplicator deduplicator,
+            MeterRegistry meterRegistry,
+            StageRecorder stageRecorder,
+            KafkaMetrics kafkaMetrics,
+            EntityManager entityManager,
+            @Value("${incident-service.find.chunk-size:500}") int findChunkSize,
+            @Value("${incident-service.find.max-page-size:1000}") int findMaxPageSize,
+            @Value("${incident-service.state.backfill-on-startup:false}") boolean stateBackfillOnStartup) {
 
         this.kafkaTemplate = kafkaTemplate;
+        this.eventPublisher = eventPublisher;
         this.incidentRepository = incidentRepository;
+        this.queryPlanner = queryPlanner;
+        this.deduplicator = deduplicator;
         this.meterRegistry = meterRegistry;
+        this.stageRecorder = stageRecorder;
+        this.kafkaMetrics = kafkaMetrics;
+        this.entityManager = entityManager;
+        this.findChunkSize = findChunkSize;
+        this.findMaxPageSize = findMaxPageSize;
+        this.stateBackfillOnStartup = stateBackfillOnStartup;
 
         kafkaIncidentsCreated = Counter.builder("incidents.kafka.created.total")
                 .description("Incident Create counter")
                 .tag("source", "kafka")
                 .register(meterRegistry);
 
+        kafkaCreateDuplicates = Counter.builder("incidents.kafka.duplicates.total")
+                .description("Повторные incident-create, не создавшие инцидент")
+                .tag("source", "kafka")
+                .register(meterRegistry);
+
         kafkaIncidentsUpdated = Counter.builder("incidents.kafka.updated.total")
                 .description("Status update counter")
                 .tag("source", "kafka")
@@ -74,76 +135,59 @@ public class IncidentService {
                 .tag("source", "kafka")
                 .register(meterRegistry);
 
-        kafkaProcessingTimer = Timer.builder("incidents.kafka.processing.time")
+        kafkaProcessingTimer = LatencyHistograms.slo(Timer.builder("incidents.kafka.processing.time")
                 .description("Processing kafka timer")
-                .tag("source", "kafka")
+                .tag("source", "kafka"))
                 .register(meterRegistry);
 
         kafkaIncidentsFound = Counter.builder("incidents.kafka.found.total")
                 .description("Поиск инцидентов")
                 .tag("source", "kafka")
                 .register(meterRegistry);
+
+        createBatchSize = DistributionSummary.builder("incidents.kafka.create.batch.size")
+                .description("Размер пакета incident-create")
+                .tag("source", "kafka")
+                .register(meterRegistry);
     }
 
     @KafkaListener(topics = INCIDENT_CREATE_TOPIC,
                    groupId = "incident-service-group",
-                   containerFactory = "incidentServiceConsumerKafkaTemplate")
+                   containerFactory = "incidentServiceConsumerKafkaTemplate",
+                   autoStartup = "#{!${incident-service.create.batch.enabled:false}}")
     @Transactional
     public void createIncident(ConsumerRecord<String, IncidentCreateRequest> record, Acknowledgment ack) {
         Timer.Sample timer = Timer.start(meterRegistry);
         String uuid = record.key();
+        stageRecorder.received(record, PipelineStage.SERVICE_RECEIVED);
 
         log.debug("Получено сообщение из топика {}, uuid {}, offset {}, partition {}",
                 INCIDENT_CREATE_TOPIC, uuid, record.offset(), record.partition());
 
         try {
+            Long processedId = deduplicator.findProcessed(uuid, record.timestamp());
+            if (processedId != null) {
+                replayCreated(record, processedId);
+                ack.acknowledge();
+                return;
+            }
+
             IncidentCreateRequest request = record.value();
 
             log.debug("Создание инцидента. uuid: {}, service: {}, priority: {}",
                     uuid, request.getService(), request.getPriority());
 
-            Incident incident = Incident.builder()
-                    .service(request.getService().toString())
-                    .info(request.getInfo().toString())
-                    .priority(IncidentPriority.valueOf(request.getPriority().name()))
-                    .status(IncidentStatus.CREATED)
-                    .build();
+            Incident incident = toEntity(request);
 
             incidentRepository.save(incident);
+            deduplicator.record(uuid, incident.getId());
             kafkaIncidentsCreated.increment();
+            stageRecorder.stamp(record.headers(), PipelineStage.SERVICE_PERSISTED);
 
             log.info("Инцидент создан. id: {}, uuid: {}, service: {}, priority: {}",
                     incident.getId(), uuid, incident.getService(), incident.getPriority());
 
-            IncidentCreateResponse response = IncidentCreateResponse.newBuilder()
-                    .setId(incident.getId())
-                    .setService(incident.getService())
-                    .setInfo(incident.getInfo())
-                    .setStatus(com.example.common.events.IncidentStatus
-                            .valueOf(incident.getStatus().name()))
-                    .setPriority(com.example.common.events.IncidentPriority
-                            .valueOf(incident.getPriority().name()))
-                    .setTimestamp(incident.getTimestamp())
-                    .build();
-
-            kafkaTemplate.send(INCIDENT_CREATE_RESPONSE_TOPIC, uuid, response)
-                    .whenComplete((result,ex) -> {
-                        if(ex == null)
-                        {
-                            log.debug("Ответ отправлен в топик {}. uuid: {}, id: {}",
-                                    INCIDENT_CREATE_RESPONSE_TOPIC, uuid, incident.getId());
-                        }else{
-                            log.error("Ошибка отправки ответа в топик {}. uuid: {}, id: {}",
-                                    INCIDENT_CREATE_RESPONSE_TOPIC, uuid, incident.getId(), ex);
-                        }
-                    });
-            if (incident.getPriority() == IncidentPriority.HIGH) {
-                com.example.common.events.Incident highPriorityIncident = mapToAvroIncident(incident);
-                kafkaTemplate.send(INCIDENT_HIGH_PRIORITY_ALERT_TOPIC, uuid, highPriorityIncident);
-
-                log.info("HIGH PRIORITY алерт отправлен. id: {}, uuid: {}, service: {}",
-                        incident.getId(), uuid, incident.getService());
-            }
+            publishCreated(record, incident);
 
             ack.acknowledge();
         } catch (Exception e) {
@@ -157,6 +201,176 @@ public class IncidentService {
         }
     }
 
+    /**
+     * Пакетный режим incident-create: весь poll сохраняется в одной транзакции через saveAll,
+     * Hibernate отправляет вставки JDBC batch'ами (id берутся из pooled-последовательности),
+     * ответы и алерты пишутся в outbox той же транзакцией.
+     * Повторы (в том числе внутри одного пакета) инцидент не создают, на них только повторяется ответ.
+     * На некорректную запись уходит отказ ({@link ReplyError}), чтобы шлюз не ждал её до таймаута.
+     */
+    @KafkaListener(topics = INCIDENT_CREATE_TOPIC,
+                   groupId = "incident-service-group",
+                   containerFactory = "incidentServiceBatchConsumerKafkaTemplate",
+                   autoStartup = "${incident-service.create.batch.enabled:false}")
+    @Transactional
+    public void createIncidents(List<ConsumerRecord<String, IncidentCreateRequest>> records, Acknowledgment ack) {
+        Timer.Sample timer = Timer.start(meterRegistry);
+        log.debug("Получен пакет из топика {}, записей: {}", INCIDENT_CREATE_TOPIC, records.size());
+        records.forEach(record -> stageRecorder.received(record, PipelineStage.SERVICE_RECEIVED));
+
+        // Некорректная запись детерминированно упадёт и при повторе, поэтому она отклоняется,
+        // а не откатывает весь пакет
+        List<ConsumerRecord<String, IncidentCreateRequest>> accepted = new ArrayList<>(records.size());
+        List<ConsumerRecord<String, IncidentCreateRequest>> rejected = new ArrayList<>();
+        List<String> rejections = new ArrayList<>();
+        List<Incident> incidents = new ArrayList<>(records.size());
+        List<ConsumerRecord<String, IncidentCreateRequest>> replayed = new ArrayList<>();
+        List<Long> replayedIds = new ArrayList<>();
+        Map<String, Incident> createdInBatch = new HashMap<>();
+        for (ConsumerRecord<String, IncidentCreateRequest> record : records) {
+            try {
+                Long processedId = deduplicator.findProcessed(record.key(), record.timestamp());
+                Incident sameBatch = record.key() != null ? createdInBatch.get(record.key()) : null;
+                if (processedId != null || sameBatch != null) {
+                    replayed.add(record);
+                    replayedIds.add(processedId);
+                    continue;
+                }
+                Incident incident = toEntity(record.value());
+                incidents.add(incident);
+                accepted.add(record);
+                if (record.key() != null) {
+                    createdInBatch.put(record.key(), incident);
+                }
+            } catch (Exception e) {
+                kafkaProcessingErrors.increment();
+                log.error("Некорректный запрос на создание отклонён. uuid: {}, offset: {}",
+                        record.key(), record.offset(), e);
+                rejected.add(record);
+                rejections.add(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            }
+        }
+
+        try {
+            incidentRepository.saveAll(incidents);
+            for (int i = 0; i < accepted.size(); i++) {
+                deduplicator.record(accepted.get(i).key(), incidents.get(i).getId());
+            }
+            incidentRepository.flush();
+            kafkaIncidentsCreated.increment(incidents.size());
+            createBatchSize.record(incidents.size());
+            accepted.forEach(record -> stageRecorder.stamp(record.headers(), PipelineStage.SERVICE_PERSISTED));
+
+            for (int i = 0; i < accepted.size(); i++) {
+                publishCreated(accepted.get(i), incidents.get(i));
+            }
+            for (int i = 0; i < replayed.size(); i++) {
+                ConsumerRecord<String, IncidentCreateRequest> record = replayed.get(i);
+                Long processedId = replayedIds.get(i);
+                replayCreated(record, processedId != null ? processedId : createdInBatch.get(record.key()).getId());
+            }
+            for (int i = 0; i < rejected.size(); i++) {
+                rejectCreate(rejected.get(i), rejections.get(i));
+            }
+            log.info("Пакет инцидентов создан. Количество: {}", incidents.size());
+
+            acknowledgeAfterCommit(ack);
+        } catch (Exception e) {
+            kafkaProcessingErrors.increment();
+            log.error("Ошибка пакетного создания инцидентов. Записей: {}", records.size(), e);
+            throw new RuntimeException("Ошибка при создании инцидентов", e);
+        } finally {
+            timer.stop(kafkaProcessingTimer);
+        }
+    }
+
+    /**
+     * Контейнер коммитит смещение сразу (MANUAL_IMMEDIATE), поэтому пакет подтверждается только после
+     * коммита транзакции: иначе сбой коммита потерял бы уже подтверждённые записи.
+     */
+    private void acknowledgeAfterCommit(Acknowledgment ack) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ack.acknowledge();
+                }
+            });
+        } else {
+            ack.acknowledge();
+        }
+    }
+
+    private Incident toEntity(IncidentCreateRequest request) {
+        if (request == null || request.getService() == null || request.getInfo() == null
+                || request.getPriority() == null) {
+            throw new IllegalArgumentException("Запрос на создание должен содержать service, info и priority");
+        }
+        return Incident.builder()
+                .service(request.getService().toString())
+                .info(request.getInfo().toString())
+                .priority(IncidentPriority.valueOf(request.getPriority().name()))
+                .status(IncidentStatus.CREATED)
+                .build();
+    }
+
+    /**
+     * Повтор уже обработанного запроса: ответ отправляется заново (первый мог не дойти до шлюза),
+     * состояние - тоже, оно идемпотентно по ключу; алерт HIGH повторно не отправляется.
+     */
+    private void replayCreated(ConsumerRecord<String, IncidentCreateRequest> record, Long incidentId) {
+        kafkaCreateDuplicates.increment();
+        incidentRepository.findById(incidentId).ifPresentOrElse(incident -> {
+            log.info("Повтор запроса на создание, инцидент уже создан. id: {}, uuid: {}, offset: {}",
+                    incidentId, record.key(), record.offset());
+            publishReply(record, incident);
+            publishState(incident);
+        }, () -> log.warn("Повтор запроса на создание, инцидент не найден. id: {}, uuid: {}",
+                incidentId, record.key()));
+    }
+
+    /**
+     * Отказ идёт мимо outbox, как ответ об ошибке поиска: тела у него нет, а повтор после отката
+     * пакета безопасен - шлюз посчитает второй отказ сиротой.
+     */
+    private void rejectCreate(ConsumerRecord<String, IncidentCreateRequest> record, String message) {
+        ProducerRecord<String, Object> reply = reply(INCIDENT_CREATE_RESPONSE_TOPIC, record, null);
+        ReplyError.set(reply.headers(), message);
+        long sendStart = System.nanoTime();
+        kafkaTemplate.send(reply)
+                .whenComplete((result, ex) -> {
+                    kafkaMetrics.sent(INCIDENT_CREATE_RESPONSE_TOPIC, result, ex, sendStart);
+                    if (ex != null) {
+                        log.error("Ошибка при отправке отказа. uuid: {}", record.key(), ex);
+                    }
+                });
+    }
+
+    private void publishCreated(ConsumerRecord<String, IncidentCreateRequest> record, Incident incident) {
+        String uuid = record.key();
+        publishReply(record, incident);
+        publishState(incident);
+        if (incident.getPriority() == IncidentPriority.HIGH) {
+            com.example.common.events.Incident highPriorityIncident = IncidentEventMapper.toAvroIncident(incident);
+            ProducerRecord<String, Object> alert =
+                    new ProducerRecord<>(INCIDENT_HIGH_PRIORITY_ALERT_TOPIC, uuid, highPriorityIncident);
+            StageTrace.copy(record.headers(), alert.headers());
+            eventPublisher.publish(alert);
+
+            log.info("HIGH PRIORITY алерт опубликован. id: {}, uuid: {}, service: {}",
+                    incident.getId(), uuid, incident.getService());
+        }
+    }
+
+    private void publishReply(ConsumerRecord<String, IncidentCreateRequest> record, Incident incident) {
+        String uuid = record.key();
+        IncidentCreateResponse response = IncidentEventMapper.toCreateResponse(incident);
+
+        eventPublisher.publish(reply(INCIDENT_CREATE_RESPONSE_TOPIC, record, response));
+        log.debug("Ответ опубликован в топик {}. uuid: {}, id: {}",
+                INCIDENT_CREATE_RESPONSE_TOPIC, uuid, incident.getId());
+    }
+
     @KafkaListener(
             topics = INCIDENT_UPDATE_TOPIC,
             groupId = "incident-service-group",
@@ -165,6 +379,7 @@ public class IncidentService {
     public void updateIncident(ConsumerRecord<String, IncidentUpdateRequest> record, Acknowledgment ack) {
         Timer.Sample timer = Timer.start(meterRegistry); // FIX
         String uuid = record.key();
+        stageRecorder.received(record, PipelineStage.SERVICE_RECEIVED);
 
         log.debug("Получено сообщение на обновление инцидента из топика {}. uuid: {}", INCIDENT_UPDATE_TOPIC, uuid);
 
@@ -208,24 +423,18 @@ public class IncidentService {
             }
 
             if (isUpdated) {
-                Incident updatedIncident = incidentRepository.save(incident);
+                // flush увеличивает версию до публикации снимка в incident-state
+                Incident updatedIncident = incidentRepository.saveAndFlush(incident);
                 kafkaIncidentsUpdated.increment();
+                stageRecorder.stamp(record.headers(), PipelineStage.SERVICE_PERSISTED);
                 log.info("Инцидент обновлён. id: {}, uuid: {}, status: {}, priority: {}",
                         updatedIncident.getId(), uuid, updatedIncident.getStatus(), updatedIncident.getPriority());
 
-                IncidentUpdateResponse response = IncidentUpdateResponse.newBuilder()
-                        .setId(updatedIncident.getId())
-                        .setService(updatedIncident.getService())
-                        .setInfo(updatedIncident.getInfo())
-                        .setStatus(com.example.common.events.IncidentStatus
-                                .valueOf(updatedIncident.getStatus().name()))
-                        .setPriority(com.example.common.events.IncidentPriority
-                                .valueOf(updatedIncident.getPriority().name()))
-                        .setUpdatedAt(updatedIncident.getTimestamp())
-                        .setTimestamp(Instant.now().toEpochMilli())
-                        .build();
-
-                kafkaTemplate.send(INCIDENT_UPDATE_RESPONSE_TOPIC, uuid, response);
+                IncidentUpdateResponse response = IncidentEventMapper.toUpdateResponse(
+                        updatedIncident, Instant.now().toEpochMilli());
+
+                eventPublisher.publish(reply(INCIDENT_UPDATE_RESPONSE_TOPIC, record, response));
+                publishState(updatedIncident);
             } else {
                 log.warn("Нет изменений для инцидента. uuid: {}, id: {}", uuid, request.getId());
             }
@@ -242,6 +451,12 @@ public class IncidentService {
     }
 
 
+    /**
+     * Поиск с keyset-пагинацией по id. Если в запросе задан pageSize, отправляется одна страница
+     * и nextCursor для следующей. Без pageSize (старые клиенты) результат выбирается порциями
+     * по find.chunk-size и уходит несколькими сообщениями, последнее помечено last = true.
+     * Так ни память сервиса, ни размер сообщения не зависят от числа найденных строк.
+     */
     @KafkaListener(
             topics = INCIDENT_FIND_REQUEST_TOPIC,
             groupId = "incident-service-group",
@@ -253,29 +468,29 @@ public class IncidentService {
 
         Timer.Sample timer = Timer.start(meterRegistry);
         String uuid = record.key();
+        stageRecorder.received(record, PipelineStage.SERVICE_RECEIVED);
         log.debug("Получено сообщение на поиска инцидента из топика {}. uuid: {}", INCIDENT_FIND_REQUEST_TOPIC, uuid);
         try {
-            log.debug("Поиск инцидента. uuid: {}", uuid);
             IncidentFindRequest request = record.value();
-
-            List<com.example.common.events.Incident> avroList = incidentRepository
-                    .findAll(buildSpecification(request))
-                    .stream()
-                    .map(this::mapToAvroIncident)
-                    .toList();
-
-            IncidentFindResponse response = IncidentFindResponse.newBuilder()
-                    .setIncidents(avroList)
-                    .build();
-
-            kafkaTemplate.send(INCIDENT_FIND_RESPONSE_TOPIC, uuid, response)
-                    .whenComplete((result, ex) -> {
-                        if (ex == null) {
-                            log.info("Результат поиска отправлен. uuid: {}", uuid);
-                        } else {
-                            log.error("Ошибка при отправке результата поиска", ex);
-                        }
-                    });
+            log.debug("Поиск инцидента. uuid: {}, afterId: {}, pageSize: {}",
+                    uuid, request.getAfterId(), request.getPageSize());
+
+            // Страница запрашивается на строку больше: так без отдельного count видно, есть ли продолжение
+            if (request.getPageSize() != null) {
+                int pageSize = Math.clamp(request.getPageSize(), 1, findMaxPageSize);
+                List<Incident> page = queryPlanner.findPage(request, request.getAfterId(), pageSize + 1);
+                sendFindChunk(record, page, pageSize, 0, true);
+            } else {
+                Long cursor = request.getAfterId();
+                int chunk = 0;
+                do {
+                    List<Incident> page = queryPlanner.findPage(request, cursor, findChunkSize + 1);
+                    boolean last = page.size() <= findChunkSize;
+                    cursor = sendFindChunk(record, page, findChunkSize, chunk++, last);
+                    // Выгруженные сущности больше не нужны, контекст не должен расти вместе с выборкой
+                    entityManager.clear();
+                } while (cursor != null);
+            }
 
             kafkaIncidentsFound.increment();
             ack.acknowledge();
@@ -287,47 +502,121 @@ public class IncidentService {
                     com.example.common.events.IncidentFindResponse.newBuilder()
                             .setIncidents(new ArrayList<>())
                             .build();
-            kafkaTemplate.send(INCIDENT_FIND_RESPONSE_TOPIC, uuid, errorResponse);
+            long sendStart = System.nanoTime();
+            kafkaTemplate.send(reply(INCIDENT_FIND_RESPONSE_TOPIC, record, errorResponse))
+                    .whenComplete((result, ex) -> kafkaMetrics.sent(INCIDENT_FIND_RESPONSE_TOPIC, result, ex, sendStart));
             ack.acknowledge();
         } finally {
             timer.stop(kafkaProcessingTimer);
         }
     }
 
-    private Specification<Incident> buildSpecification(
-            com.example.common.events.IncidentFindRequest request) {
-        return (root, query, cb) -> {
-            List<jakarta.persistence.criteria.Predicate> predicates = new ArrayList<>();
+    /**
+     * Отправляет не больше limit строк страницы. Возвращает курсор следующей страницы
+     * или null, если строк больше нет.
+     */
+    private Long sendFindChunk(ConsumerRecord<String, IncidentFindRequest> record,
+                               List<Incident> page, int limit, int chunk, boolean last) {
+        boolean hasMore = page.size() > limit;
+        List<Incident> rows = hasMore ? page.subList(0, limit) : page;
+        Long nextCursor = hasMore ? rows.get(rows.size() - 1).getId() : null;
 
-            if (request.getId() != null) {
-                predicates.add(cb.equal(root.get("id"), request.getId()));
-            }
-            if (request.getService() != null && !request.getService().isEmpty()) {
-                predicates.add(cb.equal(root.get("service"), request.getService()));
-            }
-            if (request.getPriority() != null) {
-                predicates.add(cb.equal(root.get("priority"),
-                        IncidentPriority.valueOf(request.getPriority().toString())));
-            }
-            if (request.getStatus() != null) {
-                predicates.add(cb.equal(root.get("status"),
-                        IncidentStatus.valueOf(request.getStatus().toString())));
-            }
+        IncidentFindResponse response = new IncidentFindResponse(
+                rows.stream().map(IncidentEventMapper::toAvroIncident).toList(), nextCursor, chunk, last);
 
-            return cb.and(predicates.toArray(new jakarta.persistence.criteria.Predicate[0]));
-        };
+        String uuid = record.key();
+        ProducerRecord<String, Object> reply = reply(INCIDENT_FIND_RESPONSE_TOPIC, record, response);
+        // ответ поиска идёт мимо outbox: отметка отправки ставится здесь
+        stageRecorder.stamp(reply.headers(), PipelineStage.SERVICE_RELAYED);
+        long sendStart = System.nanoTime();
+        kafkaTemplate.send(reply)
+                .whenComplete((result, ex) -> {
+                    kafkaMetrics.sent(INCIDENT_FIND_RESPONSE_TOPIC, result, ex, sendStart);
+                    if (ex == null) {
+                        log.info("Результат поиска отправлен. uuid: {}, chunk: {}, строк: {}",
+                                uuid, chunk, rows.size());
+                    } else {
+                        log.error("Ошибка при отправке результата поиска", ex);
+                    }
+                });
+        return nextCursor;
     }
 
-    private com.example.common.events.Incident mapToAvroIncident(Incident incident) {
-        return com.example.common.events.Incident.newBuilder()
-                .setId(incident.getId())
-                .setService(incident.getService())
-                .setInfo(incident.getInfo())
-                .setStatus(com.example.common.events.IncidentStatus.valueOf(
-                        incident.getStatus().name()))
-                .setPriority(com.example.common.events.IncidentPriority.valueOf(
-                        incident.getPriority().name()))
-                .setTimestamp(incident.getTimestamp() * 1000)
-                .build();
+    /**
+     * Последнее состояние инцидента для материализованных представлений (incident-state).
+     * Ключ - id, поэтому после компакции в топике остаётся ровно одна запись на инцидент;
+     * версия в заголовке позволяет читателям отбросить снимок, пришедший после более нового.
+     */
+    private void publishState(Incident incident) {
+        eventPublisher.publish(stateRecord(incident));
+    }
+
+    private static ProducerRecord<String, Object> stateRecord(Incident incident) {
+        ProducerRecord<String, Object> record = new ProducerRecord<>(INCIDENT_STATE_TOPIC,
+                String.valueOf(incident.getId()), IncidentEventMapper.toAvroIncident(incident));
+        if (incident.getVersion() != null) {
+            StateVersion.set(record.headers(), incident.getVersion());
+        }
+        return record;
+    }
+
+    /** Отправка состояния в обход outbox, для выгрузки вне транзакции. */
+    private void sendState(Incident incident) {
+        long sendStart = System.nanoTime();
+        kafkaTemplate.send(stateRecord(incident))
+                .whenComplete((result, ex) -> {
+                    kafkaMetrics.sent(INCIDENT_STATE_TOPIC, result, ex, sendStart);
+                    if (ex != null) {
+                        log.error("Ошибка публикации состояния инцидента в топик {}. id: {}",
+                                INCIDENT_STATE_TOPIC, incident.getId(), ex);
+                    }
+                });
+    }
+
+    /**
+     * Однократная выгрузка существующих инцидентов в incident-state, например при первом
+     * включении топика: инциденты, созданные до этого, иначе не попадут в представления шлюза.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillState() {
+        if (!stateBackfillOnStartup) {
+            return;
+        }
+        log.info("Выгрузка инцидентов в топик {}", INCIDENT_STATE_TOPIC);
+        long cursor = 0L;
+        long published = 0;
+        List<Incident> page;
+        do {
+            page = incidentRepository.findByIdGreaterThanOrderByIdAsc(cursor, Limit.of(STATE_BACKFILL_PAGE_SIZE));
+            page.forEach(this::sendState);
+            published += page.size();
+            if (!page.isEmpty()) {
+                cursor = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == STATE_BACKFILL_PAGE_SIZE);
+        kafkaTemplate.flush();
+        log.info("Выгрузка в топик {} завершена. Инцидентов: {}", INCIDENT_STATE_TOPIC, published);
+    }
+
+    /**
+     * Ответ уходит с тем же ключом и заголовками корреляции и этапов, что пришли в запросе.
+     * Если запрос указал reply-topic или reply-partition, ответ направляется туда: так он попадает
+     * к экземпляру шлюза, который его ждёт. Без заголовков партиция выбирается по ключу, как раньше.
+     */
+    private ProducerRecord<String, Object> reply(String topic, ConsumerRecord<String, ?> request, Object payload) {
+        Header replyTopic = request.headers().lastHeader(KafkaHeaders.REPLY_TOPIC);
+        Header replyPartition = request.headers().lastHeader(KafkaHeaders.REPLY_PARTITION);
+        ProducerRecord<String, Object> reply = new ProducerRecord<>(
+                replyTopic != null ? new String(replyTopic.value(), StandardCharsets.UTF_8) : topic,
+                replyPartition != null && replyPartition.value().length == Integer.BYTES
+                        ? ByteBuffer.wrap(replyPartition.value()).getInt() : null,
+                request.key(),
+                payload);
+        Header correlationId = request.headers().lastHeader(CorrelationId.HEADER);
+        if (correlationId != null) {
+            reply.headers().add(correlationId);
+        }
+        StageTrace.copy(request.headers(), reply.headers());
+        return reply;
     }
 }
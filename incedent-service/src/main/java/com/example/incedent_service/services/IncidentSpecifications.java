@@ -0,0 +1,44 @@
+package com.example.incedent_service.services;
+
+import com.example.common.events.IncidentFindRequest;
+import com.example.incedent_service.entities.Incident;
+import com.example.incedent_service.entities.IncidentPriority;
+import com.example.incedent_service.entities.IncidentStatus;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Criteria-условия поиска для комбинаций фильтров, которым нет derived query в IncidentQueryPlanner. */
+public final class IncidentSpecifications {
+
+    private IncidentSpecifications() {
+    }
+
+    public static Specification<Incident> fromRequest(IncidentFindRequest request) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>(4);
+
+            if (request.getId() != null) {
+                predicates.add(cb.equal(root.get("id"), request.getId()));
+            }
+            if (request.getService() != null && !request.getService().isEmpty()) {
+                predicates.add(cb.equal(root.get("service"), request.getService()));
+            }
+            if (request.getPriority() != null) {
+                predicates.add(cb.equal(root.get("priority"), IncidentPriority.valueOf(request.getPriority().name())));
+            }
+            if (request.getStatus() != null) {
+                predicates.add(cb.equal(root.get("status"), IncidentStatus.valueOf(request.getStatus().name())));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /** Следующая keyset-страница: строки с id больше курсора. */
+    public static Specification<Incident> idGreaterThan(Long afterId) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), afterId);
+    }
+}
@@ -0,0 +1,9 @@
+-- Исходная схема, ранее создававшаяся hibernate ddl-auto. IF NOT EXISTS — для существующих баз.
+CREATE TABLE IF NOT EXISTS incidents (
+    id        BIGSERIAL PRIMARY KEY,
+    service   VARCHAR(255) NOT NULL,
+    status    VARCHAR(255) NOT NULL,
+    priority  VARCHAR(255) NOT NULL,
+    info      TEXT         NOT NULL,
+    timestamp BIGINT       NOT NULL
+);
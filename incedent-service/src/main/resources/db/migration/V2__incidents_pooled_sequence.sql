@@ -0,0 +1,5 @@
+-- Последовательность с шагом 50 для pooled-оптимизатора Hibernate: id выдаются пачками без
+-- обращения к базе на каждую вставку, что делает возможным JDBC batching (IDENTITY его запрещает).
+CREATE SEQUENCE IF NOT EXISTS incidents_seq INCREMENT BY 50;
+
+SELECT setval('incidents_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM incidents));
@@ -0,0 +1,19 @@
+-- Индексы под комбинации фильтров поиска. Поиск идёт keyset-страницами
+-- (WHERE <фильтры> AND id > :cursor ORDER BY id LIMIT n), поэтому id стоит последним:
+-- равенства сужают диапазон, а порядок по id берётся из индекса без сортировки.
+-- CONCURRENTLY не блокирует запись в таблицу на время построения; Flyway выполняет
+-- такие операторы вне транзакции, поэтому в миграции нет других операторов.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_incidents_status_id ON incidents (status, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_incidents_priority_id ON incidents (priority, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_incidents_service_id ON incidents (service, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_incidents_service_status_id ON incidents (service, status, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_incidents_service_priority_id ON incidents (service, priority, id);
+
+-- Статус + приоритет ищут почти всегда среди открытых инцидентов; закрытые составляют
+-- основную массу таблицы, и частичный индекс не тратит на них ни место, ни запись.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_incidents_open_status_priority_id ON incidents (status, priority, id)
+    WHERE status IN ('CREATED', 'PROCESSING');
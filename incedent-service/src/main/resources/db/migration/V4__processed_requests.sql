@@ -0,0 +1,10 @@
+-- Ключи корреляции обработанных incident-create: запись делается в той же транзакции, что и инцидент,
+-- поэтому повторная доставка запроса после коммита находит ключ и не создаёт дубль.
+CREATE TABLE IF NOT EXISTS processed_requests (
+    correlation_key VARCHAR(64) PRIMARY KEY,
+    incident_id     BIGINT      NOT NULL,
+    processed_at    TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+-- Для прогрева фильтра при старте и удаления ключей старше срока хранения
+CREATE INDEX IF NOT EXISTS idx_processed_requests_processed_at ON processed_requests (processed_at);
@@ -0,0 +1,15 @@
+-- Transactional outbox: события Kafka пишутся в той же транзакции, что и инцидент,
+-- и отправляются фоновым ретранслятором. Строка удаляется после подтверждения брокером.
+CREATE SEQUENCE IF NOT EXISTS outbox_events_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id              BIGINT       PRIMARY KEY,
+    topic           VARCHAR(255) NOT NULL,
+    partition_id    INTEGER,
+    record_key      VARCHAR(255),
+    correlation_id  BYTEA,
+    payload_type    VARCHAR(255) NOT NULL,
+    -- Avro binary без заголовка реестра схем: схему знает класс payload_type
+    payload         BYTEA        NOT NULL,
+    created_at      TIMESTAMP WITH TIME ZONE NOT NULL
+);
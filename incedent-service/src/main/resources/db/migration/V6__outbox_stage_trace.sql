@@ -0,0 +1,2 @@
+-- Отметки этапов (заголовок incident-stages) переживают outbox вместе с заголовком корреляции
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS stage_trace BYTEA;
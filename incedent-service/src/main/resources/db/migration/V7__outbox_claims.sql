@@ -0,0 +1,4 @@
+-- Ретранслятор забирает строки короткой транзакцией и отправляет их уже без блокировки и соединения:
+-- до claimed_until строки скрыты от других проходов. Не удалённые к этому сроку (экземпляр упал
+-- между отправкой и удалением) забираются снова.
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMP WITH TIME ZONE;
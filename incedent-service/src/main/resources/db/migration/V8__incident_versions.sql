@@ -0,0 +1,10 @@
+-- Версия инцидента: оптимистическая блокировка обновлений и порядок снимков в incident-state.
+-- Обновления одной строки сериализуются, поэтому версии одного инцидента растут в порядке коммитов.
+ALTER TABLE incidents ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Версия снимка в событии outbox (null - событие без версии, например ответ шлюзу).
+-- Ретранслятор не отправляет ключ, пока его предыдущий пакет в полёте, и из нескольких
+-- снимков одного ключа отправляет только последний.
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS state_version BIGINT;
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_topic_key ON outbox_events (topic, record_key);
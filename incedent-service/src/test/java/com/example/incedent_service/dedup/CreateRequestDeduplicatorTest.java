@@ -0,0 +1,135 @@
+package com.example.incedent_service.dedup;
+
+import com.example.incedent_service.entities.ProcessedRequest;
+import com.example.incedent_service.repositories.ProcessedRequestRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Epic("Incident service tests")
+@ExtendWith(MockitoExtension.class)
+public class CreateRequestDeduplicatorTest {
+
+    @Mock
+    private ProcessedRequestRepository repository;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DedupProperties properties = new DedupProperties();
+    private CreateRequestDeduplicator deduplicator;
+
+    @AfterEach
+    public void tearDown() {
+        if (deduplicator != null) {
+            deduplicator.close();
+        }
+    }
+
+    @Test
+    @Story("Новый ключ отсекается фильтром без обращения к базе")
+    public void findProcessed_bloomNegative_skipsDatabase() {
+        deduplicator = started();
+
+        assertThat(deduplicator.findProcessed("new-key", System.currentTimeMillis())).isNull();
+
+        verify(repository, never()).findById(any());
+        assertThat(lookups("bloom_negative")).isEqualTo(1.0);
+    }
+
+    @Test
+    @Story("Свежий повтор отвечает из LRU без обращения к базе")
+    public void findProcessed_recentRepeat_answeredFromLru() {
+        deduplicator = started();
+
+        deduplicator.record("key-1", 42L);
+
+        assertThat(deduplicator.findProcessed("key-1", System.currentTimeMillis())).isEqualTo(42L);
+        verify(repository, never()).findById(any());
+        assertThat(lookups("lru_hit")).isEqualTo(1.0);
+    }
+
+    @Test
+    @Story("Ключ из прогретого фильтра, которого нет в LRU, проверяется по таблице")
+    public void findProcessed_warmedKey_answeredFromDatabase() {
+        when(repository.findKeysProcessedSince(any(Instant.class), any(Limit.class))).thenReturn(List.of("key-1"));
+        when(repository.findById("key-1")).thenReturn(Optional.of(processed("key-1", 7L)));
+        deduplicator = started();
+
+        assertThat(deduplicator.findProcessed("key-1", System.currentTimeMillis())).isEqualTo(7L);
+        assertThat(lookups("db_hit")).isEqualTo(1.0);
+    }
+
+    @Test
+    @Story("Запрос старше поколений фильтра находит id инцидента в таблице")
+    public void findProcessed_requestOlderThanFilterWindow_fallsBackToDatabase() {
+        when(repository.findById("old-key")).thenReturn(Optional.of(processed("old-key", 11L)));
+        deduplicator = started();
+        long weekAgo = System.currentTimeMillis() - Duration.ofDays(6).toMillis();
+
+        // ключа нет ни в фильтре, ни в LRU: он обработан до начала поколений, но ещё хранится в таблице
+        assertThat(deduplicator.findProcessed("old-key", weekAgo)).isEqualTo(11L);
+        assertThat(lookups("bloom_negative")).isZero();
+        assertThat(lookups("db_hit")).isEqualTo(1.0);
+    }
+
+    @Test
+    @Story("После ротации поколений ключ выпадает из фильтра, но повтор его запроса находится в таблице")
+    public void findProcessed_keyRotatedOut_fallsBackToDatabase() throws Exception {
+        properties.setBloomGeneration(Duration.ofMillis(50));
+        properties.setClockSkew(Duration.ZERO);
+        properties.setLruSize(0);
+        deduplicator = started();
+        long requestTimestamp = System.currentTimeMillis();
+        deduplicator.record("key-1", 5L);
+        when(repository.findById("key-1")).thenReturn(Optional.of(processed("key-1", 5L)));
+
+        // две ротации: ключ уходит из обоих поколений
+        for (int i = 0; i < 2; i++) {
+            Thread.sleep(60);
+            deduplicator.findProcessed("other", System.currentTimeMillis());
+        }
+
+        assertThat(deduplicator.findProcessed("key-1", requestTimestamp)).isEqualTo(5L);
+        assertThat(lookups("db_hit")).isEqualTo(1.0);
+    }
+
+    @Test
+    @Story("Запрос без времени записи проверяется по таблице")
+    public void findProcessed_unknownTimestamp_checksDatabase() {
+        deduplicator = started();
+
+        assertThat(deduplicator.findProcessed("key-1", -1L)).isNull();
+
+        verify(repository).findById("key-1");
+        assertThat(lookups("db_miss")).isEqualTo(1.0);
+    }
+
+    private CreateRequestDeduplicator started() {
+        CreateRequestDeduplicator started = new CreateRequestDeduplicator(properties, repository, meterRegistry);
+        started.start();
+        return started;
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("incidents.kafka.dedup.total").tag("result", result).counter().count();
+    }
+
+    private static ProcessedRequest processed(String key, Long incidentId) {
+        return new ProcessedRequest(key, incidentId, Instant.now());
+    }
+}
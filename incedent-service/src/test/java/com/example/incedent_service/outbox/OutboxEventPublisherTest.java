@@ -0,0 +1,139 @@
+package com.example.incedent_service.outbox;
+
+import com.example.common.correlation.CorrelationId;
+import com.example.common.kafka.StateVersion;
+import com.example.common.events.Alert;
+import com.example.common.events.IncidentStatus;
+import com.example.incedent_service.entities.OutboxEvent;
+import com.example.incedent_service.repositories.OutboxEventRepository;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Epic("Incident service tests")
+public class OutboxEventPublisherTest {
+
+    private AnnotationConfigApplicationContext context;
+    private IncidentEventPublisher publisher;
+    private OutboxEventRepository repository;
+    private OutboxRelay relay;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setup() {
+        context = new AnnotationConfigApplicationContext(TestConfig.class);
+        publisher = context.getBean(IncidentEventPublisher.class);
+        repository = context.getBean(OutboxEventRepository.class);
+        relay = context.getBean(OutboxRelay.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    @Story("Публикация вне транзакции отклоняется и ничего не пишет в outbox")
+    public void publish_withoutTransaction_rejected() {
+        assertThatThrownBy(() -> publisher.publish(record(1L)))
+                .isInstanceOf(IllegalTransactionStateException.class);
+
+        verifyNoInteractions(repository);
+        verify(relay, never()).wakeUp();
+    }
+
+    @Test
+    @Story("События транзакции сохраняются в outbox, ретранслятор будится один раз после коммита")
+    public void publish_inTransaction_savesAndWakesRelayOnceAfterCommit() {
+        transactionTemplate.executeWithoutResult(status -> {
+            publisher.publish(record(1L));
+            ProducerRecord<String, Object> versioned = record(2L);
+            StateVersion.set(versioned.headers(), 4L);
+            publisher.publish(versioned);
+            verify(relay, never()).wakeUp();
+        });
+
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(repository, times(2)).save(saved.capture());
+        OutboxEvent first = saved.getAllValues().get(0);
+        assertThat(first.getTopic()).isEqualTo("alert-topic");
+        assertThat(first.getPartition()).isEqualTo(3);
+        assertThat(first.getRecordKey()).isEqualTo("1");
+        assertThat(first.getCorrelationId()).isEqualTo("corr-1".getBytes(StandardCharsets.UTF_8));
+        assertThat(first.getPayloadType()).isEqualTo(Alert.class.getName());
+        assertThat(AvroPayloads.decode(first.getPayloadType(), first.getPayload())).isEqualTo(record(1L).value());
+        assertThat(first.getClaimedUntil()).isNull();
+        assertThat(first.getStateVersion()).isNull();
+        assertThat(saved.getAllValues().get(1).getStateVersion()).isEqualTo(4L);
+        verify(relay, times(1)).wakeUp();
+    }
+
+    @Test
+    @Story("Откат транзакции не будит ретранслятор")
+    public void publish_rolledBack_doesNotWakeRelay() {
+        transactionTemplate.executeWithoutResult(status -> {
+            publisher.publish(record(1L));
+            status.setRollbackOnly();
+        });
+
+        verify(repository).save(any(OutboxEvent.class));
+        verify(relay, never()).wakeUp();
+    }
+
+    private static ProducerRecord<String, Object> record(long id) {
+        Alert alert = Alert.newBuilder()
+                .setId(id)
+                .setService("payment-service")
+                .setStatus(IncidentStatus.CREATED)
+                .setInfo("Test info")
+                .setTimestamp(0L)
+                .setResponsibleGroup("payment-team")
+                .build();
+        ProducerRecord<String, Object> record = new ProducerRecord<>("alert-topic", 3, Long.toString(id), alert);
+        record.headers().add(CorrelationId.HEADER, ("corr-" + id).getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TestConfig {
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new RecordingTransactionManager();
+        }
+
+        @Bean
+        OutboxEventRepository outboxEventRepository() {
+            return mock(OutboxEventRepository.class);
+        }
+
+        @Bean
+        OutboxRelay outboxRelay() {
+            return mock(OutboxRelay.class);
+        }
+
+        @Bean
+        OutboxEventPublisher outboxEventPublisher(OutboxEventRepository repository, OutboxRelay relay) {
+            return new OutboxEventPublisher(repository, relay);
+        }
+    }
+}
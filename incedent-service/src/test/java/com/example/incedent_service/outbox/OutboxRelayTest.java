@@ -0,0 +1,232 @@
+package com.example.incedent_service.outbox;
+
+import com.example.common.events.Alert;
+import com.example.common.events.IncidentStatus;
+import com.example.common.kafka.StateVersion;
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.tracing.StageRecorder;
+import com.example.incedent_service.entities.OutboxEvent;
+import com.example.incedent_service.repositories.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@Epic("Incident service tests")
+@ExtendWith(MockitoExtension.class)
+public class OutboxRelayTest {
+    private static final String TOPIC = "alert-topic";
+
+    @Mock
+    private OutboxEventRepository repository;
+    @Mock
+    private ProducerFactory<String, Object> producerFactory;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OutboxProperties properties = new OutboxProperties();
+    private final RecordingTransactionManager transactionManager = new RecordingTransactionManager();
+    // была ли открыта транзакция в момент сериализации каждой записи
+    private final List<Boolean> transactionAtSend = new ArrayList<>();
+    private long failingAlertId = -1;
+    private MockProducer<String, Object> producer;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    public void setup() {
+        properties.setSendTimeout(Duration.ofMillis(200));
+        lenient().when(repository.tryLock(anyLong())).thenReturn(true);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (relay != null) {
+            relay.close();
+        }
+    }
+
+    @Test
+    @Story("Пакет отправляется вне транзакции захвата и удаляется после подтверждения брокером")
+    public void relayOnce_acked_sendsOutsideTransactionAndDeletes() {
+        relay = relay(true);
+        when(repository.findClaimable(any(Instant.class), eq(Limit.of(properties.getBatchSize()))))
+                .thenReturn(List.of(event(1L), event(2L)));
+
+        assertThat(relay.relayOnce()).isEqualTo(2);
+
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).tryLock(anyLong());
+        inOrder.verify(repository).claim(eq(List.of(1L, 2L)), any(Instant.class));
+        inOrder.verify(repository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(repository, never()).release(anyList());
+        assertThat(producer.history()).hasSize(2);
+        assertThat(transactionAtSend).containsExactly(false, false);
+        // захват и завершение - две отдельные короткие транзакции
+        assertThat(transactionManager.commits).isEqualTo(2);
+        assertThat(events("sent")).isEqualTo(2.0);
+    }
+
+    @Test
+    @Story("Без подтверждения брокера строки не удаляются, а освобождаются для повтора")
+    public void relayOnce_notAcked_releasesWithoutDelete() {
+        relay = relay(false);
+        when(repository.findClaimable(any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(event(1L), event(2L)));
+
+        assertThatThrownBy(() -> relay.relayOnce())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("2 из 2");
+
+        verify(repository, never()).deleteAllByIdInBatch(anyList());
+        verify(repository).release(List.of(1L, 2L));
+        assertThat(events("error")).isEqualTo(2.0);
+    }
+
+    @Test
+    @Story("Подтверждённая часть пакета удаляется, неотправленная освобождается")
+    public void relayOnce_partialFailure_deletesAckedReleasesFailed() {
+        relay = relay(true);
+        failingAlertId = 2L;
+        when(repository.findClaimable(any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(event(1L), event(2L), event(3L)));
+
+        assertThatThrownBy(() -> relay.relayOnce())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("1 из 3");
+
+        verify(repository).deleteAllByIdInBatch(List.of(1L, 3L));
+        verify(repository).release(List.of(2L));
+        assertThat(events("sent")).isEqualTo(2.0);
+        assertThat(events("error")).isEqualTo(1.0);
+    }
+
+    @Test
+    @Story("Без advisory-блокировки проход ничего не забирает и не отправляет")
+    public void relayOnce_lockBusy_relaysNothing() {
+        relay = relay(true);
+        when(repository.tryLock(anyLong())).thenReturn(false);
+
+        assertThat(relay.relayOnce()).isZero();
+
+        verify(repository, never()).findClaimable(any(), any());
+        verify(repository, never()).claim(anyList(), any());
+        assertThat(producer.history()).isEmpty();
+    }
+
+    @Test
+    @Story("Из снимков одного ключа уходит только последний по версии, вытесненные удаляются вместе с ним")
+    public void relayOnce_stateSnapshots_sendsLatestPerKey() {
+        relay = relay(true);
+        when(repository.findClaimable(any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(state(1L, "7", 3L), event(4L)));
+        // снимок версии 5 получил id из другого пула и в первую выборку не попал
+        when(repository.findClaimableStates(eq(List.of("7")), any(Instant.class)))
+                .thenReturn(List.of(state(1L, "7", 3L), state(2L, "7", 5L)));
+
+        assertThat(relay.relayOnce()).isEqualTo(3);
+
+        verify(repository).claim(eq(List.of(1L, 2L, 4L)), any(Instant.class));
+        verify(repository).deleteAllByIdInBatch(argThat(ids -> Set.copyOf((List<Long>) ids).equals(Set.of(1L, 2L, 4L))));
+        assertThat(producer.history()).extracting(ProducerRecord::key).containsExactly("7", "4");
+        assertThat(StateVersion.get(producer.history().get(0).headers())).isEqualTo(5L);
+        assertThat(events("sent")).isEqualTo(2.0);
+        assertThat(events("superseded")).isEqualTo(1.0);
+    }
+
+    @Test
+    @Story("Вытесненные снимки освобождаются, если последний снимок ключа не подтверждён")
+    public void relayOnce_latestStateFailed_releasesSuperseded() {
+        relay = relay(true);
+        failingAlertId = 2L;
+        when(repository.findClaimable(any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(state(1L, "7", 3L), state(2L, "7", 5L), event(4L)));
+        when(repository.findClaimableStates(anyList(), any(Instant.class))).thenReturn(List.of());
+
+        assertThatThrownBy(() -> relay.relayOnce())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("2 из 3");
+
+        verify(repository).deleteAllByIdInBatch(List.of(4L));
+        verify(repository).release(List.of(1L, 2L));
+    }
+
+    private OutboxRelay relay(boolean autoComplete) {
+        Serializer<Object> valueSerializer = (topic, value) -> {
+            transactionAtSend.add(TransactionSynchronizationManager.isActualTransactionActive());
+            if (value instanceof Alert alert && alert.getId() == failingAlertId) {
+                throw new SerializationException("Схема не зарегистрирована");
+            }
+            return new byte[0];
+        };
+        // KafkaTemplate закрывает продюсер после каждой отправки, а история нужна за весь проход
+        producer = new MockProducer<>(autoComplete, null, new StringSerializer(), valueSerializer) {
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        when(producerFactory.copyWithConfigurationOverride(any())).thenReturn(new MockProducerFactory<>(() -> producer));
+        return new OutboxRelay(properties, repository, transactionManager, producerFactory,
+                new StageRecorder(meterRegistry), new KafkaMetrics(meterRegistry), meterRegistry);
+    }
+
+    private double events(String result) {
+        return meterRegistry.get("incidents.outbox.relay.events.total").tag("result", result).counter().count();
+    }
+
+    private static OutboxEvent state(long id, String key, long version) {
+        OutboxEvent event = event(id);
+        event.setRecordKey(key);
+        event.setStateVersion(version);
+        return event;
+    }
+
+    private static OutboxEvent event(long id) {
+        Alert alert = Alert.newBuilder()
+                .setId(id)
+                .setService("payment-service")
+                .setStatus(IncidentStatus.CREATED)
+                .setInfo("Test info")
+                .setTimestamp(System.currentTimeMillis())
+                .setResponsibleGroup("payment-team")
+                .build();
+        return OutboxEvent.builder()
+                .id(id)
+                .topic(TOPIC)
+                .partition(0)
+                .recordKey(Long.toString(id))
+                .payloadType(Alert.class.getName())
+                .payload(AvroPayloads.encode(alert))
+                .createdAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.incedent_service.outbox;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * Менеджер транзакций без базы для тестов outbox: считает коммиты и откаты, синхронизации
+ * TransactionSynchronizationManager работают как с настоящим.
+ */
+class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+    private boolean active;
+    int commits;
+    int rollbacks;
+
+    @Override
+    protected Object doGetTransaction() {
+        return this;
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return active;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        active = true;
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        commits++;
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        rollbacks++;
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        active = false;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.incedent_service.services;
+
+import com.example.common.events.IncidentFindRequest;
+import com.example.common.events.IncidentPriority;
+import com.example.common.events.IncidentStatus;
+import com.example.incedent_service.entities.Incident;
+import com.example.incedent_service.repositories.IncidentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Epic("Incident service tests")
+@ExtendWith(MockitoExtension.class)
+public class IncidentQueryPlannerTest {
+
+    @Mock
+    private IncidentRepository incidentRepository;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    static Stream<Arguments> filterCombinations() {
+        return Stream.of(
+                Arguments.of(null, null, null, null, IncidentQueryPlanner.Plan.ALL),
+                Arguments.of(7L, null, null, null, IncidentQueryPlanner.Plan.BY_ID),
+                Arguments.of(7L, "payment-service", null, null, IncidentQueryPlanner.Plan.SPECIFICATION),
+                Arguments.of(null, null, IncidentStatus.CREATED, null, IncidentQueryPlanner.Plan.STATUS),
+                Arguments.of(null, null, null, IncidentPriority.HIGH, IncidentQueryPlanner.Plan.PRIORITY),
+                Arguments.of(null, "payment-service", null, null, IncidentQueryPlanner.Plan.SERVICE),
+                Arguments.of(null, "", null, null, IncidentQueryPlanner.Plan.ALL),
+                Arguments.of(null, "payment-service", IncidentStatus.CREATED, null, IncidentQueryPlanner.Plan.SERVICE_STATUS),
+                Arguments.of(null, "payment-service", null, IncidentPriority.HIGH, IncidentQueryPlanner.Plan.SERVICE_PRIORITY),
+                Arguments.of(null, null, IncidentStatus.CREATED, IncidentPriority.HIGH, IncidentQueryPlanner.Plan.STATUS_PRIORITY),
+                Arguments.of(null, "payment-service", IncidentStatus.CREATED, IncidentPriority.HIGH,
+                        IncidentQueryPlanner.Plan.SPECIFICATION));
+    }
+
+    @ParameterizedTest
+    @MethodSource("filterCombinations")
+    @Story("Каждая комбинация фильтров получает свой план выборки")
+    public void plan_filterCombination_choosesIndexedQuery(Long id, String service, IncidentStatus status,
+                                                           IncidentPriority priority, IncidentQueryPlanner.Plan expected) {
+        IncidentQueryPlanner planner = new IncidentQueryPlanner(incidentRepository, meterRegistry, true);
+
+        assertThat(planner.plan(request(id, service, status, priority))).isEqualTo(expected);
+    }
+
+    @Test
+    @Story("Выключенный планировщик всегда строит Specification")
+    public void plan_disabled_usesSpecification() {
+        IncidentQueryPlanner planner = new IncidentQueryPlanner(incidentRepository, meterRegistry, false);
+
+        assertThat(planner.plan(request(null, "payment-service", null, null)))
+                .isEqualTo(IncidentQueryPlanner.Plan.SPECIFICATION);
+        assertThat(planner.plan(request(7L, null, null, null)))
+                .isEqualTo(IncidentQueryPlanner.Plan.SPECIFICATION);
+    }
+
+    @Test
+    @Story("Первая страница начинается с курсора 0, следующая - строго после afterId")
+    public void findPage_keysetCursor_passedToDerivedQuery() {
+        IncidentQueryPlanner planner = new IncidentQueryPlanner(incidentRepository, meterRegistry, true);
+        IncidentFindRequest request = request(null, "payment-service", IncidentStatus.CREATED, null);
+
+        planner.findPage(request, null, 50);
+        planner.findPage(request, 120L, 50);
+
+        verify(incidentRepository).findByServiceAndStatusAndIdGreaterThanOrderByIdAsc(
+                "payment-service", com.example.incedent_service.entities.IncidentStatus.CREATED, 0L, Limit.of(50));
+        verify(incidentRepository).findByServiceAndStatusAndIdGreaterThanOrderByIdAsc(
+                "payment-service", com.example.incedent_service.entities.IncidentStatus.CREATED, 120L, Limit.of(50));
+        verify(incidentRepository, never()).findBy(any(Specification.class), any());
+        assertThat(meterRegistry.get("incidents.find.query.time").tag("plan", "service_status").timer().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    @Story("Поиск по id учитывает курсор: инцидент с id не больше afterId не возвращается")
+    public void findPage_byId_respectsCursorBoundary() {
+        IncidentQueryPlanner planner = new IncidentQueryPlanner(incidentRepository, meterRegistry, true);
+        Incident incident = Incident.builder().id(7L).build();
+        when(incidentRepository.findById(7L)).thenReturn(Optional.of(incident));
+        IncidentFindRequest request = request(7L, null, null, null);
+
+        assertThat(planner.findPage(request, null, 50)).containsExactly(incident);
+        assertThat(planner.findPage(request, 6L, 50)).containsExactly(incident);
+        assertThat(planner.findPage(request, 7L, 50)).isEmpty();
+    }
+
+    @Test
+    @Story("Комбинация без подходящего индекса идёт через Specification")
+    public void findPage_allFilters_usesSpecification() {
+        IncidentQueryPlanner planner = new IncidentQueryPlanner(incidentRepository, meterRegistry, true);
+        when(incidentRepository.findBy(any(Specification.class), any())).thenReturn(List.of());
+
+        planner.findPage(request(null, "payment-service", IncidentStatus.CREATED, IncidentPriority.HIGH), 10L, 50);
+
+        verify(incidentRepository).findBy(any(Specification.class), any());
+        verifyNoMoreInteractions(incidentRepository);
+        assertThat(meterRegistry.get("incidents.find.query.time").tag("plan", "specification").timer().count())
+                .isEqualTo(1);
+    }
+
+    private static IncidentFindRequest request(Long id, String service, IncidentStatus status, IncidentPriority priority) {
+        return IncidentFindRequest.newBuilder()
+                .setId(id)
+                .setService(service)
+                .setStatus(status)
+                .setPriority(priority)
+                .build();
+    }
+}
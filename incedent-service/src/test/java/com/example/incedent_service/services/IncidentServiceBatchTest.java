@@ -0,0 +1,207 @@
+package com.example.incedent_service.services;
+
+import com.example.common.correlation.ReplyError;
+import com.example.common.events.IncidentCreateRequest;
+import com.example.common.events.IncidentCreateResponse;
+import com.example.common.events.IncidentPriority;
+import com.example.common.metrics.KafkaMetrics;
+import com.example.common.tracing.StageRecorder;
+import com.example.incedent_service.dedup.CreateRequestDeduplicator;
+import com.example.incedent_service.entities.Incident;
+import com.example.incedent_service.outbox.IncidentEventPublisher;
+import com.example.incedent_service.repositories.IncidentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import jakarta.persistence.EntityManager;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@Epic("Incident service tests")
+@ExtendWith(MockitoExtension.class)
+public class IncidentServiceBatchTest {
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    @Mock
+    private IncidentEventPublisher eventPublisher;
+    @Mock
+    private IncidentRepository incidentRepository;
+    @Mock
+    private IncidentQueryPlanner queryPlanner;
+    @Mock
+    private CreateRequestDeduplicator deduplicator;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private Acknowledgment ack;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong ids = new AtomicLong(100);
+    private IncidentService service;
+
+    @BeforeEach
+    public void setup() {
+        service = new IncidentService(kafkaTemplate, eventPublisher, incidentRepository, queryPlanner, deduplicator,
+                meterRegistry, new StageRecorder(meterRegistry), new KafkaMetrics(meterRegistry), entityManager,
+                500, 1000, false);
+
+        // saveAll выдаёт id, как pooled-последовательность при вставке
+        lenient().doAnswer(invocation -> {
+            List<Incident> incidents = invocation.getArgument(0);
+            incidents.forEach(incident -> {
+                incident.setId(ids.getAndIncrement());
+                incident.setTimestamp(System.currentTimeMillis());
+            });
+            return incidents;
+        }).when(incidentRepository).saveAll(anyList());
+        // Mockito по умолчанию вернул бы 0L, то есть "уже обработан"
+        lenient().when(deduplicator.findProcessed(any(), anyLong())).thenReturn(null);
+        lenient().doReturn(CompletableFuture.<SendResult<String, Object>>completedFuture(null))
+                .when(kafkaTemplate).send(any(ProducerRecord.class));
+
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    @Story("Некорректная запись пакета получает отказ, корректные сохраняются")
+    public void createIncidents_mixedBatch_rejectsInvalidAndSavesValid() {
+        ConsumerRecord<String, IncidentCreateRequest> valid = record(0, "key-1", request("payment-service"));
+        ConsumerRecord<String, IncidentCreateRequest> invalid = record(1, "key-2", request(null));
+        ConsumerRecord<String, IncidentCreateRequest> undecoded = record(2, "key-3", null);
+
+        service.createIncidents(List.of(valid, invalid, undecoded), ack);
+
+        ArgumentCaptor<List<Incident>> saved = ArgumentCaptor.forClass(List.class);
+        verify(incidentRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(Incident::getService).containsExactly("payment-service");
+        verify(deduplicator).record("key-1", 100L);
+
+        ArgumentCaptor<ProducerRecord<String, Object>> published = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(eventPublisher, times(2)).publish(published.capture());
+        List<ProducerRecord<String, Object>> replies = replies(published);
+        assertThat(replies).hasSize(1);
+        assertThat(replies.get(0).key()).isEqualTo("key-1");
+        assertThat(((IncidentCreateResponse) replies.get(0).value()).getId()).isEqualTo(100L);
+
+        ArgumentCaptor<ProducerRecord<String, Object>> rejections = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(rejections.capture());
+        assertThat(rejections.getAllValues()).extracting(ProducerRecord::key).containsExactly("key-2", "key-3");
+        assertThat(rejections.getAllValues()).allSatisfy(rejection -> {
+            assertThat(rejection.topic()).isEqualTo("incident-create-response");
+            assertThat(rejection.value()).isNull();
+            assertThat(ReplyError.get(rejection.headers())).contains("service, info и priority");
+        });
+    }
+
+    @Test
+    @Story("Повтор внутри одного пакета не создаёт второй инцидент и получает тот же id")
+    public void createIncidents_duplicateInBatch_repliesWithSameId() {
+        ConsumerRecord<String, IncidentCreateRequest> first = record(0, "key-1", request("payment-service"));
+        ConsumerRecord<String, IncidentCreateRequest> repeat = record(1, "key-1", request("payment-service"));
+        doAnswer(invocation -> Optional.of(Incident.builder()
+                .id(invocation.getArgument(0))
+                .service("payment-service")
+                .info("info")
+                .priority(com.example.incedent_service.entities.IncidentPriority.LOW)
+                .status(com.example.incedent_service.entities.IncidentStatus.CREATED)
+                .timestamp(0L)
+                .build()))
+                .when(incidentRepository).findById(anyLong());
+
+        service.createIncidents(List.of(first, repeat), ack);
+
+        ArgumentCaptor<List<Incident>> saved = ArgumentCaptor.forClass(List.class);
+        verify(incidentRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).hasSize(1);
+        verify(deduplicator, times(1)).record(anyString(), anyLong());
+
+        ArgumentCaptor<ProducerRecord<String, Object>> published = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(eventPublisher, times(4)).publish(published.capture());
+        assertThat(replies(published))
+                .extracting(reply -> ((IncidentCreateResponse) reply.value()).getId())
+                .containsExactly(100L, 100L);
+        assertThat(meterRegistry.counter("incidents.kafka.duplicates.total", "source", "kafka").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @Story("Пакет подтверждается только после коммита транзакции")
+    public void createIncidents_acknowledgesAfterCommit() {
+        service.createIncidents(List.of(record(0, "key-1", request("payment-service"))), ack);
+
+        verify(ack, never()).acknowledge();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        InOrder order = inOrder(incidentRepository, ack);
+        order.verify(incidentRepository).saveAll(anyList());
+        order.verify(incidentRepository).flush();
+        order.verify(ack).acknowledge();
+    }
+
+    @Test
+    @Story("Ошибка сохранения пакета не подтверждает его")
+    public void createIncidents_saveFails_doesNotAcknowledge() {
+        doThrow(new IllegalStateException("db down")).when(incidentRepository).flush();
+
+        assertThatThrownBy(() -> service.createIncidents(
+                List.of(record(0, "key-1", request("payment-service"))), ack))
+                .isInstanceOf(RuntimeException.class);
+
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+        verify(ack, never()).acknowledge();
+        verify(eventPublisher, never()).publish(any(ProducerRecord.class));
+    }
+
+    // рядом с ответами в outbox уходят снимки в incident-state
+    private static List<ProducerRecord<String, Object>> replies(ArgumentCaptor<ProducerRecord<String, Object>> published) {
+        return published.getAllValues().stream()
+                .filter(record -> record.topic().equals("incident-create-response"))
+                .toList();
+    }
+
+    private static IncidentCreateRequest request(String service) {
+        IncidentCreateRequest request = new IncidentCreateRequest();
+        request.setService(service);
+        request.setInfo("info");
+        request.setPriority(IncidentPriority.LOW);
+        return request;
+    }
+
+    private static ConsumerRecord<String, IncidentCreateRequest> record(long offset, String key,
+                                                                        IncidentCreateRequest value) {
+        return new ConsumerRecord<>("incident-create", 0, offset, key, value);
+    }
+}
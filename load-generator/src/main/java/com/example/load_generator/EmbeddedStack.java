@@ -0,0 +1,217 @@
+package com.example.load_generator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Локальный стенд для прогона без docker-compose: KRaft-брокер в этом же процессе, Postgres в контейнере
+ * Testcontainers (или внешний по --jdbc-url) и incedent-service с incedent-producer-service в дочерних JVM
+ * со своими application.yaml - так же, как они работают по отдельности. Classpath сервисов передаёт
+ * Gradle-задача run. Логи и вывод сервисов - в рабочем каталоге стенда.
+ */
+@Slf4j
+public class EmbeddedStack implements AutoCloseable {
+    private static final String[] TOPICS = {
+            "incident-create", "incident-create-response",
+            "incident-update", "incident-update-response",
+            "incident-find-request", "incident-find-response",
+            "high-priority-alert"
+    };
+    private static final String STATE_TOPIC = "incident-state";
+    // известные типы идут по закреплённым id схем, реестр не нужен; mock:// - на случай неизвестной схемы
+    private static final String SCHEMA_REGISTRY_URL = "mock://load-generator";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final Path workDir;
+    private final List<Process> processes = new ArrayList<>();
+    private EmbeddedKafkaKraftBroker broker;
+    private PostgreSQLContainer postgres;
+    private String producerServiceUrl;
+
+    private EmbeddedStack(Path workDir) {
+        this.workDir = workDir;
+    }
+
+    public static EmbeddedStack start(LoadOptions options) throws Exception {
+        EmbeddedStack stack = new EmbeddedStack(Files.createTempDirectory("load-generator"));
+        try {
+            stack.startInfrastructure(options);
+            stack.startServices(options);
+            return stack;
+        } catch (Exception e) {
+            stack.close();
+            throw e;
+        }
+    }
+
+    public String getProducerServiceUrl() {
+        return producerServiceUrl;
+    }
+
+    private void startInfrastructure(LoadOptions options) {
+        log.info("Стенд в {}", workDir);
+        broker = new EmbeddedKafkaKraftBroker(1, options.getPartitions(), TOPICS);
+        broker.brokerProperties(Map.of(
+                "transaction.state.log.replication.factor", "1",
+                "transaction.state.log.min.isr", "1"));
+        broker.afterPropertiesSet();
+        broker.addTopics(new NewTopic(STATE_TOPIC, options.getPartitions(), (short) 1)
+                .configs(Map.of("cleanup.policy", "compact")));
+        log.info("Kafka: {}", broker.getBrokersAsString());
+
+        if (options.getJdbcUrl() == null) {
+            postgres = new PostgreSQLContainer("postgres:16-alpine");
+            postgres.start();
+            options.setJdbcUrl(postgres.getJdbcUrl());
+            options.setJdbcUsername(postgres.getUsername());
+            options.setJdbcPassword(postgres.getPassword());
+        }
+        log.info("Postgres: {}", options.getJdbcUrl());
+    }
+
+    private void startServices(LoadOptions options) throws Exception {
+        List<String> common = List.of(
+                "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                "--spring.kafka.schema-registry-url=" + SCHEMA_REGISTRY_URL,
+                "--spring.kafka.producer.properties.schema.registry.url=" + SCHEMA_REGISTRY_URL,
+                "--spring.kafka.consumer.properties.schema.registry.url=" + SCHEMA_REGISTRY_URL);
+
+        int incidentPort = freePort();
+        List<String> incidentArgs = new ArrayList<>(common);
+        incidentArgs.add("--server.port=" + incidentPort);
+        incidentArgs.add("--spring.datasource.url=" + options.getJdbcUrl());
+        incidentArgs.add("--spring.datasource.username=" + options.getJdbcUsername());
+        incidentArgs.add("--spring.datasource.password=" + options.getJdbcPassword());
+        launch("incedent-service", "load-generator.incident-service.classpath",
+                "com.example.incedent_service.IncedentServiceApplication", incidentArgs);
+        awaitHealthy("incedent-service", incidentPort);
+
+        int producerPort = freePort();
+        List<String> producerArgs = new ArrayList<>(common);
+        producerArgs.add("--server.port=" + producerPort);
+        launch("incedent-producer-service", "load-generator.producer-service.classpath",
+                "com.example.incedent_producer_service.IncedentProducerServiceApplication", producerArgs);
+        awaitHealthy("incedent-producer-service", producerPort);
+        producerServiceUrl = "http://localhost:" + producerPort;
+        awaitRoundTrip();
+    }
+
+    private void launch(String name, String classpathProperty, String mainClass, List<String> args) throws IOException {
+        String classpath = System.getProperty(classpathProperty);
+        if (classpath == null) {
+            throw new IllegalStateException("Не задан " + classpathProperty
+                    + ": режим --embedded запускается через ./gradlew :load-generator:run");
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(classpath);
+        command.add(mainClass);
+        command.addAll(args);
+        Path serviceDir = Files.createDirectories(workDir.resolve(name));
+        Process process = new ProcessBuilder(command)
+                .directory(serviceDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(serviceDir.resolve("console.out").toFile())
+                .start();
+        processes.add(process);
+        log.info("Запущен {} (pid {}), вывод в {}", name, process.pid(), serviceDir);
+    }
+
+    private void awaitHealthy(String name, int port) throws InterruptedException {
+        Process process = processes.getLast();
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+                .timeout(Duration.ofSeconds(2))
+                .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(name + " завершился с кодом " + process.exitValue()
+                        + ", см. " + workDir.resolve(name));
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    log.info("{} готов на порту {}", name, port);
+                    return;
+                }
+            } catch (IOException e) {
+                // ещё не слушает порт
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException(name + " не поднялся за " + STARTUP_TIMEOUT);
+    }
+
+    /**
+     * health сервисов не означает, что группы потребителей уже получили партиции: до этого create
+     * висят до тайм-аута корреляции. Нагрузка начинается после первого успешного create.
+     */
+    private void awaitRoundTrip() throws InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(
+                        URI.create(producerServiceUrl + "/api/incident-producer-service/create"))
+                .timeout(Duration.ofSeconds(35))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"service\":\"load-generator\",\"priority\":\"LOW\",\"info\":\"readiness probe\"}"))
+                .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 201) {
+                    log.info("Сквозной create прошёл, стенд готов");
+                    return;
+                }
+            } catch (IOException e) {
+                // тайм-аут запроса: потребители ещё не назначены
+            }
+            Thread.sleep(1000);
+        }
+        throw new IllegalStateException("Сквозной create не прошёл за " + STARTUP_TIMEOUT);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() {
+        // в обратном порядке: шлюз, сервис, затем брокер и база, от которых они зависят
+        for (Process process : processes.reversed()) {
+            process.destroy();
+            try {
+                if (!process.waitFor(15, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+        if (postgres != null) {
+            postgres.stop();
+        }
+        if (broker != null) {
+            broker.destroy();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.load_generator;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Асинхронные запросы к REST-шлюзу. id созданных инцидентов складываются в кольцо последних,
+ * из которого update и find выбирают цель, так что они попадают в существующие записи.
+ */
+public class IncidentApiClient {
+    private static final String BASE_PATH = "/api/incident-producer-service";
+    private static final Pattern INCIDENT_ID = Pattern.compile("\"incidentId\"\\s*:\\s*(\\d+)");
+    private static final String[] SERVICES = {"payment-service", "auth-service", "order-service", "inventory-service"};
+    private static final String[] PRIORITIES = {"HIGH", "MEDIUM", "LOW"};
+    private static final String[] STATUSES = {"PROCESSING", "COMPLETED", "CANCELLED"};
+    private static final int KNOWN_IDS = 4096;
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final AtomicLongArray knownIds = new AtomicLongArray(KNOWN_IDS);
+    private final AtomicLong knownIdCount = new AtomicLong();
+
+    public IncidentApiClient(String target, Duration requestTimeout) {
+        this.baseUrl = target.replaceAll("/+$", "") + BASE_PATH;
+        this.requestTimeout = requestTimeout;
+        // ответы обрабатываются на виртуальных потоках: колбэки не должны задерживать поток планировщика
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    /** Для операций с id при пустом кольце выполняется create: сначала нужно что-то создать. */
+    public Operation resolve(Operation operation) {
+        return operation.needsId() && knownIdCount.get() == 0 ? Operation.CREATE : operation;
+    }
+
+    /** Завершается HTTP-статусом ответа; сетевые ошибки и тайм-аут - исключением. */
+    public CompletableFuture<Integer> send(Operation operation) {
+        HttpRequest request = switch (operation) {
+            case CREATE -> json(URI.create(baseUrl + "/create"))
+                    .POST(HttpRequest.BodyPublishers.ofString(createBody()))
+                    .build();
+            case UPDATE -> json(URI.create(baseUrl + "/update"))
+                    .PUT(HttpRequest.BodyPublishers.ofString(updateBody(randomKnownId())))
+                    .build();
+            case FIND -> json(URI.create(baseUrl + "/" + randomKnownId())).GET().build();
+            case SEARCH -> json(URI.create(baseUrl + "?service=" + random(SERVICES) + "&limit=50")).GET().build();
+        };
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (operation == Operation.CREATE && response.statusCode() == 201) {
+                        remember(response.body());
+                    }
+                    return response.statusCode();
+                });
+    }
+
+    private HttpRequest.Builder json(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json");
+    }
+
+    private static String createBody() {
+        return "{\"service\":\"" + random(SERVICES) + "\",\"priority\":\"" + random(PRIORITIES)
+                + "\",\"info\":\"load-generator " + System.nanoTime() + "\"}";
+    }
+
+    private static String updateBody(long id) {
+        return "{\"id\":" + id + ",\"status\":\"" + random(STATUSES) + "\"}";
+    }
+
+    private void remember(String body) {
+        Matcher matcher = INCIDENT_ID.matcher(body);
+        if (matcher.find()) {
+            long slot = knownIdCount.getAndIncrement();
+            knownIds.set((int) (slot % KNOWN_IDS), Long.parseLong(matcher.group(1)));
+        }
+    }
+
+    private long randomKnownId() {
+        long count = Math.min(knownIdCount.get(), KNOWN_IDS);
+        long id = knownIds.get(ThreadLocalRandom.current().nextInt((int) count));
+        // слот уже занят счётчиком, но id ещё не записан: берём первый созданный
+        return id != 0 ? id : knownIds.get(0);
+    }
+
+    private static String random(String[] values) {
+        return values[ThreadLocalRandom.current().nextInt(values.length)];
+    }
+}
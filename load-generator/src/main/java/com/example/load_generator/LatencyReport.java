@@ -0,0 +1,65 @@
+package com.example.load_generator;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/** Сводка p50/p99/p99.9 по операциям в миллисекундах и, по желанию, полные распределения в .hgrm. */
+public final class LatencyReport {
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private LatencyReport() {
+    }
+
+    public static void print(PrintStream out, Collection<OperationStats> stats, long measuredNanos) {
+        double seconds = measuredNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        out.println("Задержка в мс от запланированного момента отправки; svc p99 - от фактической отправки");
+        out.printf(Locale.ROOT, "%-8s %9s %8s %9s %9s %9s %9s %9s %9s%n",
+                "op", "count", "errors", "rps", "p50", "p99", "p99.9", "max", "svc p99");
+        long totalCount = 0;
+        long totalErrors = 0;
+        for (OperationStats stat : stats) {
+            Histogram response = stat.getResponse();
+            if (response.getTotalCount() == 0) {
+                continue;
+            }
+            totalCount += response.getTotalCount();
+            totalErrors += stat.getErrors();
+            out.printf(Locale.ROOT, "%-8s %9d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    stat.getOperation().label(),
+                    response.getTotalCount(),
+                    stat.getErrors(),
+                    response.getTotalCount() / seconds,
+                    millis(response.getValueAtPercentile(50)),
+                    millis(response.getValueAtPercentile(99)),
+                    millis(response.getValueAtPercentile(99.9)),
+                    millis(response.getMaxValue()),
+                    millis(stat.getService().getValueAtPercentile(99)));
+        }
+        out.printf(Locale.ROOT, "%-8s %9d %8d %9.1f%n", "total", totalCount, totalErrors, totalCount / seconds);
+    }
+
+    /** Файлы <операция>.hgrm для HdrHistogram plotter; значения в миллисекундах. */
+    public static void writeHistograms(Path dir, Collection<OperationStats> stats) throws IOException {
+        Files.createDirectories(dir);
+        for (OperationStats stat : stats) {
+            if (stat.getResponse().getTotalCount() == 0) {
+                continue;
+            }
+            try (PrintStream out = new PrintStream(
+                    Files.newOutputStream(dir.resolve(stat.getOperation().label() + ".hgrm")))) {
+                stat.getResponse().outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+}
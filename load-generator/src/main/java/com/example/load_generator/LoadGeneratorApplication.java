@@ -0,0 +1,34 @@
+package com.example.load_generator;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Сквозная нагрузка на цепочку REST-шлюз -> Kafka -> incedent-service -> PostgreSQL -> reply-топик
+ * с отчётом p50/p99/p99.9 по операциям. Без --embedded нагружает уже запущенный стенд (--target).
+ *
+ * Запуск: ./gradlew :load-generator:run --args="--embedded --rate=500 --duration=60s --mix=create=70,find=30"
+ */
+@Slf4j
+public class LoadGeneratorApplication {
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        EmbeddedStack stack = options.isEmbedded() ? EmbeddedStack.start(options) : null;
+        try {
+            String target = stack != null ? stack.getProducerServiceUrl() : options.getTarget();
+            IncidentApiClient client = new IncidentApiClient(target, options.getRequestTimeout());
+            OpenLoopDriver driver = new OpenLoopDriver(client, options);
+            long measuredNanos = driver.run();
+
+            LatencyReport.print(System.out, driver.getStats().values(), measuredNanos);
+            if (options.getHistogramDir() != null) {
+                LatencyReport.writeHistograms(options.getHistogramDir(), driver.getStats().values());
+                log.info("Распределения задержек записаны в {}", options.getHistogramDir());
+            }
+        } finally {
+            if (stack != null) {
+                stack.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.load_generator;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Параметры прогона из аргументов вида --name=value. Флаги без значения (--embedded) равны true.
+ */
+@Data
+public class LoadOptions {
+    /** База REST-шлюза; в режиме embedded подставляется адрес запущенного шлюза. */
+    private String target = "http://localhost:8082";
+    /** Целевая частота запросов в секунду, не зависящая от времени ответа (открытая модель). */
+    private double rate = 200;
+    private Duration warmup = Duration.ofSeconds(10);
+    private Duration duration = Duration.ofSeconds(60);
+    /** Доли операций в смеси. */
+    private Map<Operation, Integer> mix = parseMix("create=50,update=25,find=20,search=5");
+    /** Предел одновременных запросов; при его достижении отправка ждёт, а задержка продолжает считаться от плана. */
+    private int maxInFlight = 2000;
+    private Duration requestTimeout = Duration.ofSeconds(30);
+    /** Каталог для .hgrm-файлов полного распределения по операциям; null - только сводка. */
+    private Path histogramDir;
+
+    /** Поднять Kafka, Postgres и оба сервиса локально. */
+    private boolean embedded;
+    /** Внешний Postgres для embedded вместо контейнера (например, без Docker). */
+    private String jdbcUrl;
+    private String jdbcUsername = "postgres";
+    private String jdbcPassword = "postgres";
+    private int partitions = 4;
+
+    public static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Ожидался аргумент вида --name=value: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            String name = eq < 0 ? arg.substring(2) : arg.substring(2, eq);
+            String value = eq < 0 ? "true" : arg.substring(eq + 1);
+            switch (name) {
+                case "target" -> options.target = value;
+                case "rate" -> options.rate = Double.parseDouble(value);
+                case "warmup" -> options.warmup = parseDuration(value);
+                case "duration" -> options.duration = parseDuration(value);
+                case "mix" -> options.mix = parseMix(value);
+                case "max-in-flight" -> options.maxInFlight = Integer.parseInt(value);
+                case "request-timeout" -> options.requestTimeout = parseDuration(value);
+                case "histogram-dir" -> options.histogramDir = Path.of(value);
+                case "embedded" -> options.embedded = Boolean.parseBoolean(value);
+                case "jdbc-url" -> options.jdbcUrl = value;
+                case "jdbc-username" -> options.jdbcUsername = value;
+                case "jdbc-password" -> options.jdbcPassword = value;
+                case "partitions" -> options.partitions = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Неизвестный аргумент: --" + name);
+            }
+        }
+        if (options.rate <= 0) {
+            throw new IllegalArgumentException("--rate должен быть больше нуля");
+        }
+        return options;
+    }
+
+    /** 500ms, 30s, 5m или ISO-8601 (PT30S). */
+    static Duration parseDuration(String value) {
+        if (value.startsWith("P") || value.startsWith("p")) {
+            return Duration.parse(value);
+        }
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Неизвестная единица длительности: " + value);
+        };
+    }
+
+    /** create=50,update=25,find=20,search=5; неуказанные операции не выполняются. */
+    static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Ожидалось operation=weight: " + part);
+            }
+            mix.put(Operation.fromName(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+        }
+        return mix;
+    }
+}
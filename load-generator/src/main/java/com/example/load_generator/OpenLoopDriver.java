@@ -0,0 +1,107 @@
+package com.example.load_generator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Открытая модель нагрузки: i-й запрос запланирован на start + i / rate независимо от того, ответили ли
+ * предыдущие. Задержка считается от запланированного момента, поэтому остановка шлюза на секунду даёт
+ * секунду ожидания всем запросам, которые должны были уйти за это время, а не один медленный замер
+ * (coordinated omission). Запросы прогрева выполняются, но не записываются.
+ */
+@Slf4j
+public class OpenLoopDriver {
+    private final IncidentApiClient client;
+    private final LoadOptions options;
+    private final Operation[] weighted;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+    public OpenLoopDriver(IncidentApiClient client, LoadOptions options) {
+        this.client = client;
+        this.options = options;
+        this.weighted = expand(options.getMix());
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats(operation));
+        }
+    }
+
+    /** Прогон целиком; возвращает длительность измеряемой части в наносекундах. */
+    public long run() throws InterruptedException {
+        Semaphore inFlight = new Semaphore(options.getMaxInFlight());
+        long start = System.nanoTime();
+        long measureFrom = start + options.getWarmup().toNanos();
+        long end = measureFrom + options.getDuration().toNanos();
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+        long blockedOnInFlight = 0;
+
+        log.info("Нагрузка {} запр/с: прогрев {}, замер {}, смесь {}",
+                options.getRate(), options.getWarmup(), options.getDuration(), options.getMix());
+
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            waitUntil(intended);
+            if (!inFlight.tryAcquire()) {
+                blockedOnInFlight++;
+                inFlight.acquire();
+            }
+            Operation operation = client.resolve(weighted[ThreadLocalRandom.current().nextInt(weighted.length)]);
+            boolean measured = intended >= measureFrom;
+            long sent = System.nanoTime();
+            client.send(operation).whenComplete((status, error) -> {
+                long completed = System.nanoTime();
+                inFlight.release();
+                if (measured) {
+                    stats.get(operation).record(intended, sent, completed,
+                            error == null && status >= 200 && status < 300);
+                }
+            });
+        }
+
+        // дожидаемся ответов на всё отправленное: иначе хвост распределения был бы отрезан
+        long drainTimeout = options.getRequestTimeout().toMillis() + 5_000;
+        if (!inFlight.tryAcquire(options.getMaxInFlight(), drainTimeout, TimeUnit.MILLISECONDS)) {
+            log.warn("Не дождались ответов на {} запросов", options.getMaxInFlight() - inFlight.availablePermits());
+        }
+        if (blockedOnInFlight > 0) {
+            log.warn("Отправка {} раз ждала свободного слота (max-in-flight={}); ожидание учтено в задержке",
+                    blockedOnInFlight, options.getMaxInFlight());
+        }
+        return end - measureFrom;
+    }
+
+    public Map<Operation, OperationStats> getStats() {
+        return stats;
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /** Массив, в котором каждая операция встречается weight раз: выбор - один случайный индекс. */
+    private static Operation[] expand(Map<Operation, Integer> mix) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        if (total <= 0) {
+            throw new IllegalArgumentException("Сумма весов смеси должна быть больше нуля: " + mix);
+        }
+        Operation[] weighted = new Operation[total];
+        int index = 0;
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                weighted[index++] = entry.getKey();
+            }
+        }
+        return weighted;
+    }
+}
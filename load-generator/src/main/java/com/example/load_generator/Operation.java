@@ -0,0 +1,33 @@
+package com.example.load_generator;
+
+import java.util.Locale;
+
+/** Операции смеси нагрузки; каждая - один HTTP-запрос к REST-шлюзу и полный круг через Kafka. */
+public enum Operation {
+    /** POST /create: incident-create -> INSERT -> incident-create-response. */
+    CREATE(false),
+    /** PUT /update по id ранее созданного инцидента. */
+    UPDATE(true),
+    /** GET /{id} ранее созданного инцидента (кэш шлюза или incident-find-request). */
+    FIND(true),
+    /** GET ?service=...&limit=... - страница поиска по фильтру. */
+    SEARCH(false);
+
+    private final boolean needsId;
+
+    Operation(boolean needsId) {
+        this.needsId = needsId;
+    }
+
+    public boolean needsId() {
+        return needsId;
+    }
+
+    public String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Operation fromName(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.load_generator;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Замеры одной операции. response - от запланированного момента отправки до ответа (с поправкой на
+ * coordinated omission: задержка отправки из-за перегрузки тоже входит), service - от фактической
+ * отправки; их расхождение на хвосте показывает, сколько ожидания скрыл бы наивный замер.
+ */
+public class OperationStats {
+    private final Operation operation;
+    private final Histogram response = new ConcurrentHistogram(3);
+    private final Histogram service = new ConcurrentHistogram(3);
+    private final LongAdder errors = new LongAdder();
+
+    public OperationStats(Operation operation) {
+        this.operation = operation;
+    }
+
+    public void record(long intendedStartNanos, long sentNanos, long completedNanos, boolean success) {
+        response.recordValue(completedNanos - intendedStartNanos);
+        service.recordValue(completedNanos - sentNanos);
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Histogram getResponse() {
+        return response;
+    }
+
+    public Histogram getService() {
+        return service;
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+}
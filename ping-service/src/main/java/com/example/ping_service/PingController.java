@@ -3,6 +3,7 @@ package com.example.ping_service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -14,22 +15,14 @@ import java.util.Map;
 @RestController
 @Slf4j
 public class PingController {
-    private final IncidentServiceClient incidentServiceClient;
-    private final ProcessorServiceClient processorServiceClient;
-    private final ProducerServiceClient producerServiceClient;
-    private final AlertServiceClient alertServiceClient;
+    private final ServiceProber serviceProber;
 
+    private final MeterRegistry meterRegistry;
     private final Counter totalRequestCounter;
 
-    public PingController(IncidentServiceClient incidentServiceClient,
-                          ProcessorServiceClient processorServiceClient,
-                          ProducerServiceClient producerServiceClient,
-                          MeterRegistry meterRegistry,
-                          AlertServiceClient alertServiceClient) {
-        this.incidentServiceClient = incidentServiceClient;
-        this.processorServiceClient = processorServiceClient;
-        this.producerServiceClient = producerServiceClient;
-        this.alertServiceClient = alertServiceClient;
+    public PingController(ServiceProber serviceProber, MeterRegistry meterRegistry) {
+        this.serviceProber = serviceProber;
+        this.meterRegistry = meterRegistry;
 
         totalRequestCounter = Counter.builder("ping-service.requests.total")
                 .description("Общее количество запросов REST в ping service ")
@@ -37,27 +30,14 @@ public class PingController {
                 .register(meterRegistry);
     }
 
+    /**
+     * Последний снимок опроса по расписанию: для каждого сервиса статус, время ответа в мс и время проверки.
+     * live=true опрашивает сервисы сейчас.
+     */
     @GetMapping("/ping")
-    public Map<String, String> pingAllServices() {
-        Map<String, String> map = new HashMap<>();
-        log.info("GET /ping получение статуса всех сервисов");
-        map.put("incident-service", checkService(incidentServiceClient :: pingService));
-        map.put("incident-processor-service", checkService(processorServiceClient :: pingService));
-        map.put("incident-producer-service", checkService(producerServiceClient :: pingService));
-        map.put("alert-service", checkService(alertServiceClient::pingService));
-
-        return map;
-    }
-
-    private String checkService(java.util.function.Supplier<String> supplier) {
-        try{
-            supplier.get();
-            return "OK";
-        }
-        catch (Exception e){
-            log.error("check service exception", e);
-            return "down";
-        }
+    public Map<String, ServiceHealth> pingAllServices(@RequestParam(defaultValue = "false") boolean live) {
+        log.info("GET /ping получение статуса всех сервисов, live: {}", live);
+        return live ? serviceProber.probeAll() : serviceProber.snapshot();
     }
 
     ///  api для сбора метрик с сервиса
@@ -82,19 +62,21 @@ public class PingController {
                 "health", "/actuator/health",
                 "metrics", "/actuator/metrics"
         ));
-        metrics.put("kafka_metrics", List.of(
-                "incidents.kafka.processing.time",
-                "incidents.kafka.errors.total",
-                "incidents.kafka.created.total"
-        ));
-        metrics.put("api_metrics", List.of(
-                "ping-service.requests.total",
-                "ping-service.processing.timer",
-                "ping-service.errors.total"
-        ));
+        // имена из реестра: список не расходится с тем, что сервис действительно регистрирует
+        metrics.put("kafka_metrics", registered("incidents."));
+        metrics.put("api_metrics", registered("ping-service."));
         return ResponseEntity.ok(metrics);
     }
 
+    private List<String> registered(String prefix) {
+        return meterRegistry.getMeters().stream()
+                .map(meter -> meter.getId().getName())
+                .filter(name -> name.startsWith(prefix))
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
         Map<String, String> status = new HashMap<>();
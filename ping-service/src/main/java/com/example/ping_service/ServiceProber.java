@@ -0,0 +1,226 @@
+package com.example.ping_service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Опрос health-эндпоинтов всех сервисов. Каждый сервис опрашивается в своём виртуальном потоке,
+ * все проверки укладываются в общий срок probeTimeout: время ответа /ping не больше самой медленной
+ * проверки и не больше срока, зависший сервис не задерживает остальные.
+ * Опрос идёт по расписанию (ping.refresh-interval), /ping отдаёт последний снимок без обращения к сервисам,
+ * поэтому частота опроса сервисов не зависит от того, как часто мониторинг вызывает /ping.
+ */
+@Component
+@Slf4j
+public class ServiceProber {
+    public static final String STATUS_UP = "OK";
+    public static final String STATUS_DOWN = "down";
+    public static final String STATUS_TIMEOUT = "timeout";
+
+    private final List<Target> targets;
+    private final Duration probeTimeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile Map<String, ServiceHealth> snapshot = Map.of();
+
+    public ServiceProber(IncidentServiceClient incidentServiceClient,
+                         ProcessorServiceClient processorServiceClient,
+                         ProducerServiceClient producerServiceClient,
+                         AlertServiceClient alertServiceClient,
+                         ServiceConfig serviceConfig,
+                         MeterRegistry meterRegistry,
+                         @Value("${ping.probe-timeout:2s}") Duration probeTimeout) {
+        this.probeTimeout = probeTimeout;
+        this.targets = List.of(
+                new Target("incident-service", incidentServiceClient::pingService,
+                        info(serviceConfig.getService().getUrl(), serviceConfig.getService().getHealthEndpoint()),
+                        meterRegistry),
+                new Target("incident-processor-service", processorServiceClient::pingService,
+                        info(serviceConfig.getProcessor().getUrl(), serviceConfig.getProcessor().getHealthEndpoint()),
+                        meterRegistry),
+                new Target("incident-producer-service", producerServiceClient::pingService,
+                        info(serviceConfig.getProducerService().getUrl(), serviceConfig.getProducerService().getHealthEndpoint()),
+                        meterRegistry),
+                new Target("alert-service", alertServiceClient::pingService,
+                        info(serviceConfig.getAlertService().getUrl(), serviceConfig.getAlertService().getHealthEndpoint()),
+                        meterRegistry));
+    }
+
+    /** Последний снимок; до первого опроса по расписанию опрашивает сервисы сам. */
+    public Map<String, ServiceHealth> snapshot() {
+        Map<String, ServiceHealth> current = snapshot;
+        return current.isEmpty() ? refresh() : current;
+    }
+
+    @Scheduled(initialDelayString = "0", fixedDelayString = "${ping.refresh-interval:10s}")
+    public Map<String, ServiceHealth> refresh() {
+        Map<String, ServiceHealth> previous = snapshot;
+        Map<String, ServiceHealth> current = probeAll();
+        for (Target target : targets) {
+            target.record(previous.get(target.name), current.get(target.name));
+        }
+        snapshot = current;
+        return current;
+    }
+
+    /** Опрос всех сервисов сейчас, в обход снимка. */
+    public Map<String, ServiceHealth> probeAll() {
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + probeTimeout.toNanos();
+
+        Map<Target, Future<ServiceHealth>> running = new LinkedHashMap<>();
+        for (Target target : targets) {
+            running.put(target, executor.submit(() -> probe(target.probe)));
+        }
+
+        Map<String, ServiceHealth> result = new LinkedHashMap<>();
+        running.forEach((target, future) -> {
+            ServiceHealth health = await(target.name, future, startNanos, deadlineNanos);
+            health.setAdditionalInfo(target.info);
+            result.put(target.name, health);
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    private ServiceHealth probe(Supplier<String> probe) {
+        long start = System.nanoTime();
+        try {
+            String response = probe.get();
+            return ServiceHealth.builder()
+                    .healthy(true)
+                    .status(STATUS_UP)
+                    .response(response)
+                    .responseTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .timestamp(LocalDateTime.now())
+                    .build();
+        } catch (Exception e) {
+            return ServiceHealth.builder()
+                    .healthy(false)
+                    .status(STATUS_DOWN)
+                    .errorMessage(e.getMessage())
+                    .responseTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .timestamp(LocalDateTime.now())
+                    .build();
+        }
+    }
+
+    private ServiceHealth await(String name, Future<ServiceHealth> future, long startNanos, long deadlineNanos) {
+        try {
+            ServiceHealth health = future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (!health.isHealthy()) {
+                log.error("check service exception: {} - {}", name, health.getErrorMessage());
+            }
+            return health;
+        } catch (TimeoutException e) {
+            // прерывание закрывает сокет, на котором висит виртуальный поток
+            future.cancel(true);
+            log.error("check service timeout: {} не ответил за {} мс", name, probeTimeout.toMillis());
+            return failed(STATUS_TIMEOUT, "Нет ответа за " + probeTimeout.toMillis() + " мс", startNanos);
+        } catch (ExecutionException e) {
+            log.error("check service exception: {}", name, e.getCause());
+            return failed(STATUS_DOWN, String.valueOf(e.getCause()), startNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return failed(STATUS_DOWN, "Проверка прервана", startNanos);
+        }
+    }
+
+    private static ServiceHealth failed(String status, String errorMessage, long startNanos) {
+        return ServiceHealth.builder()
+                .healthy(false)
+                .status(status)
+                .errorMessage(errorMessage)
+                .responseTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    private static Map<String, Object> info(String url, String healthEndpoint) {
+        Map<String, Object> info = new HashMap<>();
+        info.put("url", url);
+        info.put("healthEndpoint", healthEndpoint);
+        return Collections.unmodifiableMap(info);
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /** Сервис и его метрики: время ответа, доступность, переходы между up и down. */
+    private static final class Target {
+        private final String name;
+        private final Supplier<String> probe;
+        private final Map<String, Object> info;
+        private final Timer responseTime;
+        private final Counter wentUp;
+        private final Counter wentDown;
+        private volatile boolean up;
+
+        private Target(String name, Supplier<String> probe, Map<String, Object> info, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.probe = probe;
+            this.info = info;
+            responseTime = Timer.builder("ping-service.probe.time")
+                    .description("Время ответа health-эндпоинта сервиса")
+                    .tag("application", "ping-service")
+                    .tag("target", name)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            wentUp = Counter.builder("ping-service.probe.transitions.total")
+                    .description("Смены состояния сервиса между up и down")
+                    .tag("application", "ping-service")
+                    .tag("target", name)
+                    .tag("to", "up")
+                    .register(meterRegistry);
+            wentDown = Counter.builder("ping-service.probe.transitions.total")
+                    .description("Смены состояния сервиса между up и down")
+                    .tag("application", "ping-service")
+                    .tag("target", name)
+                    .tag("to", "down")
+                    .register(meterRegistry);
+            Gauge.builder("ping-service.target.up", this, target -> target.up ? 1 : 0)
+                    .description("1 - сервис ответил на последнюю проверку")
+                    .tag("application", "ping-service")
+                    .tag("target", name)
+                    .register(meterRegistry);
+        }
+
+        private void record(ServiceHealth previous, ServiceHealth current) {
+            responseTime.record(current.getResponseTime(), TimeUnit.MILLISECONDS);
+            up = current.isHealthy();
+            if (previous == null || previous.isHealthy() == current.isHealthy()) {
+                return;
+            }
+            if (current.isHealthy()) {
+                wentUp.increment();
+                log.info("Сервис {} снова доступен", name);
+            } else {
+                wentDown.increment();
+                log.warn("Сервис {} недоступен: {}", name, current.getStatus());
+            }
+        }
+    }
+}
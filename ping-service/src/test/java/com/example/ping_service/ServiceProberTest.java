@@ -0,0 +1,167 @@
+package com.example.ping_service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Story;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@Epic("Ping service tests")
+@ExtendWith(MockitoExtension.class)
+public class ServiceProberTest {
+
+    private static final Duration PROBE_TIMEOUT = Duration.ofMillis(500);
+    // запас на планирование потоков в общей песочнице
+    private static final long SCHEDULING_SLACK_MILLIS = 250;
+
+    @Mock
+    private IncidentServiceClient incidentServiceClient;
+    @Mock
+    private ProcessorServiceClient processorServiceClient;
+    @Mock
+    private ProducerServiceClient producerServiceClient;
+    @Mock
+    private AlertServiceClient alertServiceClient;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ServiceProber prober;
+
+    @BeforeEach
+    public void setup() {
+        prober = new ServiceProber(incidentServiceClient, processorServiceClient, producerServiceClient,
+                alertServiceClient, serviceConfig(), meterRegistry, PROBE_TIMEOUT);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        prober.close();
+    }
+
+    @Test
+    @Story("Зависший сервис не задерживает опрос дольше probeTimeout, остальные получают свой статус")
+    public void probeAll_fastHungAndThrowing_finishesWithinProbeTimeout() {
+        when(incidentServiceClient.pingService()).thenReturn("UP");
+        when(processorServiceClient.pingService()).thenAnswer(invocation -> {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            return "UP";
+        });
+        when(producerServiceClient.pingService()).thenThrow(new IllegalStateException("Connection refused"));
+        when(alertServiceClient.pingService()).thenReturn("UP");
+
+        long start = System.nanoTime();
+        Map<String, ServiceHealth> result = prober.probeAll();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsedMillis).isLessThanOrEqualTo(PROBE_TIMEOUT.toMillis() + SCHEDULING_SLACK_MILLIS);
+        assertThat(result).containsOnlyKeys("incident-service", "incident-processor-service",
+                "incident-producer-service", "alert-service");
+
+        ServiceHealth fast = result.get("incident-service");
+        assertThat(fast.isHealthy()).isTrue();
+        assertThat(fast.getStatus()).isEqualTo(ServiceProber.STATUS_UP);
+        assertThat(fast.getResponse()).isEqualTo("UP");
+        assertThat(fast.getResponseTime()).isLessThan(PROBE_TIMEOUT.toMillis());
+
+        ServiceHealth hung = result.get("incident-processor-service");
+        assertThat(hung.isHealthy()).isFalse();
+        assertThat(hung.getStatus()).isEqualTo(ServiceProber.STATUS_TIMEOUT);
+        assertThat(hung.getResponseTime()).isBetween(PROBE_TIMEOUT.toMillis(), elapsedMillis);
+
+        ServiceHealth throwing = result.get("incident-producer-service");
+        assertThat(throwing.isHealthy()).isFalse();
+        assertThat(throwing.getStatus()).isEqualTo(ServiceProber.STATUS_DOWN);
+        assertThat(throwing.getErrorMessage()).isEqualTo("Connection refused");
+        assertThat(throwing.getResponseTime()).isLessThan(PROBE_TIMEOUT.toMillis());
+
+        assertThat(result.get("alert-service").getStatus()).isEqualTo(ServiceProber.STATUS_UP);
+        assertThat(result.values()).allSatisfy(health ->
+                assertThat(health.getAdditionalInfo()).containsKeys("url", "healthEndpoint"));
+    }
+
+    @Test
+    @Story("/ping между опросами по расписанию отдаёт снимок и не обращается к сервисам")
+    public void ping_betweenRefreshes_doesNotCallClients() {
+        stubAllUp();
+        PingController controller = new PingController(prober, meterRegistry);
+
+        prober.refresh();
+        Map<String, ServiceHealth> first = controller.pingAllServices(false);
+        Map<String, ServiceHealth> second = controller.pingAllServices(false);
+
+        assertThat(second).isSameAs(first);
+        verify(incidentServiceClient, times(1)).pingService();
+        verify(processorServiceClient, times(1)).pingService();
+        verify(producerServiceClient, times(1)).pingService();
+        verify(alertServiceClient, times(1)).pingService();
+
+        controller.pingAllServices(true);
+        verify(incidentServiceClient, times(2)).pingService();
+    }
+
+    @Test
+    @Story("Переход сервиса из down в up учитывается в to=up один раз")
+    public void refresh_downThenUp_countsTransitionOnce() {
+        stubAllUp();
+        when(alertServiceClient.pingService())
+                .thenThrow(new IllegalStateException("Connection refused"))
+                .thenReturn("UP");
+
+        prober.refresh();
+        prober.refresh();
+        prober.refresh();
+
+        assertThat(transitions("alert-service", "up")).isEqualTo(1.0);
+        assertThat(transitions("alert-service", "down")).isZero();
+        assertThat(transitions("incident-service", "up")).isZero();
+        assertThat(meterRegistry.get("ping-service.target.up").tag("target", "alert-service").gauge().value())
+                .isEqualTo(1.0);
+    }
+
+    private void stubAllUp() {
+        when(incidentServiceClient.pingService()).thenReturn("UP");
+        when(processorServiceClient.pingService()).thenReturn("UP");
+        when(producerServiceClient.pingService()).thenReturn("UP");
+        when(alertServiceClient.pingService()).thenReturn("UP");
+    }
+
+    private double transitions(String target, String to) {
+        return meterRegistry.get("ping-service.probe.transitions.total")
+                .tag("target", target)
+                .tag("to", to)
+                .counter()
+                .count();
+    }
+
+    private static ServiceConfig serviceConfig() {
+        ServiceConfig config = new ServiceConfig();
+        ServiceConfig.Service service = new ServiceConfig.Service();
+        service.setUrl("http://incident-service:8080");
+        service.setHealthEndpoint("/health");
+        config.setService(service);
+        ServiceConfig.Processor processor = new ServiceConfig.Processor();
+        processor.setUrl("http://incident-processor:8080");
+        processor.setHealthEndpoint("/health");
+        config.setProcessor(processor);
+        ServiceConfig.ProducerService producerService = new ServiceConfig.ProducerService();
+        producerService.setUrl("http://incident-producer-service:8080");
+        producerService.setHealthEndpoint("/health");
+        config.setProducerService(producerService);
+        ServiceConfig.AlertService alertService = new ServiceConfig.AlertService();
+        alertService.setUrl("http://alert-service:8080");
+        alertService.setHealthEndpoint("/health");
+        config.setAlertService(alertService);
+        return config;
+    }
+}